@@ -8,35 +8,67 @@ import net.onewordstory.core.usecases.GameDTO;
  */
 public class GameDisplayData {
 
+    private final int gameId;
+    private final long version;
     private final @NotNull PlayerDisplayData[] players;
     private final @NotNull PlayerDisplayData currentPlayerTurn;
-    private final @NotNull String storyString;
+    private final @NotNull CharSequence storyString;
     private final int secondsLeftInTurn;
+    private final long turnDeadlineMillis;
 
     /**
      * Constructor for GameDisplayData
+     * @param gameId the ID of the game this data was taken from
+     * @param version the version of the game state this data was taken from
      * @param players the players in the "game"
      * @param currentPlayerTurn the player whose turn it currently is
-     * @param storyString the story
+     * @param storyString the story, which may be a view sharing the story's buffer
      * @param secondsLeftInTurn the seconds left in the current turn
+     * @param turnDeadlineMillis the time on the server clock at which the current turn runs out
      */
-    protected GameDisplayData(@NotNull PlayerDisplayData[] players,
+    protected GameDisplayData(int gameId, long version, @NotNull PlayerDisplayData[] players,
                               @NotNull PlayerDisplayData currentPlayerTurn,
-                              @NotNull String storyString, int secondsLeftInTurn) {
+                              @NotNull CharSequence storyString, int secondsLeftInTurn,
+                              long turnDeadlineMillis) {
+        this.gameId = gameId;
+        this.version = version;
         this.players = players;
         this.currentPlayerTurn = currentPlayerTurn;
         this.storyString = storyString;
         this.secondsLeftInTurn = secondsLeftInTurn;
+        this.turnDeadlineMillis = turnDeadlineMillis;
     }
 
+    public int getGameId() { return gameId; }
+
+    /**
+     * @return version of the game state, higher for newer states of the same game
+     */
+    public long getVersion() { return version; }
+
     public @NotNull PlayerDisplayData[] getPlayers() { return players; }
 
     public @NotNull PlayerDisplayData getCurrentPlayerTurn() { return currentPlayerTurn; }
 
-    public @NotNull String getStoryString() { return storyString; }
+    public @NotNull String getStoryString() { return storyString.toString(); }
+
+    /**
+     * @return amount of characters in the story, without copying it
+     */
+    public int storyLength() { return storyString.length(); }
+
+    /**
+     * @param offset length of the story in an earlier state of the same game
+     * @return the text appended to the story since then, copying only that text
+     */
+    public @NotNull String storySince(int offset) {
+        return storyString.subSequence(offset, storyString.length()).toString();
+    }
 
     public int getSecondsLeftInTurn() {return  secondsLeftInTurn; }
 
+    public long getTurnDeadlineMillis() { return turnDeadlineMillis; }
+
     /**
      * Factory method for making a GameDisplayData from GameDTO
      * @param gameData GameDTO object
@@ -46,9 +78,12 @@ public class GameDisplayData {
      */
     public static GameDisplayData fromGameDTO(GameDTO gameData) throws IllegalArgumentException {
         return new GameDisplayDataBuilder()
+                .setGameId(gameData.getGameId())
+                .setVersion(gameData.getVersion())
                 .addPlayersFromDTO(gameData.getPlayers(), gameData.getCurrentTurnPlayerId())
-                .setStoryString(gameData.getStory())
+                .setStoryString(gameData.getStoryText())
                 .setSecondsLeftInTurn(gameData.getSecondsLeftCurrentTurn())
+                .setTurnDeadlineMillis(gameData.getTurnDeadlineMillis())
                 .build();
     }
 }
@@ -10,10 +10,13 @@ import java.util.List;
  */
 public class GameDisplayDataBuilder {
 
+    private int gameId;
+    private long version;
     private final List<PlayerDisplayData> players;
     private PlayerDisplayData curTurnPlayer;
     private int secondsLeftInTurn;
-    private String storyString;
+    private long turnDeadlineMillis;
+    private CharSequence storyString;
 
     /**
      * Initialize builder
@@ -50,6 +53,24 @@ public class GameDisplayDataBuilder {
         return this;
     }
 
+    /**
+     * @param gameId ID of the game this data is taken from
+     * @return this builder
+     */
+    public GameDisplayDataBuilder setGameId(int gameId) {
+        this.gameId = gameId;
+        return this;
+    }
+
+    /**
+     * @param version version of the game state this data is taken from
+     * @return this builder
+     */
+    public GameDisplayDataBuilder setVersion(long version) {
+        this.version = version;
+        return this;
+    }
+
     /**
      * @param secs time in seconds left in the current turn
      * @return this builder
@@ -60,10 +81,19 @@ public class GameDisplayDataBuilder {
     }
 
     /**
-     * @param story String of the story in the game currently
+     * @param deadlineMillis time on the server clock at which the current turn runs out
+     * @return this builder
+     */
+    public GameDisplayDataBuilder setTurnDeadlineMillis(long deadlineMillis) {
+        turnDeadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    /**
+     * @param story the story in the game currently, as a string or a view of it
      * @return this builder
      */
-    public GameDisplayDataBuilder setStoryString(String story) {
+    public GameDisplayDataBuilder setStoryString(CharSequence story) {
         storyString = story;
         return this;
     }
@@ -75,7 +105,7 @@ public class GameDisplayDataBuilder {
         if (curTurnPlayer == null || storyString == null) {
             throw new IllegalStateException("Not all GameDisplayData has been set!");
         }
-        return new GameDisplayData(players.toArray(new PlayerDisplayData[0]),
-                curTurnPlayer, storyString, secondsLeftInTurn);
+        return new GameDisplayData(gameId, version, players.toArray(new PlayerDisplayData[0]),
+                curTurnPlayer, storyString, secondsLeftInTurn, turnDeadlineMillis);
     }
 }
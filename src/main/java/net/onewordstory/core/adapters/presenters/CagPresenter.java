@@ -5,6 +5,7 @@ import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.comment_as_guest.CagOutputBoundary;
 import net.onewordstory.core.usecases.comment_as_guest.CagOutputData;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class CagPresenter implements CagOutputBoundary {
@@ -32,4 +33,9 @@ public class CagPresenter implements CagOutputBoundary {
     public void outputShutdownServer() {
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
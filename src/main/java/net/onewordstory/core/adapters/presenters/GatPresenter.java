@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class GatPresenter implements GatOutputBoundary {
@@ -43,4 +44,9 @@ public class GatPresenter implements GatOutputBoundary {
     public void outputShutdownServer(){
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy(){
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
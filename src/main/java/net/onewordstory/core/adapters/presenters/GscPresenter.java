@@ -10,6 +10,7 @@ import net.onewordstory.core.usecases.get_story_comments.GscOutputData;
 import java.util.ArrayList;
 import java.util.List;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class GscPresenter implements GscOutputBoundary {
@@ -47,4 +48,9 @@ public class GscPresenter implements GscOutputBoundary {
     public void outputShutdownServer() {
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
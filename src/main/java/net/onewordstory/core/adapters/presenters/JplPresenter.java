@@ -9,6 +9,7 @@ import net.onewordstory.core.usecases.join_public_lobby.JplOutputBoundary;
 import net.onewordstory.core.usecases.join_public_lobby.JplOutputDataJoinedGame;
 import net.onewordstory.core.usecases.join_public_lobby.JplOutputDataResponse;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class JplPresenter implements JplOutputBoundary {
@@ -67,4 +68,11 @@ public class JplPresenter implements JplOutputBoundary {
                 "Presenter outputShutdownServer");
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        Log.sendMessage(ANSI.BLUE, "JPL", ANSI.LIGHT_BLUE,
+                "Presenter outputServerBusy");
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
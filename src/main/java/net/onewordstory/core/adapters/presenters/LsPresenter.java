@@ -5,6 +5,7 @@ import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.like_story.LsOutputBoundary;
 import net.onewordstory.core.usecases.like_story.LsOutputData;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 /**
@@ -33,4 +34,9 @@ public class LsPresenter implements LsOutputBoundary {
     public void outputShutdownServer() {
         viewModel.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        viewModel.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
@@ -36,6 +36,6 @@ public class PgePresenter implements PgeOutputBoundary {
             output.put(outputData.getPlayerId(), d);
         }
 
-        viewM.setEndGameData(output);
+        viewM.setEndGameData(data.getGameId(), output);
     }
 }
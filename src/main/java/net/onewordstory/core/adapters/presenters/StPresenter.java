@@ -5,6 +5,7 @@ import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.suggest_title.StOutputBoundary;
 import net.onewordstory.core.usecases.suggest_title.StOutputData;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 /**
@@ -34,4 +35,9 @@ public class StPresenter implements StOutputBoundary {
     public void outputShutdownServer() {
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
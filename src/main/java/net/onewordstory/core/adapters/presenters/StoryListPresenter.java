@@ -15,6 +15,7 @@ import net.onewordstory.core.usecases.get_story_by_id.GsbiOutputBoundary;
 import java.util.ArrayList;
 import java.util.List;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class StoryListPresenter implements GlsOutputBoundary, GmlsOutputBoundary, GsbiOutputBoundary {
@@ -54,4 +55,10 @@ public class StoryListPresenter implements GlsOutputBoundary, GmlsOutputBoundary
         viewM.getResponseAwaitable().set(
                 new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        viewM.getResponseAwaitable().set(
+                new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
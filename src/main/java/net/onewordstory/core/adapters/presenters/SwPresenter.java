@@ -9,6 +9,7 @@ import net.onewordstory.core.usecases.submit_word.SwOutputBoundary;
 import net.onewordstory.core.usecases.submit_word.SwOutputDataFailure;
 import net.onewordstory.core.usecases.submit_word.SwOutputDataValidWord;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class SwPresenter implements SwOutputBoundary {
@@ -54,4 +55,11 @@ public class SwPresenter implements SwOutputBoundary {
                 "Presenter outputShutdownServer");
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy() {
+        Log.sendMessage(ANSI.BLUE, "SW", ANSI.LIGHT_BLUE,
+                "Presenter outputServerBusy");
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
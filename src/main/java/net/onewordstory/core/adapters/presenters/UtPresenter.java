@@ -5,6 +5,7 @@ import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.upvote_title.UtOutputBoundary;
 import net.onewordstory.core.usecases.upvote_title.UtOutputData;
 
+import static net.onewordstory.core.usecases.Response.ResCode.SERVER_BUSY;
 import static net.onewordstory.core.usecases.Response.ResCode.SHUTTING_DOWN;
 
 public class UtPresenter implements UtOutputBoundary {
@@ -30,4 +31,9 @@ public class UtPresenter implements UtOutputBoundary {
     public void outputShutdownServer(){
         viewM.getResponseAwaitable().set(new Response(SHUTTING_DOWN, "Server shutting down"));
     }
+
+    @Override
+    public void outputServerBusy(){
+        viewM.getResponseAwaitable().set(new Response(SERVER_BUSY, "Server busy, try again later"));
+    }
 }
@@ -3,7 +3,14 @@ package net.onewordstory.core.adapters.view_models;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
+import java.util.function.Consumer;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -14,26 +21,46 @@ import java.util.concurrent.locks.ReentrantLock;
  * thread and the getter thread. The setter thread sets the object once when
  * it is prepared, and the getter thread can await for it to be set and then
  * get it.
+ * <br><br>
+ * Instead of blocking on await, a getter may register a callback with onSet, which
+ * is called with the content once it is set, or compose on toCompletionStage. A getter
+ * which must block should bound its wait, so it fails fast if the setter never sets it.
+ * <br><br>
+ * Once the content is set, reading it takes no lock.
  */
 public class Awaitable<T> {
 
     private final Lock lock;
     private final Condition condition;
+
+    /**
+     * If the content was set. Guarded by lock
+     */
     private boolean hasSignalled;
-    private T content;
+
+    /**
+     * Null until set. Written under lock, but read without it
+     */
+    private volatile T content;
+
+    /**
+     * Callbacks waiting for the content to be set. Null once it is set. Guarded by lock
+     */
+    private List<Consumer<? super T>> callbacks;
 
     public Awaitable() {
         lock = new ReentrantLock();
         hasSignalled = false;
         condition = lock.newCondition();
         content = null;
+        callbacks = new ArrayList<>();
     }
 
     /**
      * @return if the items were set (true) or are still null (false)
      */
     public boolean isSet() {
-        return hasSignalled;
+        return content != null;
     }
 
     /**
@@ -42,7 +69,10 @@ public class Awaitable<T> {
      */
     @NotNull
     public T await() throws InterruptedException {
-        T out;
+        T out = content;
+        if (out != null) {
+            return out;
+        }
 
         lock.lock();
         try {
@@ -59,6 +89,35 @@ public class Awaitable<T> {
         return out;
     }
 
+    /**
+     * Wait for the content to be set, at most for the timeout
+     * @param timeout longest time to wait
+     * @param unit unit of the timeout
+     * @return the content once it is set
+     * @throws TimeoutException if the content wasn't set within the timeout
+     */
+    @NotNull
+    public T await(long timeout, @NotNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        T out = content;
+        if (out != null) {
+            return out;
+        }
+
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!hasSignalled) {
+                if (remaining <= 0) {
+                    throw new TimeoutException("Awaitable was not set within " + timeout + " " + unit);
+                }
+                remaining = condition.awaitNanos(remaining);
+            }
+            return content;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Signals and sets a boolean to awake any await calls. After the boolean is set,
      * all future await calls return immediately
@@ -67,7 +126,7 @@ public class Awaitable<T> {
         lock.lock();
         if (!hasSignalled) {
             hasSignalled = true;
-            condition.signal();
+            condition.signalAll();
         }
         lock.unlock();
     }
@@ -79,10 +138,61 @@ public class Awaitable<T> {
      * @param content the content to set
      */
     public void set(@NotNull T content) {
+        List<Consumer<? super T>> toCall;
+
         lock.lock();
         this.content = content;
         signal();
+        toCall = callbacks;
+        callbacks = null;
         lock.unlock();
+
+        // Called outside the lock, so callbacks may use this awaitable
+        if (toCall != null) {
+            for (Consumer<? super T> callback : toCall) {
+                callback.accept(content);
+            }
+        }
+    }
+
+    /**
+     * Register a callback to be called with the content once it is set, instead of
+     * blocking on await. The callback is called on the thread which sets the content,
+     * so it should be quick and must not block; hand longer work off to an executor.
+     * If the content is already set, the callback is called immediately on this thread
+     * @param callback called once with the content
+     */
+    public void onSet(@NotNull Consumer<? super T> callback) {
+        T out = content;
+        if (out != null) {
+            callback.accept(out);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+            out = content;
+        } finally {
+            lock.unlock();
+        }
+        callback.accept(out);
+    }
+
+    /**
+     * View of this awaitable which completes with the content once it is set. Stages which
+     * depend on it run on the thread which sets the content, unless they are async, so the
+     * same care as with onSet applies
+     * @return stage completed with the content
+     */
+    @NotNull
+    public CompletionStage<T> toCompletionStage() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        onSet(future::complete);
+        return future.minimalCompletionStage();
     }
 
     /**
@@ -97,10 +207,7 @@ public class Awaitable<T> {
      */
     @Nullable
     public T get() {
-        lock.lock();
-        T out = content;
-        lock.unlock();
-        return out;
+        return content;
     }
 }
 
@@ -11,7 +11,8 @@ public interface PgeCallback {
 
     /**
      * Custom callback for reacting to a game ending
+     * @param gameId ID of the game which ended
      * @param playerStatData The data that PGE provides containing a list of player statistics
      */
-    void onGameEnd(Map<String, GameEndPlayerDisplayData> playerStatData);
+    void onGameEnd(int gameId, Map<String, GameEndPlayerDisplayData> playerStatData);
 }
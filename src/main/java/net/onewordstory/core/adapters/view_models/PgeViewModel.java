@@ -10,9 +10,13 @@ public class PgeViewModel extends ViewModel {
 
     private PgeCallback callback = null;
 
-    public void setEndGameData(@NotNull Map<String, GameEndPlayerDisplayData> d) {
+    /**
+     * @param gameId ID of the game which ended
+     * @param d end of game data of each of its players, by player ID
+     */
+    public void setEndGameData(int gameId, @NotNull Map<String, GameEndPlayerDisplayData> d) {
         lock.lock();
-        if (callback != null) callback.onGameEnd(d);
+        if (callback != null) callback.onGameEnd(gameId, d);
         lock.unlock();
     }
 
@@ -0,0 +1,207 @@
+package net.onewordstory.core.entities;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Mailbox of commands to a single game, which runs them one at a time in the order they
+ * were submitted. No thread is kept per game: the thread which submits a command to an idle
+ * loop drains the mailbox. So a thread submitting to a busy game leaves its command instead
+ * of contending for the game lock.
+ * <br><br>
+ * The loop does not replace the game lock, it batches the engagements of it: commands run
+ * with the lock held, and use cases such as SP and DC, which move players between the pool
+ * and a game, still engage the lock directly rather than submitting to the loop.
+ * <br><br>
+ * A drain only runs as many commands as were queued when it started, so a thread which
+ * submitted one command isn't kept running the commands of everyone else for as long as they
+ * keep coming. The commands queued meanwhile are handed off to the executor, which drains
+ * them the same way. Callers which must never run commands themselves, such as the shared
+ * tick scheduler, submit asynchronously, which always leaves the drain to the executor.
+ * Unless given another, loops share a small pool of their own, so drains never take the
+ * threads of the common pool nor grow with the amount of games.
+ * <br><br>
+ * A drain engages the game lock once around a batch of commands, so the use cases which
+ * engage the lock directly stay atomic with the commands. Results are completed only once the lock is released, so whatever depends on
+ * them, such as presenters, never runs while the game is locked.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. A command must not wait for another command of the same loop, which could
+ *     only run once it returns
+ * </p>
+ */
+public class GameLoop {
+
+    /**
+     * Most commands run per engagement of the game lock, so use cases which engage the lock
+     * directly get their turn while the game is busy
+     */
+    public static final int MAX_BATCH = 64;
+
+    /**
+     * Threads of the pool shared by the loops which are not given an executor, one per core
+     * but no more than 4. Commands are short, so a few threads serve every game
+     */
+    public static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService SHARED_EXECUTOR = newSharedExecutor();
+
+    private static ExecutorService newSharedExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(DEFAULT_THREADS, r -> {
+            Thread t = new Thread(r, "game-loop-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * A submitted command, its outcome once run, and the future of its result
+     */
+    private static final class Pending<R> {
+        private final Callable<R> command;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private R value;
+        private Throwable error;
+
+        Pending(Callable<R> command) {
+            this.command = command;
+        }
+
+        /**
+         * Runs the command, keeping its outcome to complete the result with later. Errors are
+         * kept too, so a failing command can't leave the rest of its batch uncompleted
+         */
+        void run() {
+            try {
+                value = command.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+        }
+
+        /**
+         * Completes the result, once the game lock is released
+         */
+        void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+
+    private final Lock gameLock;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Pending<?>> mailbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Amount of commands in the mailbox, counted before they are added
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * If a thread is draining the mailbox
+     */
+    private final AtomicBoolean isDraining = new AtomicBoolean(false);
+
+    /**
+     * Drains handed off to the pool shared by all such loops
+     * @param gameLock lock of the game, engaged around each batch of commands
+     */
+    public GameLoop(Lock gameLock) {
+        this(gameLock, SHARED_EXECUTOR);
+    }
+
+    /**
+     * @param gameLock lock of the game, engaged around each batch of commands
+     * @param executor runs the drains handed off by submitting threads, may be shared by all loops
+     */
+    public GameLoop(Lock gameLock, Executor executor) {
+        this.gameLock = gameLock;
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a command to the game. If no other thread is draining the mailbox, the command
+     * runs on this thread before this method returns
+     * @param command reads or writes the game. It runs with the game lock held, so it must be
+     *                quick and must not engage the pool lock or a PlayerPoolListener lock
+     * @return future of the command's result, failed with whatever the command throws.
+     * Stages which depend on it run without the game lock held
+     */
+    public <R> CompletableFuture<R> submit(Callable<R> command) {
+        Pending<R> pending = enqueue(command);
+        drain();
+        return pending.result;
+    }
+
+    /**
+     * Submits a command to the game without ever running it on this thread: the mailbox is
+     * drained by the executor
+     * @param command reads or writes the game, see submit
+     * @return future of the command's result, see submit
+     */
+    public <R> CompletableFuture<R> submitAsync(Callable<R> command) {
+        Pending<R> pending = enqueue(command);
+        if (!isDraining.get()) {
+            executor.execute(this::drain);
+        }
+        return pending.result;
+    }
+
+    private <R> Pending<R> enqueue(Callable<R> command) {
+        Pending<R> pending = new Pending<>(command);
+        queued.incrementAndGet();
+        mailbox.add(pending);
+        return pending;
+    }
+
+    /**
+     * Runs the commands queued when it started in batches, unless another thread is already
+     * draining. A command queued just as the draining thread finishes is seen once it releases
+     * the flag, and commands left once it has run its share are handed off to the executor
+     */
+    private void drain() {
+        int budget = queued.get();
+        Pending<?>[] batch = null;
+        while (budget > 0 && !mailbox.isEmpty() && isDraining.compareAndSet(false, true)) {
+            if (batch == null) {
+                batch = new Pending<?>[Math.min(budget, MAX_BATCH)];
+            }
+            int size = 0;
+            gameLock.lock();
+            try {
+                Pending<?> pending;
+                while (size < batch.length && size < budget && (pending = mailbox.poll()) != null) {
+                    queued.decrementAndGet();
+                    pending.run();
+                    batch[size++] = pending;
+                }
+            } finally {
+                gameLock.unlock();
+                isDraining.set(false);
+            }
+            budget -= size;
+
+            for (int i = 0; i < size; i++) {
+                batch[i].complete();
+                batch[i] = null;
+            }
+        }
+
+        // Unless another thread took over, the commands left are this drain's to hand off
+        if (budget <= 0 && !mailbox.isEmpty() && !isDraining.get()) {
+            executor.execute(this::drain);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package net.onewordstory.core.entities;
+
+/**
+ * Used by lobby manager to notify objects which sort players, such as SP,
+ * that the pool or the games changed and players may be sortable now.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     onLobbyChanged is called from whichever thread changed the lobby, often while
+ *     that thread holds the pool lock, a game lock or a PlayerPoolListener lock.
+ *     Implementations must therefore return quickly and must NOT engage any of these
+ *     locks themselves, or they risk a deadlock. Hand the work to another thread instead
+ * </p>
+ */
+public interface LobbyChangeListener {
+    /**
+     * Called after a player entered or left the pool, or left a game
+     */
+    void onLobbyChanged ();
+}
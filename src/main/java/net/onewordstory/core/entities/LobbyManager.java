@@ -7,9 +7,12 @@ import net.onewordstory.core.exceptions.*;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -17,10 +20,25 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * Core entity which keeps track of all the games which are running
  * Every use case has access to an instance of this shared game state
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Any number of games may run concurrently. Each game is registered together
+ *     with its own lock (see GameLockLink), so use cases working on different games
+ *     never contend with each other. Game-specific methods take the ID of the game
+ *     they act on, and the lock of that game should be engaged around their use.
+ * </p>
+ * <p>
+ *     The registry of games and the index from player ID to game are concurrent maps,
+ *     so looking up a game or a game lock is safe without holding any lock. Once the
+ *     lock is engaged, the registration should be checked again, since SP may have
+ *     removed an ended game in the meantime.
+ * </p>
  */
 public class LobbyManager {
 
     public static final int PLAYERS_TO_START_GAME = 2;
+    public static final int MAX_PLAYERS_PER_GAME = 8;
 
     /**
      * Pairs Player objects with the corresponding Listener (join public lobby thread)
@@ -45,13 +63,47 @@ public class LobbyManager {
         }
     }
 
-    private final List<PlayerObserverLink> playerPool;
-    private volatile Game game;
+    /**
+     * Pairs a running Game with the lock which guards it, and the loop which runs the
+     * commands submitted to it. Every use case which touches a game must either submit
+     * a command to its loop, or engage that game's lock, and only that game's lock
+     */
+    public static class GameLockLink {
+        private final Game game;
+        private final Lock gameLock;
+        private final GameLoop gameLoop;
+
+        public GameLockLink (Game g, Lock l) {
+            this.game = g;
+            this.gameLock = l;
+            this.gameLoop = new GameLoop(l);
+        }
+
+        public GameReadOnly getGame() {
+            return this.game;
+        }
+
+        public Lock getGameLock() {
+            return this.gameLock;
+        }
+
+        public GameLoop getGameLoop() {
+            return this.gameLoop;
+        }
+    }
+
+    /**
+     * Players waiting to be sorted, keyed by player ID. Iterates in the order the
+     * players entered, so the player who waited the longest comes first
+     */
+    private final LinkedHashMap<String, PlayerObserverLink> playerPool;
+    private final Map<Integer, GameLockLink> games;
+    private final Map<String, GameLockLink> playerIdToGame;
     private final GameFactory gameFac;
     private final PlayerFactory playerFac;
     private final Timer sortPlayersTimer;
     private final Lock playerPoolLock;
-    private final Lock gameLock;
+    private final List<LobbyChangeListener> lobbyChangeListeners;
 
     /**
      * @param playerFac Inject a factory to determine how players are made
@@ -60,59 +112,143 @@ public class LobbyManager {
     public LobbyManager (PlayerFactory playerFac, GameFactory gameFac) {
         this.gameFac = gameFac;
         this.playerFac = playerFac;
-        this.playerPool = new CopyOnWriteArrayList<>();
+        this.playerPool = new LinkedHashMap<>();
+        this.games = new ConcurrentHashMap<>();
+        this.playerIdToGame = new ConcurrentHashMap<>();
         this.sortPlayersTimer = new Timer(true);
         this.playerPoolLock = new ReentrantLock();
-        this.gameLock = new ReentrantLock();
+        this.lobbyChangeListeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Subscribes a listener to hear about players entering or leaving the pool and
+     * leaving games. Thread safe
+     * @param listener the listener to subscribe
+     */
+    public void addLobbyChangeListener (LobbyChangeListener listener) {
+        lobbyChangeListeners.add(listener);
+    }
+
+    /**
+     * Unsubscribes a listener added with addLobbyChangeListener. Thread safe
+     * @param listener the listener to unsubscribe
+     */
+    public void removeLobbyChangeListener (LobbyChangeListener listener) {
+        lobbyChangeListeners.remove(listener);
+    }
+
+    /**
+     * Calls every subscribed LobbyChangeListener
+     */
+    private void notifyLobbyChanged () {
+        for (LobbyChangeListener listener : lobbyChangeListeners) {
+            listener.onLobbyChanged();
+        }
     }
 
     /**
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
-     * <p> Engage game lock surrounding use as appropriate </p>
-     * @return If a game has been started and has not yet ended
+     * <p> Engage the lock of game gameId surrounding use as appropriate </p>
+     * @param gameId ID of the game
+     * @return If the game is registered and has not yet ended
      */
-    public boolean isGameRunning () { return !(isGameNull() || isGameEnded()); }
+    public boolean isGameRunning (int gameId) {
+        GameLockLink link = games.get(gameId);
+        return link != null && !link.game.isTimerStopped();
+    }
 
     /**
      * <h2>Thread Safety:</h2>
-     * <p> NOT Thread Safe, engages no locks </p>
-     * <p> Engage game lock surrounding use as appropriate </p>
-     * @return If a game instance is null, meaning, no game exists
+     * <p> Thread Safe, the registry is a concurrent map </p>
+     * @param gameId ID of the game
+     * @return If a game with this ID is registered in this LobbyManager
+     */
+    public boolean containsGame (int gameId) { return games.containsKey(gameId); }
+
+    /**
+     * <h2>Thread Safety:</h2>
+     * <p> Thread Safe, the registry is a concurrent map </p>
+     * @return How many games are currently registered, ended or not
      */
-    public boolean isGameNull () { return game == null; }
+    public int getGameCount () { return games.size(); }
+
+    /**
+     * <h2>Thread Safety:</h2>
+     * <p> Thread Safe, the registry is a concurrent map </p>
+     * @return a snapshot of all registered games paired with their locks
+     */
+    public List<GameLockLink> getGames () { return new ArrayList<>(games.values()); }
 
     /**
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
-     * <p> Engage game lock surrounding use as appropriate </p>
-     * @return If a game exists but has ended, meaning, the final timer
+     * <p> Engage the lock of game gameId surrounding use as appropriate </p>
+     * @param gameId ID of the game
+     * @return If the game has ended, meaning, the final timer
      * iteration has finished executing
+     * @throws GameDoesntExistException if no game with this ID is registered
      */
-    public boolean isGameEnded () { return game.isTimerStopped(); }
+    public boolean isGameEnded (int gameId) throws GameDoesntExistException {
+        return getGameLink(gameId).game.isTimerStopped();
+    }
 
     /**
      * Wrapper for switchTurn
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
-     * <p> Engage game lock surrounding use as appropriate </p>
+     * <p> Engage the lock of game gameId surrounding use as appropriate </p>
+     * @param gameId ID of the game whose turn should be switched
+     * @throws GameDoesntExistException if no game with this ID is registered
+     */
+    public boolean switchTurn(int gameId) throws GameDoesntExistException {
+        return getGameLink(gameId).game.switchTurn();
+    }
+
+    /**
+     * Registers a new game along with a fresh lock for it. The initial players
+     * of the game are indexed so that use cases can find the game of a player
+     * <h2>Thread Safety:</h2>
+     * <p> Thread Safe with regards to the registry </p>
+     * <p> The game must not be reachable by any other thread before this call </p>
+     * @param game Game to be registered
+     * @throws GameRunningException if a game with the same ID is already registered
      */
-    public boolean switchTurn() {
-        return game.switchTurn();
+    public void addGame (Game game) throws GameRunningException {
+        GameLockLink link = new GameLockLink(game, new ReentrantLock());
+        if (games.putIfAbsent(game.getGameId(), link) != null) {
+            throw new GameRunningException(
+                    "Trying to set an existing game");
+        }
+        for (Player p : game.getPlayers()) {
+            playerIdToGame.put(p.getPlayerId(), link);
+        }
+        game.publishSnapshot();
     }
 
     /**
+     * Unregisters an ended game and forgets which players were in it. The IDs of
+     * the players still in the game are released, so they can be used again
+     * <br><br>
      * ONLY CALLED BY SP!!!
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
-     * <p> Engage game lock surrounding use as appropriate </p>
-     * @throws GameRunningException if the game is running and you tried to set it to null
+     * <p> Engage the lock of game gameId surrounding use as appropriate </p>
+     * @param gameId ID of the game to remove
+     * @throws GameRunningException if the game is running and you tried to remove it
+     * @throws GameDoesntExistException if no game with this ID is registered
      */
-    public void setGameNull () throws GameRunningException {
-        if (isGameRunning()) {
-            throw new GameRunningException("Cannot set game to null while game is still running");
+    public void removeGame (int gameId) throws GameRunningException, GameDoesntExistException {
+        GameLockLink link = getGameLink(gameId);
+        if (!link.game.isTimerStopped()) {
+            throw new GameRunningException("Cannot remove game while game is still running");
+        }
+        games.remove(gameId);
+        // Players are mapped to the game exactly while they are in it
+        for (Player p : link.game.getPlayers()) {
+            playerIdToGame.remove(p.getPlayerId(), link);
+            playerFac.releasePlayerId(p.getPlayerId());
         }
-        this.game = null;
     }
 
     /**
@@ -121,14 +257,28 @@ public class LobbyManager {
      */
     public Timer getSortPlayersTimer () { return this.sortPlayersTimer; }
 
+    /**
+     * <h2>Thread Safety:</h2>
+     * <p> Thread Safe, engages the pool lock while copying </p>
+     * @return a shallow copy of the player pool, in the order players entered it
+     */
+    public List<PlayerObserverLink> getPool () {
+        playerPoolLock.lock();
+        try {
+            return new ArrayList<>(playerPool.values());
+        } finally {
+            playerPoolLock.unlock();
+        }
+    }
+
     /**
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
      * <p> Engage pool lock surrounding use as appropriate </p>
-     * @return a shallow copy of the player pool
+     * @return how many players are in the pool, without copying it
      */
-    public List<PlayerObserverLink> getPool () {
-        return new ArrayList<>(playerPool);
+    public int getPoolSize () {
+        return playerPool.size();
     }
 
     /**
@@ -139,10 +289,11 @@ public class LobbyManager {
      * <p> NOT Thread Safe, engages no locks </p>
      * <p> Engage pool lock AND PlayerPoolListener lock for player p surrounding use as appropriate </p>
      * @param p Player you would like to remove
+     * @param gameId ID of the game the player has joined
      * @throws PlayerNotFoundException if the player was not found in the pool
      * @throws GameDoesntExistException if the game isn't running, in which case, player can't join it
      */
-    public void removeFromPoolJoin (Player p) throws PlayerNotFoundException, GameDoesntExistException {
+    public void removeFromPoolJoin (Player p, int gameId) throws PlayerNotFoundException, GameDoesntExistException {
         PlayerObserverLink l = getLinkFromPlayer(p);
 
         // This error should not happen unless use case logic is broken
@@ -152,43 +303,68 @@ public class LobbyManager {
             );
         }
 
-        if (!isGameRunning()) {
+        if (!isGameRunning(gameId)) {
             throw new GameDoesntExistException("Game is either null or has ended. Players cannot join it");
         }
         // Below this, we assume that l is in pool and game is running. We assume a proper
         // lock architecture that ensures that this assumption cannot change from another thread
 
         // Removes the link from pool
-        playerPool.remove(l);
+        playerPool.remove(p.getPlayerId());
 
         // Passes game to the corresponding listener
-        l.playerPoolListener.onJoinGamePlayer(game);
+        l.playerPoolListener.onJoinGamePlayer(games.get(gameId).game);
 
     }
 
-    /**
-     * This method removes all the players from the pool
-     */
-    private void clearPool() {
-        playerPool.clear();
-    }
-
     /**
      * This method removes all the players from the pool and notifies their
      * corresponding PlayerPoolListeners that the players were added to the game
      * However, this method DOES NOT add players to any game.
      * Note that this method is NOT thread safe with regards to pool and game, however,
      * it IS thread safe with regards to PlayerPoolListener callbacks
+     * @param gameId ID of the game which the listeners are told they joined
+     * @throws GameDoesntExistException if no game with this ID is registered
+     */
+    public void removeAllFromPoolJoin(int gameId) throws GameDoesntExistException {
+        drainPoolJoin(gameId, playerPool.size());
+    }
+
+    /**
+     * Removes the maxPlayers players who have waited the longest from the pool, or every
+     * player if fewer are waiting, and notifies their corresponding PlayerPoolListeners
+     * that they joined game gameId. Takes the same players, in the same order, as
+     * newGameFromPool, so the two pair up when starting a game. Each removal is O(1)
+     * and the pool is never copied.
+     * However, this method DOES NOT add players to any game.
+     * <br><br>
+     * <h2>Thread Safety:</h2>
+     * <p> NOT Thread Safe with regards to pool and game, engage both locks surrounding use </p>
+     * <p> Thread Safe with regards to PlayerPoolListener callbacks, engages each listener's lock </p>
+     * @param gameId ID of the game which the listeners are told they joined
+     * @param maxPlayers most players to remove
+     * @return the removed links, the longest waiting player first
+     * @throws GameDoesntExistException if no game with this ID is registered
      */
-    public void removeAllFromPoolJoin() {
-        for(PlayerObserverLink playerObserverLink: playerPool) {
+    public List<PlayerObserverLink> drainPoolJoin(int gameId, int maxPlayers) throws GameDoesntExistException {
+        Game game = getGameLink(gameId).game;
+        List<PlayerObserverLink> drained = new ArrayList<>(Math.min(maxPlayers, playerPool.size()));
+        Iterator<PlayerObserverLink> pool = playerPool.values().iterator();
+        while (drained.size() < maxPlayers && pool.hasNext()) {
+            PlayerObserverLink playerObserverLink = pool.next();
+            pool.remove();
+            drained.add(playerObserverLink);
+
             // We need to lock the critical section for every player
             Lock lock = playerObserverLink.getPlayerPoolListener().getLock();
             lock.lock();
-            playerObserverLink.playerPoolListener.onJoinGamePlayer(this.game);
-            lock.unlock();
+            try {
+                playerObserverLink.playerPoolListener.onJoinGamePlayer(game);
+            } finally {
+                lock.unlock();
+            }
         }
-        this.clearPool();
+        return drained;
     }
 
     /**
@@ -196,67 +372,64 @@ public class LobbyManager {
      * Note that this method is NOT THREAD SAFE AT ALL! It engages no locks
      */
     public void removeAllFromPoolCancel() {
-        for(PlayerObserverLink playerObserverLink: playerPool) {
+        for(PlayerObserverLink playerObserverLink: playerPool.values()) {
             playerObserverLink.playerPoolListener.onCancelPlayer();
         }
-        this.clearPool();
-    }
-
-    /**
-     * Set the game attribute
-     * @param game Game to be set for this lobby
-     * @throws GameRunningException if game already exists
-     */
-    public void setGame (Game game) throws GameRunningException {
-        if (!this.isGameNull()) {
-            throw new GameRunningException(
-                    "Trying to set an existing game");
-        }
-        this.game = game;
+        playerPool.clear();
     }
 
     /**
-     * Gets all the players from the players pool
-     * @return an arraylist of players
+     * Gets all the players from the players pool. Engages the pool lock while copying
+     * @return an arraylist of players, in the order they entered the pool
      */
     public ArrayList<Player> getPlayersFromPool() {
-        ArrayList<Player> players = new ArrayList<>();
-        for(PlayerObserverLink playerObserverLink : playerPool)
-            players.add(playerObserverLink.player);
-        return players;
+        playerPoolLock.lock();
+        try {
+            ArrayList<Player> players = new ArrayList<>(playerPool.size());
+            for (PlayerObserverLink playerObserverLink : playerPool.values())
+                players.add(playerObserverLink.player);
+            return players;
+        } finally {
+            playerPoolLock.unlock();
+        }
     }
 
     /**
-     * Add word from the current-turn player to the story of our game
+     * Add word from the current-turn player to the story of the game they are in
+     * <h2>Thread Safety:</h2>
+     * <p> NOT Thread Safe, engages no locks </p>
+     * <p> Engage the lock of the player's game surrounding use as appropriate </p>
      * @param word String to add to the story
      * @param playerId String of the player who attempts to submit a word
-     * @throws GameDoesntExistException if game does not exist
+     * @throws GameDoesntExistException if the player's game does not exist or has ended
      * @throws PlayerNotFoundException if player cannot be found
      * @throws OutOfTurnException if this is not our player's turn
      * @throws InvalidWordException if the word is not valid
      */
     public void addWord (String word, String playerId) throws GameDoesntExistException, PlayerNotFoundException,
             OutOfTurnException, InvalidWordException {
-        if (!this.isGameRunning()) {
+        Game game = getGameLinkOfPlayer(playerId).game;
+        if (!this.isGameRunning(game.getGameId())) {
             throw new GameDoesntExistException(
                     "The game you are trying to add word to does not exist");
         }
-        if (this.game.getPlayerById(playerId) == null) {
+        if (game.getPlayerById(playerId) == null) {
             throw new PlayerNotFoundException(
                     "The player you are trying to add word is not found int the game");
         }
-        if (!this.game.getCurrentTurnPlayer().getPlayerId().equals(playerId)) {
+        if (!game.getCurrentTurnPlayer().getPlayerId().equals(playerId)) {
             throw new OutOfTurnException(
                     "Trying to submit a word out of turn");
         }
-        Player author = this.game.getPlayerById(playerId);
-        this.game.addWord(word, author);
+        Player author = game.getPlayerById(playerId);
+        game.addWord(word, author);
     }
 
     /**
      * Create a game based on the provided settings and players from the pool. Note that this
      * method does not remove players from the pool; Instead, it simply returns a new game
-     * instance populated with players who are currently in the pool.
+     * instance populated with players who are currently in the pool. At most
+     * MAX_PLAYERS_PER_GAME players are taken, those who have waited the longest first.
      * <br><br>
      * This method is NOT thread safe all, that is, it engages no locks. Since this method
      * reads the pool, it is recommended to lock the pool state during this call
@@ -264,7 +437,10 @@ public class LobbyManager {
      */
     public Game newGameFromPool (Map<String, Integer> settings) {
         List<Player> initialPlayers = new ArrayList<>();
-        for (PlayerObserverLink pol : this.playerPool) {
+        for (PlayerObserverLink pol : this.playerPool.values()) {
+            if (initialPlayers.size() >= MAX_PLAYERS_PER_GAME) {
+                break;
+            }
             initialPlayers.add(pol.getPlayer());
         }
         return this.gameFac.createGame(settings, initialPlayers);
@@ -276,6 +452,7 @@ public class LobbyManager {
      * <h2>Thread Safety:</h2>
      * <p> NOT Thread Safe, engages no locks </p>
      * <p> Engage pool lock AND PlayerPoolListener lock for player p surrounding use as appropriate </p>
+     * <p> Notifies the LobbyChangeListeners </p>
      * @param p the player in the POL to be removed
      * @throws PlayerNotFoundException if the player was not found in any POLs in playerPool
      */
@@ -284,38 +461,50 @@ public class LobbyManager {
         if (pol == null) {
             throw new PlayerNotFoundException("Player not found");
         }
-        playerPool.remove(pol);
+        playerPool.remove(p.getPlayerId());
         pol.playerPoolListener.onCancelPlayer();
-
+        notifyLobbyChanged();
     }
 
     /**
-     * Removes a specified player from the game instance
+     * Removes a specified player from the game they are in
+     * <h2>Thread Safety:</h2>
+     * <p> NOT Thread Safe, engages no locks </p>
+     * <p> Engage the lock of the player's game surrounding use as appropriate </p>
+     * <p> Notifies the LobbyChangeListeners, as the game now has room for another player </p>
      * @param p the player to be removed
-     * @throws GameDoesntExistException when the game doesn't exist
-     * @throws PlayerNotFoundException when p is not in the game
+     * @throws GameDoesntExistException when no game exists at all
+     * @throws PlayerNotFoundException when p is not in any game
      */
     public void removePlayerFromGame(Player p) throws GameDoesntExistException, PlayerNotFoundException {
-        if (game == null) {
-            throw new GameDoesntExistException("Game does not exist");
-        }
-        if (game.getPlayerById(p.getPlayerId()) == null) {
+        GameLockLink link = getGameLinkOfPlayer(p.getPlayerId());
+        if (link.game.getPlayerById(p.getPlayerId()) == null) {
             throw new PlayerNotFoundException("Player to remove is not in game");
         }
-        game.removePlayer(p);
+        link.game.removePlayer(p);
+        link.game.publishSnapshot();
+        playerIdToGame.remove(p.getPlayerId());
+        notifyLobbyChanged();
     }
 
     /**
-     * Adds a player to the game instance
+     * Adds a player to a game instance
+     * <h2>Thread Safety:</h2>
+     * <p> NOT Thread Safe, engages no locks </p>
+     * <p> Engage the lock of game gameId surrounding use as appropriate </p>
      * @param p the player to be added
+     * @param gameId ID of the game to add the player to
      * @return if the player was successfully added
      * @throws GameDoesntExistException when the game doesn't exist
      */
-    public boolean addPlayerToGame(Player p) throws GameDoesntExistException {
-        if (game == null) {
-            throw new GameDoesntExistException("Game does not exist");
+    public boolean addPlayerToGame(Player p, int gameId) throws GameDoesntExistException {
+        GameLockLink link = getGameLink(gameId);
+        boolean success = link.game.addPlayer(p);
+        if (success) {
+            link.game.publishSnapshot();
+            playerIdToGame.put(p.getPlayerId(), link);
         }
-        return game.addPlayer(p);
+        return success;
     }
 
     /**
@@ -330,31 +519,51 @@ public class LobbyManager {
     }
 
     /**
-     * Helper method to find a PlayerObserverLink in the playerPool via its player
+     * Releases the ID of a player who left, so that it can be used by a new player.
+     * Thread safe
+     * @param playerId ID of the player who left
+     * @return if the ID was in use
+     */
+    public boolean releasePlayerId(String playerId) {
+        return playerFac.releasePlayerId(playerId);
+    }
+
+    /**
+     * Thread safe
+     * @return how many player IDs are currently in use, that is, how many players
+     * are in the pool or in a game
+     */
+    public int getPlayerIdsInUseCount() {
+        return playerFac.getIdsInUseCount();
+    }
+
+    /**
+     * Helper method to find a PlayerObserverLink in the playerPool via its player,
+     * in O(1) through the player's ID
      * @param p the player in the PlayerObserverLink
      * @return the PlayerObserverLink containing player p, null if there isn't one
      */
     @Nullable
     public PlayerObserverLink getLinkFromPlayer(Player p){
-        for (PlayerObserverLink pol : playerPool) {
-            if (pol.getPlayer().equals(p)) {
-                return pol;
-            }
-        }
-        return null;
+        return playerPool.get(p.getPlayerId());
     }
 
     /**
      * Creates PlayerObserverLink from p and o, which is then used to add the player to the pool.
-     * This method engages the playerPoolLock lock
+     * This method engages the playerPoolLock lock, and notifies the LobbyChangeListeners
+     * once the player is in the pool
      * @param p the player in the PlayerObserverLink
      * @param o the PlayerPoolListener in the PlayerObserverLink
      */
     public void addPlayerToPool (Player p, PlayerPoolListener o) {
         playerPoolLock.lock();
-        PlayerObserverLink pol = new PlayerObserverLink(p, o);
-        this.playerPool.add(pol);
-        playerPoolLock.unlock();
+        try {
+            PlayerObserverLink pol = new PlayerObserverLink(p, o);
+            this.playerPool.put(p.getPlayerId(), pol);
+        } finally {
+            playerPoolLock.unlock();
+        }
+        notifyLobbyChanged();
     }
 
     /**
@@ -365,40 +574,99 @@ public class LobbyManager {
      * Note that this method is not thread safe AT ALL (no locks engaged)
      *
      * @param p Player you wish to transfer from pool to the game
+     * @param gameId ID of the game the player should join
      * @throws GameDoesntExistException If game is null
      * @throws PlayerNotFoundException If player was not found in the pool
      */
-    public void addPlayerToGameRemoveFromPool (Player p) throws
+    public void addPlayerToGameRemoveFromPool (Player p, int gameId) throws
             GameDoesntExistException, PlayerNotFoundException {
         // Throws GameDoesntExist if game is null
-        boolean success = addPlayerToGame(p);
+        boolean success = addPlayerToGame(p, gameId);
 
         // Throws GameDoesntExist or PlayerNotFound
         if (success) {
-            removeFromPoolJoin(p);
+            removeFromPoolJoin(p, gameId);
         }
     }
 
     /**
      * Gets the game typed as readonly so only the immutable getters are
      * accessible. DO NOT down cast to game.
+     * @param gameId ID of the game
      * @return game object in its readonly state
-     * @throws GameDoesntExistException if game is null
+     * @throws GameDoesntExistException if no game with this ID is registered
      */
-    public GameReadOnly getGameReadOnly () throws GameDoesntExistException {
-        if (this.isGameNull()){
-            throw new GameDoesntExistException("Game does not exist.");
-        }
-        return game;
+    public GameReadOnly getGameReadOnly (int gameId) throws GameDoesntExistException {
+        return getGameLink(gameId).game;
+    }
+
+    /**
+     * <h2>Thread Safety:</h2>
+     * <p> Thread Safe, the player index is a concurrent map </p>
+     * @param playerId ID of a player
+     * @return ID of the game which the player is in
+     * @throws GameDoesntExistException if no game exists at all
+     * @throws PlayerNotFoundException if games exist but the player is in none of them
+     */
+    public int getGameIdOfPlayer (String playerId) throws GameDoesntExistException, PlayerNotFoundException {
+        return getGameLinkOfPlayer(playerId).game.getGameId();
     }
 
     /**
-     * @return the lock associated with the game reference
+     * @param gameId ID of the game
+     * @return the lock associated with the game
+     * @throws GameDoesntExistException if no game with this ID is registered
      */
-    public Lock getGameLock() { return gameLock; }
+    public Lock getGameLock(int gameId) throws GameDoesntExistException {
+        return getGameLink(gameId).gameLock;
+    }
+
+    /**
+     * @param gameId ID of the game
+     * @return the loop which runs the commands submitted to the game
+     * @throws GameDoesntExistException if no game with this ID is registered
+     */
+    public GameLoop getGameLoop(int gameId) throws GameDoesntExistException {
+        return getGameLink(gameId).gameLoop;
+    }
 
     /**
      * @return the lock associated with the player pool list
      */
     public Lock getPlayerPoolLock() { return playerPoolLock; }
+
+    /**
+     * Helper method to find a registered game and its lock by game ID
+     * @param gameId ID of the game
+     * @return the GameLockLink of the game
+     * @throws GameDoesntExistException if no game with this ID is registered
+     */
+    private GameLockLink getGameLink (int gameId) throws GameDoesntExistException {
+        GameLockLink link = games.get(gameId);
+        if (link == null) {
+            throw new GameDoesntExistException("Game " + gameId + " does not exist.");
+        }
+        return link;
+    }
+
+    /**
+     * Helper method to find the game a player is in. If the player is in no game,
+     * the exception depends on whether any game exists, so that a player calling
+     * in while no games run is told that there is no game
+     * @param playerId ID of the player
+     * @return the GameLockLink of the player's game
+     * @throws GameDoesntExistException if no game exists at all
+     * @throws PlayerNotFoundException if games exist but the player is in none of them
+     */
+    private GameLockLink getGameLinkOfPlayer (String playerId) throws
+            GameDoesntExistException, PlayerNotFoundException {
+        GameLockLink link = playerIdToGame.get(playerId);
+        if (link == null) {
+            if (games.isEmpty()) {
+                throw new GameDoesntExistException("Game does not exist");
+            }
+            throw new PlayerNotFoundException("Player with id " + playerId + " is not in any game");
+        }
+        return link;
+    }
 }
@@ -4,14 +4,22 @@ import net.onewordstory.core.entities.display_name_checkers.DisplayNameChecker;
 import net.onewordstory.core.exceptions.IdInUseException;
 import net.onewordstory.core.exceptions.InvalidDisplayNameException;
 
-import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory for creating players
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     This class is thread safe. The IDs in use are kept in a concurrent set, so
+ *     claiming, checking and releasing an ID are O(1) and need no lock. Two threads
+ *     creating a player with the same ID at once cannot both succeed
+ * </p>
  */
 public class PlayerFactory {
 
-    private final ArrayList<String> idsInUse;
+    private final Set<String> idsInUse;
     private final DisplayNameChecker displayChecker;
 
     /**
@@ -20,11 +28,12 @@ public class PlayerFactory {
      */
     public PlayerFactory(DisplayNameChecker nameChecker) {
         displayChecker = nameChecker;
-        idsInUse = new ArrayList<>();
+        idsInUse = ConcurrentHashMap.newKeySet();
     }
 
     /**
-     * Create new player and throw exception if display name is invalid or id is already in use
+     * Create new player and throw exception if display name is invalid or id is already in use.
+     * The ID stays in use until it is released with releasePlayerId
      * @param newPlayerId the ID of the new player
      * @param newName the name of the new player
      * @return the created Player instance
@@ -38,7 +47,27 @@ public class PlayerFactory {
             throw new InvalidDisplayNameException("Display name " + newName + " is not valid.");
         }
 
-        idsInUse.add(newPlayerId);
+        // Another thread may have claimed the ID since the check above
+        if (!idsInUse.add(newPlayerId)) {
+            throw new IdInUseException("ID " + newPlayerId + " already in use.");
+        }
         return new Player(newName, newPlayerId);
     }
+
+    /**
+     * Frees an ID once its player has left, so it can be used again and
+     * does not occupy memory for the lifetime of the server
+     * @param playerId the ID to release
+     * @return if the ID was in use
+     */
+    public boolean releasePlayerId(String playerId) {
+        return idsInUse.remove(playerId);
+    }
+
+    /**
+     * @return how many player IDs are currently in use
+     */
+    public int getIdsInUseCount() {
+        return idsInUse.size();
+    }
 }
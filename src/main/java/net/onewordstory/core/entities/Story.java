@@ -5,15 +5,46 @@ import net.onewordstory.core.exceptions.InvalidWordException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Story that is made up of words
+ * <br><br>
+ * The story is rendered incrementally. Each added word is appended to a buffer of the
+ * rendered story, in O(length of the word). Words are only ever appended, so a rendering
+ * is always a prefix of every later rendering. render hands out the rendering as a read-only
+ * view of the buffer, in O(1) no matter how long the story is: snapshots of the game share
+ * the buffer rather than copying it, and the text added since any earlier length is read
+ * without touching the rest of the story. The characters a view covers are never written
+ * again, since the buffer is only appended to, and is replaced by a bigger copy when full.
  */
 public class Story {
 
     private final List<Word> words;
     private final WordFactory wordFactory;
 
+    /**
+     * Every word appended in the same form toString used to build, before trimming, in
+     * its first renderedSize characters
+     */
+    private char[] rendered;
+    private int renderedSize;
+
+    /**
+     * Index in rendered of the first character which is not whitespace, or -1 if there is none yet
+     */
+    private int renderedStart;
+
+    /**
+     * Index in rendered right after the last character which is not whitespace
+     */
+    private int renderedEnd;
+
+    /**
+     * View of the trimmed rendering, null if a word was added since it was last handed out
+     */
+    private Rendering cachedRendering;
+
     /**
      Constructor for the Story
      * @param wordFactory factory which creates words
@@ -21,6 +52,11 @@ public class Story {
     public Story(WordFactory wordFactory) {
         this.wordFactory = wordFactory;
         this.words = new ArrayList<>();
+        this.rendered = new char[64];
+        this.renderedSize = 0;
+        this.renderedStart = -1;
+        this.renderedEnd = 0;
+        this.cachedRendering = Rendering.EMPTY;
     }
 
     /**
@@ -30,7 +66,9 @@ public class Story {
      */
     public Story(WordFactory wordFactory, Word[] words) {
         this(wordFactory);
-        this.words.addAll(Arrays.asList(words));
+        for (Word word : words) {
+            append(word);
+        }
     }
 
     /**
@@ -41,22 +79,154 @@ public class Story {
      */
     public void addWord(String word, Player author) throws InvalidWordException {
         Word newWord = wordFactory.create(word, author);
-        this.words.add(newWord);
+        append(newWord);
     }
 
     /**
-     * @return The entire story in a single string
+     * Adds a word to the list of words and to the rendered story, in O(length of the word)
+     * amortized
+     * @param word the word to add
+     */
+    private void append(Word word) {
+        this.words.add(word);
+
+        int from = renderedSize;
+        if (word.getPunctuation() != null) appendRendered(word.getPunctuation());
+        appendRendered(" ");
+        appendRendered(word.getWord());
+
+        // Same rule as String.trim, which only looks at the new characters
+        for (int i = from; i < renderedSize; i++) {
+            if (rendered[i] > ' ') {
+                if (renderedStart < 0) {
+                    renderedStart = i;
+                }
+                renderedEnd = i + 1;
+            }
+        }
+        cachedRendering = null;
+    }
+
+    /**
+     * Appends text to the rendered buffer. A full buffer is replaced by a copy twice as big,
+     * so the views of the old one stay as they are
+     */
+    private void appendRendered(String text) {
+        if (renderedSize + text.length() > rendered.length) {
+            rendered = Arrays.copyOf(rendered, Math.max(rendered.length * 2, renderedSize + text.length()));
+        }
+        text.getChars(0, text.length(), rendered, renderedSize);
+        renderedSize += text.length();
+    }
+
+    /**
+     * @return amount of characters in toString, in O(1)
+     */
+    public int length() {
+        return renderedStart < 0 ? 0 : renderedEnd - renderedStart;
+    }
+
+    /**
+     * Gets the text added to the story since it had a given length. Costs only
+     * the length of the returned text, not the length of the story
+     * @param offset earlier length of the story, between 0 and length()
+     * @return toString().substring(offset)
+     * @throws IndexOutOfBoundsException if offset is negative or greater than length()
+     */
+    public String substringFrom(int offset) {
+        return render().substringFrom(offset);
+    }
+
+    /**
+     * @return read-only view of the entire story, in O(1). The view keeps showing the story as
+     * it is now, however many words are added later
+     */
+    public Rendering render() {
+        if (cachedRendering == null) {
+            cachedRendering = new Rendering(rendered, renderedStart < 0 ? 0 : renderedStart, renderedEnd);
+        }
+        return cachedRendering;
+    }
+
+    /**
+     * @return The entire story in a single string. Copies the story, once per word added
      */
     @Override
     public String toString() {
-        StringBuilder builder = new StringBuilder();
+        return render().toString();
+    }
+
+    /**
+     * Immutable view of a story as it was rendered at some point
+     * <br><br>
+     * <h2>Thread Safety:</h2>
+     * <p>
+     *     Thread safe once published, such as in a GameSnapshot, by the thread adding words.
+     *     The characters it covers are never written again
+     * </p>
+     */
+    public static final class Rendering implements CharSequence {
+        private static final Rendering EMPTY = new Rendering(new char[0], 0, 0);
+
+        private final char[] chars;
+        private final int start;
+        private final int end;
+
+        /**
+         * The whole view as a string, null until toString is first called. Racing threads
+         * may each build it, but build equal strings
+         */
+        private String string;
 
-        for (Word word: words) {
-            if (word.getPunctuation() != null) builder.append(word.getPunctuation());
-            builder.append(" ");
-            builder.append(word.getWord());
+        private Rendering(char[] chars, int start, int end) {
+            this.chars = chars;
+            this.start = start;
+            this.end = end;
         }
 
-        return builder.toString().trim();
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length());
+            return chars[start + index];
+        }
+
+        /**
+         * Copies the characters between the indices, costing only their amount
+         */
+        @Override
+        public String subSequence(int from, int to) {
+            Objects.checkFromToIndex(from, to, length());
+            return new String(chars, start + from, to - from);
+        }
+
+        /**
+         * @param offset earlier length of the story, between 0 and length()
+         * @return the text added to the story since it had that length
+         * @throws IndexOutOfBoundsException if offset is negative or greater than length()
+         */
+        public String substringFrom(int offset) {
+            if (offset < 0 || offset > length()) {
+                throw new IndexOutOfBoundsException("Offset " + offset + " outside story of length " + length());
+            }
+            return subSequence(offset, length());
+        }
+
+        /**
+         * @return the whole view as a string, copying it only the first time
+         */
+        @Override
+        public String toString() {
+            String s = string;
+            if (s == null) {
+                s = new String(chars, start, end - start);
+                string = s;
+            }
+            return s;
+        }
     }
 }
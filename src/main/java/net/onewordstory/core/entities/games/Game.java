@@ -8,10 +8,12 @@ import net.onewordstory.core.entities.statistics.PerPlayerIntStatistic;
 import net.onewordstory.core.entities.statistics.Statistic;
 import net.onewordstory.core.entities.validity_checkers.ValidityCheckerFacade;
 import net.onewordstory.core.exceptions.InvalidWordException;
+import net.onewordstory.core.util.ServerClock;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract game
@@ -31,12 +33,24 @@ import java.util.*;
  *     game lock to be injected and should engage the lock for all method
  *     calls in Game, since Game is by default not thread safe
  * </p>
+ * <p>
+ *     The one exception is getSnapshot. After each change (a word added, a turn switched,
+ *     a player added or removed, a timer tick) the writer publishes an immutable GameSnapshot
+ *     through a volatile field, so readers which only need the state shown to clients
+ *     can read it at any time without engaging the game lock
+ * </p>
  */
 public abstract class Game implements GameReadOnly {
 
-    private final Story story;
+    /**
+     * Source of game IDs. Each constructed game takes the next value, so
+     * IDs are unique for the lifetime of the server
+     */
+    private static final AtomicInteger nextGameId = new AtomicInteger(0);
+
+    private final int gameId;
 
-    private final Timer gameTimer;
+    private final Story story;
 
     private boolean timerStopped;
 
@@ -45,6 +59,17 @@ public abstract class Game implements GameReadOnly {
     private final AllPlayerNamesStatistic authorNames;
     private final PerPlayerIntStatistic[] playerStatistics;
     protected int secondsLeftInCurrentTurn;
+    private long turnDeadlineMillis;
+
+    /**
+     * Last published snapshot, null until the first publishSnapshot
+     */
+    private volatile GameSnapshot snapshot;
+
+    /**
+     * Version given to the last published snapshot
+     */
+    private long snapshotVersion;
 
     /**
      * Constructor for a Game with statistics to track
@@ -54,9 +79,9 @@ public abstract class Game implements GameReadOnly {
      */
     public Game(int secondsPerTurn, ValidityCheckerFacade v,
                 PerPlayerIntStatistic[] playerStatsToTrack) {
+        this.gameId = nextGameId.getAndIncrement();
         this.story = new Story(new WordFactory(v));
         this.secondsPerTurn = secondsPerTurn;
-        this.gameTimer = new Timer(true);
         this.timerStopped = false;
         playerStatistics = playerStatsToTrack;
         authorNames = new AllPlayerNamesStatistic();
@@ -78,6 +103,12 @@ public abstract class Game implements GameReadOnly {
         this(secondsPerTurn, v, new PerPlayerIntStatistic[0]);
     }
 
+    /**
+     * @return Unique ID of this game, used by LobbyManager to tell concurrent games apart
+     */
+    @Override
+    public int getGameId() { return gameId; }
+
     /**
      * @return Single string of the entire story in the game currently
      */
@@ -87,6 +118,15 @@ public abstract class Game implements GameReadOnly {
         return story.toString();
     }
 
+    /**
+     * @return view of the story, in O(1) however long it is
+     */
+    @Override
+    @NotNull
+    public CharSequence getStoryText() {
+        return story.render();
+    }
+
     /**
      * Thin wrapper to add a word to the story
      * @param word Word string to be added
@@ -101,6 +141,30 @@ public abstract class Game implements GameReadOnly {
         for (Statistic<?> s: statistics) {
             s.onSubmitWord(word, author);
         }
+        publishSnapshot();
+    }
+
+    /**
+     * Takes a snapshot of the current state and publishes it to getSnapshot. Called by
+     * Game itself after adding a word, switching the turn and a timer update, and must
+     * be called by whoever else changes the game, such as after adding or removing
+     * a player. Each published snapshot has a higher version than the one before.
+     * Engage the game lock surrounding use
+     */
+    public void publishSnapshot() {
+        this.snapshot = GameSnapshot.of(this, ++snapshotVersion);
+    }
+
+    /**
+     * Thread safe, engages no locks
+     * @return the last published snapshot. If none was published yet, a new snapshot is
+     * taken, which requires the game lock
+     */
+    @Override
+    @NotNull
+    public GameSnapshot getSnapshot() {
+        GameSnapshot s = snapshot;
+        return s != null ? s : GameSnapshot.of(this);
     }
 
     /**
@@ -143,6 +207,21 @@ public abstract class Game implements GameReadOnly {
         this.secondsLeftInCurrentTurn = newSeconds;
     }
 
+    /**
+     * @return Time on the ServerClock at which the current turn runs out, or 0 if not yet set.
+     * Clients count down to it, so it only changes when the turn does or when RG corrects it
+     */
+    @Override
+    public long getTurnDeadlineMillis() {return turnDeadlineMillis;}
+
+    /**
+     * Sets the time on the ServerClock at which the current turn runs out
+     * @param deadlineMillis deadline of the current turn
+     */
+    public void setTurnDeadlineMillis(long deadlineMillis) {
+        this.turnDeadlineMillis = deadlineMillis;
+    }
+
     /**
      * This method adds the initial players to the game by looping and calling addPlayer
      */
@@ -152,12 +231,6 @@ public abstract class Game implements GameReadOnly {
         }
     }
 
-    /**
-     * @return Returns the game timer which is used by the use case layer
-     */
-    @NotNull
-    public Timer getGameTimer() {return this.gameTimer;}
-
     /**
      * Called from the run game use case timer task to notify, after timer cancellation, when the last
      * execution of the run method has finished, meaning, no more game timer code will run
@@ -172,7 +245,8 @@ public abstract class Game implements GameReadOnly {
     public boolean isTimerStopped() {return timerStopped;}
 
     /**
-     * @return a shallow copy of all the present players in the game
+     * @return all the present players in the game, in turn order. This may be a live, read-only
+     * view rather than a copy, so copy it if it must outlive the game lock
      */
     @NotNull
     public abstract Collection<Player> getPlayers();
@@ -204,7 +278,8 @@ public abstract class Game implements GameReadOnly {
         for (Statistic<?> s: statistics) {
             s.onTimerUpdate(this);
         }
-    };
+        publishSnapshot();
+    }
 
     /**
      * Custom additional actions that can be done by the game every time the timer is updated
@@ -239,11 +314,13 @@ public abstract class Game implements GameReadOnly {
 
         // Notify statistics if turn was successfully switched
         if (output) {
+            turnDeadlineMillis = ServerClock.nowMillis() + getSecondsLeftInCurrentTurn() * 1000L;
             for (Statistic<?> s: statistics) {
                 s.onSuccessfulSwitchTurn(
                         getCurrentTurnPlayer(), getSecondsLeftInCurrentTurn()
                 );
             }
+            publishSnapshot();
         }
         return output;
     }
@@ -16,6 +16,11 @@ import java.util.Collection;
  */
 public interface GameReadOnly {
 
+    /**
+     * @return Unique ID of this game, used by LobbyManager to tell concurrent games apart
+     */
+    int getGameId ();
+
     /**
      * @return Single string of the entire story in the game currently
      */
@@ -23,7 +28,17 @@ public interface GameReadOnly {
     String getStoryString ();
 
     /**
-     * @return shallow copy of all players currently in the game
+     * @return the entire story in the game currently, as a read-only view which may share the
+     * story's buffer rather than copying it. It keeps showing the story as it is now
+     */
+    @NotNull
+    default CharSequence getStoryText () {
+        return getStoryString();
+    }
+
+    /**
+     * @return all players currently in the game, in turn order. This may be a live, read-only
+     * view rather than a copy, so copy it if it must outlive the game lock
      */
     @NotNull
     Collection<Player> getPlayers ();
@@ -85,4 +100,23 @@ public interface GameReadOnly {
      * @return Returns how many seconds are left for the current turn, or null if game timer not yet started
      */
     int getSecondsLeftInCurrentTurn();
+
+    /**
+     * @return Time on the ServerClock at which the current turn runs out, or 0 if the game
+     * keeps no deadline
+     */
+    default long getTurnDeadlineMillis() {
+        return 0;
+    }
+
+    /**
+     * By default, takes a new snapshot, so the game lock must be engaged. Games which
+     * publish their snapshots, such as every Game, return the last one published instead,
+     * which is thread safe without engaging any lock
+     * @return immutable snapshot of the state of this game
+     */
+    @NotNull
+    default GameSnapshot getSnapshot () {
+        return GameSnapshot.of(this);
+    }
 }
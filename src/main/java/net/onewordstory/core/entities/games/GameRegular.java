@@ -6,9 +6,7 @@ import net.onewordstory.core.entities.validity_checkers.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.Queue;
 
 /**
@@ -17,7 +15,7 @@ import java.util.Queue;
 public class GameRegular extends Game {
 
     public static int REGULAR_GAME_SECONDS_PER_TURN = 15;
-    private final Queue<Player> players;
+    private final PlayerRoster players;
     private static final PunctuationValidityChecker puncValidityCheckerRegular =
             new PunctuationValidityCheckerRegular();
     private static final WordValidityChecker wordValidityCheckerRegular =
@@ -31,12 +29,15 @@ public class GameRegular extends Game {
      */
     public GameRegular(Queue<Player> initialPlayers, PerPlayerIntStatistic[] playerStats) {
         super(REGULAR_GAME_SECONDS_PER_TURN, v, playerStats);
-        players = new LinkedList<>(initialPlayers);
+        players = new PlayerRoster(initialPlayers);
     }
 
+    /**
+     * @return live, read-only view of the players in turn order. Copy it if it must outlive the game lock
+     */
     @Override
     public @NotNull Collection<Player> getPlayers() {
-        return new ArrayList<>(players);
+        return players.asView();
     }
 
     /**
@@ -52,7 +53,7 @@ public class GameRegular extends Game {
      */
     @Override
     public Player getPlayerById(String playerId) {
-        return players.stream().filter(p -> p.getPlayerId().equals(playerId)).findAny().orElse(null);
+        return players.get(playerId);
     }
 
     /**
@@ -68,7 +69,7 @@ public class GameRegular extends Game {
     /**
      * Adds the player specified to this GameRegular instance
      * @param playerToAdd The Player to be added
-     * @return if the player was successfully added
+     * @return if the player was successfully added, false if a player with the same ID is already in it
      */
     @Override
     public boolean addPlayer(Player playerToAdd) {
@@ -83,7 +84,7 @@ public class GameRegular extends Game {
     @Override
     protected boolean switchTurnLogic() {
         setSecondsLeftInCurrentTurn(getSecondsPerTurn());
-        return players.add(players.remove());
+        return players.rotate();
     }
 
     /**
@@ -92,7 +93,7 @@ public class GameRegular extends Game {
     @Override
     @Nullable
     public Player getCurrentTurnPlayer() {
-        return players.peek();
+        return players.current();
     }
 
     /**
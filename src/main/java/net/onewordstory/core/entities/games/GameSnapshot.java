@@ -0,0 +1,127 @@
+package net.onewordstory.core.entities.games;
+
+import net.onewordstory.core.entities.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the state of a game which clients are shown, taken right
+ * after the game last changed. Games publish a new snapshot after every change, so
+ * readers can get a consistent view of a game without engaging its lock.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     This class is thread safe, since it is immutable. Players are immutable as well
+ * </p>
+ */
+public class GameSnapshot {
+
+    private final int gameId;
+    private final long version;
+    private final CharSequence story;
+    private final List<Player> players;
+    private final Player currentTurnPlayer;
+    private final int secondsLeftInCurrentTurn;
+    private final long turnDeadlineMillis;
+
+    /**
+     * @param gameId ID of the game
+     * @param version Version of the game state, which grows with each snapshot the game publishes
+     * @param story The entire story, which may be a view sharing the story's buffer
+     * @param players Players in turn order, copied
+     * @param currentTurnPlayer Player whose turn it is, or null if the game has no players
+     * @param secondsLeftInCurrentTurn Seconds left in the current turn
+     * @param turnDeadlineMillis Time on the ServerClock at which the current turn runs out
+     */
+    public GameSnapshot(int gameId, long version, @NotNull CharSequence story, @NotNull List<Player> players,
+                        @Nullable Player currentTurnPlayer, int secondsLeftInCurrentTurn,
+                        long turnDeadlineMillis) {
+        this.gameId = gameId;
+        this.version = version;
+        this.story = story;
+        this.players = List.copyOf(players);
+        this.currentTurnPlayer = currentTurnPlayer;
+        this.secondsLeftInCurrentTurn = secondsLeftInCurrentTurn;
+        this.turnDeadlineMillis = turnDeadlineMillis;
+    }
+
+    /**
+     * Takes an unversioned snapshot of a game.
+     * BE SURE TO LOCK THE GAME while this runs
+     * @param game Game to take the snapshot of
+     * @return snapshot of the current state of game, with version 0
+     */
+    @NotNull
+    public static GameSnapshot of(@NotNull GameReadOnly game) {
+        return of(game, 0);
+    }
+
+    /**
+     * Takes a snapshot of a game.
+     * BE SURE TO LOCK THE GAME while this runs
+     * @param game Game to take the snapshot of
+     * @param version Version of the game state being captured
+     * @return snapshot of the current state of game
+     */
+    @NotNull
+    public static GameSnapshot of(@NotNull GameReadOnly game, long version) {
+        return new GameSnapshot(
+                game.getGameId(),
+                version,
+                game.getStoryText(),
+                List.copyOf(game.getPlayers()),
+                game.getCurrentTurnPlayer(),
+                game.getSecondsLeftInCurrentTurn(),
+                game.getTurnDeadlineMillis());
+    }
+
+    /**
+     * @return ID of the game this snapshot was taken from
+     */
+    public int getGameId() { return gameId; }
+
+    /**
+     * @return Version of the game state in this snapshot. A game's published snapshots have
+     * strictly increasing versions, so of two snapshots of the same game, the one with the
+     * higher version is the newer one. Unpublished snapshots have version 0
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * @return Single string of the entire story when this snapshot was taken. Copies the story
+     * the first time it is called on a snapshot, so prefer getStoryText where a view does
+     */
+    @NotNull
+    public String getStoryString() { return story.toString(); }
+
+    /**
+     * @return The entire story when this snapshot was taken, as a view which costs nothing to
+     * take and doesn't change
+     */
+    @NotNull
+    public CharSequence getStoryText() { return story; }
+
+    /**
+     * @return Unmodifiable list of the players in turn order
+     */
+    @NotNull
+    public List<Player> getPlayers() { return players; }
+
+    /**
+     * @return Player whose turn it was, or null if the game had no players
+     */
+    @Nullable
+    public Player getCurrentTurnPlayer() { return currentTurnPlayer; }
+
+    /**
+     * @return Seconds left in the turn when this snapshot was taken
+     */
+    public int getSecondsLeftInCurrentTurn() { return secondsLeftInCurrentTurn; }
+
+    /**
+     * @return Time on the ServerClock at which the turn runs out, or 0 if the game keeps no deadline
+     */
+    public long getTurnDeadlineMillis() { return turnDeadlineMillis; }
+}
@@ -0,0 +1,241 @@
+package net.onewordstory.core.entities.games;
+
+import net.onewordstory.core.entities.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The players of a game in turn order, the player at the front having the current turn.
+ * <br><br>
+ * Players are kept in an array used as a ring buffer, together with a map from player ID
+ * to the slot of the array holding that player. This gives O(1) lookup by ID, O(1) adding,
+ * O(1) turn rotation, and O(1) amortized removal. A removed player leaves an empty slot
+ * behind which is skipped over, and the array is compacted once too many slots are empty.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     NOT Thread Safe. The roster is owned by its game, so engage the lock of
+ *     the game surrounding any use, including iterating over asView
+ * </p>
+ */
+public class PlayerRoster {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private Player[] slots;
+    private final Map<String, Integer> slotOfId;
+    private final Collection<Player> view;
+
+    /**
+     * Slot of the player whose turn it is. Only meaningful if size is not 0
+     */
+    private int head;
+
+    /**
+     * Amount of slots from head onwards which are in use, including empty ones left behind by removals
+     */
+    private int used;
+
+    /**
+     * Amount of players
+     */
+    private int size;
+
+    /**
+     * @param initialPlayers players to start with, the first one having the first turn
+     */
+    public PlayerRoster(Collection<Player> initialPlayers) {
+        this.slots = new Player[Math.max(MIN_CAPACITY, initialPlayers.size() * 2)];
+        this.slotOfId = new HashMap<>();
+        this.view = new RosterView();
+        for (Player p : initialPlayers) {
+            add(p);
+        }
+    }
+
+    /**
+     * Adds a player at the back of the turn order
+     * @param p player to add
+     * @return false if a player with the same ID is already in the roster, true otherwise
+     */
+    public boolean add(Player p) {
+        if (slotOfId.containsKey(p.getPlayerId())) {
+            return false;
+        }
+        if (used == slots.length) {
+            compact(Math.max(MIN_CAPACITY, size * 2));
+        }
+        int slot = slotAt(used);
+        slots[slot] = p;
+        slotOfId.put(p.getPlayerId(), slot);
+        used++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a player from the turn order. If it was their turn, it becomes the next player's turn
+     * @param p player to remove, matched by ID
+     * @return if the player was in the roster
+     */
+    public boolean remove(Player p) {
+        Integer slot = slotOfId.remove(p.getPlayerId());
+        if (slot == null) {
+            return false;
+        }
+        slots[slot] = null;
+        size--;
+        skipEmptyHead();
+
+        // Compact once empty slots outnumber players, which keeps removal O(1) amortized
+        if (used - size > size + MIN_CAPACITY) {
+            compact(Math.max(MIN_CAPACITY, size * 2));
+        }
+        return true;
+    }
+
+    /**
+     * Moves the player at the front to the back, so that it becomes the next player's turn
+     * @return false if the roster is empty, true otherwise
+     */
+    public boolean rotate() {
+        if (size == 0) {
+            return false;
+        }
+        Player current = slots[head];
+        slots[head] = null;
+        head = (head + 1) % slots.length;
+        used--;
+
+        // Removing the front freed a slot, so the player fits at the back without growing
+        int slot = slotAt(used);
+        slots[slot] = current;
+        slotOfId.put(current.getPlayerId(), slot);
+        used++;
+        skipEmptyHead();
+        return true;
+    }
+
+    /**
+     * @return the player whose turn it is, null if the roster is empty
+     */
+    @Nullable
+    public Player current() {
+        return size == 0 ? null : slots[head];
+    }
+
+    /**
+     * @param playerId ID of the player
+     * @return the player with this ID, null if they are not in the roster
+     */
+    @Nullable
+    public Player get(String playerId) {
+        Integer slot = slotOfId.get(playerId);
+        return slot == null ? null : slots[slot];
+    }
+
+    /**
+     * @return amount of players
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Live, read-only view of the players in turn order. Costs nothing to get, and
+     * contains runs in O(1). Copy it if it must outlive the game lock
+     * @return the view
+     */
+    @NotNull
+    public Collection<Player> asView() {
+        return view;
+    }
+
+    /**
+     * @param offset offset from head
+     * @return index of the slot offset places after head
+     */
+    private int slotAt(int offset) {
+        return (head + offset) % slots.length;
+    }
+
+    /**
+     * Moves head forwards past the empty slots left behind by removals
+     */
+    private void skipEmptyHead() {
+        while (used > 0 && slots[head] == null) {
+            head = (head + 1) % slots.length;
+            used--;
+        }
+        if (used == 0) {
+            head = 0;
+        }
+    }
+
+    /**
+     * Moves the players into a new array of the given capacity, in turn order
+     * and without empty slots, and updates their slots in the map
+     * @param capacity length of the new array, at least size
+     */
+    private void compact(int capacity) {
+        Player[] compacted = new Player[capacity];
+        int next = 0;
+        for (int i = 0; i < used; i++) {
+            Player p = slots[slotAt(i)];
+            if (p != null) {
+                compacted[next] = p;
+                slotOfId.put(p.getPlayerId(), next);
+                next++;
+            }
+        }
+        slots = compacted;
+        head = 0;
+        used = next;
+    }
+
+    /**
+     * Read-only collection backed by the roster
+     */
+    private class RosterView extends AbstractCollection<Player> {
+
+        @Override
+        public @NotNull Iterator<Player> iterator() {
+            return new Iterator<>() {
+                private int offset = 0;
+
+                @Override
+                public boolean hasNext() {
+                    while (offset < used && slots[slotAt(offset)] == null) {
+                        offset++;
+                    }
+                    return offset < used;
+                }
+
+                @Override
+                public Player next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return slots[slotAt(offset++)];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Player && slotOfId.containsKey(((Player) o).getPlayerId());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.onewordstory.core.usecases;
 
 import net.onewordstory.core.entities.Player;
 import net.onewordstory.core.entities.games.GameReadOnly;
+import net.onewordstory.core.entities.games.GameSnapshot;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -16,24 +17,48 @@ import java.util.List;
  */
 public class GameDTO {
 
-    private final String story;
+    private final int gameId;
+    private final long version;
+    private final CharSequence story;
     private final ArrayList<PlayerDTO> players;
     private final String currentTurnPlayerId;
     private final int secondsLeftCurrentTurn;
+    private final long turnDeadlineMillis;
 
     /**
      * Create a game data transfer object from a Game Entity. Converts player collection
      * to an arraylist of playerDTO objects
+     * @param gameId ID of the game entity being represented
      * @param story String of the current full story of the game entity being represented
      * @param players Collection of players from the game
      * @param currentTurnPlayerId id of player whose turn it is in the game
      * @param secondsLeftCurrentTurn seconds remaining in current turn
      */
-    public GameDTO (String story, Collection<Player> players,
+    public GameDTO (int gameId, String story, Collection<Player> players,
                     String currentTurnPlayerId, int secondsLeftCurrentTurn) {
+        this(gameId, 0, story, players, currentTurnPlayerId, secondsLeftCurrentTurn, 0);
+    }
+
+    /**
+     * Create a game data transfer object from a Game Entity. Converts player collection
+     * to an arraylist of playerDTO objects
+     * @param gameId ID of the game entity being represented
+     * @param version Version of the game state being represented, see GameSnapshot.getVersion
+     * @param story The current full story of the game entity being represented, which may be a
+     *              view sharing the story's buffer
+     * @param players Collection of players from the game
+     * @param currentTurnPlayerId id of player whose turn it is in the game
+     * @param secondsLeftCurrentTurn seconds remaining in current turn
+     * @param turnDeadlineMillis time on the ServerClock at which the current turn runs out
+     */
+    public GameDTO (int gameId, long version, CharSequence story, Collection<Player> players,
+                    String currentTurnPlayerId, int secondsLeftCurrentTurn, long turnDeadlineMillis) {
+        this.gameId = gameId;
+        this.version = version;
         this.story = story;
         this.currentTurnPlayerId = currentTurnPlayerId;
         this.secondsLeftCurrentTurn = secondsLeftCurrentTurn;
+        this.turnDeadlineMillis = turnDeadlineMillis;
 
         this.players = new ArrayList<>();
         for (Player p: players) {
@@ -41,16 +66,36 @@ public class GameDTO {
         }
     }
 
+    /**
+     * @return ID of the game this game state data was taken from
+     */
+    public int getGameId() { return gameId; }
+
+    /**
+     * @return Version of the game state this data was taken from, see GameSnapshot.getVersion
+     */
+    public long getVersion() { return version; }
+
     /**
      * @return String of the story in this game state data
      */
-    public String getStory() { return story; }
+    public String getStory() { return story.toString(); }
+
+    /**
+     * @return the story in this game state data, as a view which may share the story's buffer
+     */
+    public CharSequence getStoryText() { return story; }
 
     /**
      * @return Seconds left in current turn in this game state data
      */
     public int getSecondsLeftCurrentTurn() { return secondsLeftCurrentTurn; }
 
+    /**
+     * @return Time on the ServerClock at which the current turn runs out in this game state data
+     */
+    public long getTurnDeadlineMillis() { return turnDeadlineMillis; }
+
     /**
      * @return Id of player whose turn it is in this game state data
      */
@@ -62,24 +107,37 @@ public class GameDTO {
     public List<PlayerDTO> getPlayers() { return players; }
 
     /**
-     * Convenience method for building a GameDTO from a Game Object
-     * <br>
-     * BE SURE TO LOCK THE GAME if you are passing the game object directly
+     * Convenience method for building a GameDTO from a Game Object, through its last
+     * published snapshot. For a Game, this needs no lock. For other GameReadOnly
+     * implementations, BE SURE TO LOCK THE GAME
      * @param game Game entity object to build DTO from
      * @return GameDTO built from provided game
      */
     @NotNull
     public static GameDTO fromGame (@NotNull GameReadOnly game) {
+        return fromSnapshot(game.getSnapshot());
+    }
+
+    /**
+     * Convenience method for building a GameDTO from a snapshot of a game. Thread safe
+     * @param snapshot Immutable snapshot of a game to build DTO from
+     * @return GameDTO built from provided snapshot
+     */
+    @NotNull
+    public static GameDTO fromSnapshot (@NotNull GameSnapshot snapshot) {
         return new GameDTO(
-                game.getStoryString(),
-                game.getPlayers(),
-                game.getCurrentTurnPlayer() == null ? "" : game.getCurrentTurnPlayer().getPlayerId(),
-                game.getSecondsLeftInCurrentTurn());
+                snapshot.getGameId(),
+                snapshot.getVersion(),
+                snapshot.getStoryText(),
+                snapshot.getPlayers(),
+                snapshot.getCurrentTurnPlayer() == null ? "" : snapshot.getCurrentTurnPlayer().getPlayerId(),
+                snapshot.getSecondsLeftInCurrentTurn(),
+                snapshot.getTurnDeadlineMillis());
     }
 
     @Override
     public String toString() {
-        return "GameDTO('" + story + "', " + currentTurnPlayerId + ", "
+        return "GameDTO(" + gameId + ", '" + story + "', " + currentTurnPlayerId + ", "
                 + secondsLeftCurrentTurn + ", " + players + ")";
     }
 }
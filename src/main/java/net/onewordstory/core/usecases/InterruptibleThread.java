@@ -2,17 +2,43 @@ package net.onewordstory.core.usecases;
 
 import net.onewordstory.core.usecases.shutdown_server.SsOutputBoundary;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The base abstract class for all the use case threads
+ * <br><br>
+ * A use case is a task which the ThreadRegister runs on its executor, on a new or a pooled
+ * thread, so interrupting it interrupts whichever thread runs its logic. A use case interrupted
+ * before it started running doesn't run, and only outputs the shutdown
  */
-public abstract class InterruptibleThread extends Thread {
+public abstract class InterruptibleThread implements Runnable {
 
+    /**
+     * If this use case must not be interrupted yet. Set it through setBlockInterrupt, which
+     * wakes a shutdown waiting on it
+     */
     protected final AtomicBoolean blockInterrupt = new AtomicBoolean(false);
     protected final ThreadRegister register;
     protected final SsOutputBoundary outputBoundary;
 
+    /**
+     * Thread running threadLogic, null if it is not running. Guarded by runnerLock
+     */
+    private Thread runner;
+
+    /**
+     * If this use case was interrupted. Guarded by runnerLock
+     */
+    private boolean isInterruptRequested;
+
+    /**
+     * If this use case has ended. Guarded by runnerLock
+     */
+    private boolean isFinished;
+
+    private final Object runnerLock = new Object();
+
     public InterruptibleThread(ThreadRegister register, SsOutputBoundary outputBoundary) {
         this.register = register;
         this.outputBoundary = outputBoundary;
@@ -21,11 +47,88 @@ public abstract class InterruptibleThread extends Thread {
     @Override
     public void run() {
         try {
+            synchronized (runnerLock) {
+                if (isInterruptRequested) {
+                    throw new InterruptedException();
+                }
+                runner = Thread.currentThread();
+            }
             threadLogic();
         } catch (InterruptedException exception) {
             outputBoundary.outputShutdownServer();
         } finally {
+            synchronized (runnerLock) {
+                runner = null;
+                // A pooled thread must not carry the interrupt on to its next use case
+                Thread.interrupted();
+            }
             register.removeThread(this);
+            synchronized (runnerLock) {
+                isFinished = true;
+                runnerLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Interrupts the thread running this use case, or keeps it from running if it hasn't started
+     */
+    public void interrupt() {
+        synchronized (runnerLock) {
+            isInterruptRequested = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Interrupts this use case once its interrupt isn't blocked, waiting at most until the deadline
+     * @param deadlineNanos System.nanoTime by which to give up
+     * @return if this use case was interrupted, which it isn't if it ended first or its interrupt
+     * was still blocked at the deadline
+     */
+    boolean interruptWhenUnblocked(long deadlineNanos) throws InterruptedException {
+        synchronized (runnerLock) {
+            while (blockInterrupt.get() && !isFinished) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(runnerLock, remaining);
+            }
+            if (isFinished) {
+                return false;
+            }
+            interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * Waits for this use case to end, at most until the deadline
+     * @param deadlineNanos System.nanoTime by which to give up
+     * @return if this use case has ended
+     */
+    boolean awaitFinished(long deadlineNanos) throws InterruptedException {
+        synchronized (runnerLock) {
+            while (!isFinished) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(runnerLock, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return if this use case has ended
+     */
+    boolean isFinished() {
+        synchronized (runnerLock) {
+            return isFinished;
         }
     }
 
@@ -35,11 +138,16 @@ public abstract class InterruptibleThread extends Thread {
     protected abstract void threadLogic() throws InterruptedException;
 
     /**
-     * Sets the <code>blockInterrupt</code> field to the given value
+     * Sets the <code>blockInterrupt</code> field to the given value, waking a shutdown waiting on it
      * @param value The value to be set
      */
     public void setBlockInterrupt(boolean value) {
-        blockInterrupt.set(value);
+        synchronized (runnerLock) {
+            blockInterrupt.set(value);
+            if (!value) {
+                runnerLock.notifyAll();
+            }
+        }
     }
 
     /**
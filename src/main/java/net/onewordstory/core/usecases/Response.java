@@ -44,7 +44,9 @@ public class Response {
         TITLE_ALREADY_SUGGESTED,
         STORY_NOT_FOUND,
         SHUTTING_DOWN,
-        TITLE_NOT_FOUND
+        TITLE_NOT_FOUND,
+        RATE_LIMITED,
+        SERVER_BUSY
     }
 
     private final String message;
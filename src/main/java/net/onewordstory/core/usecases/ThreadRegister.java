@@ -1,80 +1,348 @@
 package net.onewordstory.core.usecases;
 
 import org.example.Log;
+import net.onewordstory.core.usecases.shutdown_server.SsOutputBoundary;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The thread register keeps track of all the running non-daemon threads and is
  * primarily used by the "shutdown-server" use case
+ * <br><br>
+ * Use cases are run by an executor, which by default starts a new thread for each. A pooled
+ * executor saves creating a thread per request; the use cases are interrupted on shutdown
+ * all the same, whichever thread runs them. A bounded pool rejects new use cases while it is
+ * full, which their callers report as the server being busy. Use cases which finish work the
+ * server already accepted, such as applying disconnects, are registered as follow-ups instead,
+ * which are never rejected.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Threads are registered and removed without a shared lock
+ * </p>
  */
 public class ThreadRegister {
 
-    private final List<InterruptibleThread> runningThreads;
-    private boolean shuttingDown;
-    private final Lock shuttingDownLock;
+    /**
+     * Starts a new thread for each use case
+     */
+    public static final Executor THREAD_PER_TASK = task -> new Thread(task).start();
 
     /**
-     * Initiates the thread register
+     * Default time stopThreads waits for the threads to end
+     */
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Default amount of use cases a bounded pool queues while every thread is busy
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Outcome of registering a use case
+     */
+    public enum Registration {
+        /**
+         * The use case runs
+         */
+        RUNNING,
+        /**
+         * The server is shutting down, so the use case doesn't run
+         */
+        SHUTTING_DOWN,
+        /**
+         * The executor is too busy to take the use case, so it doesn't run. The client may retry
+         */
+        BUSY;
+
+        /**
+         * Tells the output boundary of a use case which doesn't run why
+         * @param pres output boundary of the use case
+         */
+        public void outputIfRejected(SsOutputBoundary pres) {
+            switch (this) {
+                case SHUTTING_DOWN -> pres.outputShutdownServer();
+                case BUSY -> pres.outputServerBusy();
+            }
+        }
+    }
+
+    private final Set<InterruptibleThread> runningThreads;
+
+    /**
+     * Shutdown callbacks of use cases which wait without holding a thread
+     */
+    private final Set<Runnable> waiters;
+    private volatile boolean shuttingDown;
+    private final Executor executor;
+
+    /**
+     * Initiates the thread register, starting a new thread for each use case
      */
     public ThreadRegister() {
-        this.runningThreads = new ArrayList<>();
+        this(THREAD_PER_TASK);
+    }
+
+    /**
+     * Initiates the thread register
+     * @param executor runs the registered use cases. If it is an ExecutorService, it is shut down
+     *                 once the threads are stopped
+     */
+    public ThreadRegister(Executor executor) {
+        this.runningThreads = ConcurrentHashMap.newKeySet();
+        this.waiters = ConcurrentHashMap.newKeySet();
         this.shuttingDown = false;
-        this.shuttingDownLock = new ReentrantLock();
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a pool which reuses idle threads, and creates a new thread only if none is idle.
+     * Threads idle for a minute are ended. The pool is unbounded, so use cases which block for a
+     * long time can't starve the others
+     * @return the executor
+     */
+    public static ExecutorService newCachedPool() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new UseCaseThreadFactory());
     }
 
+    /**
+     * Creates a pool of a fixed amount of threads, queueing at most DEFAULT_QUEUE_CAPACITY use cases
+     * @param threads amount of threads
+     * @return the executor
+     * @see #newBoundedPool(int, int)
+     */
+    public static ExecutorService newBoundedPool(int threads) {
+        return newBoundedPool(threads, DEFAULT_QUEUE_CAPACITY);
+    }
 
     /**
-     * Adds an interruptible thread to the list
+     * Creates a pool of a fixed amount of threads. Use cases queue while every thread is busy,
+     * and once the queue is full they are rejected, so registerThread returns BUSY and the
+     * caller tells the client instead of the server queueing without bound. Use cases which
+     * wait for long, such as players waiting in JPL for a game, register a waiter instead of
+     * holding a thread, so they don't starve the pool
+     * @param threads amount of threads
+     * @param queueCapacity amount of use cases queued while every thread is busy
+     * @return the executor
+     */
+    public static ExecutorService newBoundedPool(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new UseCaseThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Names the pooled threads "use-case-N"
+     */
+    private static class UseCaseThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolCount = new AtomicInteger();
+        private final int poolId = poolCount.incrementAndGet();
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, "use-case-" + poolId + "-" + threadCount.incrementAndGet());
+        }
+    }
+
+
+    /**
+     * Adds an interruptible thread to the set and runs it on the executor
      * @param thread The thread to be added
+     * @return RUNNING if the thread was run, SHUTTING_DOWN if it wasn't as the server is shutting
+     * down, or BUSY if it wasn't as the executor is too busy to take it
      */
-    public boolean registerThread(InterruptibleThread thread) {
-        boolean result = false;
-        this.shuttingDownLock.lock();
-        // I think that this boolean flag might be redundant
-        if (!shuttingDown) {
-            this.runningThreads.add(thread);
-            thread.start();
-            result = true;
+    public Registration registerThread(InterruptibleThread thread) {
+        return register(thread, false);
+    }
+
+    /**
+     * Adds an interruptible thread which finishes work the server already accepted, such as
+     * applying queued disconnects or telling a waiting player they joined a game, and runs it.
+     * Dropping such a thread would lose the work, so if the executor is too busy to take it, it
+     * runs on a new thread of its own instead
+     * @param thread The thread to be added
+     * @return if the thread was run, which it isn't once shutting down
+     */
+    public boolean registerFollowUp(InterruptibleThread thread) {
+        return register(thread, true) == Registration.RUNNING;
+    }
+
+    private Registration register(InterruptibleThread thread, boolean isFollowUp) {
+        // Added before checking the flag, so either this sees the shutdown or the shutdown sees
+        // the thread
+        this.runningThreads.add(thread);
+        if (shuttingDown) {
+            this.runningThreads.remove(thread);
+            return Registration.SHUTTING_DOWN;
+        }
+        try {
+            executor.execute(thread);
+            return Registration.RUNNING;
+        } catch (RejectedExecutionException e) {
+            if (shuttingDown) {
+                this.runningThreads.remove(thread);
+                return Registration.SHUTTING_DOWN;
+            }
+            if (isFollowUp) {
+                Log.useCaseMsg("REGISTER", "Too busy, running a follow-up on its own thread");
+                THREAD_PER_TASK.execute(thread);
+                return Registration.RUNNING;
+            }
+            this.runningThreads.remove(thread);
+            Log.useCaseMsg("REGISTER", "Too busy, rejected a use case");
+            return Registration.BUSY;
         }
-        this.shuttingDownLock.unlock();
-        return result;
     }
 
     /**
-     * Removes the interruptible thread from the list
+     * Removes the interruptible thread from the set
      * @param thread The thread to be removed
      */
     public boolean removeThread(InterruptibleThread thread) {
-        shuttingDownLock.lock();
-        boolean result = this.runningThreads.remove(thread);
-        shuttingDownLock.unlock();
-        return result;
+        return this.runningThreads.remove(thread);
+    }
+
+    /**
+     * Registers a use case which waits without holding a thread, so it can't be interrupted.
+     * Instead, it is told of a shutdown by running its callback, once. The use case must remove
+     * the callback once it stops waiting
+     * @param onShutdown called on shutdown, on the thread stopping the threads
+     * @return if the callback was registered, which it isn't once shutting down
+     */
+    public boolean registerWaiter(Runnable onShutdown) {
+        // Added before checking the flag, as in registerThread
+        this.waiters.add(onShutdown);
+        if (shuttingDown) {
+            this.waiters.remove(onShutdown);
+            return false;
+        }
+        return true;
     }
 
     /**
-     * Stops all the thread. If a thread has a flag <code>blockInterrupt</code> set to <code>false</code>,
-     * this method spin waits until it is true. Notices that is this flag is never set to false,
-     * the server will never be shut down
+     * Removes the shutdown callback of a use case which stopped waiting
+     * @param onShutdown the callback
+     * @return if the callback was registered, and now won't be called
      */
-    public void stopThreads() {
-        Log.useCaseMsg("SS", "Wants SHUTDOWN lock");
-        shuttingDownLock.lock();
-        Log.useCaseMsg("SS", "Got SHUTDOWN lock");
+    public boolean removeWaiter(Runnable onShutdown) {
+        return this.waiters.remove(onShutdown);
+    }
+
+    /**
+     * @return amount of use cases waiting without a thread
+     */
+    public int getWaiterCount() {
+        return this.waiters.size();
+    }
+
+    /**
+     * @return amount of registered threads which haven't ended
+     */
+    public int getRunningThreadCount() {
+        return this.runningThreads.size();
+    }
+
+    /**
+     * Stops all the threads, waiting at most DEFAULT_DRAIN_TIMEOUT
+     * @return how the threads ended
+     * @see #stopThreads(Duration)
+     */
+    public DrainReport stopThreads() throws InterruptedException {
+        return stopThreads(DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    /**
+     * Stops all the threads, and waits for them to end. Threads are interrupted at once, except
+     * those with the flag <code>blockInterrupt</code> set, which are interrupted once it is
+     * cleared. Use cases still queued in a pool are interrupted before they run. Use cases
+     * waiting without a thread have their shutdown callback run, and count as interrupted.
+     * <br><br>
+     * Waiting is bounded by the timeout. A thread still blocking its interrupt at the deadline
+     * isn't interrupted, and is reported as timed out along with interrupted threads which
+     * haven't ended by then
+     * @param timeout how long to wait for the threads
+     * @return how the threads ended
+     */
+    public DrainReport stopThreads(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
         shuttingDown = true;
-        for (InterruptibleThread thread: runningThreads) {
-            Log.useCaseMsg("SS", "Waiting on block...");
-            while (thread.blockInterrupt.get()) {
-                Thread.onSpinWait();
+        Log.useCaseMsg("SS", "Draining " + runningThreads.size() + " threads");
+
+        int finished = 0;
+        int timedOut = 0;
+        int interruptedCount = 0;
+        List<InterruptibleThread> blocked = new ArrayList<>();
+        List<InterruptibleThread> interrupted = new ArrayList<>();
+
+        for (Runnable waiter : waiters) {
+            // Removing first ensures each callback runs once, even if a use case stops waiting
+            if (waiters.remove(waiter)) {
+                waiter.run();
+                interruptedCount++;
+            }
+        }
+
+        // Interrupt every thread which allows it, then wait for the others
+        for (InterruptibleThread thread : runningThreads) {
+            if (thread.interruptWhenUnblocked(System.nanoTime())) {
+                interrupted.add(thread);
+            } else if (thread.isFinished()) {
+                finished++;
+            } else {
+                blocked.add(thread);
+            }
+        }
+
+        if (executor instanceof ExecutorService service) {
+            // Lets queued use cases run, which only output the shutdown
+            service.shutdown();
+        }
+
+        Log.useCaseMsg("SS", "Waiting on " + blocked.size() + " blocked threads...");
+        for (InterruptibleThread thread : blocked) {
+            if (thread.interruptWhenUnblocked(deadline)) {
+                interrupted.add(thread);
+            } else if (thread.isFinished()) {
+                finished++;
+            } else {
+                timedOut++;
             }
-            Log.useCaseMsg("SS", "Finished waiting on block");
-            thread.interrupt();
-            Log.useCaseMsg("SS", "Thread Interrupted Successfully");
         }
-        shuttingDownLock.unlock();
-        Log.useCaseMsg("SS", "Released SHUTDOWN lock");
+
+        for (InterruptibleThread thread : interrupted) {
+            if (thread.awaitFinished(deadline)) {
+                interruptedCount++;
+            } else {
+                timedOut++;
+            }
+        }
+
+        DrainReport report = new DrainReport(finished, interruptedCount, timedOut);
+        Log.useCaseMsg("SS", "Drained threads: " + report);
+        return report;
     }
+
+    /**
+     * How the threads ended when stopped
+     * @param finished threads which ended on their own
+     * @param interrupted threads which were interrupted and ended, and waiting use cases told of
+     *                    the shutdown
+     * @param timedOut threads which hadn't ended by the deadline
+     */
+    public record DrainReport(int finished, int interrupted, int timedOut) { }
 }
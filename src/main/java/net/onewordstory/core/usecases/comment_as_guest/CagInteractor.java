@@ -101,10 +101,7 @@ public class CagInteractor implements CagInputBoundary {
      */
     public void commentAsGuest(CagInputData data, CagOutputBoundary pres) {
         InterruptibleThread thread = new CagThread(data, pres);
-        boolean success = register.registerThread(thread);
-        if (!success) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 
 }
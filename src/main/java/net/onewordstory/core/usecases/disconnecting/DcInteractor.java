@@ -11,15 +11,34 @@ import net.onewordstory.core.usecases.InterruptibleThread;
 import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.ThreadRegister;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
 /**
  * Interactor for Disconnecting Use Case
+ * <br><br>
+ * Disconnects are queued and applied in batches by a single DcBatchThread. When many players
+ * leave at once, such as when a proxy restarts, the pool lock is engaged once per batch and each
+ * game's lock once for all of its players in the batch, instead of once per player. All players
+ * removed from a game in a batch are output the same game state, so a single new state of the
+ * game results from the batch
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Locks are engaged in the order pool, game, JPL listener of a player, like
+ *     SortPlayers. A player in the pool is in no game, so DC only ever engages their JPL listener
+ *     lock under the pool lock, and releases it before engaging any game lock
+ * </p>
  */
 public class DcInteractor implements DcInputBoundary {
     private final LobbyManager lm;
     private final Lock playerPoolLock;
-    private final Lock gameLock;
 
     /**
      * The ThreadRegister that keeps track of all the running use case threads
@@ -27,6 +46,21 @@ public class DcInteractor implements DcInputBoundary {
      */
     private final ThreadRegister register;
 
+    /**
+     * A player to disconnect, and the output boundary to respond to
+     */
+    private record Request(String playerId, DcOutputBoundary pres) {}
+
+    /**
+     * Disconnects not yet taken by a DcBatchThread
+     */
+    private final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * If a DcBatchThread is running. At most one runs at a time
+     */
+    private final AtomicBoolean isDraining = new AtomicBoolean(false);
+
     /**
      * Constructor for DcInteractor
      * @param lm Lobby Manager
@@ -34,135 +68,246 @@ public class DcInteractor implements DcInputBoundary {
     public DcInteractor(LobbyManager lm, ThreadRegister register) {
         this.lm = lm;
         this.playerPoolLock = lm.getPlayerPoolLock();
-        this.gameLock = lm.getGameLock();
         this.register = register;
     }
 
     /**
-     * Disconnects the user
+     * Disconnects the user. The disconnect is queued, and applied along with the others
+     * queued by the time a DcBatchThread gets to it
      * @param data input data which contains playerId
      * @param pres output boundary for this use case
      */
     @Override
     public void disconnect(DcInputData data, DcOutputBoundary pres) {
-        InterruptibleThread dcThread = this.new DcThread(data.getPlayerId(), pres);
-        if (!register.registerThread(dcThread)) {
-            pres.outputShutdownServer();
+        pending.add(new Request(data.getPlayerId(), pres));
+        startDraining();
+    }
+
+    /**
+     * Starts a DcBatchThread, unless one is running already, which will then take the queued disconnects.
+     * It is registered as a follow-up, as a disconnect which was dropped would never release its player
+     */
+    private void startDraining() {
+        if (isDraining.compareAndSet(false, true) && !register.registerFollowUp(this.new DcBatchThread())) {
+            isDraining.set(false);
+            outputShutdownPending();
         }
     }
 
     /**
-     * Thread for disconnecting the player
+     * Responds to every queued disconnect that the server is shutting down
      */
-    public class DcThread extends InterruptibleThread {
-        private final String playerId;
+    private void outputShutdownPending() {
+        Request request;
+        while ((request = pending.poll()) != null) {
+            request.pres().outputShutdownServer();
+        }
+    }
 
-        private final DcOutputBoundary pres;
+    /**
+     * Thread which applies the queued disconnects in batches until none are left
+     */
+    public class DcBatchThread extends InterruptibleThread {
 
         /**
-         * Constructor for Disconnecting Thread
-         * @param playerId ID of the player we need to disconnect
-         * @param pres output boundary for this use case
+         * Constructor for the thread. If interrupted, the disconnects still queued are told
+         * the server is shutting down
          */
-        public DcThread(String playerId, DcOutputBoundary pres) {
-            super(DcInteractor.this.register, pres);
-            this.playerId = playerId;
-            this.pres = pres;
+        public DcBatchThread() {
+            super(DcInteractor.this.register, DcInteractor.this::outputShutdownPending);
         }
 
         @Override
         public void threadLogic() {
-            // Player existence in both removeFromPoolCancel and removePlayerFromGame
-            // is checked via Player.equals, which checks only the ID, thus we can
-            // have an empty display name as a dummy
-            Player playerToDisconnect = new Player("", playerId);
+            do {
+                List<Request> batch = new ArrayList<>();
+                Request request;
+                while ((request = pending.poll()) != null) {
+                    batch.add(request);
+                }
+                if (!batch.isEmpty()) {
+                    disconnectAll(batch);
+                }
 
-            // Innocent until proven guilty
-            Response response = Response.getSuccessful(playerToDisconnect + " disconnected successfully!");
+                isDraining.set(false);
 
-            // Gets set if player was removed from game
-            GameDTO gameData = null;
+                // Disconnects queued after the last poll but before the flag was cleared found it
+                // set, so didn't start a thread. Take them on, unless another thread did
+            } while (!pending.isEmpty() && isDraining.compareAndSet(false, true));
+        }
 
-            Log.useCaseMsg("DC", "Wants POOL lock");
+        /**
+         * Disconnects a batch of players, then responds to each of them
+         * @param batch the disconnects
+         */
+        private void disconnectAll(List<Request> batch) {
+            int n = batch.size();
+            Player[] players = new Player[n];
+            Response[] responses = new Response[n];
+            GameDTO[] gameData = new GameDTO[n];
+
+            // Indices in the batch of the players who were not in the pool, by the game they are in
+            Map<Integer, List<Integer>> byGame = new LinkedHashMap<>();
+
+            Log.useCaseMsg("DC", "Wants POOL lock for " + n + " players");
             playerPoolLock.lock();
             Log.useCaseMsg("DC", "Got POOL lock");
 
-            // Null if player not found, looks through pool hence above lock is needed
-            LobbyManager.PlayerObserverLink playerLink = lm.getLinkFromPlayer(playerToDisconnect);
+            try {
+                for (int i = 0; i < n; i++) {
+                    // Player existence in both removeFromPoolCancel and removePlayerFromGame
+                    // is checked via Player.equals, which checks only the ID, thus we can
+                    // have an empty display name as a dummy
+                    players[i] = new Player("", batch.get(i).playerId());
 
-            PlayerPoolListener playerListener = null;
+                    // Innocent until proven guilty
+                    responses[i] = Response.getSuccessful(players[i] + " disconnected successfully!");
 
-            try {
-                // If player was not in pool, throw exception, run catch, and release pool in finally block
-                if(playerLink == null) {
-                    throw new PlayerNotFoundException(playerToDisconnect + " is not present in the pool");
-                }
-                Log.useCaseMsg("DC", "Found in pool PLY " + playerId);
-                Log.useCaseMsg("DC", "Wants JPL lock PlyID " + playerId);
-                playerListener = playerLink.getPlayerPoolListener();
-                // Before we continue, we should lock the pool listener's lock
-                playerListener.getLock().lock();
-                Log.useCaseMsg("DC", "Got JPL lock PlyID " + playerId);
-
-                // Try to cancel player from pool. Will throw PlayerNotFound
-                // if player isn't in pool so no need to check contains explicitly
-                lm.removeFromPoolCancel(playerToDisconnect);
-            } catch (PlayerNotFoundException ignored) {
-                Log.useCaseMsg("DC", "Wants GAME lock");
-                gameLock.lock();
-                Log.useCaseMsg("DC", "Got GAME lock");
-                try {
-                    // In this catch block, we know player was not in the pool. However, we don't know if the player
-                    // is in the game. We try to see if the player is in the game using .contains, which uses .equals,
-                    // so only playerIDs are compared. If the game is null, GameDoesntExistException is thrown.
-                    if (lm.getGameReadOnly().getPlayers().contains(playerToDisconnect)){
-
-                        // If the game is ended but not yet set to null, the player is effectively not there
-                        // anymore, so we could consider this a PlayerNotFound scenario
-                        if (lm.isGameEnded()) {
-                            throw new PlayerNotFoundException("Player was found but game is ended and will soon" +
-                                    "be set to null, so player is technically not there");
+                    if (!disconnectFromPool(players[i])) {
+                        // The player was not in the pool. We look up the game the player is in, if
+                        // any. If no game exists at all, GameDoesntExistException is thrown, and if the
+                        // player is in none of the existing games, PlayerNotFoundException
+                        try {
+                            byGame.computeIfAbsent(lm.getGameIdOfPlayer(players[i].getPlayerId()),
+                                    id -> new ArrayList<>()).add(i);
+                        } catch (PlayerNotFoundException | GameDoesntExistException e) {
+                            responses[i] = Response.fromException(e, players[i] + " not found!");
                         }
+                    }
+                }
 
-                        // The player is in the game. We then check if it's the player's turn.
-                        // If it is, then we switch the turn so play can continue.
-                        if (lm.getGameReadOnly().getCurrentTurnPlayer().getPlayerId().equals(this.playerId)) {
-                            // Switch turn returns a boolean of whether switch turn succeeded.
-                            // In this case, it should succeed! If game makes it fail for whatever reason
-                            // then we have an issue. TODO: Perhaps switch turn should not be allowed to fail
-                            lm.switchTurn();
-                        }
+                for (Map.Entry<Integer, List<Integer>> entry : byGame.entrySet()) {
+                    disconnectFromGame(entry.getKey(), entry.getValue(), players, responses, gameData);
+                }
+            } finally {
+                playerPoolLock.unlock();
+                Log.useCaseMsg("DC", "Released POOL lock");
+            }
 
-                        // Now try to remove player from game.
-                        lm.removePlayerFromGame(playerToDisconnect);
+            for (int i = 0; i < n; i++) {
+                batch.get(i).pres().hasDisconnected(
+                        new DcOutputData(responses[i], players[i].getPlayerId(), gameData[i]));
+            }
+        }
 
-                        // We create GameDTO since player was likely removed from game
-                        gameData = GameDTO.fromGame(lm.getGameReadOnly());
-                    }
-                    else {
-                        throw new PlayerNotFoundException("Player is not present in the pool or the game.");
-                    }
+        /**
+         * Removes a player from the pool if they are in it. Engage pool lock surrounding use
+         * @param player the player
+         * @return if the player was in the pool
+         */
+        private boolean disconnectFromPool(Player player) {
+            // Null if player not found, looks through pool hence the pool lock is needed
+            LobbyManager.PlayerObserverLink playerLink = lm.getLinkFromPlayer(player);
+            if (playerLink == null) {
+                return false;
+            }
 
-                } catch (PlayerNotFoundException | GameDoesntExistException e) {
-                    // In both PlayerNotFound & GameDoesntExist, player was
-                    // not found to be in the game, so respond with fail
-                    response = Response.fromException(e, playerToDisconnect + " not found!");
-                } finally {
-                    gameLock.unlock();
-                    Log.useCaseMsg("DC", "Released GAME lock");
+            Log.useCaseMsg("DC", "Found in pool PLY " + player.getPlayerId());
+            PlayerPoolListener playerListener = playerLink.getPlayerPoolListener();
+
+            // Before we continue, we should lock the pool listener's lock
+            playerListener.getLock().lock();
+            Log.useCaseMsg("DC", "Got JPL lock PlyID " + player.getPlayerId());
+            try {
+                lm.removeFromPoolCancel(player);
+                lm.releasePlayerId(player.getPlayerId());
+                return true;
+            } catch (PlayerNotFoundException e) {
+                // Can't happen, the pool lock is held since the player was found in the pool
+                return false;
+            } finally {
+                playerListener.getLock().unlock();
+                Log.useCaseMsg("DC", "Released JPL lock PlyID " + player.getPlayerId());
+            }
+        }
+
+        /**
+         * Removes players of a batch from their game, under a single engagement of the game's
+         * lock. Each player removed is given the state of the game after all of them were removed.
+         * Engage pool lock surrounding use
+         * @param gameId ID of the game
+         * @param indices indices in the batch of the players in the game
+         * @param players players of the batch
+         * @param responses responses of the batch, set to a fail for each player who isn't removed
+         * @param gameData game states of the batch, set for each player who is removed
+         */
+        private void disconnectFromGame(int gameId, List<Integer> indices, Player[] players,
+                                        Response[] responses, GameDTO[] gameData) {
+            Lock gameLock;
+            try {
+                gameLock = lm.getGameLock(gameId);
+            } catch (GameDoesntExistException e) {
+                for (int i : indices) {
+                    responses[i] = Response.fromException(e, players[i] + " not found!");
                 }
+                return;
             }
-            finally {
-                if(playerListener != null) {
-                    playerListener.getLock().unlock();
-                    Log.useCaseMsg("DC", "Released JPL lock PlyID " + playerId);
+
+            List<Integer> removed = new ArrayList<>();
+
+            Log.useCaseMsg("DC", "Wants GAME lock for " + indices.size() + " players");
+            gameLock.lock();
+            Log.useCaseMsg("DC", "Got GAME lock");
+            try {
+                for (int i : indices) {
+                    try {
+                        disconnectFromGame(gameId, players[i]);
+                        removed.add(i);
+                    } catch (PlayerNotFoundException | GameDoesntExistException e) {
+                        // In both PlayerNotFound & GameDoesntExist, player was
+                        // not found to be in the game, so respond with fail
+                        responses[i] = Response.fromException(e, players[i] + " not found!");
+                    }
                 }
-                playerPoolLock.unlock();
-                Log.useCaseMsg("DC", "Released POOL lock");
+
+                // One state of the game for all the players removed from it
+                if (!removed.isEmpty()) {
+                    GameDTO after = GameDTO.fromGame(lm.getGameReadOnly(gameId));
+                    for (int i : removed) {
+                        gameData[i] = after;
+                    }
+                }
+            } catch (GameDoesntExistException ignored) {
+                // The game was removed while engaging the lock, which means the game ended. The players
+                // who were removed from it are gone either way, and there is no state to broadcast
+            } finally {
+                gameLock.unlock();
+                Log.useCaseMsg("DC", "Released GAME lock");
+            }
+        }
+
+        /**
+         * Removes a player from a game. Engage game lock surrounding use
+         * @param gameId ID of the game
+         * @param player the player
+         */
+        private void disconnectFromGame(int gameId, Player player)
+                throws PlayerNotFoundException, GameDoesntExistException {
+            // The game may have been removed between the lookup and engaging the lock. .contains
+            // uses .equals, so only playerIDs are compared
+            if (!lm.getGameReadOnly(gameId).getPlayers().contains(player)) {
+                throw new PlayerNotFoundException("Player is not present in the pool or the game.");
+            }
+
+            // If the game is ended but not yet removed, the player is effectively not there
+            // anymore, so we could consider this a PlayerNotFound scenario
+            if (lm.isGameEnded(gameId)) {
+                throw new PlayerNotFoundException("Player was found but game is ended and will soon" +
+                        "be set to null, so player is technically not there");
+            }
+
+            // The player is in the game. We then check if it's the player's turn.
+            // If it is, then we switch the turn so play can continue.
+            if (lm.getGameReadOnly(gameId).getCurrentTurnPlayer().getPlayerId().equals(player.getPlayerId())) {
+                // Switch turn returns a boolean of whether switch turn succeeded.
+                // In this case, it should succeed! If game makes it fail for whatever reason
+                // then we have an issue. TODO: Perhaps switch turn should not be allowed to fail
+                lm.switchTurn(gameId);
             }
 
-            DcOutputData outputData = new DcOutputData(response, playerId, gameData);
-            pres.hasDisconnected(outputData);
+            // Now try to remove player from game.
+            lm.removePlayerFromGame(player);
+            lm.releasePlayerId(player.getPlayerId());
         }
     }
 }
@@ -79,7 +79,6 @@ public class GatInteractor implements GatInputBoundary{
     @Override
     public void getAllTitles(GatInputData data, GatOutputBoundary pres){
         InterruptibleThread thread = new GatThread(data, pres);
-        boolean success = register.registerThread(thread);
-        if (!success){pres.outputShutdownServer();}
+        register.registerThread(thread).outputIfRejected(pres);
     }
 }
@@ -33,9 +33,7 @@ public class GlsInteractor implements GlsInputBoundary{
     @Override
     public void getLatestStories(GlsInputData data, GlsOutputBoundary pres) {
         InterruptibleThread thread = new GlsThread(data, pres);
-        if (!register.registerThread(thread)) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 
     /**
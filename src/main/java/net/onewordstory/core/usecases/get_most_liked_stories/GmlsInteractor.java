@@ -196,9 +196,7 @@ public class GmlsInteractor implements GmlsInputBoundary {
      */
     public void getMostLikedStories(GmlsInputData data, GmlsOutputBoundary pres) {
         InterruptibleThread thread = new GmlsThread(data, pres);
-        if (!register.registerThread(thread)) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 
 }
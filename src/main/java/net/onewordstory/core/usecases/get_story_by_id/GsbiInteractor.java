@@ -59,8 +59,6 @@ public class GsbiInteractor implements GsbiInputBoundary {
     @Override
     public void getStory(int storyId, GsbiOutputBoundary pres) {
         InterruptibleThread gsbiThread = new GsbiThread(storyId, pres);
-        if (!register.registerThread(gsbiThread)) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(gsbiThread).outputIfRejected(pres);
     }
 }
@@ -68,9 +68,6 @@ public class GscInteractor implements GscInputBoundary {
      */
     public void getStoryComments(GscInputData data, GscOutputBoundary pres) {
         InterruptibleThread thread = new GscThread(data, pres);
-        boolean success = register.registerThread(thread);
-        if (!success) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 }
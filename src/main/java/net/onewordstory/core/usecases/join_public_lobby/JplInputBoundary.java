@@ -7,8 +7,8 @@ package net.onewordstory.core.usecases.join_public_lobby;
 public interface JplInputBoundary {
 
     /**
-     * Starts a thread which will run until a player is in a game or has
-     * chosen to cancel waiting
+     * Starts a thread which adds a player to the pool. The outcome is output once the
+     * player is in a game or has chosen to cancel waiting, without holding a thread meanwhile
      * @param data Describes player who wishes to join a public lobby
      * @param pres output boundary for this use case
      */
@@ -11,24 +11,22 @@ import net.onewordstory.core.usecases.InterruptibleThread;
 import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.ThreadRegister;
 
-import java.util.concurrent.locks.Condition;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Core class of the Join Public Lobby use case
  * Given a player who would like to join a public lobby, adds this player
- * to the matchmaking waiting pool in the entities. The thread blocks until
- * the entity responds that the player was sorted into a game or that another
- * use case was triggered to cancel this player's waiting. In both cases, the thread
- * finishes execution and notifies the view model of the corresponding development
+ * to the matchmaking waiting pool in the entities. The player then waits without
+ * holding a thread until the entity responds that the player was sorted into a game
+ * or that another use case was triggered to cancel this player's waiting. In both cases,
+ * a short thread notifies the view model of the corresponding development
  */
 public class JplInteractor implements JplInputBoundary {
 
     private final LobbyManager lobbyManager;
 
-    private final Lock gameLock;
-
     /**
      * The ThreadRegister that keeps track of all the running use case threads
      * for the shutdown-server use case
@@ -36,17 +34,13 @@ public class JplInteractor implements JplInputBoundary {
     private final ThreadRegister register;
 
     /**
-     * Thread which executes the core logic of this use case
+     * Thread which adds the player to the pool. It ends once the player is in the pool,
+     * leaving the JplListener to wait
      */
-    public class JplThread extends InterruptibleThread implements PlayerPoolListener {
+    public class JplThread extends InterruptibleThread {
 
-        private volatile Game game;
-        private volatile boolean hasCancelled;
         private final JplInputData data;
         private final JplOutputBoundary pres;
-        private final Lock lock;
-
-        private final Condition conditionVariable;
 
         /**
          * @param data Data passed into this use case
@@ -56,37 +50,6 @@ public class JplInteractor implements JplInputBoundary {
             super(JplInteractor.this.register, pres);
             this.data = data;
             this.pres = pres;
-            hasCancelled = false;
-            lock = new ReentrantLock(true);
-            conditionVariable = lock.newCondition();
-        }
-
-        /**
-         * Called from another thread, sets game attribute. The run method
-         * reaches a point where is waits for either hasCancelled or game to be set
-         * @param game The game that the player has been sorted into
-         */
-        @Override
-        public void onJoinGamePlayer(Game game) {
-            this.game = game;
-            // There is always only one thread waiting for this signal
-            conditionVariable.signal();
-        }
-
-        /**
-         * Called from another thread, sets hasCancelled to true. The run method
-         * reaches a point where is waits for either hasCancelled or game to be set
-         */
-        @Override
-        public void onCancelPlayer() {
-            hasCancelled = true;
-            // There is always only one thread waiting for this signal
-            conditionVariable.signal();
-        }
-
-        @Override
-        public Lock getLock() {
-            return lock;
         }
 
         /**
@@ -94,6 +57,13 @@ public class JplInteractor implements JplInputBoundary {
          */
         @Override
         public void threadLogic() throws InterruptedException {
+            JplListener listener = new JplListener(pres);
+            if (!register.registerWaiter(listener.onShutdown)) {
+                throw new InterruptedException();
+            }
+
+            // Callbacks lock the listener, so they wait until the player is reported in the pool
+            Lock lock = listener.getLock();
             try {
                 // It is better to always lock the whole critical section (a useful rule of thumb)
                 Log.useCaseMsg("JPL", "Wants JPL lock " + data.getId());
@@ -105,7 +75,7 @@ public class JplInteractor implements JplInputBoundary {
 
                 // Add player to matchmaking pool and subscribe to hear updates
                 Log.useCaseMsg("JPL", "Wants POOL");
-                lobbyManager.addPlayerToPool(player, this);
+                lobbyManager.addPlayerToPool(player, listener);
                 Log.useCaseMsg("JPL", "Got and Released POOL");
 
                 // Notifies presenter that player was successfully added to pool
@@ -115,34 +85,10 @@ public class JplInteractor implements JplInputBoundary {
                 ));
 
                 Log.useCaseMsg("JPL", "Awaiting Signal...");
-                // Block thread until an update is heard on the player in the pool
-                while (game == null && !hasCancelled) {
-                    // Makes this waiting loop less CPU expensive
-                    conditionVariable.await();
-                }
-                Log.useCaseMsg("JPL", "Got Signal!");
-
-                if (game != null) {
-                    Log.useCaseMsg("JPL", "Wants GAME lock");
-                    JplInteractor.this.gameLock.lock();
-                    Log.useCaseMsg("JPL", "Got GAME lock");
-                    GameDTO gameState = GameDTO.fromGame(game);
-                    JplInteractor.this.gameLock.unlock();
-                    Log.useCaseMsg("JPL", "Released GAME lock");
-
-                    pres.inGame(new JplOutputDataJoinedGame(
-                            Response.getSuccessful("Player successfully joined a game"),
-                            player.getPlayerId(), gameState));
-                }
-
-                // Player has cancelled waiting
-                else {
-                    pres.cancelled(new JplOutputDataResponse(
-                            Response.getSuccessful("Player successfully cancelled their pool waiting"),
-                            player.getPlayerId()));
-                }
+                listener.outputWhenDone(player.getPlayerId());
 
             } catch (EntityException e) {
+                register.removeWaiter(listener.onShutdown);
                 // Notifies that adding player with given ID to pool has failed
                 pres.inPool(
                         new JplOutputDataResponse(
@@ -156,12 +102,123 @@ public class JplInteractor implements JplInputBoundary {
         }
     }
 
+    /**
+     * A player's membership in the pool. It holds no thread while waiting: the pool's
+     * callbacks complete its result, and a short thread then outputs it
+     * <br><br>
+     * <h2>Thread Safety:</h2>
+     * <p>
+     *     Thread safe. The result is completed once, by whichever of joining a game, cancelling
+     *     or shutting down comes first
+     * </p>
+     */
+    public class JplListener implements PlayerPoolListener {
+
+        /**
+         * The game the player joined, or null if they cancelled. Cancelled on shutdown
+         */
+        private final CompletableFuture<Game> result = new CompletableFuture<>();
+        private final JplOutputBoundary pres;
+        private final Lock lock = new ReentrantLock();
+
+        /**
+         * Registered with the ThreadRegister while the player waits
+         */
+        private final Runnable onShutdown = () -> result.cancel(false);
+
+        /**
+         * @param pres output boundary for this use case
+         */
+        public JplListener(JplOutputBoundary pres) {
+            this.pres = pres;
+        }
+
+        /**
+         * Called from another thread once the player was sorted into a game
+         * @param game The game that the player has been sorted into
+         */
+        @Override
+        public void onJoinGamePlayer(Game game) {
+            result.complete(game);
+        }
+
+        /**
+         * Called from another thread once the player cancelled their waiting
+         */
+        @Override
+        public void onCancelPlayer() {
+            result.complete(null);
+        }
+
+        @Override
+        public Lock getLock() {
+            return lock;
+        }
+
+        /**
+         * Outputs the result once the player has joined a game, cancelled, or the server is
+         * shutting down
+         * @param playerId ID of the waiting player
+         */
+        void outputWhenDone(String playerId) {
+            result.whenComplete((game, error) -> {
+                register.removeWaiter(onShutdown);
+                if (error != null) {
+                    pres.outputShutdownServer();
+                } else if (!register.registerFollowUp(new JplOutputThread(pres, playerId, game))) {
+                    // The player may already be in the game, so the output is only dropped on shutdown
+                    pres.outputShutdownServer();
+                }
+            });
+        }
+    }
+
+    /**
+     * Thread which tells the presenter that a waiting player joined a game or cancelled
+     */
+    private class JplOutputThread extends InterruptibleThread {
+
+        private final JplOutputBoundary pres;
+        private final String playerId;
+        private final Game game;
+
+        /**
+         * @param game the game the player joined, or null if they cancelled
+         */
+        JplOutputThread(JplOutputBoundary pres, String playerId, Game game) {
+            super(JplInteractor.this.register, pres);
+            this.pres = pres;
+            this.playerId = playerId;
+            this.game = game;
+        }
+
+        @Override
+        protected void threadLogic() {
+            Log.useCaseMsg("JPL", "Got Signal!");
+
+            if (game != null) {
+                // The game publishes immutable snapshots, so no game lock is needed to read it
+                GameDTO gameState = GameDTO.fromGame(game);
+
+                pres.inGame(new JplOutputDataJoinedGame(
+                        Response.getSuccessful("Player successfully joined a game"),
+                        playerId, gameState));
+            }
+
+            // Player has cancelled waiting
+            else {
+                pres.cancelled(new JplOutputDataResponse(
+                        Response.getSuccessful("Player successfully cancelled their pool waiting"),
+                        playerId));
+            }
+        }
+    }
+
     /**
      * @param lobbyManager Shared object representing game state
      */
     public JplInteractor (LobbyManager lobbyManager, ThreadRegister register) {
         this.lobbyManager = lobbyManager;
-        this.gameLock = lobbyManager.getGameLock();
         this.register = register;
     }
 
@@ -173,8 +230,6 @@ public class JplInteractor implements JplInputBoundary {
     @Override
     public void joinPublicLobby(JplInputData data, JplOutputBoundary pres) {
         InterruptibleThread thread = new JplThread(data, pres);
-        if (!register.registerThread(thread)) {
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 }
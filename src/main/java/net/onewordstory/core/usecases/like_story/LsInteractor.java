@@ -55,8 +55,6 @@ public class LsInteractor implements LsInputBoundary {
     @Override
     public void likeStory(LsInputData data, LsOutputBoundary presenter) {
         InterruptibleThread thread = new LsRunnable(data, presenter);
-        if (!register.registerThread(thread)) {
-            presenter.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(presenter);
     }
 }
@@ -1,6 +1,7 @@
 package net.onewordstory.core.usecases.pull_data;
 
 import net.onewordstory.core.entities.games.Game;
+import net.onewordstory.core.entities.games.GameSnapshot;
 
 /**
  * Input data class of Pull Data use-case
@@ -8,12 +9,17 @@ import net.onewordstory.core.entities.games.Game;
 public class PdInputData {
 
     private final Game game;
+    private final GameSnapshot snapshot;
 
     /**
-     * Constructor for PdInputData
+     * Constructor for PdInputData. Captures the last snapshot the game published,
+     * so the data stays consistent after the game lock is released
      * @param game Game to be stored
      */
-    public PdInputData(Game game) { this.game = game; }
+    public PdInputData(Game game) {
+        this.game = game;
+        this.snapshot = game.getSnapshot();
+    }
 
     /**
      * Getter for PdInputData
@@ -21,4 +27,9 @@ public class PdInputData {
      */
     public Game getGame() { return this.game; }
 
+    /**
+     * @return immutable state of the game when this input data was created
+     */
+    public GameSnapshot getSnapshot() { return this.snapshot; }
+
 }
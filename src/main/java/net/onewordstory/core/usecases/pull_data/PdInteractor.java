@@ -20,7 +20,7 @@ public class PdInteractor implements PdInputBoundary {
      * @param d PdInputData storing the updated game state
      */
     public void onTimerUpdate (PdInputData d) {
-        GameDTO gameInfo = GameDTO.fromGame(d.getGame());
+        GameDTO gameInfo = GameDTO.fromSnapshot(d.getSnapshot());
         PdOutputData od = new PdOutputData(gameInfo);
         p.updateGameInfo(od);
     }
@@ -11,6 +11,7 @@ import java.util.List;
  */
 public class PgeInputData {
 
+    private final int gameId;
     private final List<Player> players;
     private final String storyString;
     private final List<PerPlayerIntStatistic> statistics;
@@ -18,16 +19,20 @@ public class PgeInputData {
 
     /**
      * Constructor for PgeInputData
+     * @param gameId ID of the game that ended
      * @param players the players in the game that ended
      */
-    public PgeInputData(List<Player> players, String storyString,
+    public PgeInputData(int gameId, List<Player> players, String storyString,
                         List<PerPlayerIntStatistic> statistics, AllPlayerNamesStatistic authorNamesStat) {
+        this.gameId = gameId;
         this.players = players;
         this.storyString = storyString;
         this.statistics = statistics;
         this.authorNamesStat = authorNamesStat;
     }
 
+    public int getGameId() { return gameId; }
+
     public List<Player> getPlayers() {
         return players;
     }
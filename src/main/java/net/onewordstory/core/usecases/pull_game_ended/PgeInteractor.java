@@ -98,6 +98,6 @@ public class PgeInteractor implements PgeInputBoundary {
             );
         }
 
-        presenter.notifyGameEnded(new PgeOutputData(playerStatDTOs));
+        presenter.notifyGameEnded(new PgeOutputData(data.getGameId(), playerStatDTOs));
     }
 }
@@ -5,16 +5,23 @@ package net.onewordstory.core.usecases.pull_game_ended;
  */
 public class PgeOutputData {
 
+    private final int gameId;
     private final PlayerStatisticDTO[] playerStatDTOs;
 
     /**
      * Constructor for PgeOutputData
+     * @param gameId ID of the game that ended
      * @param playerStatDTOs a list of DTO objects of a players and their statistics
      */
-    public PgeOutputData(PlayerStatisticDTO[] playerStatDTOs) {
+    public PgeOutputData(int gameId, PlayerStatisticDTO[] playerStatDTOs) {
+        this.gameId = gameId;
         this.playerStatDTOs = playerStatDTOs;
     }
 
+    public int getGameId() {
+        return gameId;
+    }
+
     public PlayerStatisticDTO[] getPlayerStatDTOs() {
         return playerStatDTOs;
     }
@@ -0,0 +1,225 @@
+package net.onewordstory.core.usecases.run_game;
+
+import org.example.Log;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the timer ticks of every running game from a small, fixed pool of threads,
+ * so that the amount of threads does not grow with the amount of games.
+ * <br><br>
+ * Ticks run on monotonic deadlines: the n-th run of a tick is due at exactly
+ * start + n * period, measured with System.nanoTime. A run which starts late does
+ * not push back the runs after it, so games do not drift. How late each run
+ * started compared to its deadline is recorded as the tick lag, which shows when
+ * the pool is too small for the amount of running games. A tick which hands its
+ * work to another thread reports when that work actually started instead, so the
+ * lag also covers the wait for that thread.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     This class is thread safe. Ticks may be scheduled and cancelled from any thread,
+ *     including from within a running tick. A tick is never run concurrently with itself,
+ *     but different ticks may run concurrently on different pool threads
+ * </p>
+ */
+public class GameTickScheduler {
+
+    /**
+     * Default amount of threads, one per core but no more than 4. Ticks are short
+     * so a few threads can serve thousands of games
+     */
+    public static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Code run each tick which reports when its work actually starts
+     */
+    @FunctionalInterface
+    public interface Tick {
+        /**
+         * @param started to be called once, as the work of this run starts, possibly on
+         *                another thread. The lag of the run is measured when it is called
+         */
+        void run(Runnable started);
+    }
+
+    /**
+     * Handle to a scheduled tick which can be used to stop it
+     */
+    public static class TickHandle {
+        private final AtomicBoolean cancelled;
+        private final Runnable onCancel;
+        private volatile ScheduledFuture<?> future;
+
+        private TickHandle (Runnable onCancel) {
+            this.cancelled = new AtomicBoolean(false);
+            this.onCancel = onCancel;
+        }
+
+        /**
+         * Stops the tick. A run which is in progress finishes, but no further run starts.
+         * Calling this more than once has no further effect
+         */
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                ScheduledFuture<?> f = future;
+                if (f != null) {
+                    f.cancel(false);
+                }
+                onCancel.run();
+            }
+        }
+
+        /**
+         * @return if cancel has been called on this handle
+         */
+        public boolean isCancelled() { return cancelled.get(); }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final int threadCount;
+
+    private final AtomicInteger activeTicks;
+    private final LongAdder tickCount;
+    private final LongAdder totalLagNanos;
+    private final AtomicLong maxLagNanos;
+
+    /**
+     * @param threadCount Amount of threads which run the ticks of all games
+     */
+    public GameTickScheduler(int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.threadCount = threadCount;
+        this.executor = new ScheduledThreadPoolExecutor(threadCount, r -> {
+            Thread t = new Thread(r, "game-tick-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        this.activeTicks = new AtomicInteger(0);
+        this.tickCount = new LongAdder();
+        this.totalLagNanos = new LongAdder();
+        this.maxLagNanos = new AtomicLong(0);
+    }
+
+    /**
+     * Creates a scheduler with DEFAULT_THREADS threads
+     */
+    public GameTickScheduler() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Runs tick repeatedly, first after initialDelayMillis and then every periodMillis,
+     * each run being due at a fixed deadline. If a run throws, the exception is logged
+     * and the tick keeps running
+     * @param tick Code to run each tick, whose lag is measured as it is called
+     * @param initialDelayMillis Milliseconds until the first run
+     * @param periodMillis Milliseconds between the deadlines of two runs
+     * @return Handle which stops the tick
+     */
+    public TickHandle scheduleAtFixedRate(Runnable tick, long initialDelayMillis, long periodMillis) {
+        return scheduleAtFixedRate(started -> {
+            started.run();
+            tick.run();
+        }, initialDelayMillis, periodMillis);
+    }
+
+    /**
+     * Runs tick repeatedly, like the Runnable overload, but measures the lag of each run
+     * when the tick reports that its work started
+     * @param tick Code to run each tick
+     * @param initialDelayMillis Milliseconds until the first run
+     * @param periodMillis Milliseconds between the deadlines of two runs
+     * @return Handle which stops the tick
+     */
+    public TickHandle scheduleAtFixedRate(Tick tick, long initialDelayMillis, long periodMillis) {
+        TickHandle handle = new TickHandle(activeTicks::decrementAndGet);
+        activeTicks.incrementAndGet();
+
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        long firstDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+        AtomicLong runs = new AtomicLong(0);
+
+        Runnable timedTick = () -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            long deadline = firstDeadline + runs.getAndIncrement() * periodNanos;
+            AtomicBoolean isStarted = new AtomicBoolean(false);
+            try {
+                tick.run(() -> {
+                    if (isStarted.compareAndSet(false, true)) {
+                        recordLag(System.nanoTime() - deadline);
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.useCaseMsg("RG", "Game tick threw " + e);
+            }
+        };
+
+        // scheduleAtFixedRate computes each deadline from the previous deadline rather than
+        // from when the previous run finished, so runs are due at exactly firstDeadline + n * period
+        handle.future = executor.scheduleAtFixedRate(timedTick, initialDelayMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
+
+        // The tick may have been cancelled before the future was assigned
+        if (handle.isCancelled()) {
+            handle.future.cancel(false);
+        }
+        return handle;
+    }
+
+    /**
+     * Updates the lag metrics with the lag of one run
+     * @param lagNanos how many nanoseconds after its deadline the work of the run started
+     */
+    private void recordLag(long lagNanos) {
+        long lag = Math.max(0, lagNanos);
+        tickCount.increment();
+        totalLagNanos.add(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    /**
+     * @return amount of threads which run ticks
+     */
+    public int getThreadCount() { return threadCount; }
+
+    /**
+     * @return amount of ticks which are scheduled and not cancelled
+     */
+    public int getActiveTickCount() { return activeTicks.get(); }
+
+    /**
+     * @return total amount of runs of all ticks so far
+     */
+    public long getTickCount() { return tickCount.sum(); }
+
+    /**
+     * @return the largest lag of any run so far, in nanoseconds
+     */
+    public long getMaxTickLagNanos() { return maxLagNanos.get(); }
+
+    /**
+     * @return the average lag of all runs so far, in nanoseconds, or 0 if nothing ran yet
+     */
+    public long getAverageTickLagNanos() {
+        long count = tickCount.sum();
+        return count == 0 ? 0 : totalLagNanos.sum() / count;
+    }
+
+    /**
+     * Stops all ticks. Runs in progress finish, but no further run starts
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,99 +1,205 @@
 package net.onewordstory.core.usecases.run_game;
 
+import net.onewordstory.core.entities.GameLoop;
 import net.onewordstory.core.entities.games.Game;
 import org.example.Log;
 import net.onewordstory.core.usecases.pull_data.PdInputBoundary;
 import net.onewordstory.core.usecases.pull_data.PdInputData;
 import net.onewordstory.core.usecases.pull_game_ended.PgeInputBoundary;
 import net.onewordstory.core.usecases.pull_game_ended.PgeInputData;
+import net.onewordstory.core.util.ServerClock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.TimerTask;
-import java.util.concurrent.locks.Lock;
 
 /**
  * Interactor for the Run Game use-case
  */
 public class RgInteractor {
 
+    /**
+     * Milliseconds between ticks of a game
+     */
+    public static final long TICK_PERIOD_MILLIS = 1000;
+
+    /**
+     * How far the turn deadline shown to clients may be off from when the ticks will actually
+     * end the turn before it is corrected. Clients count down to the deadline on their own, so
+     * it is only sent again when the turn changes or it is corrected
+     */
+    public static final long DEADLINE_TOLERANCE_MILLIS = 250;
+
     private final Game g;
     private final PgeInputBoundary pge;
     private final PdInputBoundary pd;
-    private final Lock gameLock;
+    private final GameLoop gameLoop;
+    private final Runnable onGameEnded;
+
+    /**
+     * Handle to this game's tick in the GameTickScheduler, null until startTimer is called
+     */
+    private volatile GameTickScheduler.TickHandle tickHandle;
 
     /**
      * @param g Game that we interact with
      * @param pge "Pull Game Ended" use-case input boundary
      * @param pd "Pull Data" use-case input boundary
+     * @param gameLoop Loop which runs the commands submitted to game g
+     * @param onGameEnded Called once the timer has stopped, while the game lock is still held.
+     *                    Must return quickly and must not engage the pool lock
      */
-    public RgInteractor (Game g, PgeInputBoundary pge, PdInputBoundary pd, Lock gameLock) {
+    public RgInteractor (Game g, PgeInputBoundary pge, PdInputBoundary pd, GameLoop gameLoop,
+                         Runnable onGameEnded) {
         this.g = g;
         this.pge = pge;
         this.pd = pd;
-        this.gameLock = gameLock;
+        this.gameLoop = gameLoop;
+        this.onGameEnded = onGameEnded;
     }
 
     /**
-     * Internal Timer Task to be used within the main Timer below
+     * @param g Game that we interact with
+     * @param pge "Pull Game Ended" use-case input boundary
+     * @param pd "Pull Data" use-case input boundary
+     * @param gameLoop Loop which runs the commands submitted to game g
+     */
+    public RgInteractor (Game g, PgeInputBoundary pge, PdInputBoundary pd, GameLoop gameLoop) {
+        this(g, pge, pd, gameLoop, () -> {});
+    }
+
+    /**
+     * Internal Timer Task which performs one tick of the game. It is driven by
+     * the shared GameTickScheduler, but can also be run by any Timer
+     * <br><br>
+     * The tick is submitted to the game's loop, so it runs in order with the words submitted
+     * to the game. It is submitted asynchronously, so the scheduler's thread never waits for
+     * the game nor runs the commands of a busy game
+     * <br><br>
+     * A tick only pushes the game to PD if the turn switched or the turn deadline had to be
+     * corrected, such as after SW switched the turn in between two ticks. Clients count the
+     * seconds down locally, so ticks which only count down send nothing
      */
     public class RgTask extends TimerTask {
 
+        /**
+         * What a tick leaves to do once the game lock is released
+         * @param tickData game to push to PD, or null
+         * @param endData ended game to pass to PGE, or null
+         */
+        private record Outcome(PdInputData tickData, PgeInputData endData) { }
+
         /**
          * Method to override from abstract TimerTask
          */
         @Override
         public void run () {
-            // Log.useCaseMsg("RG", "Wants GAME lock");
-            gameLock.lock();
-            // Log.useCaseMsg("RG", "Got GAME lock");
+            run(() -> {});
+        }
+
+        /**
+         * Submits the tick to the game's loop
+         * @param started called as the tick starts running in the loop, so the scheduler
+         *                measures the lag up to then rather than up to the submission
+         */
+        public void run (Runnable started) {
+            gameLoop.submitAsync(() -> {
+                started.run();
+                return tick();
+            }).thenAccept(this::afterTick).exceptionally(e -> {
+                Log.useCaseMsg("RG ERROR", "Tick failed: " + e);
+                return null;
+            });
+        }
+
+        /**
+         * Ticks the game. Runs in the game's loop
+         */
+        private Outcome tick () {
             if (RgInteractor.this.g.isGameOver()) {
+                if (RgInteractor.this.g.isTimerStopped()) {
+                    // A tick queued before the timer was cancelled
+                    return new Outcome(null, null);
+                }
                 Log.useCaseMsg("RG", "Detected isGameOver() = true");
                 // Game ending procedure:
 
-                // Cancel the game timer
-                RgInteractor.this.g.getGameTimer().cancel();
+                // Stop ticking this game
+                this.cancel();
+                if (RgInteractor.this.tickHandle != null) {
+                    RgInteractor.this.tickHandle.cancel();
+                }
 
-                // Perform "Game Ended" use-case via PgeInteractor
-                RgInteractor.this.pge.onGameEnded(
-                        new PgeInputData(
-                                new ArrayList<>(RgInteractor.this.g.getPlayers()),
-                                g.getStoryString(), Arrays.asList(g.getPlayerStatistics()),
-                                g.getAuthorNamesStatistic()
-                        )
+                PgeInputData endData = new PgeInputData(RgInteractor.this.g.getGameId(),
+                        new ArrayList<>(RgInteractor.this.g.getPlayers()),
+                        g.getStoryString(), Arrays.asList(g.getPlayerStatistics()),
+                        g.getAuthorNamesStatistic()
                 );
 
                 // Notify the game, after timer cancellation, when the
-                // last execution of the run method has finished, meaning,
+                // last execution of the tick has finished, meaning,
                 // no more game timer code will run
                 RgInteractor.this.g.setTimerStopped();
                 Log.useCaseMsg("RG", "Timer has been stopped");
 
-            } else {
-                // Regular game procedure:
+                // The game can now be removed, so let whoever sorts players know
+                RgInteractor.this.onGameEnded.run();
+
+                return new Outcome(null, endData);
+            }
+
+            // Regular game procedure:
 
-                // Decrement seconds counter and switch turn if needed
-                RgInteractor.this.g.setSecondsLeftInCurrentTurn(RgInteractor.this.g.getSecondsLeftInCurrentTurn() - 1);
-                if (RgInteractor.this.g.getSecondsLeftInCurrentTurn() == 0) { // Displaying 0 before, it is over
-                    RgInteractor.this.g.switchTurn();
+            // Decrement seconds counter and switch turn if needed
+            boolean isChanged = false;
+            RgInteractor.this.g.setSecondsLeftInCurrentTurn(RgInteractor.this.g.getSecondsLeftInCurrentTurn() - 1);
+            if (RgInteractor.this.g.getSecondsLeftInCurrentTurn() == 0) { // Displaying 0 before, it is over
+                isChanged = RgInteractor.this.g.switchTurn();
+            } else {
+                // The turn ends after as many more ticks as there are seconds left
+                long expectedDeadline = ServerClock.nowMillis() +
+                        RgInteractor.this.g.getSecondsLeftInCurrentTurn() * TICK_PERIOD_MILLIS;
+                if (Math.abs(expectedDeadline - RgInteractor.this.g.getTurnDeadlineMillis())
+                        > DEADLINE_TOLERANCE_MILLIS) {
+                    RgInteractor.this.g.setTurnDeadlineMillis(expectedDeadline);
+                    isChanged = true;
                 }
+            }
+
+            // Push corresponding updates to our game, which publishes its new snapshot
+            RgInteractor.this.g.onTimerUpdate(); // note: was empty at the time of implementation
 
-                // Push corresponding updates to our game and PdInteractor
-                RgInteractor.this.g.onTimerUpdate(); // note: was empty at the time of implementation
-                RgInteractor.this.pd.onTimerUpdate(new PdInputData(RgInteractor.this.g));
+            // PdInputData holds the snapshot taken here, so PD does not need the game lock
+            return new Outcome(isChanged ? new PdInputData(RgInteractor.this.g) : null, null);
+        }
+
+        /**
+         * Pushes what the tick produced, without the game lock held
+         */
+        private void afterTick (Outcome outcome) {
+            if (outcome.tickData() != null) {
+                RgInteractor.this.pd.onTimerUpdate(outcome.tickData());
+            }
 
+            if (outcome.endData() != null) {
+                // Perform "Game Ended" use-case via PgeInteractor. It saves the story, so it runs
+                // once the game is released, from the data taken as the game ended
+                RgInteractor.this.pge.onGameEnded(outcome.endData());
             }
-            gameLock.unlock();
-            // Log.useCaseMsg("RG", "Released GAME lock");
         }
     }
 
     /**
-     * Launch timer with the above-provided RgTask
+     * Launch timer with the above-provided RgTask, ticking once every second
+     * @param scheduler Shared scheduler which drives the ticks of all games
      */
-    public void startTimer () {
+    public void startTimer (GameTickScheduler scheduler) {
         this.g.setSecondsLeftInCurrentTurn(g.getSecondsPerTurn());
-        this.g.getGameTimer().schedule(new RgTask(), 1000, 1000);
+        this.g.setTurnDeadlineMillis(ServerClock.nowMillis() + g.getSecondsPerTurn() * TICK_PERIOD_MILLIS);
+        this.g.publishSnapshot();
+        RgTask task = new RgTask();
+        this.tickHandle = scheduler.scheduleAtFixedRate(started -> task.run(started),
+                TICK_PERIOD_MILLIS, TICK_PERIOD_MILLIS);
     }
 
 }
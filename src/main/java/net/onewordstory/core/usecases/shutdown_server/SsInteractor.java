@@ -11,7 +11,12 @@ public class SsInteractor implements SsInputBoundary {
     }
 
     public void shutdownServer(SsOutputBoundary presenter) {
-        threadRegister.stopThreads();
+        try {
+            threadRegister.stopThreads();
+        } catch (InterruptedException e) {
+            // Stop waiting for the threads, and let the caller see the interrupt
+            Thread.currentThread().interrupt();
+        }
         presenter.outputShutdownServer();
     }
 
@@ -10,4 +10,13 @@ public interface SsOutputBoundary {
      */
     void outputShutdownServer();
 
+    /**
+     * This method notifies that the use case didn't run, as the server was too busy to take it.
+     * The request may be retried. Unless overridden, it is reported like a shutdown, as in
+     * both cases the use case didn't run
+     */
+    default void outputServerBusy() {
+        outputShutdownServer();
+    }
+
 }
@@ -1,5 +1,7 @@
 package net.onewordstory.core.usecases.sort_players;
 
+import net.onewordstory.core.entities.GameLoop;
+import net.onewordstory.core.entities.LobbyChangeListener;
 import net.onewordstory.core.entities.LobbyManager;
 import net.onewordstory.core.entities.Player;
 import net.onewordstory.core.entities.games.Game;
@@ -9,135 +11,281 @@ import net.onewordstory.core.exceptions.PlayerNotFoundException;
 import org.example.Log;
 import net.onewordstory.core.usecases.pull_data.PdInputBoundary;
 import net.onewordstory.core.usecases.pull_game_ended.PgeInputBoundary;
+import net.onewordstory.core.usecases.run_game.GameTickScheduler;
 import net.onewordstory.core.usecases.run_game.RgInteractor;
 
 import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
 /**
  * Interactor for Sort Players use case
+ * <br><br>
+ * Sorting is event driven. Once started, SP listens to the LobbyManager and sorts
+ * players whenever a player enters or leaves the pool, a player leaves a game, or a
+ * game ends. A slow timer additionally sorts every SAFETY_NET_PERIOD_MILLIS in case
+ * an event was missed.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Events arrive on the threads of other use cases which often hold the pool lock,
+ *     a game lock or a JPL lock, whereas sorting engages the pool lock before game and JPL
+ *     locks. Sorting is therefore never done on the notifying thread, but on a single
+ *     sorting thread. Events which arrive while a sort is already pending are merged
+ *     into that sort, and an event which arrives while a sort is running causes
+ *     exactly one more sort afterwards, so no event is lost.
+ *     Locks are engaged in the order pool, game, JPL listener of a player, like Disconnecting
+ * </p>
  */
 public class SpInteractor {
+
+    /**
+     * Period of the safety net timer. Sorting normally happens on events, this only
+     * catches whatever the events may have missed
+     */
+    public static final long SAFETY_NET_PERIOD_MILLIS = 5000;
+
     private final LobbyManager lobbyManager;
     private final PgeInputBoundary pge;
     private final PdInputBoundary pd;
     private final Lock playerPoolLock;
-    private final Lock gameLock;
+    private final GameTickScheduler tickScheduler;
+
+    private final ExecutorService sortingThread;
+    private final AtomicBoolean sortPending;
+    private final LobbyChangeListener lobbyChangeListener;
+    private TimerTask safetyNetTask;
 
     /**
      * Constructor for SpInteractor
      * @param lobbyManager the lobby manager players are being sorted from
      * @param pge pull game ended use case input boundary
-     * @param pd pull data use case input boundary4
+     * @param pd pull data use case input boundary
+     * @param tickScheduler shared scheduler which drives the run game timer of every game
      */
     public SpInteractor(LobbyManager lobbyManager, PgeInputBoundary pge,
-                         PdInputBoundary pd) {
+                         PdInputBoundary pd, GameTickScheduler tickScheduler) {
         this.lobbyManager = lobbyManager;
         this.pge = pge;
         this.pd = pd;
+        this.tickScheduler = tickScheduler;
         this.playerPoolLock = lobbyManager.getPlayerPoolLock();
-        this.gameLock = lobbyManager.getGameLock();
+
+        this.sortingThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sort-players");
+            t.setDaemon(true);
+            return t;
+        });
+        this.sortPending = new AtomicBoolean(false);
+        this.lobbyChangeListener = this::requestSort;
     }
 
     /**
-     * Sort players task for timer to perform.
-     * If the game exists;
-     * If the game is over sets the game to null.
-     * If the game is ongoing try to add players in the pool to the game.
-     * If the game doesn't exist and there are 2 or more players waiting;
-     * Creates a new game, adds waiting players in pool to game, and starts the run game timer.
+     * Sort players task, run on the sorting thread.
+     * <ol>
+     *     <li> Every game which is over is removed from the LobbyManager </li>
+     *     <li> While 2 or more players are waiting, a new game is created from the
+     *     players who have waited the longest, they join it, and its run game timer is started </li>
+     *     <li> A player left waiting alone is added to the running game with the fewest players,
+     *     if any game has room for them </li>
+     * </ol>
+     * Each game is only locked while it is being worked on, so games
+     * which SP is not touching keep running undisturbed
      */
-    public class SpTask extends TimerTask {
+    public class SpTask implements Runnable {
         @Override
         public void run() {
-            // We need to lock all the accesses to the pool and the game to avoid race conditions
+            // We need to lock all the accesses to the pool to avoid race conditions
             //Log.useCaseMsg("SP", "Wants POOL lock");
             playerPoolLock.lock();
             //Log.useCaseMsg("SP", "Got POOL lock");
-            //Log.useCaseMsg("SP", "Wants GAME lock");
-            gameLock.lock();
-            //Log.useCaseMsg("SP", "Got GAME lock");
-
-            // If game has ended, set it to null.
-            if (!lobbyManager.isGameNull()) {
-                if (lobbyManager.isGameEnded()) {
-                    Log.useCaseMsg("SP", "Detected isGameEnded = true");
+            try {
+                removeEndedGames();
+                startNewGames();
+                addLeftoverPlayers();
+            } finally {
+                playerPoolLock.unlock();
+                //Log.useCaseMsg("SP", "Released POOL lock");
+            }
+        }
 
-                    // if isGameEnded() is true, GameRunningException cannot be thrown
-                    // No other thread currently changes isGameEnded() state so this error is IMPOSSIBLE
-                    try {
-                        lobbyManager.setGameNull();
-                        Log.useCaseMsg("SP", "Set game to null successfully");
-                    } catch (GameRunningException e) {
-                        gameLock.unlock();
-                        playerPoolLock.unlock();
-                        System.out.println("SP: Released POOL and GAME locks");
-                        System.out.println("SP: IMPOSSIBLE ERROR: Tried to set game null when game was running");
-                        throw new RuntimeException(e);
-                    }
+        /**
+         * Removes every game which has ended from the LobbyManager
+         */
+        private void removeEndedGames() {
+            for (LobbyManager.GameLockLink link : lobbyManager.getGames()) {
+                int gameId = link.getGame().getGameId();
+                Lock gameLock = link.getGameLock();
+                gameLock.lock();
+                try {
+                    if (lobbyManager.isGameEnded(gameId)) {
+                        Log.useCaseMsg("SP", "Detected isGameEnded = true for game " + gameId);
 
-                } else {
-                    for (LobbyManager.PlayerObserverLink playerObserverLink : lobbyManager.getPool()) {
-                        Player player = playerObserverLink.getPlayer();
-
-                        Log.useCaseMsg("SP", "Wants JPL lock " + player.getPlayerId());
-                        Lock lock = playerObserverLink.getPlayerPoolListener().getLock();
-                        lock.lock();
-                        Log.useCaseMsg("SP", "Got JPL lock " + player.getPlayerId());
-                        try {
-                            lobbyManager.addPlayerToGameRemoveFromPool(player);
-                        } catch (PlayerNotFoundException | GameDoesntExistException e) {
-                            // GameDoesntExist is an IMPOSSIBLE Error. In this if block, game is not null and
-                            // only SortPlayers sets game to null.
-                            // PlayerNotFoundException occurs if player is removed from the pool from another
-                            // thread. Proper lock architecture will prevent this
-                            System.out.println("SP: IMPOSSIBLE ERROR: " + e.getClass().getSimpleName());
-                            gameLock.unlock();
-                            playerPoolLock.unlock();
-                            System.out.println("SP: Released POOL and GAME locks");
-                            throw new RuntimeException(e);
-                        } finally {
-                            lock.unlock();
-                            Log.useCaseMsg("SP", "Released JPL lock " + player.getPlayerId());
-                        }
+                        // If isGameEnded() is true, GameRunningException cannot be thrown, and
+                        // only SP removes games, so GameDoesntExist is IMPOSSIBLE as well
+                        lobbyManager.removeGame(gameId);
+                        Log.useCaseMsg("SP", "Removed game " + gameId + " successfully");
                     }
+                } catch (GameRunningException | GameDoesntExistException e) {
+                    System.out.println("SP: IMPOSSIBLE ERROR: " + e.getClass().getSimpleName());
+                    throw new RuntimeException(e);
+                } finally {
+                    gameLock.unlock();
                 }
             }
-            else if (lobbyManager.getPool().size() >= LobbyManager.PLAYERS_TO_START_GAME) {
-                Log.useCaseMsg("SP", "SP: Detected Pool Length: " + lobbyManager.getPool().size());
+        }
+
+        /**
+         * Creates new games from the pool for as long as enough players are waiting
+         */
+        private void startNewGames() {
+            while (lobbyManager.getPoolSize() >= LobbyManager.PLAYERS_TO_START_GAME) {
+                Log.useCaseMsg("SP", "SP: Detected Pool Length: " + lobbyManager.getPoolSize());
 
                 Map<String, Integer> settings = null; // currently player settings isn't a feature, thus null
+                int playersTaken = Math.min(lobbyManager.getPoolSize(), LobbyManager.MAX_PLAYERS_PER_GAME);
                 Game game = lobbyManager.newGameFromPool(settings);
 
-                // IMPOSSIBLE error. isGameNull is true in this block, and setGame is only
-                // called from this thread, so another thread couldn't have changed it
+                // IMPOSSIBLE errors. The game was just created so its ID is not registered yet,
+                // and only SP registers games, so another thread couldn't have changed it
+                Lock gameLock;
+                GameLoop gameLoop;
                 try {
-                    lobbyManager.setGame(game);
-                } catch (GameRunningException e) {
-                    gameLock.unlock();
-                    Log.useCaseMsg("SP", "Released GAME lock");
-                    playerPoolLock.unlock();
-                    Log.useCaseMsg("SP", "Released POOL lock");
+                    lobbyManager.addGame(game);
+                    gameLock = lobbyManager.getGameLock(game.getGameId());
+                    gameLoop = lobbyManager.getGameLoop(game.getGameId());
+                } catch (GameRunningException | GameDoesntExistException e) {
                     throw new RuntimeException(e);
                 }
 
-                // This method has built in thread safety which ensures that each
-                // PlayerPoolListener lock is engaged during callback execution
-                lobbyManager.removeAllFromPoolJoin();
-                new RgInteractor(game, pge, pd, gameLock).startTimer();
+                gameLock.lock();
+                try {
+                    // newGameFromPool took the longest waiting players, drain exactly those
+                    // from the pool and tell their JPL threads they joined
+                    lobbyManager.drainPoolJoin(game.getGameId(), playersTaken);
+                    new RgInteractor(game, pge, pd, gameLoop, SpInteractor.this::requestSort)
+                            .startTimer(tickScheduler);
+                } catch (GameDoesntExistException e) {
+                    // IMPOSSIBLE, the game was registered above and only SP removes games
+                    System.out.println("SP: IMPOSSIBLE ERROR: " + e.getClass().getSimpleName());
+                    throw new RuntimeException(e);
+                } finally {
+                    gameLock.unlock();
+                }
             }
-            gameLock.unlock();
-            //Log.useCaseMsg("SP", "Released GAME lock");
-            playerPoolLock.unlock();
-            //Log.useCaseMsg("SP", "Released POOL lock");
+        }
+
+        /**
+         * Adds the players which are still in the pool, too few to start a game,
+         * to the running game with the fewest players
+         */
+        private void addLeftoverPlayers() {
+            for (LobbyManager.PlayerObserverLink playerObserverLink : lobbyManager.getPool()) {
+                LobbyManager.GameLockLink smallest = null;
+                int smallestSize = LobbyManager.MAX_PLAYERS_PER_GAME;
+                for (LobbyManager.GameLockLink link : lobbyManager.getGames()) {
+                    // Player lists are only read under the game's own lock
+                    int size;
+                    link.getGameLock().lock();
+                    try {
+                        size = link.getGame().getPlayers().size();
+                    } finally {
+                        link.getGameLock().unlock();
+                    }
+                    if (size < smallestSize) {
+                        smallest = link;
+                        smallestSize = size;
+                    }
+                }
+                if (smallest == null) {
+                    return;
+                }
+
+                Lock gameLock = smallest.getGameLock();
+                gameLock.lock();
+                try {
+                    if (lobbyManager.isGameRunning(smallest.getGame().getGameId())) {
+                        joinPlayer(playerObserverLink.getPlayer(), smallest.getGame().getGameId());
+                    }
+                } finally {
+                    gameLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Moves a single player from the pool into a running game, engaging their JPL lock.
+         * The pool lock and the lock of the game must already be held
+         * @param player Player to move
+         * @param gameId ID of the game they join
+         */
+        private void joinPlayer(Player player, int gameId) {
+            LobbyManager.PlayerObserverLink playerObserverLink = lobbyManager.getLinkFromPlayer(player);
+            if (playerObserverLink == null) {
+                // IMPOSSIBLE, players only leave the pool while the pool lock is held
+                System.out.println("SP: IMPOSSIBLE ERROR: Player " + player.getPlayerId() + " left the pool");
+                throw new RuntimeException(new PlayerNotFoundException(player.getPlayerId()));
+            }
+
+            Log.useCaseMsg("SP", "Wants JPL lock " + player.getPlayerId());
+            Lock lock = playerObserverLink.getPlayerPoolListener().getLock();
+            lock.lock();
+            Log.useCaseMsg("SP", "Got JPL lock " + player.getPlayerId());
+            try {
+                lobbyManager.addPlayerToGameRemoveFromPool(player, gameId);
+            } catch (PlayerNotFoundException | GameDoesntExistException e) {
+                // GameDoesntExist is an IMPOSSIBLE Error. The game lock is held and the game is running,
+                // and only SortPlayers removes games.
+                // PlayerNotFoundException occurs if player is removed from the pool from another
+                // thread. Proper lock architecture will prevent this
+                System.out.println("SP: IMPOSSIBLE ERROR: " + e.getClass().getSimpleName());
+                throw new RuntimeException(e);
+            } finally {
+                lock.unlock();
+                Log.useCaseMsg("SP", "Released JPL lock " + player.getPlayerId());
+            }
+        }
+    }
+
+    /**
+     * Asks for the players to be sorted on the sorting thread. Returns immediately and
+     * engages no locks, so it may be called from any thread, whichever locks it holds
+     */
+    public void requestSort() {
+        // Only the first request of a burst submits a sort, the rest are merged into it
+        if (sortPending.compareAndSet(false, true)) {
+            sortingThread.execute(() -> {
+                // Cleared before sorting, so a request which arrives mid-sort triggers another one
+                sortPending.set(false);
+                new SpTask().run();
+            });
         }
     }
 
     /**
-     * Starts the sort players timer with the sort players task
+     * Starts sorting players on lobby events, and starts the safety net timer
+     * with the sort players task
      */
     public void startTimer() {
-        lobbyManager.getSortPlayersTimer().scheduleAtFixedRate(new SpTask(), 0, 500);
+        lobbyManager.addLobbyChangeListener(lobbyChangeListener);
+        safetyNetTask = new TimerTask() {
+            @Override
+            public void run() { requestSort(); }
+        };
+        lobbyManager.getSortPlayersTimer().scheduleAtFixedRate(safetyNetTask, 0, SAFETY_NET_PERIOD_MILLIS);
+    }
+
+    /**
+     * Stops sorting players. A sort which is in progress finishes, but no further sort starts
+     */
+    public void shutdown() {
+        lobbyManager.removeLobbyChangeListener(lobbyChangeListener);
+        if (safetyNetTask != null) {
+            safetyNetTask.cancel();
+        }
+        sortingThread.shutdown();
     }
 }
@@ -1,6 +1,9 @@
 package net.onewordstory.core.usecases.submit_word;
 
+import net.onewordstory.core.entities.GameLoop;
 import net.onewordstory.core.entities.LobbyManager;
+import net.onewordstory.core.entities.games.GameSnapshot;
+import net.onewordstory.core.exceptions.EntityException;
 import net.onewordstory.core.exceptions.GameDoesntExistException;
 import net.onewordstory.core.exceptions.InvalidWordException;
 import net.onewordstory.core.exceptions.OutOfTurnException;
@@ -11,7 +14,7 @@ import net.onewordstory.core.usecases.InterruptibleThread;
 import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.ThreadRegister;
 
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.CompletionException;
 
 /**
  * SwInteractor is the interactor that calls the necessary backend functions to access and change the story.
@@ -31,8 +34,6 @@ public class SwInteractor implements SwInputBoundary {
      */
     private final ThreadRegister register;
 
-    private final Lock gameLock;
-
     /**
      * The game in which we are changing the Story, and accessing Players and their information.
      * Constructor.
@@ -40,7 +41,6 @@ public class SwInteractor implements SwInputBoundary {
      */
     public SwInteractor (LobbyManager lobbyManager, ThreadRegister register) {
         this.lobbyManager = lobbyManager;
-        this.gameLock = lobbyManager.getGameLock();
         this.register = register;
     }
 
@@ -56,9 +56,7 @@ public class SwInteractor implements SwInputBoundary {
     @Override
     public void submitWord (SwInputData inputData, SwOutputBoundary presenter) {
         InterruptibleThread swintThread = this.new SwThread(inputData, presenter);
-        if (!register.registerThread(swintThread)) {
-            presenter.outputShutdownServer();
-        }
+        register.registerThread(swintThread).outputIfRejected(presenter);
     }
 
     /**
@@ -93,49 +91,82 @@ public class SwInteractor implements SwInputBoundary {
          * This method includes all the processes that will happen in the thread.
          */
         @Override
-        public void threadLogic() {
-            Log.useCaseMsg("SW", "Wants GAME lock");
-            gameLock.lock();
-            Log.useCaseMsg("SW", "Got GAME lock");
-            boolean success = true;
-
-            try{
-                lobbyManager.addWord(inputData.getWord(), this.playerId);
+        public void threadLogic() throws InterruptedException {
+            // Only the game which the player is in is written to, so words
+            // submitted to other games are processed in parallel
+            int gameId;
+            GameLoop gameLoop;
+            try {
+                gameId = lobbyManager.getGameIdOfPlayer(this.playerId);
+                gameLoop = lobbyManager.getGameLoop(gameId);
             } catch (GameDoesntExistException e) {
-                success = false;
                 String mess = "The Game you are trying to submit a word to doesn't exist";
                 Response resp = Response.fromException(e, mess);
                 presenter.invalid(new SwOutputDataFailure(this.playerId, resp));
-            } catch (InvalidWordException e) {
-                success = false;
-                String mess = String.format("The word '%1$s' is not valid, please try another word.", inputData.getWord());
-                Response resp = Response.fromException(e, mess);
-                presenter.invalid(new SwOutputDataFailure(this.playerId, resp));
-            } catch (OutOfTurnException e) {
-                success = false;
-                String mess = "It is not player " + inputData.getPlayerId() + "'s turn.";
-                Response resp = Response.fromException(e, mess);
-                presenter.invalid(new SwOutputDataFailure(this.playerId, resp));
+                return;
             } catch (PlayerNotFoundException e) {
-                success = false;
                 String mess = "Player with ID " + inputData.getPlayerId() + " does not exist or is not in the Game.";
                 Response resp = Response.fromException(e, mess);
                 presenter.invalid(new SwOutputDataFailure(this.playerId, resp));
+                return;
             }
 
-            if (success) {
-                lobbyManager.switchTurn(); // Switch the turn.
-                String mess = String.format("Word '%1$s' has been added!", inputData.getWord());
-                Response resp = Response.getSuccessful(mess);
+            // The command only writes the word, in order with the game's other commands. The
+            // presenter is called once it ran, with the snapshot the game published, by whichever
+            // thread ran it. So this thread never waits for a busy game, and presenting never
+            // holds up the game
+            Log.useCaseMsg("SW", "Submits to GAME loop");
+            gameLoop.submit(() -> {
+                lobbyManager.addWord(inputData.getWord(), this.playerId);
+
+                // IMPOSSIBLE to throw. addWord succeeded in the game's loop, so the game
+                // is running and only SP removes games which have ended
+                lobbyManager.switchTurn(gameId); // Switch the turn.
+                return lobbyManager.getGameReadOnly(gameId).getSnapshot();
+            }).whenComplete(this::present);
+        }
 
-                try {
-                    presenter.valid(new SwOutputDataValidWord(GameDTO.fromGame(lobbyManager.getGameReadOnly()),
-                            this.playerId, resp));
-                } catch (GameDoesntExistException ignored) {/* IMPOSSIBLE ERROR */}
+        /**
+         * Outputs the outcome of the command adding the word
+         * @param published snapshot the game published once the word was added, null if it failed
+         * @param error what the command threw, null if it succeeded
+         */
+        private void present(GameSnapshot published, Throwable error) {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (!(cause instanceof EntityException)) {
+                    // Unchecked, from a bug in the game. Nothing is left to throw it to
+                    Log.useCaseMsg("SW ERROR", "Adding the word threw " + cause);
+                    return;
+                }
+                presenter.invalid(failureOf((EntityException) cause));
+                return;
+            }
 
+            Log.useCaseMsg("SW", "GAME loop ran the word");
+            String mess = String.format("Word '%1$s' has been added!", inputData.getWord());
+            Response resp = Response.getSuccessful(mess);
+            presenter.valid(new SwOutputDataValidWord(GameDTO.fromSnapshot(published), this.playerId, resp));
+        }
+
+        /**
+         * @param cause exception thrown by the command adding the word
+         * @return the failure output for it
+         */
+        private SwOutputDataFailure failureOf(EntityException cause) {
+            String mess;
+            if (cause instanceof GameDoesntExistException) {
+                mess = "The Game you are trying to submit a word to doesn't exist";
+            } else if (cause instanceof InvalidWordException) {
+                mess = String.format("The word '%1$s' is not valid, please try another word.", inputData.getWord());
+            } else if (cause instanceof OutOfTurnException) {
+                mess = "It is not player " + inputData.getPlayerId() + "'s turn.";
+            } else if (cause instanceof PlayerNotFoundException) {
+                mess = "Player with ID " + inputData.getPlayerId() + " does not exist or is not in the Game.";
+            } else {
+                mess = cause.getMessage();
             }
-            gameLock.unlock();
-            Log.useCaseMsg("SP", "Released GAME lock");
+            return new SwOutputDataFailure(this.playerId, Response.fromException(cause, mess));
         }
     }
 }
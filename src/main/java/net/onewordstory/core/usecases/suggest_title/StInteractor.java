@@ -143,9 +143,6 @@ public class StInteractor implements StInputBoundary {
     @Override
     public void suggestTitle(StInputData data, StOutputBoundary pres){
         InterruptibleThread thread = new StThread(data, pres);
-        boolean success = register.registerThread(thread);
-        if (!success){
-            pres.outputShutdownServer();
-        }
+        register.registerThread(thread).outputIfRejected(pres);
     }
 }
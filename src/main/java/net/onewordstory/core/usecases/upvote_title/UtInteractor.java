@@ -56,7 +56,6 @@ public class UtInteractor implements UtInputBoundary{
     @Override
     public void upvoteTitle(UtInputData data, UtOutputBoundary pres){
         InterruptibleThread thread = new UtThread(data, pres);
-        boolean success = register.registerThread(thread);
-        if (!success){pres.outputShutdownServer();}
+        register.registerThread(thread).outputIfRejected(pres);
     }
 }
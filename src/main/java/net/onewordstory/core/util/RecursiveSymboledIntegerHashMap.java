@@ -1,7 +1,7 @@
 package net.onewordstory.core.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -99,8 +99,7 @@ public class RecursiveSymboledIntegerHashMap implements Serializable {
         if (isBaseCase()) {
             return value.getJsonNode();
         }
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectNode root = mapper.createObjectNode();
+        ObjectNode root = JsonNodeFactory.instance.objectNode();
         for (String k: map.keySet()) {
             root.set(k, map.get(k).getJsonNode());
         }
@@ -0,0 +1,27 @@
+package net.onewordstory.core.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic clock of the server, counting milliseconds since the server started.
+ * Unlike the wall clock, it never jumps, so deadlines taken from it stay valid.
+ * Clients estimate their offset from this clock and convert deadlines into their own time
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe
+ * </p>
+ */
+public final class ServerClock {
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private ServerClock() {}
+
+    /**
+     * @return milliseconds since the server started
+     */
+    public static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ORIGIN_NANOS);
+    }
+}
@@ -1,6 +1,6 @@
 package net.onewordstory.core.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -90,8 +90,7 @@ public class SymboledInteger implements Serializable {
 
     @NotNull
     public ObjectNode getJsonNode() {
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectNode rootNode = mapper.createObjectNode();
+        ObjectNode rootNode = JsonNodeFactory.instance.objectNode();
         rootNode.put("value", value);
         rootNode.put("suffix", suffix);
         return rootNode;
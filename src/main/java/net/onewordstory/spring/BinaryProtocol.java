@@ -0,0 +1,275 @@
+package net.onewordstory.spring;
+
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.PlayerDisplayData;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the /game protocol, used instead of the text protocol by clients
+ * which ask for the SUBPROTOCOL when opening their socket. Game states, which are sent on each
+ * tick, are sent as binary frames; the other responses are rare and stay text frames.
+ * <br><br>
+ * Every frame starts with a type byte. Integers are unsigned LEB128 varints, so small numbers
+ * take a single byte. Strings are a varint byte length followed by UTF-8 bytes. Players are
+ * referred to by their handle in the game (see PlayerHandles) instead of their ID, and a
+ * player's display name is only sent along with their handle, when the client first learns
+ * of the player.
+ * <h2>Server to client</h2>
+ * <ul>
+ *     <li>STATE: flags (1 = isInitialJPLState), gameId, seq, handle of the recipient or 0 if
+ *     unknown, story, player count, then handle and display name of each player in turn order,
+ *     handle of the current turn player, turnDeadlineMillis, secondsLeftInTurn</li>
+ *     <li>DELTA: gameId, seq, field mask, then each field in the mask, in the order of the
+ *     DELTA_ bits: story appended, turn order as a count and handles, added players as a count
+ *     and handle with display name pairs, removed players as a count and handles, handle of the
+ *     current turn player, turnDeadlineMillis, secondsLeftInTurn</li>
+ * </ul>
+ * <h2>Client to server</h2>
+ * The command byte, followed by the command's arguments as strings, in the order of the
+ * text protocol: CMD_TRY_JOIN (display name), CMD_SEND_WORD (word), CMD_RESYNC, CMD_CLOCK
+ * (client time)
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Stateless
+ * </p>
+ */
+public final class BinaryProtocol {
+
+    /**
+     * WebSocket subprotocol a client requests to use this encoding
+     */
+    public static final String SUBPROTOCOL = "ows.bin.v1";
+
+    public static final byte TYPE_STATE = 1;
+    public static final byte TYPE_DELTA = 2;
+
+    public static final byte CMD_TRY_JOIN = 1;
+    public static final byte CMD_SEND_WORD = 2;
+    public static final byte CMD_RESYNC = 3;
+    public static final byte CMD_CLOCK = 4;
+
+    public static final int STATE_INITIAL = 1;
+
+    public static final int DELTA_STORY = 1;
+    public static final int DELTA_ORDER = 1 << 1;
+    public static final int DELTA_ADDED = 1 << 2;
+    public static final int DELTA_REMOVED = 1 << 3;
+    public static final int DELTA_TURN = 1 << 4;
+    public static final int DELTA_DEADLINE = 1 << 5;
+    public static final int DELTA_SECONDS_LEFT = 1 << 6;
+
+    private BinaryProtocol() {}
+
+    /**
+     * Growable byte buffer with the protocol's primitive encodings
+     */
+    static final class Writer {
+        private byte[] buf;
+        private int size;
+
+        Writer(int capacity) {
+            this.buf = new byte[capacity];
+            this.size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /**
+     * Reads the protocol's primitive encodings from a buffer
+     */
+    static final class Reader {
+        private final ByteBuffer buf;
+
+        Reader(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            return buf.get() & 0xFF;
+        }
+
+        long readVarint() {
+            long out = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                out |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return out;
+                }
+            }
+            throw new IllegalArgumentException("Varint is too long");
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length > buf.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            byte[] bytes = new byte[(int) length];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        boolean hasRemaining() {
+            return buf.hasRemaining();
+        }
+    }
+
+    /**
+     * @param state full game state, whose data is not null
+     * @param handles handles of the game's players, which cover the players in the state
+     * @param selfHandle handle of the recipient, or 0 if the state is shared by several
+     *                   recipients, who then keep the handle they already know
+     * @return the encoded STATE frame
+     */
+    @NotNull
+    public static byte[] encodeState(@NotNull ServerResponse.CurrentState state,
+                                     @NotNull PlayerHandles handles, int selfHandle) {
+        GameDisplayData data = state.data();
+        if (data == null) {
+            throw new IllegalArgumentException("State has no game data");
+        }
+
+        Writer w = new Writer(64 + data.getStoryString().length() + data.getPlayers().length * 16);
+        w.writeByte(TYPE_STATE);
+        w.writeByte(Boolean.TRUE.equals(state.isInitialJPLState()) ? STATE_INITIAL : 0);
+        w.writeVarint(data.getGameId());
+        w.writeVarint(state.seq());
+        w.writeVarint(selfHandle);
+        w.writeString(data.getStoryString());
+        w.writeVarint(data.getPlayers().length);
+        for (PlayerDisplayData p : data.getPlayers()) {
+            w.writeVarint(handles.handleOf(p.getId()));
+            w.writeString(p.getDisplayName());
+        }
+        w.writeVarint(handles.handleOf(data.getCurrentPlayerTurn().getId()));
+        w.writeVarint(data.getTurnDeadlineMillis());
+        w.writeVarint(Math.max(0, data.getSecondsLeftInTurn()));
+        return w.toByteArray();
+    }
+
+    /**
+     * @param delta new state of a game
+     * @param handles handles of the game's players, which cover the players in both states
+     * @return the encoded DELTA frame, or a shared STATE frame if not delta.hasDelta
+     */
+    @NotNull
+    public static byte[] encodeDelta(@NotNull ServerResponse.GameDelta delta, @NotNull PlayerHandles handles) {
+        if (!delta.hasDelta()) {
+            return encodeState(new ServerResponse.CurrentState(delta.data(), false, delta.seq(),
+                    false, null), handles, 0);
+        }
+
+        ServerResponse.GameDelta.Changes changes = delta.changes();
+        int mask = (changes.story() != null ? DELTA_STORY : 0) |
+                (changes.order() != null ? DELTA_ORDER : 0) |
+                (changes.added() != null ? DELTA_ADDED : 0) |
+                (changes.removed() != null ? DELTA_REMOVED : 0) |
+                (changes.turn() != null ? DELTA_TURN : 0) |
+                (changes.turnDeadlineMillis() != null ? DELTA_DEADLINE : 0) |
+                (changes.secondsLeftInTurn() != null ? DELTA_SECONDS_LEFT : 0);
+
+        Writer w = new Writer(32 + (changes.story() != null ? changes.story().length() : 0));
+        w.writeByte(TYPE_DELTA);
+        w.writeVarint(delta.data().getGameId());
+        w.writeVarint(delta.seq());
+        w.writeVarint(mask);
+
+        if (changes.story() != null) {
+            w.writeString(changes.story());
+        }
+        if (changes.order() != null) {
+            writeHandles(w, changes.order().stream().map(PlayerDisplayData::getId).toList(), handles);
+        }
+        if (changes.added() != null) {
+            w.writeVarint(changes.added().size());
+            for (PlayerDisplayData p : changes.added()) {
+                w.writeVarint(handles.handleOf(p.getId()));
+                w.writeString(p.getDisplayName());
+            }
+        }
+        if (changes.removed() != null) {
+            writeHandles(w, changes.removed(), handles);
+        }
+        if (changes.turn() != null) {
+            w.writeVarint(handles.handleOf(changes.turn().getId()));
+        }
+        if (changes.turnDeadlineMillis() != null) {
+            w.writeVarint(changes.turnDeadlineMillis());
+        }
+        if (changes.secondsLeftInTurn() != null) {
+            w.writeVarint(Math.max(0, changes.secondsLeftInTurn()));
+        }
+        return w.toByteArray();
+    }
+
+    private static void writeHandles(Writer w, List<String> playerIds, PlayerHandles handles) {
+        w.writeVarint(playerIds.size());
+        for (String id : playerIds) {
+            w.writeVarint(handles.handleOf(id));
+        }
+    }
+
+    /**
+     * Parse a binary payload into a client command object, like ClientCommand.parseCommand
+     * @param handler reference to the parent handler which has access to use case controllers
+     * @param payload content received from a client over the websocket
+     * @return a parsed client command object
+     * @throws IllegalArgumentException if the payload is not a valid command
+     */
+    @NotNull
+    public static ClientCommand parseCommand(SocketTextHandler handler, ByteBuffer payload) {
+        Reader r = new Reader(payload);
+        try {
+            int cmd = r.readByte();
+            return switch (cmd) {
+                case CMD_TRY_JOIN -> new ClientCommand.JoinPublicLobby(handler, r.hasRemaining() ? r.readString() : "");
+                case CMD_SEND_WORD -> new ClientCommand.SubmitWord(handler, r.hasRemaining() ? r.readString() : "");
+                case CMD_RESYNC -> new ClientCommand.Resync(handler);
+                case CMD_CLOCK -> new ClientCommand.Clock(r.hasRemaining() ? r.readString() : "");
+
+                default -> throw new IllegalArgumentException("Invalid command byte: " + cmd);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated command");
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package net.onewordstory.spring;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
 import net.onewordstory.core.adapters.view_models.JplViewModel;
 import net.onewordstory.core.adapters.view_models.SwViewModel;
+import net.onewordstory.core.util.ServerClock;
 import org.example.Log;
 import org.jetbrains.annotations.NotNull;
 import net.onewordstory.core.usecases.Response;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Unifies a structure of all the possible INCOMING (RECEIVE) messages from clients.
@@ -26,17 +28,20 @@ import java.io.IOException;
 public sealed interface ClientCommand {
     String CMD_TRY_JOIN = "JPL";
     String CMD_SEND_WORD = "SW";
+    String CMD_RESYNC = "RESYNC";
+    String CMD_CLOCK = "CLOCK";
 
     char SEPARATOR = 30;
 
     /**
+     * Starts handling the command. Never blocks: commands which wait for a use case return
+     * a future which completes once the use case responds, see SocketTextHandler.whenSet
      * @param playerState player state object, duh
-     * @return ServerResponses corresponding to the command, or empty array if this command
-     * has no response (one way)
-     * @throws InterruptedException If thread is interrupted
+     * @return future of the ServerResponses corresponding to the command, or of an empty array
+     * if this command has no response (one way)
      */
     @NotNull
-    ServerResponse[] handler(PlayerState playerState) throws InterruptedException;
+    CompletableFuture<ServerResponse[]> handler(PlayerState playerState);
 
     /**
      * JPL Command for initial joining
@@ -54,15 +59,27 @@ public sealed interface ClientCommand {
          * their display name was valid)
          */
         @Override
-        public ServerResponse[] handler(PlayerState playerState) throws InterruptedException {
+        public CompletableFuture<ServerResponse[]> handler(PlayerState playerState) {
             // Calls JPL
             JplViewModel jplViewM = handler.jplController.joinPublicLobby(
                     playerState.playerId(), playerName);
 
-            // Wait for properties to be set
-            Response res = jplViewM.getResponseAwaitable().await();
-            String playerId = jplViewM.getPlayerIdAwaitable().await();
+            // Continue once properties are set. The player ID is set after the response, and
+            // only if JPL got to process the player, which it always did on a success
+            return handler.whenSet(jplViewM.getResponseAwaitable()).thenCompose(res ->
+                    res.getCode() == Response.ResCode.SUCCESS ?
+                            handler.whenSet(jplViewM.getPlayerIdAwaitable())
+                                    .thenApply(playerId -> onInPool(playerState, jplViewM, res, playerId)) :
+                            CompletableFuture.completedFuture(
+                                    onInPool(playerState, jplViewM, res, jplViewM.getPlayerIdAwaitable().get())));
+        }
 
+        /**
+         * Continues JPL once the player was either added to the pool or rejected
+         * @return the response to the player
+         */
+        private ServerResponse[] onInPool(PlayerState playerState, JplViewModel jplViewM,
+                                          Response res, String playerId) {
             if (res.getCode() == Response.ResCode.SUCCESS) {
                 // Player name was approved, move forward
                 playerState.changeToInPool(jplViewM, playerName);
@@ -70,17 +87,31 @@ public sealed interface ClientCommand {
                 // Inject callback to wait for further info
                 jplViewM.injectCallback((hasCancelled, gameData) -> {
                     if (gameData != null) {
-                        playerState.changeToInGame();
+                        // The player joined through this node's use cases, so the game runs on this node
+                        String nodeId = handler.fanout.getNodeId();
+                        playerState.changeToInGame(nodeId, gameData.getGameId());
+                        handler.fanout.watch(nodeId, gameData.getGameId());
+                        // The game state now includes this player
+                        ServerResponse.GameDelta delta = handler.gameDeltas.join(gameData);
+
                         // Send initial game state info to notify player they were added to the game
                         try {
-                            playerState.sendMessage((new ServerResponse.CurrentState(gameData,
-                                    true, false, null)).pack());
+                            ServerResponse.CurrentState initial =
+                                    handler.gameDeltas.latest(gameData.getGameId(), true);
+                            playerState.sendFullGameState(initial != null ? initial :
+                                    new ServerResponse.CurrentState(gameData, true, 0, false, null),
+                                    handler.gameDeltas.handles(gameData.getGameId()));
 
                             Log.sendSocketGeneral("JPL Callback",
                                     "Initial Game Data sent to " + playerState.displayName());
-                        } catch (IOException ignored) {
-                            Log.sendSocketError("JPL Callback",
-                                    "Client " + playerState.displayName() + " triggered IOException");
+
+                            // Show this player to the others. It is skipped for this player,
+                            // who already has this state
+                            if (delta != null) {
+                                handler.broadcast(delta);
+                            }
+                        } catch (JsonProcessingException e) {
+                            Log.sendSocketError("JPL Callback", "Failed to process JSON");
                         }
                     }
                 });
@@ -108,18 +139,67 @@ public sealed interface ClientCommand {
          * will take care of checking and failing that situation
          */
         @Override
-        public ServerResponse[] handler(PlayerState playerState) throws InterruptedException {
+        public CompletableFuture<ServerResponse[]> handler(PlayerState playerState) {
             SwViewModel viewM = handler.swController.submitWord(playerState.playerId(), word);
 
             // Res is always set last, and gameData isnt guaranteed to be set, hence we do this:
-            Response res = viewM.getResponseAwaitable().await();
-            GameDisplayData gameData = viewM.getGameDataAwaitable().get();
+            return handler.whenSet(viewM.getResponseAwaitable()).thenApply(res -> {
+                GameDisplayData gameData = viewM.getGameDataAwaitable().get();
+
+                return new ServerResponse[]{
+                        new ServerResponse.SubmitWordResponse(res, false, null),
+                        // Broadcast new gamestate to those in the same game, if the word was accepted
+                        gameData == null ? null : handler.gameDeltas.update(gameData)
+                };
+            });
+        }
+    }
 
-            return new ServerResponse[]{
-                    new ServerResponse.SubmitWordResponse(res, false, null),
-                    new ServerResponse.CurrentState(gameData, false, true,
-                            (p) -> p.state() == PlayerState.State.IN_GAME) // Broadcast new gamestate to those in game
-            };
+    /**
+     * A player's command to be sent the full state of their game, after they
+     * missed a delta
+     * @param handler reference to the parent handler which has access to use case controllers
+     */
+    record Resync(SocketTextHandler handler) implements ClientCommand {
+        /**
+         * <h2>Sub Handler: RESYNC</h2>
+         * Sends the player the full last state of their game, which later deltas
+         * apply on top of. Ignored if the player is not in a game
+         */
+        @Override
+        public CompletableFuture<ServerResponse[]> handler(PlayerState playerState) {
+            int gameId = playerState.gameId();
+            ServerResponse.CurrentState state = gameId == -1 ? null :
+                    handler.gameDeltas.latest(gameId, false);
+
+            if (state != null) {
+                try {
+                    playerState.sendFullGameState(state, handler.gameDeltas.handles(gameId));
+                    Log.sendSocketGeneral("RESYNC", "Game state " + state.seq() +
+                            " sent to " + playerState.displayName());
+                } catch (JsonProcessingException e) {
+                    Log.sendSocketError("RESYNC", "Failed to process JSON");
+                }
+            }
+            return CompletableFuture.completedFuture(new ServerResponse[0]);
+        }
+    }
+
+    /**
+     * A client's clock handshake, to learn the time on the ServerClock
+     * @param clientTime the client's time when it sent the command
+     */
+    record Clock(String clientTime) implements ClientCommand {
+        /**
+         * <h2>Sub Handler: CLOCK</h2>
+         * Replies with the client's time and the current ServerClock time. Taking half of the
+         * round trip as the delay of the reply, the client estimates its clock offset
+         */
+        @Override
+        public CompletableFuture<ServerResponse[]> handler(PlayerState playerState) {
+            return CompletableFuture.completedFuture(new ServerResponse[]{
+                    new ServerResponse.ClockResponse(clientTime, ServerClock.nowMillis(), false, null)
+            });
         }
     }
 
@@ -139,6 +219,8 @@ public sealed interface ClientCommand {
         return switch (payloadBlocks[0]) {
             case CMD_TRY_JOIN -> new JoinPublicLobby(handler, payloadBlocks.length > 1 ? payloadBlocks[1] : "");
             case CMD_SEND_WORD -> new SubmitWord(handler, payloadBlocks.length > 1 ? payloadBlocks[1] : "");
+            case CMD_RESYNC -> new Resync(handler);
+            case CMD_CLOCK -> new Clock(payloadBlocks.length > 1 ? payloadBlocks[1] : "");
 
             // Crash if client sent a command which isn't recognized by the server
             default -> throw new UnsupportedOperationException("Invalid parameter: " + payloadBlocks[0]);
@@ -0,0 +1,178 @@
+package net.onewordstory.spring;
+
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the states of each running game which are sent to clients, so that
+ * players can be sent only what changed between consecutive states (a GameDelta)
+ * instead of the full state each time.
+ * <br><br>
+ * For each game, the last state sent and its sequence number are kept. A new state
+ * gets the next sequence number, unless it is not newer than the last state, going
+ * by the game state version. Such a state is dropped: it either changes nothing, or
+ * was overtaken by a newer one which was already sent
+ * <br><br>
+ * A game is tracked from when its first player is added until it ends. While it is
+ * tracked, its players are given handles for the binary protocol, see PlayerHandles.
+ * The most recently ended games are remembered, so a player added just before a game
+ * ended, whose join is recorded after it, doesn't start tracking the game again
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Each game is tracked under its own lock
+ * </p>
+ */
+public class GameDeltaTracker {
+
+    /**
+     * The last state sent for a game, its sequence number, and the handles of its players
+     */
+    private static class Track {
+        private GameDisplayData last;
+        private long seq;
+        private final PlayerHandles handles;
+
+        private Track(GameDisplayData first) {
+            this.last = first;
+            this.seq = 0;
+            this.handles = new PlayerHandles();
+            this.handles.assignAll(first);
+        }
+    }
+
+    /**
+     * Amount of ended games remembered. Game IDs are never reused, so only the latest
+     * are kept, which covers the joins still on their way when a game ends
+     */
+    static final int ENDED_GAMES_REMEMBERED = 4096;
+
+    private final Map<Integer, Track> tracks = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the games which ended most recently, oldest first. Engage its own lock surrounding use
+     */
+    private final Set<Integer> ended = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+            return size() > ENDED_GAMES_REMEMBERED;
+        }
+    });
+
+    /**
+     * Records a new state of a game which a player was just added to. The first
+     * player to be added to a game starts tracking it, unless the game already ended
+     * @param data state of the game the player was added to
+     * @return the delta to broadcast to the game's players, or null if there is none
+     */
+    @Nullable
+    public ServerResponse.GameDelta join(@NotNull GameDisplayData data) {
+        int gameId = data.getGameId();
+        Track started = new Track(data);
+        Track track = tracks.putIfAbsent(gameId, started);
+        if (track != null) {
+            return next(track, data);
+        }
+
+        // forget marks the game ended before removing its track, so if it ran meanwhile,
+        // either it removed the track just started or the mark is seen here
+        if (hasEnded(gameId)) {
+            tracks.remove(gameId, started);
+        }
+        return null;
+    }
+
+    /**
+     * Records a new state of a game. States of games which aren't tracked, such as
+     * games which ended, are dropped
+     * @param data new state of a game
+     * @return the delta to broadcast to the game's players, or null if the game isn't
+     * tracked or the state is not newer than the last one sent
+     */
+    @Nullable
+    public ServerResponse.GameDelta update(@NotNull GameDisplayData data) {
+        Track track = tracks.get(data.getGameId());
+        return track == null ? null : next(track, data);
+    }
+
+    /**
+     * @param track track of the game data belongs to
+     * @param data new state of the game
+     * @return the delta from the last state of the track to data, or null if data is not newer
+     */
+    @Nullable
+    private ServerResponse.GameDelta next(Track track, GameDisplayData data) {
+        synchronized (track) {
+            if (data.getVersion() <= track.last.getVersion()) {
+                return null;
+            }
+            GameDisplayData previous = track.last;
+            track.handles.assignAll(data);
+            track.last = data;
+            track.seq++;
+
+            return new ServerResponse.GameDelta(data, previous, track.seq, true, null);
+        }
+    }
+
+    /**
+     * @param gameId ID of a game
+     * @param isInitialJPLState see CurrentState
+     * @return the full last state sent for the game, with its sequence number, or null if
+     * no state of the game was recorded
+     */
+    @Nullable
+    public ServerResponse.CurrentState latest(int gameId, boolean isInitialJPLState) {
+        Track track = tracks.get(gameId);
+        if (track == null) {
+            return null;
+        }
+
+        synchronized (track) {
+            return new ServerResponse.CurrentState(track.last, isInitialJPLState, track.seq,
+                    false, null);
+        }
+    }
+
+    /**
+     * @param gameId ID of a game
+     * @return handles of the game's players, which cover every player of every state
+     * recorded, or null if the game isn't tracked
+     */
+    @Nullable
+    public PlayerHandles handles(int gameId) {
+        Track track = tracks.get(gameId);
+        return track == null ? null : track.handles;
+    }
+
+    /**
+     * Stops tracking a game. Call once the game has ended
+     * @param gameId ID of the game
+     */
+    public void forget(int gameId) {
+        synchronized (ended) {
+            ended.add(gameId);
+        }
+        tracks.remove(gameId);
+    }
+
+    private boolean hasEnded(int gameId) {
+        synchronized (ended) {
+            return ended.contains(gameId);
+        }
+    }
+
+    /**
+     * @return amount of games being tracked
+     */
+    public int getTrackedGameCount() {
+        return tracks.size();
+    }
+}
@@ -0,0 +1,482 @@
+package net.onewordstory.spring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.spring.bus.MessageBus;
+import org.example.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans game states and game ends out to the players' sockets. The node running a game queues
+ * them directly for its own clients in the game, and publishes them through a MessageBus for
+ * the other nodes watching the game, so a game may run on one node while some of its players'
+ * sockets are on others.
+ * <br><br>
+ * Game IDs are only unique within the node running the game, so a game is named by that node's
+ * ID together with its game ID, both on the bus and in the SubscriberIndex. A node watches a game
+ * of another node by subscribing to the game's topic and asking the node running it for its full
+ * state, on that node's request topic. The first request marks the game as watched remotely, and
+ * from then on the delta of each new state is published to the game's topic as well, packed in
+ * every protocol, since the running node doesn't know which protocols the subscribers use. A game
+ * nobody watches remotely is never packed for the bus. A watching node unsubscribes once the game
+ * has ended or a state arrives with none of its clients left in it, while the running node keeps
+ * publishing until the game ends.
+ * <br><br>
+ * Client commands are handled by the use cases of the client's own node, and are not routed to
+ * other nodes. Until they are, clients only enter the games of their own node, so no node watches
+ * another node's game, and game states and ends never actually leave the node running the game.
+ * <br><br>
+ * A client which lacks the state a delta applies to, or which still waits for an older state to
+ * be sent, needs the full state. The running node queues it for its own clients straight away.
+ * A watching node asks the running node for it, and the latest full state is published to the
+ * game's topic. Clients which already have that state ignore it. One request per game is
+ * outstanding at a time: the state answering it covers the clients which lacked a delta meanwhile.
+ * <br><br>
+ * Game ends are published to a single topic, which every node is subscribed to, if the game was
+ * watched remotely. Each node sends the stats of its own clients, moves them to DISCONNECTED, and
+ * unsubscribes from the game's topic.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Messages may be delivered on any thread, and only queue frames for clients
+ * </p>
+ */
+public class GameFanout {
+
+    /**
+     * Topic of game ends, which every node is subscribed to
+     */
+    static final String GAME_END_TOPIC = "game-end";
+
+    /**
+     * Kinds of the messages on a game's topic
+     */
+    private static final byte KIND_DELTA = 0;
+    private static final byte KIND_STATE = 1;
+
+    /**
+     * Time after which a request for a game's full state which wasn't answered may be repeated,
+     * in case it was lost with the broker
+     */
+    static final long STATE_REQUEST_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * @param nodeId ID of a node
+     * @return topic of the requests for the full states of the node's games
+     */
+    static String stateRequestTopic(String nodeId) {
+        return "state-request." + nodeId;
+    }
+
+    /**
+     * @param nodeId ID of the node running a game
+     * @param gameId ID of the game on that node
+     * @return topic of the game's states
+     */
+    static String gameTopic(String nodeId, int gameId) {
+        return "game." + nodeId + "." + gameId;
+    }
+
+    private final MessageBus bus;
+    private final SubscriberIndex subscribers;
+
+    /**
+     * States of the games this node runs, to answer requests for their full states
+     */
+    private final GameDeltaTracker states;
+
+    /**
+     * ID of this node, unique across the nodes sharing the bus
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Subscriptions to the topics of the games of other nodes which this node's clients are in,
+     * by topic
+     */
+    private final Map<String, MessageBus.Subscription> games = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the games this node runs which another node asked for, and so are published
+     */
+    private final Set<Integer> remotelyWatched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * System.nanoTime of the outstanding request for the full state of each game, by the game's
+     * topic
+     */
+    private final Map<String, Long> stateRequests = new ConcurrentHashMap<>();
+
+    /**
+     * @param bus bus shared with the other nodes
+     * @param subscribers index of this node's clients
+     * @param states states of the games this node runs
+     */
+    public GameFanout(@NotNull MessageBus bus, @NotNull SubscriberIndex subscribers,
+                      @NotNull GameDeltaTracker states) {
+        this.bus = bus;
+        this.subscribers = subscribers;
+        this.states = states;
+
+        bus.subscribe(GAME_END_TOPIC, this::deliverGameEnd);
+        bus.subscribe(stateRequestTopic(nodeId), this::answerStateRequest);
+    }
+
+    /**
+     * @return ID of this node, which names the games it runs
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Has this node be sent a game's states. Call once a client of this node has entered the
+     * game. The states of this node's own games are queued for its clients directly, so only a
+     * game of another node is subscribed to, and its full state requested for the new client
+     * @param ownerNodeId ID of the node running the game
+     * @param gameId ID of the game on that node
+     */
+    public void watch(@NotNull String ownerNodeId, int gameId) {
+        if (nodeId.equals(ownerNodeId)) {
+            return;
+        }
+        games.computeIfAbsent(gameTopic(ownerNodeId, gameId), topic -> bus.subscribe(topic, this::deliverGameUpdate));
+        requestGameState(ownerNodeId, gameId);
+    }
+
+    /**
+     * Unsubscribes this node from a game of another node, unless a client of this node is in it
+     * @param ownerNodeId ID of the node running the game
+     * @param gameId ID of the game on that node
+     */
+    private void unwatchIfEmpty(String ownerNodeId, int gameId) {
+        games.computeIfPresent(gameTopic(ownerNodeId, gameId), (topic, subscription) -> {
+            if (subscribers.inGame(ownerNodeId, gameId).isEmpty()) {
+                subscription.cancel();
+                stateRequests.remove(topic);
+                return null;
+            }
+            return subscription;
+        });
+    }
+
+    /**
+     * @return amount of games of other nodes whose states this node is subscribed to
+     */
+    public int getWatchedGameCount() {
+        return games.size();
+    }
+
+    /**
+     * @return amount of games of this node whose states are published for other nodes
+     */
+    public int getRemotelyWatchedGameCount() {
+        return remotelyWatched.size();
+    }
+
+    /**
+     * Queues a new state of a game this node runs for its clients in the game, and publishes
+     * it if other nodes watch the game. Only the delta is sent, unless the state has none or a
+     * client lacks the state it applies to. Its isDoBroadcast filter is not applied, as it can't
+     * be sent to other nodes
+     * @param delta new state of the game
+     * @param handles handles of the game's players, or null if the game has none, in which case
+     *                binary clients are sent text frames
+     */
+    public void publishGameUpdate(@NotNull ServerResponse.GameDelta delta, @Nullable PlayerHandles handles)
+            throws JsonProcessingException {
+        int gameId = delta.data().getGameId();
+        if (!delta.hasDelta()) {
+            ServerResponse.GameDelta full = fullState(delta.data(), delta.seq());
+            TextMessage text = full.frame();
+            byte[] binary = handles == null ? null : BinaryProtocol.encodeDelta(full, handles);
+            deliver(nodeId, gameId, true, delta.seq(), text, binary);
+            if (remotelyWatched.contains(gameId)) {
+                publishGameMessage(KIND_STATE, gameId, delta.seq(), text.asBytes(), binary);
+            }
+            return;
+        }
+
+        TextMessage text = delta.frame();
+        byte[] binary = handles == null ? null : BinaryProtocol.encodeDelta(delta, handles);
+        if (deliver(nodeId, gameId, false, delta.seq(), text, binary)) {
+            // The clients which lack the previous state take this state in full
+            ServerResponse.GameDelta full = fullState(delta.data(), delta.seq());
+            deliver(nodeId, gameId, true, delta.seq(), full.frame(),
+                    handles == null ? null : BinaryProtocol.encodeDelta(full, handles));
+        }
+        if (remotelyWatched.contains(gameId)) {
+            publishGameMessage(KIND_DELTA, gameId, delta.seq(), text.asBytes(), binary);
+        }
+    }
+
+    /**
+     * @return a state of a game with no previous state, which is packed in full
+     */
+    private static ServerResponse.GameDelta fullState(GameDisplayData data, long seq) {
+        return new ServerResponse.GameDelta(data, null, seq, true, null);
+    }
+
+    private void publishGameMessage(byte kind, int gameId, long seq, byte[] text, byte @Nullable [] binary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + text.length * 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(kind);
+            out.writeUTF(nodeId);
+            out.writeInt(gameId);
+            out.writeLong(seq);
+            writeBlob(out, text);
+            writeBlob(out, binary);
+        } catch (IOException e) {
+            // Never thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+
+        bus.publish(gameTopic(nodeId, gameId), bytes.toByteArray());
+    }
+
+    /**
+     * Asks the node running a game for its full state, unless a request is already outstanding
+     * @param ownerNodeId ID of the node running the game
+     * @param gameId ID of the game on that node
+     */
+    private void requestGameState(String ownerNodeId, int gameId) {
+        long now = System.nanoTime();
+        boolean[] isRequested = {false};
+        stateRequests.compute(gameTopic(ownerNodeId, gameId), (topic, since) -> {
+            if (since != null && now - since < STATE_REQUEST_TIMEOUT_NANOS) {
+                return since;
+            }
+            isRequested[0] = true;
+            return now;
+        });
+
+        if (isRequested[0]) {
+            bus.publish(stateRequestTopic(ownerNodeId), ByteBuffer.allocate(Integer.BYTES).putInt(gameId).array());
+        }
+    }
+
+    /**
+     * Publishes the latest full state of a game this node runs, if it is still running, and
+     * publishes its later states as well
+     */
+    private void answerStateRequest(byte[] payload) {
+        if (payload.length != Integer.BYTES) {
+            Log.sendSocketError("Fanout", "Malformed state request");
+            return;
+        }
+        int gameId = ByteBuffer.wrap(payload).getInt();
+
+        remotelyWatched.add(gameId);
+        ServerResponse.CurrentState state = states.latest(gameId, false);
+        if (state == null) {
+            // The game isn't running, or ended meanwhile, in which case its end may have
+            // missed the mark just made
+            remotelyWatched.remove(gameId);
+            return;
+        }
+        try {
+            ServerResponse.GameDelta full = fullState(state.data(), state.seq());
+            PlayerHandles handles = states.handles(gameId);
+            publishGameMessage(KIND_STATE, gameId, state.seq(), full.frame().asBytes(),
+                    handles == null ? null : BinaryProtocol.encodeDelta(full, handles));
+        } catch (JsonProcessingException e) {
+            Log.sendSocketError("Fanout", "Failed to process JSON");
+        }
+    }
+
+    /**
+     * Sends the stats of this node's clients in a game this node runs, which ended, and publishes
+     * the end to the other nodes if they watch the game. Call once the game's states are no
+     * longer tracked
+     * @param gameId ID of the game which ended
+     * @param frames packed GameEndResponse of each player of the game, by player ID
+     */
+    public void publishGameEnd(int gameId, @NotNull Map<String, String> frames) {
+        endGame(frames);
+        if (!remotelyWatched.remove(gameId)) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * frames.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(nodeId);
+            out.writeInt(gameId);
+            out.writeInt(frames.size());
+            for (Map.Entry<String, String> entry : frames.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBlob(out, entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // Never thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+
+        bus.publish(GAME_END_TOPIC, bytes.toByteArray());
+    }
+
+    /**
+     * Queues a game state published by another node for this node's clients in the game
+     */
+    private void deliverGameUpdate(byte[] payload) {
+        byte kind;
+        String ownerNodeId;
+        int gameId;
+        long seq;
+        byte[] text, binary;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            kind = in.readByte();
+            ownerNodeId = in.readUTF();
+            gameId = in.readInt();
+            seq = in.readLong();
+            text = readBlob(in);
+            binary = readBlob(in);
+        } catch (IOException e) {
+            Log.sendSocketError("Fanout", "Malformed game state: " + e);
+            return;
+        }
+        if (text == null) {
+            Log.sendSocketError("Fanout", "Game state " + seq + " without a text frame");
+            return;
+        }
+
+        boolean isState = kind == KIND_STATE;
+        if (isState) {
+            stateRequests.remove(gameTopic(ownerNodeId, gameId));
+        }
+
+        if (deliver(ownerNodeId, gameId, isState, seq, new TextMessage(text), binary)) {
+            requestGameState(ownerNodeId, gameId);
+        }
+        unwatchIfEmpty(ownerNodeId, gameId);
+    }
+
+    /**
+     * Queues a game state for this node's clients in the game. A delta is queued for the clients
+     * it applies to, while a full state is queued for every client, who ignore it if they already
+     * have it. The text frame is shared by all recipients. A binary message is read as it is
+     * sent, so each binary client gets its own message wrapping the shared bytes
+     * @param ownerNodeId ID of the node running the game
+     * @param gameId ID of the game on that node
+     * @param isState if the state is full, otherwise it is a delta
+     * @param seq sequence number of the state
+     * @param text the state packed as text
+     * @param binary the state packed in the BinaryProtocol, or null to send binary clients text
+     * @return if a delta didn't apply for some client, which needs the full state instead
+     */
+    private boolean deliver(String ownerNodeId, int gameId, boolean isState, long seq,
+                            TextMessage text, byte @Nullable [] binary) {
+        boolean isStateNeeded = false;
+        for (PlayerState p: subscribers.inGame(ownerNodeId, gameId)) {
+            WebSocketMessage<?> frame = p.isBinary() && binary != null ? new BinaryMessage(binary) : text;
+
+            if (isState) {
+                if (p.sendGameUpdate(seq, null, frame)) {
+                    Log.sendSocketGeneral("Broadcast", "Queued game state " + seq + " for " + p.displayName());
+                }
+            } else if (!p.sendGameDelta(seq, frame)) {
+                isStateNeeded = true;
+            }
+        }
+        return isStateNeeded;
+    }
+
+    /**
+     * Sends the stats of the clients of this node whose game ended, and moves them to DISCONNECTED
+     * @param frames packed GameEndResponse of each player of the game, by player ID
+     */
+    private void endGame(Map<String, String> frames) {
+        for (Map.Entry<String, String> entry : frames.entrySet()) {
+            // See if a connected session links to this player. Player IDs are unique across nodes
+            PlayerState ply = subscribers.byPlayerId(entry.getKey());
+            if (ply != null) {
+                Log.sendSocketGeneral("PGE Callback", "To: " + ply.displayName() + " DATA: " + entry.getValue());
+
+                if (!ply.sendMessage(new TextMessage(entry.getValue()))) {
+                    Log.sendSocketError("PGE Callback", ply.displayName() + " was dropped for not keeping up");
+                }
+                ply.changeToDisconnected();
+            }
+        }
+    }
+
+    /**
+     * Sends the stats of this node's clients whose game, run by another node, ended, and stops
+     * listening to the game
+     */
+    private void deliverGameEnd(byte[] payload) {
+        String ownerNodeId;
+        int gameId;
+        Map<String, String> frames = new HashMap<>();
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            ownerNodeId = in.readUTF();
+            gameId = in.readInt();
+            for (int i = in.readInt(); i > 0; i--) {
+                String playerId = in.readUTF();
+                byte[] frame = readBlob(in);
+                if (frame != null) {
+                    frames.put(playerId, new String(frame, StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            Log.sendSocketError("Fanout", "Malformed game end: " + e);
+            return;
+        }
+
+        // This node's own game ends were sent to its clients before they were published
+        if (nodeId.equals(ownerNodeId)) {
+            return;
+        }
+        endGame(frames);
+
+        String topic = gameTopic(ownerNodeId, gameId);
+        MessageBus.Subscription subscription = games.remove(topic);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        stateRequests.remove(topic);
+    }
+
+    /**
+     * Writes a byte array with its length, or -1 for null
+     */
+    private static void writeBlob(DataOutputStream out, byte @Nullable [] blob) throws IOException {
+        if (blob == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(blob.length);
+            out.write(blob);
+        }
+    }
+
+    @Nullable
+    private static byte[] readBlob(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] blob = new byte[length];
+        in.readFully(blob);
+        return blob;
+    }
+}
@@ -0,0 +1,488 @@
+package net.onewordstory.spring;
+
+import org.example.Log;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of the messages waiting to be sent to one client. Offering a message never
+ * blocks: messages are sent one at a time by a task on the send executor, which only runs
+ * while the queue has messages. A slow client therefore no longer stalls the broadcasts to
+ * everyone else, it only makes its own queue grow.
+ * <br><br>
+ * Game states are coalesced. If a new state of the game is offered while the previous one
+ * still waits to be sent, the new one takes the place of the old one, which the client would
+ * have had no use for anymore. Since the client then skips a sequence number, it is sent the
+ * full state instead of the delta.
+ * <br><br>
+ * A client whose queue is full has stopped keeping up, so it is dropped: the queue is cleared,
+ * refuses further messages, and the session is closed, which disconnects the player.
+ * <br><br>
+ * While a client whose connection was lost may still resume, its queue is paused: messages are
+ * kept, with game states still coalesced, and are sent to the new session once it resumes.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Messages may be offered from any thread. The lock only guards the queue
+ *     itself and is never held while sending
+ * </p>
+ */
+public class OutboundQueue {
+
+    /**
+     * Default amount of messages a queue holds before its client is dropped. Game states are
+     * coalesced, so only other messages pile up
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Queue metrics, summed over all the queues sharing this object
+     */
+    public static class Metrics {
+        private final AtomicLong depth = new AtomicLong();
+        private final AtomicLong maxDepth = new AtomicLong();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        /**
+         * @return amount of messages currently waiting to be sent, over all queues
+         */
+        public long getDepth() { return depth.get(); }
+
+        /**
+         * @return highest amount of messages which waited in a single queue
+         */
+        public long getMaxDepth() { return maxDepth.get(); }
+
+        /**
+         * @return amount of game states which replaced an older one waiting to be sent
+         */
+        public long getCoalescedCount() { return coalesced.sum(); }
+
+        /**
+         * @return amount of clients dropped for not keeping up
+         */
+        public long getDroppedCount() { return dropped.sum(); }
+    }
+
+    /**
+     * A message waiting to be sent
+     */
+    private static class Item {
+        private long seq;
+        private WebSocketMessage<?> frame;
+
+        /**
+         * Delta of a game update, null if it may only be sent in full or is not a game update
+         */
+        private WebSocketMessage<?> deltaFrame;
+
+        /**
+         * If this is a new game state which later states may replace
+         */
+        private final boolean isGameUpdate;
+
+        /**
+         * If this is a full game state which later deltas apply on top of
+         */
+        private final boolean isFullState;
+
+        private Item(long seq, WebSocketMessage<?> frame, WebSocketMessage<?> deltaFrame,
+                     boolean isGameUpdate, boolean isFullState) {
+            this.seq = seq;
+            this.frame = frame;
+            this.deltaFrame = deltaFrame;
+            this.isGameUpdate = isGameUpdate;
+            this.isFullState = isFullState;
+        }
+    }
+
+    private final Executor sendExecutor;
+    private final int capacity;
+    private final Metrics metrics;
+
+    private final Lock lock;
+    private final Deque<Item> items;
+
+    /**
+     * Session to send to, replaced when the client resumes. Guarded by lock
+     */
+    private WebSocketSession session;
+
+    /**
+     * Game update in items which has not been sent yet, or null. Guarded by lock
+     */
+    private Item pendingUpdate;
+
+    /**
+     * Sequence number of the last game state queued, -1 if none. Guarded by lock
+     */
+    private long lastQueuedSeq;
+
+    /**
+     * Sequence number of the last game state sent, -1 if none. Only used by the sending task
+     */
+    private long lastSentSeq;
+
+    /**
+     * If a sending task is queued or running. Guarded by lock
+     */
+    private boolean isSending;
+
+    /**
+     * If the client was dropped. Guarded by lock
+     */
+    private boolean isDropped;
+
+    /**
+     * If the client's connection was lost, so messages are kept until it resumes. Guarded by lock
+     */
+    private boolean isPaused;
+
+    /**
+     * @param session session to send to
+     * @param sendExecutor executor which runs the sending tasks, may be shared by all queues
+     * @param capacity amount of messages the queue holds before its client is dropped
+     * @param metrics metrics to add this queue's figures to, may be shared by all queues
+     */
+    public OutboundQueue(WebSocketSession session, Executor sendExecutor, int capacity, Metrics metrics) {
+        this.session = session;
+        this.sendExecutor = sendExecutor;
+        this.capacity = capacity;
+        this.metrics = metrics;
+
+        this.lock = new ReentrantLock();
+        this.items = new ArrayDeque<>();
+        this.pendingUpdate = null;
+        this.lastQueuedSeq = -1;
+        this.lastSentSeq = -1;
+        this.isSending = false;
+        this.isDropped = false;
+        this.isPaused = false;
+    }
+
+    /**
+     * Queues a message
+     * @param frame packed message
+     * @return false if the client was dropped, now or before
+     */
+    public boolean offer(WebSocketMessage<?> frame) {
+        return add(new Item(-1, frame, null, false, false));
+    }
+
+    /**
+     * Queues a new state of the client's game, replacing the one waiting to be sent if there is one.
+     * The delta is sent if the client has the state just before it, otherwise the full state is sent.
+     * Nothing is queued if a state at least as new was queued already, which happens when
+     * concurrent updates are offered out of order
+     * @param seq sequence number of the new state
+     * @param deltaFrame packed delta, or null if only the full state may be sent
+     * @param fullFrame packed full state
+     * @return if the state was queued
+     */
+    public boolean offerGameUpdate(long seq, WebSocketMessage<?> deltaFrame, WebSocketMessage<?> fullFrame) {
+        boolean startSending;
+
+        lock.lock();
+        try {
+            if (isDropped || seq <= lastQueuedSeq) {
+                return false;
+            }
+
+            if (pendingUpdate != null) {
+                lastQueuedSeq = seq;
+                pendingUpdate.seq = seq;
+                pendingUpdate.deltaFrame = deltaFrame;
+                pendingUpdate.frame = fullFrame;
+                metrics.coalesced.increment();
+                return true;
+            }
+
+            if (!addLocked(new Item(seq, fullFrame, deltaFrame, true, false))) {
+                return false;
+            }
+            startSending = claimSending();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startSending) {
+            sendExecutor.execute(this::sendAll);
+        }
+        return true;
+    }
+
+    /**
+     * Queues a new state of the client's game of which only the delta is at hand. It is only
+     * queued if the client has or is sent the state just before it, and no state waits to be
+     * sent which this one would have replaced: a coalesced state is sent in full, which needs
+     * the full state
+     * @param seq sequence number of the new state
+     * @param deltaFrame packed delta
+     * @return false if the client needs the full state instead, in which case nothing was
+     * queued. True if the delta was queued, if a state at least as new was queued already,
+     * or if the client was dropped
+     */
+    public boolean offerGameDelta(long seq, WebSocketMessage<?> deltaFrame) {
+        boolean startSending;
+
+        lock.lock();
+        try {
+            if (isDropped || seq <= lastQueuedSeq) {
+                return true;
+            }
+            if (pendingUpdate != null || lastQueuedSeq != seq - 1) {
+                return false;
+            }
+
+            if (!addLocked(new Item(seq, deltaFrame, deltaFrame, true, false))) {
+                return true;
+            }
+            startSending = claimSending();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startSending) {
+            sendExecutor.execute(this::sendAll);
+        }
+        return true;
+    }
+
+    /**
+     * Queues the full state of the client's game, such as when they join or ask to resync.
+     * It is always sent, and later deltas are sent relative to it
+     * @param seq sequence number of the state
+     * @param frame packed full state
+     * @return false if the client was dropped, now or before
+     */
+    public boolean offerFullState(long seq, WebSocketMessage<?> frame) {
+        return add(new Item(seq, frame, null, false, true));
+    }
+
+    /**
+     * @param item item to append
+     * @return false if the client was dropped, now or before
+     */
+    private boolean add(Item item) {
+        boolean startSending;
+
+        lock.lock();
+        try {
+            if (!addLocked(item)) {
+                return false;
+            }
+            startSending = claimSending();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startSending) {
+            sendExecutor.execute(this::sendAll);
+        }
+        return true;
+    }
+
+    /**
+     * Appends an item, or drops the client if the queue is full. Engage lock surrounding use
+     * @param item item to append
+     * @return false if the client was dropped, now or before
+     */
+    private boolean addLocked(Item item) {
+        if (isDropped) {
+            return false;
+        }
+        if (items.size() >= capacity) {
+            drop();
+            return false;
+        }
+
+        items.add(item);
+        if (item.isGameUpdate) {
+            lastQueuedSeq = item.seq;
+            pendingUpdate = item;
+        }
+        if (item.isFullState) {
+            // Later updates must be sent after this state, not coalesced into an earlier one
+            lastQueuedSeq = item.seq;
+            pendingUpdate = null;
+        }
+
+        metrics.depth.incrementAndGet();
+        metrics.maxDepth.accumulateAndGet(items.size(), Math::max);
+        return true;
+    }
+
+    /**
+     * Stops sending, keeping the messages queued until resume. Call once the session was lost.
+     * A message being sent when the session was lost may be lost with it
+     */
+    public void pause() {
+        lock.lock();
+        try {
+            isPaused = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the queued messages, and those queued later, to a new session of the same client
+     * @param newSession session the client reconnected with
+     * @return false if the client was dropped, in which case it can't resume
+     */
+    public boolean resume(WebSocketSession newSession) {
+        boolean startSending;
+
+        lock.lock();
+        try {
+            if (isDropped) {
+                return false;
+            }
+            session = newSession;
+            isPaused = false;
+            startSending = !items.isEmpty() && claimSending();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startSending) {
+            sendExecutor.execute(this::sendAll);
+        }
+        return true;
+    }
+
+    /**
+     * Engage lock surrounding use
+     * @return true if no sending task was running and the queue isn't paused, in which case
+     * the caller must start one
+     */
+    private boolean claimSending() {
+        if (isSending || isPaused) {
+            return false;
+        }
+        isSending = true;
+        return true;
+    }
+
+    /**
+     * Drops the client. Engage lock surrounding use
+     */
+    private void drop() {
+        isDropped = true;
+        metrics.depth.addAndGet(-items.size());
+        metrics.dropped.increment();
+        items.clear();
+        pendingUpdate = null;
+
+        Log.sendSocketError("Outbound", "Dropping session " + session.getId() + ", its queue is full");
+
+        closeLocked(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * Closes the current session. Closing may block, so it is left to the send executor.
+     * Engage lock surrounding use
+     * @param status status to close with
+     */
+    private void closeLocked(CloseStatus status) {
+        WebSocketSession session = this.session;
+        sendExecutor.execute(() -> {
+            try {
+                session.close(status);
+            } catch (IOException ignored) {}
+        });
+    }
+
+    /**
+     * Closes the session without waiting for it to close. Queued messages are not sent
+     * @param status status to close with
+     */
+    public void close(CloseStatus status) {
+        lock.lock();
+        try {
+            closeLocked(status);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sending task. Sends the queued messages in order until the queue is empty or paused
+     */
+    private void sendAll() {
+        while (true) {
+            WebSocketMessage<?> frame;
+            WebSocketSession session;
+
+            lock.lock();
+            try {
+                Item item = isPaused ? null : items.poll();
+                if (item == null) {
+                    isSending = false;
+                    return;
+                }
+                session = this.session;
+                metrics.depth.decrementAndGet();
+                if (item == pendingUpdate) {
+                    pendingUpdate = null;
+                }
+
+                frame = item.frame;
+                if (item.isGameUpdate) {
+                    if (item.deltaFrame != null && item.seq == lastSentSeq + 1) {
+                        frame = item.deltaFrame;
+                    }
+                    lastSentSeq = item.seq;
+                } else if (item.isFullState) {
+                    lastSentSeq = item.seq;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                session.sendMessage(frame);
+            }
+
+            // It is likely this occurs when the player has disconnected
+            catch (IOException | IllegalStateException e) {
+                Log.sendSocketError("Outbound", "Session " + session.getId() + " failed to send: " + e);
+            }
+        }
+    }
+
+    /**
+     * @return amount of messages waiting to be sent
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return items.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return if the client was dropped for not keeping up
+     */
+    public boolean isDropped() {
+        lock.lock();
+        try {
+            return isDropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.onewordstory.spring;
+
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.PlayerDisplayData;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small integer handles for the players of one game, which the binary protocol sends in
+ * place of their 36 character IDs. A player gets a handle when first seen in a state of the
+ * game, and keeps it for as long as the game runs. Handles start at 1 and are never reused,
+ * so 0 means no player.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Handles may be looked up while others are being assigned
+ * </p>
+ */
+public class PlayerHandles {
+
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    private final AtomicInteger lastHandle = new AtomicInteger();
+
+    /**
+     * Assigns a handle to each player in the state who doesn't have one yet
+     * @param data a state of the game
+     */
+    void assignAll(@NotNull GameDisplayData data) {
+        for (PlayerDisplayData p : data.getPlayers()) {
+            handles.computeIfAbsent(p.getId(), id -> lastHandle.incrementAndGet());
+        }
+    }
+
+    /**
+     * @param playerId ID of a player
+     * @return the player's handle, or 0 if the player was never seen in this game
+     */
+    public int handleOf(String playerId) {
+        Integer handle = handles.get(playerId);
+        return handle == null ? 0 : handle;
+    }
+
+    /**
+     * @return amount of handles assigned
+     */
+    public int size() {
+        return handles.size();
+    }
+}
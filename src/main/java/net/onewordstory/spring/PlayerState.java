@@ -1,10 +1,17 @@
 package net.onewordstory.spring;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import net.onewordstory.core.adapters.view_models.JplViewModel;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -15,6 +22,18 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class PlayerState {
 
+    /**
+     * Submit word commands a client may send in a burst, and per second in the long run
+     */
+    public static final int SW_BURST = 5;
+    public static final double SW_PER_SECOND = 2;
+
+    /**
+     * Join commands a client may send in a burst, and per second in the long run
+     */
+    public static final int JPL_BURST = 2;
+    public static final double JPL_PER_SECOND = 0.2;
+
     public enum State {
         /**
          * The player has successfully connected to the socket but has not
@@ -55,66 +74,295 @@ public class PlayerState {
     }
 
     private State state;
+
+    /**
+     * Game this player is in, only meaningful while IN_GAME
+     */
+    private SubscriberIndex.GameKey game;
     private final String playerId;
+
+    /**
+     * Secret the client resumes this player with after losing its connection. Unlike the
+     * player ID, it is never sent to other clients
+     */
+    private final String resumeToken;
     private String displayName;
     private JplViewModel jplViewM;
-    private final WebSocketSession session;
     private final Lock lock;
-    private final Lock sendingLock;
+
+    /**
+     * Messages waiting to be sent to this client. Sending never blocks the caller
+     */
+    private final OutboundQueue outbox;
+
+    /**
+     * If this client negotiated the BinaryProtocol, so game states are sent to it as binary frames
+     */
+    private final boolean isBinary;
+
+    /**
+     * System.nanoTime when this client was last heard from, by a command or a heartbeat
+     */
+    private volatile long lastSeenNanos;
+
+    /**
+     * Rate limits of this client's commands, checked before their use case is called
+     */
+    private final TokenBucket swLimit;
+    private final TokenBucket jplLimit;
+
+    /**
+     * Index this client is listed in, kept up to date on each state transition. Null once
+     * the client was unsubscribed. Guarded by lock
+     */
+    private SubscriberIndex index;
 
     /**
      * @param playerId Create a new unique ID never used before to identify this client
      *                 (UUID recommended)
+     * @param index Index of connected clients to add this client to
+     * @param sendExecutor Executor which sends the queued messages, may be shared by all clients
+     * @param metrics Outbound queue metrics, may be shared by all clients
+     * @param isBinary If the client negotiated the BinaryProtocol
      */
-    public PlayerState(String playerId, WebSocketSession session) {
+    public PlayerState(String playerId, WebSocketSession session, SubscriberIndex index,
+                       Executor sendExecutor, OutboundQueue.Metrics metrics, boolean isBinary) {
         this.playerId = playerId;
-        this.session = session;
+        this.resumeToken = UUID.randomUUID().toString();
+        this.index = index;
+        this.isBinary = isBinary;
+        this.swLimit = new TokenBucket(SW_BURST, SW_PER_SECOND);
+        this.jplLimit = new TokenBucket(JPL_BURST, JPL_PER_SECOND);
+        this.lastSeenNanos = System.nanoTime();
 
         state = State.NOT_PROCESSED;
         displayName = null;
         jplViewM = null;
 
         lock = new ReentrantLock();
-        sendingLock = new ReentrantLock();
+        outbox = new OutboundQueue(session, sendExecutor, OutboundQueue.DEFAULT_CAPACITY, metrics);
+
+        index.add(this);
+    }
+
+    /**
+     * Messages are sent on the calling thread
+     * @param playerId Create a new unique ID never used before to identify this client
+     *                 (UUID recommended)
+     * @param index Index of connected clients to add this client to
+     */
+    public PlayerState(String playerId, WebSocketSession session, SubscriberIndex index) {
+        this(playerId, session, index, Runnable::run, new OutboundQueue.Metrics(), false);
     }
 
     public State state() { lock.lock(); State out = this.state; lock.unlock(); return out; }
     public String playerId() { return this.playerId; }
+    public String resumeToken() { return this.resumeToken; }
     public String displayName() { lock.lock(); String out = this.displayName; lock.unlock(); return out; }
     public JplViewModel jplViewM() { lock.lock(); JplViewModel out = this.jplViewM; lock.unlock(); return out; }
+    public boolean isBinary() { return this.isBinary; }
+    public TokenBucket swLimit() { return this.swLimit; }
+    public TokenBucket jplLimit() { return this.jplLimit; }
+    public long lastSeenNanos() { return this.lastSeenNanos; }
+
+    /**
+     * Records that this client was just heard from, so its connection is alive
+     */
+    public void markSeen() {
+        markSeen(System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos current System.nanoTime, for tests
+     */
+    void markSeen(long nowNanos) {
+        this.lastSeenNanos = nowNanos;
+    }
+
+    /**
+     * @param nodeId ID of the node running a game
+     * @param gameId ID of the game on that node
+     * @return if this player is currently in the given game
+     */
+    public boolean isInGame(String nodeId, int gameId) {
+        lock.lock();
+        boolean out = this.state == State.IN_GAME && this.game.equals(new SubscriberIndex.GameKey(nodeId, gameId));
+        lock.unlock();
+        return out;
+    }
+
+    /**
+     * @return ID of the game this player is in on the node running it, or -1 if they are not in a game
+     */
+    public int gameId() {
+        lock.lock();
+        int out = this.state == State.IN_GAME ? this.game.gameId() : -1;
+        lock.unlock();
+        return out;
+    }
 
     /**
-     * Thread-Safely send a message to this client's session object. (Since sending
-     * cannot be done concurrently)
+     * Thread-Safely queue a new state of this player's game. If an older state still waits to be
+     * sent, this one replaces it. The delta is sent if this client has the state just before it,
+     * otherwise the full state is sent. Nothing is queued if this client already has this state
+     * or a newer one, which happens when concurrent updates are sent out of order
+     * @param seq sequence number of the new state
+     * @param deltaFrame packed delta, or null if only the full state may be sent
+     * @param fullFrame packed full state
+     * @return if the state was queued
+     */
+    public boolean sendGameUpdate(long seq, WebSocketMessage<?> deltaFrame, WebSocketMessage<?> fullFrame) {
+        return outbox.offerGameUpdate(seq, deltaFrame, fullFrame);
+    }
+
+    /**
+     * Thread-Safely queue a new state of this player's game of which only the delta is at hand.
+     * See OutboundQueue.offerGameDelta
+     * @param seq sequence number of the new state
+     * @param deltaFrame packed delta
+     * @return false if this client needs the full state instead, in which case nothing was queued
+     */
+    public boolean sendGameDelta(long seq, WebSocketMessage<?> deltaFrame) {
+        return outbox.offerGameDelta(seq, deltaFrame);
+    }
+
+    /**
+     * Thread-Safely queue the full state of this player's game, such as when they join or
+     * ask to resync. Later deltas are sent relative to this state
+     * @param state full game state, with its sequence number
+     * @param handles handles of the players in the state's game, or null if the game has none,
+     *                in which case the state is sent as text even to a binary client
+     * @return false if this client was dropped for not keeping up
+     */
+    public boolean sendFullGameState(ServerResponse.CurrentState state, @Nullable PlayerHandles handles)
+            throws JsonProcessingException {
+        if (isBinary && handles != null && state.data() != null) {
+            return outbox.offerFullState(state.seq(), new BinaryMessage(
+                    BinaryProtocol.encodeState(state, handles, handles.handleOf(playerId))));
+        }
+        return outbox.offerFullState(state.seq(), state.frame());
+    }
+
+    /**
+     * Thread-Safely queue a message to this client's session object
      * @param payload string content to send
+     * @return false if this client was dropped for not keeping up
+     */
+    public boolean sendMessage(String payload) {
+        return sendMessage(new TextMessage(payload));
+    }
+
+    /**
+     * Thread-Safely queue a packed frame to this client's session object. The same frame
+     * may be sent to any amount of clients, see ServerResponse.frame
+     * @param frame packed message to send
+     * @return false if this client was dropped for not keeping up
+     */
+    public boolean sendMessage(TextMessage frame) {
+        return outbox.offer(frame);
+    }
+
+    /**
+     * Keeps the messages sent to this client until it resumes. Call once its connection was lost
+     */
+    public void detach() {
+        outbox.pause();
+    }
+
+    /**
+     * Moves this client to the session it reconnected with, and sends it the messages kept
+     * since its connection was lost
+     * @param session the new session
+     * @return false if this client was dropped for not keeping up, so can't resume
+     */
+    public boolean reattach(WebSocketSession session) {
+        markSeen();
+        return outbox.resume(session);
+    }
+
+    /**
+     * Thread-Safely queue a ping, which the client answers with a pong if its connection is alive
+     * @return false if this client was dropped for not keeping up
+     */
+    public boolean sendPing() {
+        return outbox.offer(new PingMessage());
+    }
+
+    /**
+     * Closes this client's session without waiting for it to close
+     * @param status status to close with
+     */
+    public void close(CloseStatus status) {
+        outbox.close(status);
+    }
+
+    /**
+     * @return amount of messages waiting to be sent to this client
      */
-    public void sendMessage(String payload) throws IOException {
-        sendingLock.lock();
-        session.sendMessage(new TextMessage(payload));
-        sendingLock.unlock();
+    public int getOutboundQueueDepth() {
+        return outbox.getDepth();
+    }
+
+    /**
+     * @return if this client was dropped for not keeping up with its messages
+     */
+    public boolean isDropped() {
+        return outbox.isDropped();
+    }
+
+    /**
+     * Moves this client to a new state, updating the index. Engage lock surrounding use
+     * @param newState state to move to
+     * @param newGame game the client is in, only meaningful if newState is IN_GAME
+     */
+    private void transition(State newState, SubscriberIndex.GameKey newGame) {
+        if (index != null) {
+            index.move(this, this.state, this.game, newState, newGame);
+        }
+        this.state = newState;
+        this.game = newGame;
     }
 
     public void changeToRejected() {
-        this.state = State.REJECTED;
+        lock.lock();
+        transition(State.REJECTED, this.game);
+        lock.unlock();
     }
 
     public void changeToInPool(JplViewModel viewM, String displayName) {
         lock.lock();
         this.displayName = displayName;
         this.jplViewM = viewM;
-        this.state = State.IN_POOL;
+        transition(State.IN_POOL, this.game);
         lock.unlock();
     }
 
-    public void changeToInGame() {
+    /**
+     * @param nodeId ID of the node running the game, see GameFanout
+     * @param gameId ID of the game on that node
+     */
+    public void changeToInGame(String nodeId, int gameId) {
         lock.lock();
-        this.state = State.IN_GAME;
+        transition(State.IN_GAME, new SubscriberIndex.GameKey(nodeId, gameId));
         lock.unlock();
     }
 
     public void changeToDisconnected() {
         lock.lock();
-        this.state = State.DISCONNECTED;
+        transition(State.DISCONNECTED, this.game);
+        lock.unlock();
+    }
+
+    /**
+     * Removes this client from the index, once its socket has closed. Later state
+     * transitions no longer update the index
+     */
+    public void unsubscribe() {
+        lock.lock();
+        if (index != null) {
+            index.remove(this, this.state, this.game);
+            index = null;
+        }
         lock.unlock();
     }
 }
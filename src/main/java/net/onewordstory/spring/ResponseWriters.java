@@ -0,0 +1,33 @@
+package net.onewordstory.spring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.usecases.Response;
+
+/**
+ * Shared JSON serialization for ServerResponse. Building an ObjectMapper is costly, so a
+ * single one is built, along with a writer for each type of object which responses contain.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. ObjectMapper is thread safe once configured, and ObjectWriters are immutable
+ * </p>
+ */
+final class ResponseWriters {
+
+    /**
+     * Mapper behind all writers, also used to create JSON trees. Do not reconfigure it
+     */
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final ObjectWriter RESPONSE = MAPPER.writerFor(Response.class);
+    static final ObjectWriter GAME_DISPLAY_DATA = MAPPER.writerFor(GameDisplayData.class);
+
+    /**
+     * Writer for trees built with MAPPER
+     */
+    static final ObjectWriter TREE = MAPPER.writer();
+
+    private ResponseWriters() {}
+}
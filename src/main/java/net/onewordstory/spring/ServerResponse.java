@@ -2,15 +2,21 @@ package net.onewordstory.spring;
 
 import net.onewordstory.core.adapters.display_data.GameEndPlayerDisplayData;
 import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.PlayerDisplayData;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.web.socket.TextMessage;
 import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.util.RecursiveSymboledIntegerHashMap;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 /**
@@ -27,7 +33,10 @@ public sealed interface ServerResponse {
     String RESPONSE_JOIN = "JPL:out:in_pool";
     String RESPONSE_SUBMIT_WORD = "SW:out";
     String RESPONSE_STATE = "current_state";
+    String RESPONSE_DELTA = "game_delta";
+    String RESPONSE_CLOCK = "clock";
     String RESPONSE_GAME_ENDED = "PGE:out";
+    String RESPONSE_SESSION = "session";
 
     char SEPARATOR = 30;
 
@@ -37,6 +46,15 @@ public sealed interface ServerResponse {
      */
     String pack() throws JsonProcessingException;
 
+    /**
+     * Packs the response into an immutable frame, which can be sent to any amount of clients.
+     * Pack a broadcast once and send the same frame to every recipient
+     * @return the packed payload wrapped in a message ready to send over the socket
+     */
+    default TextMessage frame() throws JsonProcessingException {
+        return new TextMessage(pack());
+    }
+
     /**
      * @return if this response should be broadcast to all clients
      */
@@ -61,7 +79,7 @@ public sealed interface ServerResponse {
                         @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
         @Override
         public String pack() throws JsonProcessingException {
-            return RESPONSE_JOIN + SEPARATOR + (new ObjectMapper()).writeValueAsString(response) +
+            return RESPONSE_JOIN + SEPARATOR + ResponseWriters.RESPONSE.writeValueAsString(response) +
                     SEPARATOR + playerID;
         }
 
@@ -83,9 +101,8 @@ public sealed interface ServerResponse {
                               @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
         @Override
         public String pack() throws JsonProcessingException {
-            ObjectMapper mapper = new ObjectMapper();
             return RESPONSE_SUBMIT_WORD + SEPARATOR +
-                    mapper.writeValueAsString(response);
+                    ResponseWriters.RESPONSE.writeValueAsString(response);
         }
 
         @Override
@@ -111,17 +128,19 @@ public sealed interface ServerResponse {
      * @param isInitialJPLState This flag indicates that this game data being sent is a special
      *                          response for a SPECIFIC client that gets sent as soon as the client
      *                          got added to a game.
+     * @param seq Sequence number of this state in its game, see GameDelta. Clients apply
+     *            the delta with the next sequence number on top of this state
      * @param isDoBroadcast Custom filter function for broadcasting, return true if you want to broadcast
      *                      to the given player; irrelevant if isBroadcast is false
      */
     record CurrentState(@Nullable GameDisplayData data,
-                        Boolean isInitialJPLState, boolean isBroadcast,
+                        Boolean isInitialJPLState, long seq, boolean isBroadcast,
                         @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
         @Override
         public String pack() throws JsonProcessingException {
             return RESPONSE_STATE + SEPARATOR +
-                    (new ObjectMapper()).writeValueAsString(data) + SEPARATOR +
-                    isInitialJPLState.toString();
+                    ResponseWriters.GAME_DISPLAY_DATA.writeValueAsString(data) + SEPARATOR +
+                    isInitialJPLState.toString() + SEPARATOR + seq;
         }
 
         @Override
@@ -130,6 +149,194 @@ public sealed interface ServerResponse {
         }
     }
 
+    /**
+     * Response sent to the players of a game each time its state changes, containing only what
+     * changed since the previous state of the game. Each state of a game is numbered by a
+     * sequence number, one higher than the state before it
+     * <br><br>
+     * The packed delta is a JSON object with the gameId and seq, and only those of the following
+     * fields which changed: story (text appended to the story), order (IDs of the players in turn
+     * order), added (players who joined), removed (IDs of players who left), turn (ID of the
+     * player whose turn it is), turnDeadlineMillis (server clock time at which the turn runs
+     * out) and secondsLeftInTurn
+     * <br><br>
+     * A client may only apply a delta on top of the state with the sequence number just before
+     * it. When it misses one, it should send a resync command to get a full CurrentState. Players
+     * known by the server to lack the previous state, and all players if the change can't be
+     * expressed as a delta, are sent the full state instead; see packFull
+     * @param data the full new state of the game
+     * @param previous the state of the game with the previous sequence number, or null if there
+     *                 is none
+     * @param seq sequence number of this state in its game
+     * @param isDoBroadcast Custom filter function for broadcasting to the players of the game, return true
+     *                      if you want to broadcast to the given player, or null for all of them;
+     *                      irrelevant if isBroadcast is false
+     */
+    record GameDelta(@NotNull GameDisplayData data, @Nullable GameDisplayData previous, long seq,
+                     boolean isBroadcast,
+                     @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
+
+        /**
+         * @return if the change from previous can be sent as a delta. It can't if there is no
+         * previous state. Stories are only ever appended to, so the previous story is a prefix
+         * of this one, unless it is longer
+         */
+        public boolean hasDelta() {
+            return previous != null && data.storyLength() >= previous.storyLength();
+        }
+
+        /**
+         * What changed between two consecutive states of a game. Fields which did not
+         * change are null
+         * @param story text appended to the story
+         * @param order the players in turn order
+         * @param added players who joined
+         * @param removed IDs of players who left
+         * @param turn the player whose turn it is
+         * @param turnDeadlineMillis server clock time at which the turn runs out
+         * @param secondsLeftInTurn seconds left in the turn
+         */
+        public record Changes(@Nullable String story, @Nullable List<PlayerDisplayData> order,
+                              @Nullable List<PlayerDisplayData> added, @Nullable List<String> removed,
+                              @Nullable PlayerDisplayData turn, @Nullable Long turnDeadlineMillis,
+                              @Nullable Integer secondsLeftInTurn) {}
+
+        /**
+         * Compares this state to the previous one. Only call if hasDelta
+         * @return what changed since the previous state
+         */
+        @NotNull
+        public Changes changes() {
+            int oldStoryLength = Objects.requireNonNull(previous).storyLength();
+
+            // Roster changes. Only a handful of players are in a game, so comparing is cheap
+            Map<String, PlayerDisplayData> oldPlayers = new HashMap<>();
+            for (PlayerDisplayData p : previous.getPlayers()) {
+                oldPlayers.put(p.getId(), p);
+            }
+
+            boolean orderChanged = previous.getPlayers().length != data.getPlayers().length;
+            List<PlayerDisplayData> added = new ArrayList<>();
+            for (int i = 0; i < data.getPlayers().length; i++) {
+                PlayerDisplayData p = data.getPlayers()[i];
+                if (oldPlayers.remove(p.getId()) == null) {
+                    added.add(p);
+                }
+                if (!orderChanged && !previous.getPlayers()[i].getId().equals(p.getId())) {
+                    orderChanged = true;
+                }
+            }
+
+            PlayerDisplayData turn = data.getCurrentPlayerTurn();
+            boolean turnChanged = !turn.getId().equals(previous.getCurrentPlayerTurn().getId());
+
+            return new Changes(
+                    data.storyLength() > oldStoryLength ? data.storySince(oldStoryLength) : null,
+                    orderChanged ? List.of(data.getPlayers()) : null,
+                    added.isEmpty() ? null : added,
+                    oldPlayers.isEmpty() ? null : new ArrayList<>(oldPlayers.keySet()),
+                    turnChanged ? turn : null,
+                    data.getTurnDeadlineMillis() != previous.getTurnDeadlineMillis() ?
+                            data.getTurnDeadlineMillis() : null,
+                    data.getSecondsLeftInTurn() != previous.getSecondsLeftInTurn() ?
+                            data.getSecondsLeftInTurn() : null);
+        }
+
+        /**
+         * @return the delta payload, or the full state payload if not hasDelta
+         */
+        @Override
+        public String pack() throws JsonProcessingException {
+            if (!hasDelta()) {
+                return packFull();
+            }
+
+            Changes changes = changes();
+            ObjectNode root = ResponseWriters.MAPPER.createObjectNode();
+            root.put("gameId", data.getGameId());
+            root.put("seq", seq);
+
+            if (changes.story() != null) {
+                root.put("story", changes.story());
+            }
+            if (changes.order() != null) {
+                ArrayNode order = root.putArray("order");
+                changes.order().forEach(p -> order.add(p.getId()));
+            }
+            if (changes.added() != null) {
+                ArrayNode added = root.putArray("added");
+                for (PlayerDisplayData p : changes.added()) {
+                    ObjectNode addedPlayer = added.addObject();
+                    addedPlayer.put("id", p.getId());
+                    addedPlayer.put("displayName", p.getDisplayName());
+                }
+            }
+            if (changes.removed() != null) {
+                ArrayNode removed = root.putArray("removed");
+                changes.removed().forEach(removed::add);
+            }
+            if (changes.turn() != null) {
+                root.put("turn", changes.turn().getId());
+            }
+            if (changes.turnDeadlineMillis() != null) {
+                root.put("turnDeadlineMillis", changes.turnDeadlineMillis());
+            }
+            if (changes.secondsLeftInTurn() != null) {
+                root.put("secondsLeftInTurn", changes.secondsLeftInTurn());
+            }
+
+            return RESPONSE_DELTA + SEPARATOR + ResponseWriters.TREE.writeValueAsString(root);
+        }
+
+        /**
+         * @return the full state payload, for players who can't apply the delta
+         */
+        public String packFull() throws JsonProcessingException {
+            return new CurrentState(data, false, seq, false, null).pack();
+        }
+
+        @Override
+        public boolean isBroadcast() { return isBroadcast; }
+    }
+
+    /**
+     * Response sent to each client once connected, with the token it may resume its player
+     * with if its connection is lost. See SocketTextHandler.RESUME_GRACE_MILLIS
+     * @param resumeToken secret token of the client's player
+     * @param isResumed if the client resumed its player with this connection
+     * @param isDoBroadcast Custom filter function for broadcasting, return true if you want to broadcast
+     *                      to the given player; irrelevant if isBroadcast is false
+     */
+    record SessionResponse(@NotNull String resumeToken, boolean isResumed, boolean isBroadcast,
+                           @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
+        @Override
+        public String pack() {
+            return RESPONSE_SESSION + SEPARATOR + resumeToken + SEPARATOR + isResumed;
+        }
+
+        @Override
+        public boolean isBroadcast() { return isBroadcast; }
+    }
+
+    /**
+     * Response to a client's clock command, from which the client estimates the offset between
+     * its clock and the ServerClock, in order to count down to turn deadlines
+     * @param clientTime the client's time when it sent the command, echoed back as is
+     * @param serverTimeMillis time on the ServerClock when the command was handled
+     * @param isDoBroadcast Custom filter function for broadcasting, return true if you want to broadcast
+     *                      to the given player; irrelevant if isBroadcast is false
+     */
+    record ClockResponse(@NotNull String clientTime, long serverTimeMillis, boolean isBroadcast,
+                         @Nullable Predicate<PlayerState> isDoBroadcast) implements ServerResponse {
+        @Override
+        public String pack() {
+            return RESPONSE_CLOCK + SEPARATOR + clientTime + SEPARATOR + serverTimeMillis;
+        }
+
+        @Override
+        public boolean isBroadcast() { return isBroadcast; }
+    }
+
     /**
      * Response each time a game ends (PGE)
      * @param playerStats a single player's statistic
@@ -142,20 +349,18 @@ public sealed interface ServerResponse {
 
         @Override
         public String pack() throws JsonProcessingException {
-            ObjectMapper mapper = new ObjectMapper();
-
-            ObjectNode root = mapper.createObjectNode();
+            ObjectNode root = ResponseWriters.MAPPER.createObjectNode();
             root.put("id", playerStats.getId());
             root.put("display", playerStats.getDisplayName());
 
-            ArrayNode statNode = mapper.createArrayNode();
+            ArrayNode statNode = ResponseWriters.MAPPER.createArrayNode();
             for (RecursiveSymboledIntegerHashMap stat: playerStats.getStats()) {
                 statNode.add(stat.getJsonNode());
             }
 
             root.set("stats", statNode);
 
-            return RESPONSE_GAME_ENDED + SEPARATOR + mapper.writeValueAsString(root);
+            return RESPONSE_GAME_ENDED + SEPARATOR + ResponseWriters.TREE.writeValueAsString(root);
         }
 
         @Override
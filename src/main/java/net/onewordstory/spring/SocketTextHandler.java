@@ -4,92 +4,237 @@ import net.onewordstory.core.adapters.controllers.JplController;
 import net.onewordstory.core.adapters.controllers.SwController;
 import net.onewordstory.core.adapters.display_data.GameEndPlayerDisplayData;
 import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.view_models.Awaitable;
 import net.onewordstory.core.adapters.view_models.DcViewModel;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import net.onewordstory.core.adapters.view_models.PdViewModel;
 import net.onewordstory.core.adapters.view_models.PgeViewModel;
 import org.example.Log;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 import net.onewordstory.core.usecases.Response;
+import net.onewordstory.spring.bus.InMemoryMessageBus;
+import net.onewordstory.spring.bus.MessageBus;
 
-import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handler logic for game websocket!
+ * <br><br>
+ * Clients speak the text protocol, see ClientCommand and ServerResponse, unless they ask for
+ * the BinaryProtocol subprotocol when connecting
+ * <br><br>
+ * The websocket container's threads never wait on use cases. Commands and disconnects start
+ * their use case and return; their responses are sent by continuations which run on the
+ * command executor once the use case responds
  */
 @Component
-public class SocketTextHandler extends TextWebSocketHandler {
+public class SocketTextHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
     final DcController dcController;
     final JplController jplController;
     final SwController swController;
 
+    /**
+     * Numbers the game states sent to players, so only deltas between them need to be sent
+     */
+    final GameDeltaTracker gameDeltas = new GameDeltaTracker();
+
+    /**
+     * Connected clients by game, by state and by player ID, so broadcasts only touch their recipients
+     */
+    final SubscriberIndex subscribers = new SubscriberIndex();
+
+    /**
+     * Sends the messages queued for each client, so a slow client never stalls the thread
+     * which broadcasts. Each client is sent to by at most one of these threads at a time
+     */
+    private final ExecutorService sendExecutor;
+
+    /**
+     * Runs the continuations of commands and disconnects once their use case responds. They
+     * only pack and queue responses, so a few threads serve any amount of clients
+     */
+    private final ExecutorService commandExecutor;
+
+    /**
+     * Sends heartbeats, reaps idle sessions, and disconnects the players held for longer than
+     * the grace period, see hold
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Time between heartbeats. Each client is sent a ping, which its browser answers with a pong
+     */
+    public static final long HEARTBEAT_INTERVAL_MILLIS = 10000;
+
+    /**
+     * Time after which a client which was not heard from, not even by a pong, is taken to have
+     * lost its connection without it closing, and is reaped
+     */
+    public static final long IDLE_TIMEOUT_MILLIS = 35000;
+
+    /**
+     * Longest time a command waits for a use case to respond, after which the command fails
+     */
+    public static final long USE_CASE_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Use case timeout in use, may be shortened by tests
+     */
+    volatile long useCaseTimeoutMillis = USE_CASE_TIMEOUT_MILLIS;
+
+    /**
+     * Sessions reaped for missing their heartbeats
+     */
+    private final LongAdder reapedSessions = new LongAdder();
+
+    /**
+     * Time a player whose connection was lost keeps their seat for, in which the client may
+     * reconnect with its resume token and continue as the same player, see SessionResponse
+     */
+    public static final long RESUME_GRACE_MILLIS = 20000;
+
+    /**
+     * Grace period in use, may be shortened by tests
+     */
+    volatile long resumeGraceMillis = RESUME_GRACE_MILLIS;
+
+    /**
+     * A player whose connection was lost, and the ID of the session they lost
+     */
+    private record Held(PlayerState player, String sessionId) {}
+
+    /**
+     * Players whose connection was lost and who may still resume, by resume token
+     */
+    private final Map<String, Held> held = new ConcurrentHashMap<>();
+
+    /**
+     * Commands rejected for exceeding their client's rate limit, see PlayerState.SW_BURST
+     */
+    private final LongAdder throttledSubmitWords = new LongAdder();
+    private final LongAdder throttledJoins = new LongAdder();
+
+    /**
+     * Depth, coalescing and dropped clients summed over all the clients' outbound queues
+     */
+    private final OutboundQueue.Metrics outboundMetrics = new OutboundQueue.Metrics();
+
+    /**
+     * Carries game states and game ends to the players' sockets, wherever they are connected
+     */
+    final GameFanout fanout;
+
+    /**
+     * Handler of a single node, whose game states only go to its own clients
+     */
+    public SocketTextHandler(PdViewModel pdViewM, PgeViewModel pgeViewM,
+                             DcController dcController,
+                             JplController jplController,
+                             SwController swController) {
+        this(pdViewM, pgeViewM, dcController, jplController, swController, new InMemoryMessageBus());
+    }
+
     /**
      * Injects into PD a lambda which will broadcast the new PD content to all
-     * clients. Also injects PGE lambda for reacting to games ending
+     * clients. Also injects PGE lambda for reacting to games ending. Both go through the bus,
+     * which fans them out to the nodes the players are connected to
      */
     @Autowired
     public SocketTextHandler(PdViewModel pdViewM, PgeViewModel pgeViewM,
                              DcController dcController,
                              JplController jplController,
-                             SwController swController) {
+                             SwController swController,
+                             MessageBus bus) {
         this.dcController = dcController;
         this.jplController = jplController;
         this.swController = swController;
 
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "socket-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleAtFixedRate(() -> heartbeat(System.nanoTime()),
+                HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        this.fanout = new GameFanout(bus, subscribers, gameDeltas);
+
+        AtomicInteger sendThreadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() * 2), r -> {
+                    Thread t = new Thread(r, "socket-send-" + sendThreadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        AtomicInteger commandThreadCount = new AtomicInteger();
+        this.commandExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "socket-command-" + commandThreadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
         // PD
         pdViewM.injectCallback((GameDisplayData gameData) -> {
             try {
-                Log.sendSocketGeneral("PD Callback", "Broadcasting new Game State");
-                // Broadcast only to those in a game
-                broadcast(new ServerResponse.CurrentState(
-                        gameData, false, true,
-                        (p) -> p.state() == PlayerState.State.IN_GAME));
+                // Broadcast only to those in the game this state belongs to, if it is new
+                ServerResponse.GameDelta delta = gameDeltas.update(gameData);
+                if (delta != null) {
+                    Log.sendSocketGeneral("PD Callback", "Broadcasting new Game State");
+                    broadcast(delta);
+                }
             } catch (JsonProcessingException e) {
                 Log.sendSocketError("PD Callback", "Failed to process JSON");
             }
         });
 
         // PGE
-        pgeViewM.injectCallback((playerStatData) -> {
-            Log.sendSocketGeneral("PGE Callback", "Sending player stats to each player");
-
-            // Loop through ALL sessions
-            for (PlayerState ply: sessionToPlyState.values()) {
-                // See if the session links to a player whose stats were provided
-                String plyId = ply.playerId();
-                GameEndPlayerDisplayData statData = playerStatData.get(plyId);
-
-                // if yes (see above comment), continue
-                if (statData != null) {
-                    String name = playerStatData.get(plyId).getDisplayName();
+        pgeViewM.injectCallback((gameId, playerStatData) -> {
+            // Stop numbering the game's states, whether or not any of its players are still
+            // connected to be told it ended
+            gameDeltas.forget(gameId);
 
-                    // Try to send individual game end stat data to this player
-                    try {
-                        String msg = new ServerResponse.GameEndResponse(playerStatData.get(plyId),
-                                false, null).pack();
-
-                        Log.sendSocketGeneral("PGE Callback", "To: " + name + " DATA: " + msg);
-
-                        ply.sendMessage(msg);
-                    } catch (JsonProcessingException e) {
-                        Log.sendSocketError("PGE Callback",  "Failed to process JSON for " + name);
-                    } catch (IOException e) {
-                        Log.sendSocketError("PGE Callback", name + " triggered IOException");
-                    }
+            Log.sendSocketGeneral("PGE Callback", "Sending player stats to each player");
+            Map<String, String> frames = new HashMap<>();
 
-                    ply.changeToDisconnected();
+            // Each player's stats differ, so each is packed on its own. The players may be
+            // connected to any node, so all of them are packed
+            for (Map.Entry<String, GameEndPlayerDisplayData> entry : playerStatData.entrySet()) {
+                try {
+                    frames.put(entry.getKey(),
+                            new ServerResponse.GameEndResponse(entry.getValue(), false, null).pack());
+                } catch (JsonProcessingException e) {
+                    Log.sendSocketError("PGE Callback",
+                            "Failed to process JSON for " + entry.getValue().getDisplayName());
                 }
             }
+
+            fanout.publishGameEnd(gameId, frames);
         });
     }
 
@@ -98,15 +243,25 @@ public class SocketTextHandler extends TextWebSocketHandler {
      * <br><br>
      * <b>Note</b> that the session ID is DIFFERENT from the PlayerState.playerId.
      */
-    private static final Map<String, PlayerState> sessionToPlyState = new ConcurrentHashMap<>();
+    private final Map<String, PlayerState> sessionToPlyState = new ConcurrentHashMap<>();
 
     /**
-     * Send a server response to all clients <br><br>
-     * Note that since WebSocket sessions are not concurrent with respect
-     * to sending, a lock is engaged for each client before sending.
+     * Send a server response to all clients. A game's state only goes to the players
+     * in the game, see SubscriberIndex <br><br>
+     * Note that the response is only queued for each client, see OutboundQueue, so this
+     * never waits for a slow client.
+     * <br><br>
+     * The response is packed once into a frame which is shared by all recipients
      */
     public void broadcast(ServerResponse responseToSend) throws JsonProcessingException {
-        String message = responseToSend.pack();
+        if (responseToSend instanceof ServerResponse.GameDelta delta) {
+            // To the players of the game on every node, see GameFanout
+            fanout.publishGameUpdate(delta, gameDeltas.handles(delta.data().getGameId()));
+            return;
+        }
+
+        TextMessage frame = responseToSend.frame();
+        Log.sendSocketGeneral("Broadcast", "Sending '" + frame.getPayload() + "'");
 
         for (PlayerState p: sessionToPlyState.values()) {
 
@@ -114,95 +269,398 @@ public class SocketTextHandler extends TextWebSocketHandler {
             // broadcast to by testing the predicate
             if (responseToSend.isDoBroadcast() == null || responseToSend.isDoBroadcast().test(p)) {
 
-                try {
-                    Log.sendSocketGeneral("Broadcast", "Sending '" + message + "' to " + p.displayName());
-                    p.sendMessage(message);
-                }
-
-                // It is likely this occurs when the player has disconnected and the .values()
-                // has stale information
-                catch (IOException ignored) {
-                    Log.sendSocketError("Broadcast",
-                            "Client " + p.displayName() + " triggered IOException when sending broadcast");
+                if (p.sendMessage(frame)) {
+                    Log.sendSocketGeneral("Broadcast", "Queued for " + p.displayName());
                 }
             }
         }
     }
 
+    /**
+     * @return subprotocols offered to connecting clients. A client which asks for none
+     * uses the text protocol
+     */
+    @Override
+    @NotNull
+    public List<String> getSubProtocols() {
+        return List.of(BinaryProtocol.SUBPROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessionToPlyState.put(session.getId(), new PlayerState(UUID.randomUUID().toString(), session));
+        boolean isBinary = BinaryProtocol.SUBPROTOCOL.equals(session.getAcceptedProtocol());
+
+        PlayerState p = resume(session, isBinary);
+        boolean isResumed = p != null;
+        if (!isResumed) {
+            p = new PlayerState(UUID.randomUUID().toString(), session, subscribers,
+                    sendExecutor, outboundMetrics, isBinary);
+        }
+        sessionToPlyState.put(session.getId(), p);
+
+        // Tell the client how to resume this player if its connection is lost
+        p.sendMessage(new ServerResponse.SessionResponse(p.resumeToken(), isResumed, false, null).pack());
+
+        // Deltas sent before the connection was lost may have been lost with it
+        int gameId = p.gameId();
+        ServerResponse.CurrentState state = isResumed && gameId != -1 ? gameDeltas.latest(gameId, false) : null;
+        if (state != null) {
+            try {
+                p.sendFullGameState(state, gameDeltas.handles(gameId));
+            } catch (JsonProcessingException e) {
+                Log.sendSocketError("RESUMED", "Failed to process JSON");
+            }
+        }
     }
 
+    /**
+     * Resumes the held player whose resume token the client connected with, if any
+     * @param session new session of the client, whose URI may carry a resume query parameter
+     * @param isBinary if the new session negotiated the BinaryProtocol
+     * @return the resumed player, now sending to the new session, or null if there is none
+     */
+    private PlayerState resume(WebSocketSession session, boolean isBinary) {
+        URI uri = session.getUri();
+        String token = uri == null ? null :
+                UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("resume");
+        Held h = token == null ? null : held.remove(token);
+        if (h == null) {
+            return null;
+        }
+
+        PlayerState p = h.player();
+        if (p.isBinary() != isBinary || !p.reattach(session)) {
+            // The client connects as a new player, so the held one is of no more use
+            Log.sendSocketError("RESUMED", "Could not resume " + p.displayName());
+            disconnect(p);
+            return null;
+        }
+
+        Log.sendSocketSuccess("RESUMED", p.displayName() + " resumed their session");
+        return p;
+    }
+
+    /**
+     * @return amount of players whose connection was lost and who may still resume
+     */
+    public int getHeldPlayerCount() {
+        return held.size();
+    }
+
+    /**
+     * @return metrics summed over the outbound queues of all clients
+     */
+    public OutboundQueue.Metrics getOutboundMetrics() {
+        return outboundMetrics;
+    }
+
+    /**
+     * Future which completes with the content of a use case's awaitable once it is set. Stages
+     * which depend on it run on the command executor, rather than on the use case's thread,
+     * which may hold locks of the entities. It fails with a TimeoutException if the use case
+     * doesn't respond within USE_CASE_TIMEOUT_MILLIS, so a command never hangs
+     * @param awaitable awaitable of a view model
+     * @return future of its content
+     */
+    <T> CompletableFuture<T> whenSet(Awaitable<T> awaitable) {
+        CompletableFuture<T> out = new CompletableFuture<>();
+        awaitable.onSet(content -> commandExecutor.execute(() -> out.complete(content)));
+        return out.orTimeout(useCaseTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A client's answer to a heartbeat, which shows its connection is alive
+     */
     @Override
-    public void afterConnectionClosed(@NotNull WebSocketSession session, @NotNull CloseStatus status) throws Exception {
+    protected void handlePongMessage(@NotNull WebSocketSession session, @NotNull PongMessage message) {
         PlayerState p = sessionToPlyState.get(session.getId());
+        if (p != null) {
+            p.markSeen();
+        }
+    }
 
-        // Calls disconnect on a thread. Response shouldn't matter, player has disconnected!
-        DcViewModel viewM = dcController.disconnect(p.playerId());
+    /**
+     * Pings every client, and reaps those not heard from within IDLE_TIMEOUT_MILLIS. A reaped
+     * client's session is closed and its player disconnected, without holding their seat, as
+     * the client stopped answering. Runs every HEARTBEAT_INTERVAL_MILLIS
+     * @param nowNanos current System.nanoTime
+     */
+    void heartbeat(long nowNanos) {
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS);
+
+        for (Map.Entry<String, PlayerState> entry : sessionToPlyState.entrySet()) {
+            PlayerState p = entry.getValue();
+
+            if (nowNanos - p.lastSeenNanos() > idleTimeoutNanos) {
+                // Unless the connection closed in the meantime, which disconnects the player
+                if (sessionToPlyState.remove(entry.getKey(), p)) {
+                    reapedSessions.increment();
+                    Log.sendSocketError("REAPED", "Session " + entry.getKey() + " missed its heartbeats");
+                    p.close(CloseStatus.SESSION_NOT_RELIABLE);
+                    disconnect(p);
+                }
+            } else {
+                p.sendPing();
+            }
+        }
+    }
 
-        // Waits for view model data. Response object is set last.
-        Response res = viewM.getResponseAwaitable().await();
-        GameDisplayData gameData = viewM.getGameDataAwaitable().get();
+    /**
+     * @param session an open session
+     * @return the player of the session, or null if it is not open
+     */
+    @Nullable
+    PlayerState getPlayerState(WebSocketSession session) {
+        return sessionToPlyState.get(session.getId());
+    }
 
-        // Delete PlayerState object from map so no send calls can be made
-        sessionToPlyState.remove(session.getId());
+    /**
+     * @return amount of sessions open
+     */
+    public int getLiveSessionCount() {
+        return sessionToPlyState.size();
+    }
 
-        // Broadcasts new game data to clients if this player was disconnected from game
-        if (gameData != null) {
-            Log.sendSocketGeneral("DC Broadcast",
-                    "Broadcasting new Game State; " + p.displayName() + " disconnected from game!");
-            broadcast(new ServerResponse.CurrentState(
-                    gameData, false, true,
-                    (ply) -> ply.state() == PlayerState.State.IN_GAME)); // Broadcast new gamestate to those in game
+    /**
+     * @return amount of open sessions which missed their last heartbeat, given half an interval
+     * to answer it
+     */
+    public int getIdleSessionCount() {
+        long now = System.nanoTime();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL_MILLIS * 3 / 2);
+        int out = 0;
+        for (PlayerState p : sessionToPlyState.values()) {
+            if (now - p.lastSeenNanos() > intervalNanos) {
+                out++;
+            }
         }
+        return out;
+    }
 
-        // Prints DC output
-        if (res.getCode() == Response.ResCode.SUCCESS) {
-            Log.sendSocketSuccess("CLOSED", res.toString());
-        } else {
-            Log.sendSocketError("CLOSED", res.toString());
-        }
+    /**
+     * @return amount of sessions reaped for missing their heartbeats
+     */
+    public long getReapedSessionCount() {
+        return reapedSessions.sum();
     }
 
     @Override
-    public void handleTextMessage(@NotNull WebSocketSession session, @NotNull TextMessage message) {
-        try {
-            String payload = message.getPayload();
+    public void afterConnectionClosed(@NotNull WebSocketSession session, @NotNull CloseStatus status) {
+        // Removed here, so the player is disconnected once even if the reaper got to them too
+        PlayerState p = sessionToPlyState.remove(session.getId());
+        if (p == null) {
+            return;
+        }
+
+        // A connection lost while in the pool or a game may come back, so the player's seat is
+        // held for a while instead of disconnecting them. A client closing on purpose leaves, and
+        // a client dropped for not keeping up can't resume, so both are disconnected at once
+        if (!status.equalsCode(CloseStatus.NORMAL) && !status.equalsCode(CloseStatus.GOING_AWAY) &&
+                !p.isDropped() && (p.state() == PlayerState.State.IN_POOL || p.state() == PlayerState.State.IN_GAME)) {
+            hold(p, session.getId());
+            return;
+        }
+
+        disconnect(p);
+    }
 
-            if (payload.isEmpty()) {
+    /**
+     * Holds the seat of a player whose connection was lost, and disconnects them unless they
+     * resume within the grace period
+     * @param p the player
+     * @param sessionId ID of the lost session
+     */
+    private void hold(PlayerState p, String sessionId) {
+        p.detach();
+
+        Held h = new Held(p, sessionId);
+        held.put(p.resumeToken(), h);
+        Log.sendSocketGeneral("HELD", p.displayName() + " lost their connection");
+
+        timer.schedule(() -> {
+            // Unless they resumed already
+            if (held.remove(p.resumeToken(), h)) {
+                Log.sendSocketGeneral("HELD", p.displayName() + " did not resume in time");
+                disconnect(p);
+            }
+        }, resumeGraceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Calls DC for a player who left, and removes them once DC responds, or fails to respond in
+     * time. Call once the player's session was removed from sessionToPlyState
+     * @param p the player
+     */
+    private void disconnect(PlayerState p) {
+        // Calls disconnect on a thread. Response shouldn't matter, player has disconnected!
+        DcViewModel viewM = dcController.disconnect(p.playerId());
+
+        // Continues once view model data is set. Response object is set last.
+        whenSet(viewM.getResponseAwaitable()).whenComplete((res, error) -> {
+            // Delete PlayerState object from the index so no broadcasts reach it. The session is
+            // gone, so this happens even if DC failed
+            p.unsubscribe();
+
+            if (error != null) {
+                Log.sendSocketError("CLOSED", "DC failed for " + p.displayName() + ": " + error);
                 return;
             }
+            GameDisplayData gameData = viewM.getGameDataAwaitable().get();
+
+            // Broadcasts new game data to clients if this player was disconnected from game
+            ServerResponse.GameDelta delta = gameData == null ? null : gameDeltas.update(gameData);
+            if (delta != null) {
+                Log.sendSocketGeneral("DC Broadcast",
+                        "Broadcasting new Game State; " + p.displayName() + " disconnected from game!");
+                try {
+                    broadcast(delta); // Broadcast new gamestate to those in the game
+                } catch (JsonProcessingException e) {
+                    Log.sendSocketError("DC Broadcast", "Failed to process JSON");
+                }
+            }
+
+            // Prints DC output
+            if (res.getCode() == Response.ResCode.SUCCESS) {
+                Log.sendSocketSuccess("CLOSED", res.toString());
+            } else {
+                Log.sendSocketError("CLOSED", res.toString());
+            }
+        });
+    }
+
+    @Override
+    public void handleTextMessage(@NotNull WebSocketSession session, @NotNull TextMessage message) {
+        String payload = message.getPayload();
+
+        if (payload.isEmpty()) {
+            return;
+        }
 
+        try {
             // Convert raw payload to command object. Throws error if the payload isn't
             // a known type
-            ClientCommand incomingCmd = ClientCommand.parseCommand(this, payload);
-            Log.sendSocketGeneral("HANDLE CMD RECV", incomingCmd.toString());
+            handleCommand(session, ClientCommand.parseCommand(this, payload));
+        } catch (Exception e) {
+            Log.sendSocketError("HANDLE", e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Commands of clients which negotiated the BinaryProtocol. They may send text commands as well
+     */
+    @Override
+    protected void handleBinaryMessage(@NotNull WebSocketSession session, @NotNull BinaryMessage message) {
+        if (message.getPayloadLength() == 0) {
+            return;
+        }
+
+        try {
+            handleCommand(session, BinaryProtocol.parseCommand(this, message.getPayload()));
+        } catch (Exception e) {
+            Log.sendSocketError("HANDLE", e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts a client's command, and sends its responses once they are ready. Returns without
+     * waiting for the command's use case
+     * @param session session the command came from
+     * @param incomingCmd parsed command
+     */
+    private void handleCommand(WebSocketSession session, ClientCommand incomingCmd) {
+        Log.sendSocketGeneral("HANDLE CMD RECV", incomingCmd.toString());
+        PlayerState p = sessionToPlyState.get(session.getId());
+        if (p == null) {
+            // The session was reaped
+            return;
+        }
+        p.markSeen();
 
-            // Call command handler to get corresponding server response
-            ServerResponse[] responses = incomingCmd.handler(sessionToPlyState.get(session.getId()));
+        // Reject commands over the client's rate limit before any use case is called
+        if (!admit(p, incomingCmd)) {
+            return;
+        }
 
-            // Sends responses
-            for (ServerResponse response : responses) {
-                if (response != null) {
-                    // Pack response object into raw payload
-                    String msg = response.pack();
+        // Call command handler to get corresponding server response
+        incomingCmd.handler(p).thenAccept(responses -> sendResponses(p, responses)).exceptionally(e -> {
+            Log.sendSocketError("HANDLE", e.toString());
+            e.printStackTrace();
+            return null;
+        });
+    }
 
-                    Log.sendSocketGeneral("HANDLE PREP RES", msg);
+    /**
+     * Checks a command against its client's rate limit. Commands which don't call use cases
+     * are always admitted. A rejected command is answered only if it is the first rejection in
+     * its limit's refill window, and dropped otherwise, so a spamming client can't fill its own
+     * outbound queue with rejections and get dropped
+     * @param p state of the client who sent the command
+     * @param cmd the command
+     * @return if the command is admitted
+     */
+    private boolean admit(PlayerState p, ClientCommand cmd) {
+        if (cmd instanceof ClientCommand.SubmitWord && !p.swLimit().tryAcquire()) {
+            throttledSubmitWords.increment();
+            Log.sendSocketError("THROTTLE", "SW rejected for " + p.displayName());
+            if (p.swLimit().tryReportRejection()) {
+                sendResponses(p, new ServerResponse[]{new ServerResponse.SubmitWordResponse(
+                        new Response(Response.ResCode.RATE_LIMITED, "You are submitting words too quickly"),
+                        false, null)});
+            }
+            return false;
+        }
+        if (cmd instanceof ClientCommand.JoinPublicLobby && !p.jplLimit().tryAcquire()) {
+            throttledJoins.increment();
+            Log.sendSocketError("THROTTLE", "JPL rejected for " + p.playerId());
+            if (p.jplLimit().tryReportRejection()) {
+                sendResponses(p, new ServerResponse[]{new ServerResponse.JoinResponse(
+                        new Response(Response.ResCode.RATE_LIMITED, "You are joining too quickly"),
+                        null, false, null)});
+            }
+            return false;
+        }
+        return true;
+    }
 
-                    // Thread safely either broadcast to ALL clients, or to THIS client
+    /**
+     * @return amount of submit word commands rejected for exceeding their client's rate limit
+     */
+    public long getThrottledSubmitWordCount() {
+        return throttledSubmitWords.sum();
+    }
+
+    /**
+     * @return amount of join commands rejected for exceeding their client's rate limit
+     */
+    public long getThrottledJoinCount() {
+        return throttledJoins.sum();
+    }
+
+    /**
+     * Sends the responses of a client's command
+     * @param p state of the client who sent the command
+     * @param responses responses of the command, which may contain nulls
+     */
+    private void sendResponses(PlayerState p, ServerResponse[] responses) {
+        for (ServerResponse response : responses) {
+            if (response != null) {
+                try {
+                    // Thread safely either broadcast to ALL clients, or to THIS client.
+                    // Either way, the response is packed once
                     if (response.isBroadcast()) {
+                        Log.sendSocketGeneral("HANDLE PREP RES", "Broadcasting " + response.getClass().getSimpleName());
                         broadcast(response);
                     } else {
-                        PlayerState p = sessionToPlyState.get(session.getId());
-                        p.sendMessage(msg);
+                        TextMessage frame = response.frame();
+                        Log.sendSocketGeneral("HANDLE PREP RES", frame.getPayload());
+                        p.sendMessage(frame);
                     }
+                } catch (JsonProcessingException e) {
+                    Log.sendSocketError("HANDLE", "Failed to process JSON for " + response.getClass().getSimpleName());
                 }
             }
-
-        } catch (Exception e) {
-            Log.sendSocketError("HANDLE", e.toString());
-            e.printStackTrace();
         }
     }
 }
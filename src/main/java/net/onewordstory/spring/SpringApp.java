@@ -47,6 +47,7 @@ import net.onewordstory.core.usecases.like_story.LsInteractor;
 import net.onewordstory.core.usecases.pull_data.PdInteractor;
 import net.onewordstory.core.usecases.pull_game_ended.PgeGatewayStory;
 import net.onewordstory.core.usecases.pull_game_ended.PgeInteractor;
+import net.onewordstory.core.usecases.run_game.GameTickScheduler;
 import net.onewordstory.core.usecases.shutdown_server.SsInteractor;
 import net.onewordstory.core.usecases.sort_players.SpInteractor;
 import net.onewordstory.core.usecases.submit_word.SwInteractor;
@@ -57,6 +58,11 @@ import net.onewordstory.core.usecases.upvote_title.UtInteractor;
 import net.onewordstory.spring.db.PostgresCommentsRepo;
 import net.onewordstory.spring.db.PostgresStoryRepo;
 import net.onewordstory.spring.db.PostgresTitlesRepo;
+import net.onewordstory.spring.bus.InMemoryMessageBus;
+import net.onewordstory.spring.bus.MessageBus;
+import net.onewordstory.spring.bus.SocketBroker;
+import net.onewordstory.spring.bus.SocketMessageBus;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
@@ -69,6 +75,7 @@ import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
+import java.io.IOException;
 import java.util.Locale;
 
 @SpringBootApplication
@@ -125,6 +132,40 @@ public class SpringApp {
 		}
 	}
 
+	/**
+	 * Exposes the bus which carries game states to the nodes their players are connected to.
+	 * A single node uses an in-memory bus. To run several nodes, set BUS_BROKER_PORT on each,
+	 * and BUS_BROKER_SERVE=true on one of them, which then runs the SocketBroker. Nodes reach
+	 * the broker at BUS_BROKER_HOST, localhost by default
+	 */
+	@Configuration
+	public static class MessageBusConfig implements DisposableBean {
+
+		private SocketBroker broker;
+
+		@Bean(destroyMethod = "close")
+		public MessageBus messageBus() throws IOException {
+			String port = System.getenv("BUS_BROKER_PORT");
+			if (port == null) {
+				return new InMemoryMessageBus();
+			}
+
+			if (System.getenv("BUS_BROKER_SERVE") != null &&
+					System.getenv("BUS_BROKER_SERVE").toLowerCase(Locale.ENGLISH).equals("true")) {
+				broker = new SocketBroker(Integer.parseInt(port));
+			}
+			String host = System.getenv("BUS_BROKER_HOST");
+			return new SocketMessageBus(host == null ? "localhost" : host, Integer.parseInt(port));
+		}
+
+		@Override
+		public void destroy() {
+			if (broker != null) {
+				broker.close();
+			}
+		}
+	}
+
 	/**
 	 * Builds clean architecture and exposes controllers, and the PD/PGE view models
 	 * as beans which can be autowired across spring where necessary
@@ -156,7 +197,15 @@ public class SpringApp {
 			this.pdViewM = new PdViewModel();
 			this.pgeViewM = new PgeViewModel();
 
-			ThreadRegister register = new ThreadRegister();
+			// Use cases run on a pool which reuses idle threads. USE_CASE_THREADS bounds the pool
+			// instead, and USE_CASE_QUEUE how many use cases queue for it before being rejected.
+			// Players waiting in JPL hold no thread, so they don't count towards it
+			String useCaseThreads = System.getenv("USE_CASE_THREADS");
+			String useCaseQueue = System.getenv("USE_CASE_QUEUE");
+			ThreadRegister register = new ThreadRegister(useCaseThreads == null ?
+					ThreadRegister.newCachedPool() :
+					ThreadRegister.newBoundedPool(Integer.parseInt(useCaseThreads), useCaseQueue == null ?
+							ThreadRegister.DEFAULT_QUEUE_CAPACITY : Integer.parseInt(useCaseQueue)));
 
 			PdPresenter pdPresenter = new PdPresenter(pdViewM);
 			PgePresenter pgePresenter = new PgePresenter(pgeViewM);
@@ -199,7 +248,8 @@ public class SpringApp {
 			StorySaveCheckerByLength sscbl = new StorySaveCheckerByLength();
 			PdInteractor pd = new PdInteractor(pdPresenter);
 			PgeInteractor pge = new PgeInteractor(pgePresenter, (PgeGatewayStory) storyRepo, sscbl);
-			SpInteractor sp = new SpInteractor(manager, pge, pd);
+			GameTickScheduler ticks = new GameTickScheduler();
+			SpInteractor sp = new SpInteractor(manager, pge, pd, ticks);
 			sp.startTimer();
 
 			// Use cases called by users
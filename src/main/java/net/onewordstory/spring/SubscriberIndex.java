@@ -0,0 +1,116 @@
+package net.onewordstory.spring;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes the connected clients by the game they are in and by their player ID, so that
+ * a game's broadcast only touches its recipients no matter how many clients are connected.
+ * PlayerState keeps the index up to date on each of its state transitions.
+ * <br><br>
+ * Game IDs are only unique within the node running the game, so a game is indexed by that
+ * node's ID together with its game ID, see GameFanout
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. The sets are concurrent and engage no locks, so the index may be
+ *     updated while holding a PlayerState lock. A set may be read while it is being
+ *     updated, in which case a client moving in or out of it may or may not be seen
+ * </p>
+ */
+public class SubscriberIndex {
+
+    /**
+     * A game, named by the node running it and its ID on that node
+     */
+    record GameKey(String nodeId, int gameId) {}
+
+    private final Map<GameKey, Set<PlayerState>> byGame = new ConcurrentHashMap<>();
+    private final Map<String, PlayerState> byPlayerId = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a newly connected client. Called by PlayerState
+     * @param p state of the client, which is NOT_PROCESSED
+     */
+    void add(@NotNull PlayerState p) {
+        byPlayerId.put(p.playerId(), p);
+    }
+
+    /**
+     * Moves a client between the games of its old and new states. Called by PlayerState
+     * @param p state of the client
+     * @param oldState state the client is leaving
+     * @param oldGame game the client was in, only meaningful if oldState is IN_GAME
+     * @param newState state the client is entering
+     * @param newGame game the client is now in, only meaningful if newState is IN_GAME
+     */
+    void move(@NotNull PlayerState p, PlayerState.State oldState, GameKey oldGame,
+              PlayerState.State newState, GameKey newGame) {
+        if (oldState == PlayerState.State.IN_GAME) {
+            removeFromGame(p, oldGame);
+        }
+        if (newState == PlayerState.State.IN_GAME) {
+            byGame.compute(newGame, (key, players) -> {
+                Set<PlayerState> out = players != null ? players : ConcurrentHashMap.newKeySet();
+                out.add(p);
+                return out;
+            });
+        }
+    }
+
+    /**
+     * Removes a client which has disconnected
+     * @param p state of the client
+     * @param state state the client was last in
+     * @param game game the client was in, only meaningful if state is IN_GAME
+     */
+    void remove(@NotNull PlayerState p, PlayerState.State state, GameKey game) {
+        if (state == PlayerState.State.IN_GAME) {
+            removeFromGame(p, game);
+        }
+        byPlayerId.remove(p.playerId(), p);
+    }
+
+    /**
+     * Removes a client from the set of a game, dropping the set once it is empty
+     */
+    private void removeFromGame(PlayerState p, GameKey game) {
+        byGame.computeIfPresent(game, (key, players) -> {
+            players.remove(p);
+            return players.isEmpty() ? null : players;
+        });
+    }
+
+    /**
+     * @param nodeId ID of the node running a game
+     * @param gameId ID of the game on that node
+     * @return live, read-only view of the clients in the game
+     */
+    @NotNull
+    public Collection<PlayerState> inGame(@NotNull String nodeId, int gameId) {
+        Set<PlayerState> players = byGame.get(new GameKey(nodeId, gameId));
+        return players == null ? Collections.emptySet() : Collections.unmodifiableSet(players);
+    }
+
+    /**
+     * @param playerId ID of a player
+     * @return the connected client of this player, or null if there is none
+     */
+    @Nullable
+    public PlayerState byPlayerId(String playerId) {
+        return byPlayerId.get(playerId);
+    }
+
+    /**
+     * @return amount of games which have at least one client in them
+     */
+    public int getGameCount() {
+        return byGame.size();
+    }
+}
@@ -0,0 +1,101 @@
+package net.onewordstory.spring;
+
+/**
+ * Token bucket rate limiter. The bucket holds up to capacity tokens and is refilled at a
+ * steady rate; each admitted action takes one token. This allows short bursts of up to
+ * capacity actions, while holding the long run rate to the refill rate. The bucket is
+ * refilled lazily when tokens are taken, so an idle bucket costs nothing.
+ * <br><br>
+ * Rejections may be reported, such as by answering the rejected client, at most once per
+ * refill window, the time in which one token is refilled. So a client spamming actions isn't
+ * sent more replies than it would have been admitted actions.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe
+ * </p>
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final long nanosPerToken;
+
+    /**
+     * Tokens in the bucket as of lastRefillNanos. Guarded by this
+     */
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * When a rejection was last reported, or Long.MIN_VALUE if none was. Guarded by this
+     */
+    private long lastRejectionReportNanos = Long.MIN_VALUE;
+
+    /**
+     * Creates a full bucket
+     * @param capacity most tokens the bucket holds, which is the largest burst admitted
+     * @param tokensPerSecond rate at which the bucket is refilled
+     */
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos current System.nanoTime, for tests
+     */
+    TokenBucket(int capacity, double tokensPerSecond, long nowNanos) {
+        if (capacity < 1 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least 1 and the rate positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.nanosPerToken = (long) (1e9 / tokensPerSecond);
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Takes a token if there is one
+     * @return if the action is admitted
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos current System.nanoTime, for tests
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+        if (nowNanos > lastRefillNanos) {
+            tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Call once an action was rejected
+     * @return if the rejection should be reported, which is the case for only the first
+     * rejection in each refill window
+     */
+    public boolean tryReportRejection() {
+        return tryReportRejection(System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos current System.nanoTime, for tests
+     */
+    synchronized boolean tryReportRejection(long nowNanos) {
+        if (lastRejectionReportNanos != Long.MIN_VALUE && nowNanos - lastRejectionReportNanos < nanosPerToken) {
+            return false;
+        }
+        lastRejectionReportNanos = nowNanos;
+        return true;
+    }
+}
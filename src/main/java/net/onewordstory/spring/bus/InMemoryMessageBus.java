@@ -0,0 +1,51 @@
+package net.onewordstory.spring.bus;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * MessageBus within a single node. Messages are delivered to the listeners on the
+ * publishing thread, before publish returns
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe
+ * </p>
+ */
+public class InMemoryMessageBus implements MessageBus {
+
+    private final Map<String, Set<Consumer<byte[]>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(@NotNull String topic, byte @NotNull [] payload) {
+        Set<Consumer<byte[]>> topicListeners = listeners.get(topic);
+        if (topicListeners != null) {
+            for (Consumer<byte[]> listener : topicListeners) {
+                listener.accept(payload);
+            }
+        }
+    }
+
+    @Override
+    @NotNull
+    public Subscription subscribe(@NotNull String topic, @NotNull Consumer<byte[]> listener) {
+        // Wrapped, so the same listener may be subscribed twice and cancelled separately
+        Consumer<byte[]> entry = listener::accept;
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArraySet<>()).add(entry);
+
+        return () -> listeners.computeIfPresent(topic, (t, topicListeners) -> {
+            topicListeners.remove(entry);
+            return topicListeners.isEmpty() ? null : topicListeners;
+        });
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
@@ -0,0 +1,54 @@
+package net.onewordstory.spring.bus;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe bus which carries the messages sent to clients between server nodes.
+ * A node publishes a message to a topic, and every node subscribed to the topic, including
+ * the publisher, gets it. This way a game can run on one node while its players' sockets are
+ * on any node.
+ * <br><br>
+ * Messages are opaque bytes. Messages published to a topic by one node arrive in the order
+ * they were published; there is no ordering across nodes or topics.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Implementations must be thread safe. Listeners may be called from any thread, and from
+ *     several threads at once, so they must be thread safe as well, and must not block
+ * </p>
+ */
+public interface MessageBus extends AutoCloseable {
+
+    /**
+     * A listener's subscription to a topic
+     */
+    interface Subscription {
+        /**
+         * Stops calling the listener. Does nothing if already cancelled
+         */
+        void cancel();
+    }
+
+    /**
+     * Send a message to every subscriber of the topic
+     * @param topic topic to publish to
+     * @param payload message, which must not be changed after
+     */
+    void publish(@NotNull String topic, byte @NotNull [] payload);
+
+    /**
+     * @param topic topic to listen to
+     * @param listener called with each message published to the topic from now on
+     * @return the subscription, to cancel it
+     */
+    @NotNull
+    Subscription subscribe(@NotNull String topic, @NotNull Consumer<byte[]> listener);
+
+    /**
+     * Stops delivering messages and releases the bus's resources
+     */
+    @Override
+    void close();
+}
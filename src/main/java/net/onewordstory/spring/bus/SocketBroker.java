@@ -0,0 +1,230 @@
+package net.onewordstory.spring.bus;
+
+import org.example.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal message broker over TCP, standing in for a real broker when running several nodes
+ * on one machine, and in tests. Each node connects with a SocketMessageBus. A message
+ * published by a node is forwarded to every other node subscribed to its topic. The publisher
+ * delivers its own messages to itself, so they never make the round trip.
+ * <br><br>
+ * Every frame is an op byte, the topic (DataOutputStream.writeUTF), the payload length
+ * as an int, then the payload bytes. SUB and UNSUB frames have empty payloads. Nodes send
+ * SUB, UNSUB and PUB frames; the broker sends MSG frames.
+ * <br><br>
+ * A message is forwarded on the thread which reads the publisher's connection, so a node
+ * which reads slowly holds up the nodes publishing to it. Good enough for a stand-in.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Each connection is read by its own thread, and writes to a connection
+ *     are serialized on it
+ * </p>
+ */
+public class SocketBroker implements AutoCloseable {
+
+    static final byte OP_SUB = 1;
+    static final byte OP_UNSUB = 2;
+    static final byte OP_PUB = 3;
+    static final byte OP_MSG = 4;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * A frame of the broker protocol
+     */
+    record Frame(byte op, String topic, byte[] payload) {}
+
+    /**
+     * Writes a frame and flushes it. Callers serialize writes to the same stream
+     */
+    static void writeFrame(DataOutputStream out, byte op, String topic, byte[] payload) throws IOException {
+        out.writeByte(op);
+        out.writeUTF(topic);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    /**
+     * Reads a frame, blocking until it is received
+     * @throws EOFException if the connection was closed
+     */
+    static Frame readFrame(DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        String topic = in.readUTF();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative payload length");
+        }
+        byte[] payload = length == 0 ? EMPTY : new byte[length];
+        in.readFully(payload);
+        return new Frame(op, topic, payload);
+    }
+
+    /**
+     * A connected node
+     */
+    private class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void send(String topic, byte[] payload) {
+            try {
+                synchronized (out) {
+                    writeFrame(out, OP_MSG, topic, payload);
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void readLoop() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    Frame frame = readFrame(in);
+                    switch (frame.op()) {
+                        case OP_SUB -> {
+                            topics.add(frame.topic());
+                            subscribers.computeIfAbsent(frame.topic(), t -> ConcurrentHashMap.newKeySet()).add(this);
+                        }
+                        case OP_UNSUB -> {
+                            topics.remove(frame.topic());
+                            unsubscribe(frame.topic());
+                        }
+                        case OP_PUB -> {
+                            Set<Connection> nodes = subscribers.get(frame.topic());
+                            if (nodes != null) {
+                                for (Connection node : nodes) {
+                                    if (node != this) {
+                                        node.send(frame.topic(), frame.payload());
+                                    }
+                                }
+                            }
+                        }
+                        default -> throw new IOException("Invalid op: " + frame.op());
+                    }
+                }
+            } catch (EOFException e) {
+                // The node disconnected
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    Log.sendSocketError("BROKER", e.toString());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private void unsubscribe(String topic) {
+            subscribers.computeIfPresent(topic, (t, nodes) -> {
+                nodes.remove(this);
+                return nodes.isEmpty() ? null : nodes;
+            });
+        }
+
+        private void close() {
+            if (connections.remove(this)) {
+                for (String topic : topics) {
+                    unsubscribe(topic);
+                }
+                try {
+                    socket.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private final ServerSocket server;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Starts accepting nodes on the loopback address
+     * @param port port to listen on, or 0 for any free port, see getPort
+     * @throws IOException if the port can't be bound
+     */
+    public SocketBroker(int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptThread = new Thread(this::acceptLoop, "bus-broker-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+
+                Thread reader = new Thread(connection::readLoop, "bus-broker-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    Log.sendSocketError("BROKER", "Failed to accept node: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the port the broker listens on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return amount of nodes connected
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @param topic a topic
+     * @return amount of nodes subscribed to the topic
+     */
+    public int getSubscriberCount(@NotNull String topic) {
+        Set<Connection> nodes = subscribers.get(topic);
+        return nodes == null ? 0 : nodes.size();
+    }
+
+    /**
+     * Stops accepting nodes and disconnects those connected
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {}
+
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+}
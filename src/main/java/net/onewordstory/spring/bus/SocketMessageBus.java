@@ -0,0 +1,256 @@
+package net.onewordstory.spring.bus;
+
+import org.example.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * MessageBus of a node connected to a SocketBroker. The node is subscribed to a topic at the
+ * broker while it has at least one listener of the topic. A published message is delivered
+ * to this node's listeners on the publishing thread, before publish returns, and sent to the
+ * broker for the other nodes, which doesn't send it back. Messages of other nodes are
+ * delivered on this bus's reader thread, in the order the broker forwarded them.
+ * <br><br>
+ * If the connection to the broker is lost, the reader thread reconnects, waiting longer after
+ * each failed attempt, and subscribes again to the topics which have listeners. Meanwhile
+ * messages are still delivered to this node's listeners, while those to and from the other
+ * nodes are lost.
+ * <br><br>
+ * <h2>Thread Safety:</h2>
+ * <p>
+ *     Thread safe. Writes to a connection are serialized, and the subscriptions at the broker
+ *     are changed under the subscription lock, which a new connection subscribes again under
+ * </p>
+ */
+public class SocketMessageBus implements MessageBus {
+
+    /**
+     * Time waited before the first attempt to reconnect, and the most waited between attempts
+     */
+    static final long RECONNECT_MIN_MILLIS = 50;
+    static final long RECONNECT_MAX_MILLIS = 5000;
+
+    /**
+     * A connection to the broker
+     */
+    private static class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+
+        private Connection(String host, int port) throws IOException {
+            this.socket = new Socket(host, port);
+            this.socket.setTcpNoDelay(true);
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final Map<String, Set<Consumer<byte[]>>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Engaged around changing the subscriptions at the broker, and around replacing the connection
+     */
+    private final Object subscriptionLock = new Object();
+
+    /**
+     * Current connection to the broker, or null while reconnecting
+     */
+    private volatile Connection connection;
+
+    private volatile boolean isClosed = false;
+    private final Thread reader;
+
+    /**
+     * Connects to a broker
+     * @param host host of the broker
+     * @param port port of the broker
+     * @throws IOException if the broker can't be reached
+     */
+    public SocketMessageBus(@NotNull String host, int port) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.connection = new Connection(host, port);
+
+        reader = new Thread(this::run, "bus-client-" + connection.socket.getLocalPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return if this bus is connected to the broker
+     */
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    private void send(byte op, String topic, byte[] payload) {
+        Connection connection = this.connection;
+        if (connection == null) {
+            return;
+        }
+        try {
+            synchronized (connection.out) {
+                SocketBroker.writeFrame(connection.out, op, topic, payload);
+            }
+        } catch (IOException e) {
+            // The reader notices as well, and reconnects
+            Log.sendSocketError("BUS", "Lost the broker: " + e);
+            connection.close();
+        }
+    }
+
+    /**
+     * Calls this node's listeners of a topic
+     */
+    private void deliver(String topic, byte[] payload) {
+        Set<Consumer<byte[]>> topicListeners = listeners.get(topic);
+        if (topicListeners != null) {
+            for (Consumer<byte[]> listener : topicListeners) {
+                try {
+                    listener.accept(payload);
+                } catch (RuntimeException e) {
+                    // One listener failing must not stop delivery to the others
+                    Log.sendSocketError("BUS", "Listener of " + topic + " failed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reader thread. Reads the current connection until it is lost, then reconnects, until closed
+     */
+    private void run() {
+        Connection current = connection;
+        while (current != null) {
+            readLoop(current);
+            current.close();
+            connection = null;
+            current = reconnect();
+        }
+    }
+
+    private void readLoop(Connection connection) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.socket.getInputStream()))) {
+            while (true) {
+                SocketBroker.Frame frame = SocketBroker.readFrame(in);
+                if (frame.op() != SocketBroker.OP_MSG) {
+                    throw new IOException("Invalid op: " + frame.op());
+                }
+                deliver(frame.topic(), frame.payload());
+            }
+        } catch (EOFException e) {
+            if (!isClosed) {
+                Log.sendSocketError("BUS", "The broker closed the connection");
+            }
+        } catch (IOException e) {
+            if (!isClosed) {
+                Log.sendSocketError("BUS", "Lost the broker: " + e);
+            }
+        }
+    }
+
+    /**
+     * Connects to the broker again and subscribes to the topics which have listeners
+     * @return the new connection, or null if this bus was closed meanwhile
+     */
+    private Connection reconnect() {
+        long waitMillis = RECONNECT_MIN_MILLIS;
+        while (!isClosed) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                // Interrupted by close
+                continue;
+            }
+
+            Connection next;
+            try {
+                next = new Connection(host, port);
+            } catch (IOException e) {
+                waitMillis = Math.min(waitMillis * 2, RECONNECT_MAX_MILLIS);
+                continue;
+            }
+
+            synchronized (subscriptionLock) {
+                if (isClosed) {
+                    next.close();
+                    return null;
+                }
+                connection = next;
+                for (String topic : listeners.keySet()) {
+                    send(SocketBroker.OP_SUB, topic, new byte[0]);
+                }
+            }
+            Log.sendSocketGeneral("BUS", "Reconnected to the broker");
+            return next;
+        }
+        return null;
+    }
+
+    @Override
+    public void publish(@NotNull String topic, byte @NotNull [] payload) {
+        deliver(topic, payload);
+        send(SocketBroker.OP_PUB, topic, payload);
+    }
+
+    @Override
+    @NotNull
+    public Subscription subscribe(@NotNull String topic, @NotNull Consumer<byte[]> listener) {
+        Consumer<byte[]> entry = listener::accept;
+        synchronized (subscriptionLock) {
+            listeners.compute(topic, (t, topicListeners) -> {
+                Set<Consumer<byte[]>> out = topicListeners;
+                if (out == null) {
+                    out = new CopyOnWriteArraySet<>();
+                    send(SocketBroker.OP_SUB, topic, new byte[0]);
+                }
+                out.add(entry);
+                return out;
+            });
+        }
+
+        return () -> {
+            synchronized (subscriptionLock) {
+                listeners.computeIfPresent(topic, (t, topicListeners) -> {
+                    if (topicListeners.remove(entry) && topicListeners.isEmpty()) {
+                        send(SocketBroker.OP_UNSUB, topic, new byte[0]);
+                        return null;
+                    }
+                    return topicListeners;
+                });
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        synchronized (subscriptionLock) {
+            isClosed = true;
+            listeners.clear();
+        }
+        Connection connection = this.connection;
+        if (connection != null) {
+            connection.close();
+        }
+        reader.interrupt();
+    }
+}
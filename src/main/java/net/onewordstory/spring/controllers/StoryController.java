@@ -10,17 +10,26 @@ import net.onewordstory.core.adapters.view_models.*;
 import org.example.ANSI;
 import org.example.Log;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 import net.onewordstory.core.usecases.Response;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Controller
 public class StoryController {
 
+    /**
+     * Longest time a request waits for a use case to respond, after which it fails
+     */
+    static final long USE_CASE_TIMEOUT_SECONDS = 10;
+
     private final GmlsController gmlsController;
     private final GlsController glsController;
     private final UtController utController;
@@ -52,6 +61,22 @@ public class StoryController {
         this.stController = stController;
     }
 
+    /**
+     * Waits for a use case's response, failing the request if the use case doesn't respond in
+     * time, rather than holding the request thread forever
+     * @param awaitable response awaitable of the use case's view model
+     * @return the response
+     * @throws ResponseStatusException with SERVICE_UNAVAILABLE if the use case timed out
+     */
+    private static Response awaitResponse(Awaitable<Response> awaitable) throws InterruptedException {
+        try {
+            return awaitable.await(USE_CASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            Log.sendMessage(ANSI.RED, "StoryController", ANSI.RED, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Request timed out", e);
+        }
+    }
+
     @GetMapping("/")
     public String index(Model model,
                         @RequestParam(name="get", defaultValue="latest") String storiesToGet )
@@ -70,7 +95,7 @@ public class StoryController {
             viewM = glsController.getLatestStories(100);
         }
 
-        res = viewM.getResponseAwaitable().await();
+        res = awaitResponse(viewM.getResponseAwaitable());
         stories = viewM.getStoriesAwaitable().get();
 
         // TODO: Add error handling and frontend message (e.g stories failed to load) if res is a fail code
@@ -92,9 +117,9 @@ public class StoryController {
         GatViewModel gatViewM = gatController.getAllTitles(id);
         GscViewModel gscViewM = gscController.getStoryComments(id);
 
-        Response gatRes = gatViewM.getResponseAwaitable().await();
-        Response gsbiRes = gsbiViewM.getResponseAwaitable().await();
-        Response gscRes = gscViewM.getResponseAwaitable().await();
+        Response gatRes = awaitResponse(gatViewM.getResponseAwaitable());
+        Response gsbiRes = awaitResponse(gsbiViewM.getResponseAwaitable());
+        Response gscRes = awaitResponse(gscViewM.getResponseAwaitable());
 
         List<StoryDisplayData> stories = gsbiViewM.getStoriesAwaitable().get();
         List<SuggestedTitleDisplayData> titles = gatViewM.getSuggestedTitlesAwaitable().get();
@@ -150,7 +175,7 @@ public class StoryController {
 
         CagViewModel viewM = cagController.commentAsGuest(comment.displayName(), comment.content(), id);
 
-        Response res = viewM.getResponseAwaitable().await();
+        Response res = awaitResponse(viewM.getResponseAwaitable());
 
         boolean isfail = res.getCode() != Response.ResCode.SUCCESS;
 
@@ -174,7 +199,7 @@ public class StoryController {
 
         StViewModel viewM = stController.suggestTitle(id, titleData.title());
 
-        Response res = viewM.getResponseAwaitable().await();
+        Response res = awaitResponse(viewM.getResponseAwaitable());
 
         boolean isfailTitle = res.getCode() != Response.ResCode.SUCCESS;
 
@@ -194,7 +219,7 @@ public class StoryController {
 
         UtViewModel utViewM = utController.upvoteTitle(Integer.parseInt(storyId), title);
 
-        utViewM.getResponseAwaitable().await();
+        awaitResponse(utViewM.getResponseAwaitable());
 
         // We will ignore the response. If upvoting fails, we won't display anything
 
@@ -212,7 +237,7 @@ public class StoryController {
 
         LsViewModel viewM = lsController.likeStory(id);
 
-        viewM.getResponseAwaitable().await();
+        awaitResponse(viewM.getResponseAwaitable());
 
         return "redirect:/story-" + id;
     }
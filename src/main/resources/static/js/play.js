@@ -47,10 +47,36 @@ const SEPARATOR = String.fromCharCode(30);
 
 const CMD_TRY_JOIN = "JPL";
 const CMD_SEND_WORD = "SW";
+const CMD_RESYNC = "RESYNC";
+const CMD_CLOCK = "CLOCK";
 
 const RESPONSE_JOIN = "JPL:out:in_pool";
 const RESPONSE_SUBMIT_WORD = "SW:out";
 const RESPONSE_STATE = "current_state";
+const RESPONSE_DELTA = "game_delta";
+const RESPONSE_CLOCK = "clock";
+const RESPONSE_SESSION = "session";
+
+// Reconnects tried after losing the connection, which fit in the server's grace period
+const RESUME_ATTEMPTS = 8;
+const RESUME_INTERVAL_MS = 2000;
+
+// Binary protocol, see BinaryProtocol.java. Game states are sent as binary frames, other
+// responses stay text
+const BINARY_SUBPROTOCOL = "ows.bin.v1";
+const BIN_TYPE_STATE = 1;
+const BIN_TYPE_DELTA = 2;
+const BIN_CMD = {[CMD_TRY_JOIN]: 1, [CMD_SEND_WORD]: 2, [CMD_RESYNC]: 3, [CMD_CLOCK]: 4};
+const BIN_STATE_INITIAL = 1;
+const BIN_DELTA_STORY = 1;
+const BIN_DELTA_ORDER = 1 << 1;
+const BIN_DELTA_ADDED = 1 << 2;
+const BIN_DELTA_REMOVED = 1 << 3;
+const BIN_DELTA_TURN = 1 << 4;
+const BIN_DELTA_DEADLINE = 1 << 5;
+const BIN_DELTA_SECONDS_LEFT = 1 << 6;
+
+const CLOCK_SAMPLES = 3;
 const RESPONSE_GAME_ENDED = "PGE:out";
 
 /**
@@ -67,6 +93,11 @@ async function socketLogic () {
         hasGameStarted = true;
         switchToGame()
 
+        // Count the turn down locally, the server only sends the deadline
+        setInterval(() => {
+            document.getElementById("seconds-left").innerHTML = GameAPI.secondsLeftInTurn();
+        }, 200);
+
         // Update game state each time new state is received
         GameAPI.onStateUpdate((updatedGameState) => {
             updateGameState(updatedGameState, playerID);
@@ -84,6 +115,9 @@ async function socketLogic () {
         })
     })
 
+    // Learn the server clock, to count down to turn deadlines
+    await GameAPI.syncClock();
+
     // Call JPL
     const joinResult = await GameAPI.joinPublicLobby(document.getElementById("name").value);
     nicelog("Socket Logic", "Join result: " + joinResult);
@@ -121,18 +155,42 @@ function createAPI (url) {
              */
             messageHandlers: {},
 
+            /**
+             * Token to resume this client's player with after losing the connection,
+             * null until the server sends it
+             */
+            resumeToken: null,
+
+            /**
+             * Reconnects tried since the connection was lost
+             */
+            resumeAttempts: 0,
+
             /**
              * Initialize websocket object and define its event callbacks
              * @param url socket url
+             * @param resumeToken token of the player to resume, if reconnecting
              */
-            init: function(url) {
-                this.wsHandle = new WebSocket(url);
+            init: function(url, resumeToken) {
+                this.url = url;
+                this.wsHandle = new WebSocket(resumeToken ? url + "?resume=" + encodeURIComponent(resumeToken) : url,
+                    [BINARY_SUBPROTOCOL]);
+                this.wsHandle.binaryType = "arraybuffer";
 
                 this.wsHandle.onmessage = (data) => {
+                    // Binary frames are decoded into the same elements as their text equivalent
+                    const msg = data.data instanceof ArrayBuffer ? {data: this.decodeBinary(data.data)} : data;
+
+                    const decoded = this.decode(msg.data);
+                    if (decoded[0] === RESPONSE_SESSION) {
+                        this.onSession(decoded);
+                        return;
+                    }
+
                     // Call all message handlers with message
                     (Object.values(this.messageHandlers) || [])
                         .filter(x => typeof x == 'function')
-                        .forEach(x => x(data));
+                        .forEach(x => x(msg));
                 };
 
                 this.wsHandle.onopen = () => {
@@ -143,6 +201,14 @@ function createAPI (url) {
 
                 this.wsHandle.onclose = () => {
                     nicelog("Socket", "Connection Closed");
+                    this.isConnected = false;
+
+                    // The server holds this player's seat for a while, so try to get it back
+                    if (this.resumeToken && this.resumeAttempts < RESUME_ATTEMPTS) {
+                        this.resumeAttempts++;
+                        setTimeout(() => this.init(this.url, this.resumeToken), RESUME_INTERVAL_MS);
+                        return;
+                    }
 
                     // Makes popup on the spot with a reload. This is so that
                     // when the server shuts down, you can read the popup an not just
@@ -159,16 +225,150 @@ function createAPI (url) {
                 };
             },
 
+            /**
+             * Keeps the resume token the server sent. If this connection was meant to resume
+             * the player but the server no longer held them, gives up
+             * @param decoded elements of the session response
+             */
+            onSession: function(decoded) {
+                if (this.resumeToken && decoded[2] !== "true") {
+                    nicelog("Socket", "Could not resume");
+                    this.resumeToken = null;
+                    this.wsHandle.close();
+                    return;
+                }
+
+                if (this.resumeToken) {
+                    nicelog("Socket", "Resumed");
+                }
+                this.resumeToken = decoded[1];
+                this.resumeAttempts = 0;
+            },
+
+            /**
+             * Player ID of this client, to recognize itself in binary game states
+             */
+            selfId: null,
+
+            /**
+             * Handle of this client in its game, 0 until a binary game state tells it
+             */
+            selfHandle: 0,
+
+            /**
+             * @returns {boolean} if the server accepted the binary protocol
+             */
+            isBinary: function() {
+                return this.wsHandle.protocol === BINARY_SUBPROTOCOL;
+            },
+
             /**
              * takes in elements of a desired message and joins them with
-             * agreed separator
+             * agreed separator, or encodes them as a binary command
+             */
+            encode: function(...elements) {
+                if (!this.isBinary()) {
+                    return (elements || []).join(SEPARATOR);
+                }
+
+                // Command byte, then each argument as a varint length and UTF-8 bytes
+                const bytes = [BIN_CMD[elements[0]]];
+                elements.slice(1).forEach(e => {
+                    const utf8 = new TextEncoder().encode(String(e));
+                    let n = utf8.length;
+                    while (n >= 0x80) {
+                        bytes.push((n & 0x7F) | 0x80);
+                        n >>>= 7;
+                    }
+                    bytes.push(n);
+                    utf8.forEach(b => bytes.push(b));
+                });
+                return new Uint8Array(bytes).buffer;
+            },
+            /**
+             * @param data Raw string payload from websocket, or elements already decoded from a binary frame
+             * @returns {Array} Individual message elements split by separator
+             */
+            decode: data => Array.isArray(data) ? data : (data || "").split(SEPARATOR),
+
+            /**
+             * @param element message element holding JSON, or an object decoded from a binary frame
+             * @returns {Object} the decoded object
              */
-            encode: (...elements) => (elements || []).join(SEPARATOR),
+            parse: element => typeof element === "string" ? JSON.parse(element) : element,
+
             /**
-             * @param data Raw string payload from websocket
-             * @returns {string[]} Individual message elements split by separator
+             * Decodes a binary game state into the elements of its text equivalent, with the
+             * players' handles in place of their IDs, except for this client's own
+             * @param buffer {ArrayBuffer} binary frame
+             * @returns {Array} decoded message elements
              */
-            decode: data => (data || "").split(SEPARATOR),
+            decodeBinary: function(buffer) {
+                const bytes = new Uint8Array(buffer);
+                let pos = 0;
+                const readVarint = () => {
+                    let out = 0, mul = 1, b;
+                    do {
+                        b = bytes[pos++];
+                        out += (b & 0x7F) * mul;
+                        mul *= 128;
+                    } while (b & 0x80);
+                    return out;
+                };
+                const readString = () => {
+                    const length = readVarint();
+                    const out = new TextDecoder().decode(bytes.subarray(pos, pos + length));
+                    pos += length;
+                    return out;
+                };
+                const idOf = handle => handle !== 0 && handle === this.selfHandle ? this.selfId : "#" + handle;
+                const readHandles = () => Array.from({length: readVarint()}, () => idOf(readVarint()));
+
+                const type = bytes[pos++];
+                if (type === BIN_TYPE_STATE) {
+                    const flags = bytes[pos++];
+                    const gameId = readVarint();
+                    const seq = readVarint();
+                    const selfHandle = readVarint();
+                    if (selfHandle !== 0) {
+                        this.selfHandle = selfHandle;
+                    }
+                    const storyString = readString();
+                    const players = Array.from({length: readVarint()}, () => ({
+                        id: idOf(readVarint()),
+                        displayName: readString()
+                    }));
+                    const turn = idOf(readVarint());
+                    players.forEach(p => p.isCurrentTurnPlayer = p.id === turn);
+                    const state = {
+                        gameId: gameId,
+                        players: players,
+                        currentPlayerTurn: players.find(p => p.isCurrentTurnPlayer),
+                        storyString: storyString,
+                        turnDeadlineMillis: readVarint(),
+                        secondsLeftInTurn: readVarint()
+                    };
+                    return [RESPONSE_STATE, state, String((flags & BIN_STATE_INITIAL) !== 0), String(seq)];
+                }
+
+                if (type === BIN_TYPE_DELTA) {
+                    const delta = {gameId: readVarint(), seq: readVarint()};
+                    const mask = readVarint();
+                    if (mask & BIN_DELTA_STORY) delta.story = readString();
+                    if (mask & BIN_DELTA_ORDER) delta.order = readHandles();
+                    if (mask & BIN_DELTA_ADDED) delta.added = Array.from({length: readVarint()}, () => ({
+                        id: idOf(readVarint()),
+                        displayName: readString()
+                    }));
+                    if (mask & BIN_DELTA_REMOVED) delta.removed = readHandles();
+                    if (mask & BIN_DELTA_TURN) delta.turn = idOf(readVarint());
+                    if (mask & BIN_DELTA_DEADLINE) delta.turnDeadlineMillis = readVarint();
+                    if (mask & BIN_DELTA_SECONDS_LEFT) delta.secondsLeftInTurn = readVarint();
+                    return [RESPONSE_DELTA, delta];
+                }
+
+                return [];
+            },
 
             /**
              * Send a raw payload to the server.
@@ -183,6 +383,126 @@ function createAPI (url) {
             }
         },
 
+        /**
+         * Last game state received, which deltas are applied on top of
+         */
+        _game: {
+            state: null,
+            seq: -1,
+            isResyncing: false, // Has a resync been requested which the server hasn't answered yet
+
+            /**
+             * Store a full game state received from the server
+             * @param state decoded GameDisplayData object
+             * @param seq sequence number of the state
+             */
+            setFull: function(state, seq) {
+                this.state = state;
+                this.seq = seq;
+                this.isResyncing = false;
+            },
+
+            /**
+             * Apply a delta received from the server on top of the stored state
+             * @param delta decoded delta object
+             * @returns {boolean} false if the delta doesn't follow the stored state, so a resync is needed
+             */
+            applyDelta: function(delta) {
+                if (this.state === null || delta.seq !== this.seq + 1) {
+                    return false;
+                }
+
+                const byId = {};
+                this.state.players.forEach(p => byId[p.id] = p);
+                (delta.added || []).forEach(p => byId[p.id] = p);
+                (delta.removed || []).forEach(id => delete byId[id]);
+
+                const turn = delta.turn || this.state.currentPlayerTurn.id;
+                const order = delta.order || this.state.players.map(p => p.id);
+                const players = order.filter(id => !!byId[id]).map(id => ({
+                    id: id,
+                    displayName: byId[id].displayName,
+                    isCurrentTurnPlayer: id === turn
+                }));
+
+                this.state = {
+                    ...this.state,
+                    players: players,
+                    currentPlayerTurn: players.find(p => p.isCurrentTurnPlayer) || this.state.currentPlayerTurn,
+                    storyString: this.state.storyString + (delta.story || ""),
+                    secondsLeftInTurn: delta.secondsLeftInTurn !== undefined ?
+                        delta.secondsLeftInTurn : this.state.secondsLeftInTurn,
+                    turnDeadlineMillis: delta.turnDeadlineMillis !== undefined ?
+                        delta.turnDeadlineMillis : this.state.turnDeadlineMillis
+                };
+                this.seq = delta.seq;
+                return true;
+            }
+        },
+
+        /**
+         * Offset of the server clock from performance.now(), null until syncClock resolves
+         */
+        _clockOffset: null,
+
+        /**
+         * Estimates the offset of the server clock from this client's clock. Takes a few
+         * samples and keeps the one with the shortest round trip, assuming the server's
+         * reply took half of it
+         * @returns {Promise<number>} the offset in milliseconds
+         */
+        syncClock: async function() {
+            let bestRoundTrip = Infinity;
+
+            for (let i = 0; i < CLOCK_SAMPLES; i++) {
+                const sample = await new Promise((resolve, reject) => {
+                    const waiterGuid = uuidv4();
+                    const sentAt = performance.now();
+
+                    // Server response handler
+                    this._ws.messageHandlers[waiterGuid] = (servRes) => {
+                        const decoded = this._ws.decode(servRes.data);
+
+                        if (decoded[0] === RESPONSE_CLOCK && Number(decoded[1]) === sentAt) {
+                            delete this._ws.messageHandlers[waiterGuid];
+                            const receivedAt = performance.now();
+                            resolve({
+                                roundTrip: receivedAt - sentAt,
+                                offset: Number(decoded[2]) + (receivedAt - sentAt) / 2 - receivedAt
+                            });
+                        }
+                    }
+
+                    this._ws.send(this._ws.encode(CMD_CLOCK, sentAt));
+                });
+
+                if (sample.roundTrip < bestRoundTrip) {
+                    bestRoundTrip = sample.roundTrip;
+                    this._clockOffset = sample.offset;
+                }
+            }
+
+            nicelog("Socket: syncClock", "Offset: " + this._clockOffset + "ms, round trip: " + bestRoundTrip + "ms")
+            return this._clockOffset;
+        },
+
+        /**
+         * @returns {number} seconds left in the current turn, counted down locally to the turn
+         * deadline, or as last sent by the server if the clock has not been synced
+         */
+        secondsLeftInTurn: function() {
+            const state = this._game.state;
+            if (state === null) {
+                return 0;
+            }
+            if (this._clockOffset === null || !state.turnDeadlineMillis) {
+                return state.secondsLeftInTurn;
+            }
+
+            const millisLeft = state.turnDeadlineMillis - this._clockOffset - performance.now();
+            return Math.max(0, Math.ceil(millisLeft / 1000));
+        },
+
         /**
          * Ensures that websocket is open before calling callback
          * To safely use the socket, call this method and include all
@@ -232,6 +552,7 @@ function createAPI (url) {
 
                         delete this._ws.messageHandlers[waiterGuid];
                         nicelog("Socket: joinPublicLobby", "Serv Res: " + decoded[1])
+                        this._ws.selfId = decoded[2];
                         resolve({plyID: decoded[2], res: JSON.parse(decoded[1])});
                     }
                 }
@@ -285,7 +606,8 @@ function createAPI (url) {
                     nicelog("onJoinedGame", "Initial game data received!")
                     delete this._ws.messageHandlers[waiterGuid]
 
-                    callback(JSON.parse(decoded[1]))
+                    this._game.setFull(this._ws.parse(decoded[1]), Number(decoded[3]));
+                    callback(this._game.state)
                 }
             }
         },
@@ -293,6 +615,9 @@ function createAPI (url) {
         /**
          * Callback called with updated game data. It is a good idea to wait for
          * onJoinGame first and then subscribe a callback to this.
+         * <br><br>
+         * The server sends either a full state or a delta to apply on top of the last
+         * state. If a delta is missed, a resync is requested to get the full state again
          * @param callback {Function<Object>} takes in decoded GameDisplayData object
          */
         onStateUpdate: function(callback) {
@@ -302,12 +627,28 @@ function createAPI (url) {
             this._ws.messageHandlers[waiterGuid] = (servRes) => {
                 const decoded = this._ws.decode(servRes.data);
 
-                // decoded[2] = isInitialJPLState, which is only true if player added to game
+                // decoded[3] = sequence number of the state
                 if (decoded[0] === RESPONSE_STATE && decoded[1] !== "null") {
                     nicelog("onStateUpdate", "Game state update received!")
                     console.log(decoded[1])
 
-                    callback(JSON.parse(decoded[1]))
+                    this._game.setFull(this._ws.parse(decoded[1]), Number(decoded[3]));
+                    callback(this._game.state)
+                }
+
+                else if (decoded[0] === RESPONSE_DELTA) {
+                    const delta = this._ws.parse(decoded[1]);
+
+                    if (this._game.applyDelta(delta)) {
+                        callback(this._game.state)
+                    }
+
+                    // Missed a delta; ask for the full state once, ignoring deltas until it arrives
+                    else if (delta.seq > this._game.seq && !this._game.isResyncing) {
+                        nicelog("onStateUpdate", "Missed game state " + (this._game.seq + 1) + ", resyncing")
+                        this._game.isResyncing = true;
+                        this._ws.send(this._ws.encode(CMD_RESYNC));
+                    }
                 }
             }
         },
@@ -375,7 +716,7 @@ function updateGameState(updatedGameState, playerID) {
     document.getElementById("story").innerHTML = updatedGameState.storyString
 
     // POPULATE TIME
-    document.getElementById("seconds-left").innerHTML = updatedGameState.secondsLeftInTurn
+    document.getElementById("seconds-left").innerHTML = GameAPI.secondsLeftInTurn()
 
     // Focus textbox
     if (
@@ -19,6 +19,7 @@ import net.onewordstory.core.usecases.disconnecting.*;
 import net.onewordstory.core.usecases.join_public_lobby.*;
 import net.onewordstory.core.usecases.pull_data.PdInputBoundary;
 import net.onewordstory.core.usecases.pull_game_ended.*;
+import net.onewordstory.core.usecases.run_game.GameTickScheduler;
 import net.onewordstory.core.usecases.run_game.RgInteractor;
 import net.onewordstory.core.usecases.sort_players.SpInteractor;
 import net.onewordstory.core.usecases.submit_word.*;
@@ -293,8 +294,12 @@ public class ThreadLockTests {
 
         PgeInputBoundary pgeInputBoundary = data -> {};
         PdInputBoundary pdInputBoundary = d -> {};
-        SpInteractor spinny = new SpInteractor(lobman, pgeInputBoundary, pdInputBoundary);
-        SpInteractor.SpTask spTimerTask = spinny.new SpTask();
+        SpInteractor spinny = new SpInteractor(lobman, pgeInputBoundary, pdInputBoundary, new GameTickScheduler(1));
+        SpInteractor.SpTask spTask = spinny.new SpTask();
+        TimerTask spTimerTask = new TimerTask() {
+            @Override
+            public void run() { spTask.run(); }
+        };
         Timer timer = new Timer();
 
         int newint = new Random().nextInt(4);
@@ -350,10 +355,7 @@ public class ThreadLockTests {
         if (lobman.getPlayersFromPool().contains(ghost)) {
             System.out.println("Enter Scenario 1.");
             // In this case, Scenario 1 is possible.
-            System.out.println("Test wants to lock Game.");
-            lobman.getGameLock().lock();
-            System.out.println("Test locked Game!");
-            assertTrue(lobman.isGameNull(),"A game shouldn't have started i.e. should be null.");
+            assertEquals(0, lobman.getGameCount(),"A game shouldn't have started i.e. should be null.");
             assertFalse(lobman.getPlayersFromPool().contains(player1),"The pool shouldn't have Player 1.");
             System.out.println("Scenario 1 happened: Player 2 remains in the pool, Player 1 disconnected, no game exists.");
 
@@ -372,14 +374,8 @@ public class ThreadLockTests {
             }
 
             while (true) { // If this never happens, test timeout will make the test crash.
-                lobman.getGameLock().lock();
-                boolean nullbool = lobman.isGameNull();
-                lobman.getGameLock().unlock();
-                if (nullbool) {break;}
-            }
-            System.out.println("Test wants to lock Game.");
-            lobman.getGameLock().lock();
-            System.out.println("Test locked Game!");
+                if (lobman.getGameCount() == 0) {break;}
+            }
             System.out.println("Test wants to lock PlayerPool.");
             lobman.getPlayerPoolLock().lock();
             System.out.println("Test locked PlayerPool!"); // LOCKS BEFORE ASSERTIONS
@@ -393,7 +389,6 @@ public class ThreadLockTests {
 
         System.out.println("Unlock Everything.");
         lobman.getPlayerPoolLock().unlock();
-        lobman.getGameLock().unlock();
         lobman.getSortPlayersTimer().cancel();
         spTimerTask.cancel();
     }
@@ -427,11 +422,12 @@ public class ThreadLockTests {
         players.add(player3);
 
         Game currGame = gameFac.createGame(new HashMap<>(), players);
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
+        Lock gameLock = lobman.getGameLock(currGame.getGameId());
 
-        assertTrue(lobman.getGameReadOnly().getPlayers().contains(player1), "Player 1 is not in the Game");
-        assertTrue(lobman.getGameReadOnly().getPlayers().contains(player2), "Player 2 is not in the Game");
-        assertTrue(lobman.getGameReadOnly().getPlayers().contains(player3), "Player 3 is not in the Game");
+        assertTrue(lobman.getGameReadOnly(currGame.getGameId()).getPlayers().contains(player1), "Player 1 is not in the Game");
+        assertTrue(lobman.getGameReadOnly(currGame.getGameId()).getPlayers().contains(player2), "Player 2 is not in the Game");
+        assertTrue(lobman.getGameReadOnly(currGame.getGameId()).getPlayers().contains(player3), "Player 3 is not in the Game");
 
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
         assertTrue(currGame.getPlayers().contains(player2), "Player 2 is not in the Game");
@@ -489,7 +485,8 @@ public class ThreadLockTests {
 
         PgeInputBoundary pgeInputBoundary = data -> {};
         PdInputBoundary pdInputBoundary = d -> {};
-        RgInteractor rgInteractor = new RgInteractor(currGame, pgeInputBoundary, pdInputBoundary, lobman.getGameLock());
+        RgInteractor rgInteractor = new RgInteractor(currGame, pgeInputBoundary, pdInputBoundary,
+                lobman.getGameLoop(currGame.getGameId()));
         RgInteractor.RgTask rgTimerTask = rgInteractor.new RgTask();
         Timer timer = new Timer();
 
@@ -525,7 +522,7 @@ public class ThreadLockTests {
 
         System.out.println("Test right now locking both...");
         lobman.getPlayerPoolLock().lock();
-        lobman.getGameLock().lock();
+        gameLock.lock();
         System.out.println("Test has locked both!");
 
         // We can distinguish between both cases if the word (bloop) is in the story or not.
@@ -543,7 +540,7 @@ public class ThreadLockTests {
 
         // Cancel threads and unlock everything.
         System.out.println("Everything is unlocked now.");
-        lobman.getGameLock().unlock();
+        gameLock.unlock();
         lobman.getPlayerPoolLock().unlock();
         rgTimerTask.cancel();
     }
@@ -622,8 +619,12 @@ public class ThreadLockTests {
 
         PgeInputBoundary pgeInputBoundary = data -> {};
         PdInputBoundary pdInputBoundary = d -> {};
-        SpInteractor spinny = new SpInteractor(lobman, pgeInputBoundary, pdInputBoundary);
-        SpInteractor.SpTask spTimerTask = spinny.new SpTask();
+        SpInteractor spinny = new SpInteractor(lobman, pgeInputBoundary, pdInputBoundary, new GameTickScheduler(1));
+        SpInteractor.SpTask spTask = spinny.new SpTask();
+        TimerTask spTimerTask = new TimerTask() {
+            @Override
+            public void run() { spTask.run(); }
+        };
         Timer timer = new Timer();
 
         int newint = new Random().nextInt(4);
@@ -742,11 +743,12 @@ public class ThreadLockTests {
         players.add(player1);
 
         Game currGame = gameFac.createGame(new HashMap<>(), players);
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
+        Lock gameLock = lobman.getGameLock(currGame.getGameId());
 
         assertEquals(0, lobman.getPlayersFromPool().size(),
                 "No one should be in the pool, but someone is.");
-        assertTrue(lobman.getGameReadOnly().getPlayers().contains(player1), "Player 1 is not in the Game");
+        assertTrue(lobman.getGameReadOnly(currGame.getGameId()).getPlayers().contains(player1), "Player 1 is not in the Game");
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
         assertEquals(player1, currGame.getCurrentTurnPlayer(), "It should be Player 1's turn, but it isn't.");
 
@@ -771,13 +773,18 @@ public class ThreadLockTests {
         };
         PgeInteractor pgeInteractor = new PgeInteractor(pgePres, pgeGatewayStory, new StorySaveCheckerByLength());
         PdInputBoundary pdInputBoundary = d -> {};
-        RgInteractor rgInteractor = new RgInteractor(currGame, pgeInteractor, pdInputBoundary, lobman.getGameLock());
+        RgInteractor rgInteractor = new RgInteractor(currGame, pgeInteractor, pdInputBoundary,
+                lobman.getGameLoop(currGame.getGameId()));
         RgInteractor.RgTask rgTimerTask = rgInteractor.new RgTask();
         Timer rgTimer = new Timer();
 
         // SP:
-        SpInteractor spinny = new SpInteractor(lobman, pgeInteractor, pdInputBoundary);
-        SpInteractor.SpTask spTimerTask = spinny.new SpTask();
+        SpInteractor spinny = new SpInteractor(lobman, pgeInteractor, pdInputBoundary, new GameTickScheduler(1));
+        SpInteractor.SpTask spTask = spinny.new SpTask();
+        TimerTask spTimerTask = new TimerTask() {
+            @Override
+            public void run() { spTask.run(); }
+        };
         Timer spTimer = new Timer();
 
         // DC:
@@ -803,33 +810,33 @@ public class ThreadLockTests {
         System.out.println("Case number: " + newint);
         switch (newint) {
             case 0 -> { // RG, DC, SP
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
                 dcInteractor.disconnect(dcInputData, dcPres);
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
             }
             case 1 -> { // RG, SP, DC
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
                 dcInteractor.disconnect(dcInputData, dcPres);
             }
             case 2 -> { // SP, RG, DC
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
                 dcInteractor.disconnect(dcInputData, dcPres);
             }
             case 3 -> { // SP, DC, RG
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
                 dcInteractor.disconnect(dcInputData, dcPres);
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
             }
             case 4 -> { // DC, SP, RG
                 dcInteractor.disconnect(dcInputData, dcPres);
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
             }
             case 5 -> { // DC, RG, SP
                 dcInteractor.disconnect(dcInputData, dcPres);
-                currGame.getGameTimer().scheduleAtFixedRate(rgTimerTask, 0, 50);
+                rgTimer.scheduleAtFixedRate(rgTimerTask, 0, 50);
                 spTimer.scheduleAtFixedRate(spTimerTask, 0, 50);
             }
         }
@@ -866,7 +873,7 @@ public class ThreadLockTests {
         System.out.println("Test has locked PlayerPool!");
 
         System.out.println("Test right now locking Game..");
-        lobman.getGameLock().lock();
+        gameLock.lock();
         System.out.println("Test has locked Game!");
 
         // We can switch between either scenarios 1&2, or scenario 3, based on if RG detected a player to "disconnect".
@@ -895,7 +902,7 @@ public class ThreadLockTests {
                 assertTrue(currGame.getPlayers().contains(player1),
                         "Player 1 should still be in the game, but it isn't.");
                 // Check that the game was already set to null:
-                assertTrue(lobman.isGameNull() || lobman.isGameEnded(),
+                assertTrue(!lobman.containsGame(currGame.getGameId()) || lobman.isGameEnded(currGame.getGameId()),
                         "The game should already have been set to null or ended, but it isn't yet.");
             }
             else if (messageDc.get().equals("SUCCESS")){
@@ -909,11 +916,15 @@ public class ThreadLockTests {
         // In any case, SP should end up setting the game to null.
         // We can let SP do that by starting up a new TimerTask/Timer.
 
-        SpInteractor.SpTask spTimerTaskNew = spinny.new SpTask();
+        SpInteractor.SpTask spTaskNew = spinny.new SpTask();
+        TimerTask spTimerTaskNew = new TimerTask() {
+            @Override
+            public void run() { spTaskNew.run(); }
+        };
         Timer spTimerNew = new Timer();
 
         // Unlock Game and PlayerPool:
-        lobman.getGameLock().unlock();
+        gameLock.unlock();
         System.out.println("Test has unlocked Game!");
         lobman.getPlayerPoolLock().unlock();
         System.out.println("Test has unlocked PlayerPool!");
@@ -922,14 +933,14 @@ public class ThreadLockTests {
         spTimerNew.scheduleAtFixedRate(spTimerTaskNew, 0, 100);
         while (true) { // If this never happens, test timeout will make the test crash, so this functions as an assert.
             System.out.println("Inside null while loop.");
-            lobman.getGameLock().lock();
-            boolean nullbool = lobman.isGameNull();
-            lobman.getGameLock().unlock();
+            gameLock.lock();
+            boolean nullbool = !lobman.containsGame(currGame.getGameId());
+            gameLock.unlock();
             if (nullbool) {break;}
         }
         spTimerNew.cancel(); // And cancel.
         // Actually, sanity assert this just in case.
-        assertTrue(lobman.isGameNull(), "Why did it break out of the while loop, but the game is still not null?");
+        assertTrue(!lobman.containsGame(currGame.getGameId()), "Why did it break out of the while loop, but the game is still not null?");
         System.out.println("Test has ended.");
     }
 }
@@ -0,0 +1,85 @@
+package net.onewordstory.core.adapters.view_models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AwaitableTests {
+
+    /**
+     * A bounded wait fails once its timeout passes, and returns the content once it is set
+     */
+    @Test
+    @Timeout(5)
+    public void testBoundedAwait() throws InterruptedException, TimeoutException {
+        Awaitable<String> awaitable = new Awaitable<>();
+
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> awaitable.await(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        Thread setter = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {}
+            awaitable.set("content");
+        });
+        setter.start();
+
+        assertEquals("content", awaitable.await(4, TimeUnit.SECONDS));
+        assertEquals("content", awaitable.await(0, TimeUnit.SECONDS), "A set awaitable never times out.");
+        setter.join();
+    }
+
+    /**
+     * The completion stage view completes once the content is set, or at once if it already is
+     */
+    @Test
+    @Timeout(5)
+    public void testCompletionStage() throws Exception {
+        Awaitable<String> awaitable = new Awaitable<>();
+
+        CompletionStage<Integer> length = awaitable.toCompletionStage().thenApply(String::length);
+        assertFalse(length.toCompletableFuture().isDone());
+
+        awaitable.set("content");
+        assertEquals(7, length.toCompletableFuture().get());
+        assertEquals("content", awaitable.toCompletionStage().toCompletableFuture().getNow(null));
+
+        AtomicReference<String> seen = new AtomicReference<>();
+        awaitable.onSet(seen::set);
+        assertEquals("content", seen.get());
+    }
+
+    /**
+     * Readers which don't take the lock all see the content once it is set
+     */
+    @Test
+    @Timeout(5)
+    public void testReadersSeeContent() throws InterruptedException {
+        Awaitable<String> awaitable = new Awaitable<>();
+        int readers = 8;
+        CountDownLatch seen = new CountDownLatch(readers);
+
+        for (int i = 0; i < readers; i++) {
+            new Thread(() -> {
+                while (!awaitable.isSet()) {
+                    Thread.onSpinWait();
+                }
+                if ("content".equals(awaitable.get())) {
+                    seen.countDown();
+                }
+            }).start();
+        }
+
+        awaitable.set("content");
+        assertTrue(seen.await(4, TimeUnit.SECONDS));
+    }
+}
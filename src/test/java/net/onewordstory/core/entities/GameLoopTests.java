@@ -0,0 +1,223 @@
+package net.onewordstory.core.entities;
+
+import net.onewordstory.core.exceptions.OutOfTurnException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameLoopTests {
+
+    /**
+     * Commands submitted from many threads run one at a time, each thread's in the order it
+     * submitted them
+     */
+    @Test
+    @Timeout(10)
+    public void testCommandsRunInOrder() throws InterruptedException {
+        final int producers = 8;
+        final int commands = 10000;
+        GameLoop loop = new GameLoop(new ReentrantLock());
+
+        // Only written by commands, so needs no synchronization of its own
+        List<int[]> ran = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean isOverlapped = new AtomicBoolean(false);
+
+        runProducers(producers, producer -> {
+            CompletableFuture<?> last = null;
+            for (int i = 0; i < commands; i++) {
+                int seq = i;
+                last = loop.submit(() -> {
+                    if (running.incrementAndGet() != 1) {
+                        isOverlapped.set(true);
+                    }
+                    ran.add(new int[]{producer, seq});
+                    running.decrementAndGet();
+                    return null;
+                });
+            }
+            last.join();
+        });
+
+        assertFalse(isOverlapped.get(), "Two commands ran at once.");
+        assertEquals(producers * commands, loop.submit(ran::size).join());
+
+        int[] nextSeq = new int[producers];
+        for (int[] command : ran) {
+            assertEquals(nextSeq[command[0]]++, command[1], "Commands ran out of order.");
+        }
+    }
+
+    /**
+     * A command's exception fails its future, and stages depending on it run once the game
+     * lock is released
+     */
+    @Test
+    @Timeout(5)
+    public void testResultsCompletedOutsideLock() {
+        ReentrantLock lock = new ReentrantLock();
+        GameLoop loop = new GameLoop(lock);
+
+        assertTrue(loop.submit(lock::isHeldByCurrentThread).join(), "Commands run under the game lock.");
+        assertFalse(loop.submit(() -> 1).thenApply(x -> lock.isLocked()).join());
+
+        CompletableFuture<Object> failed = loop.submit(() -> {
+            throw new OutOfTurnException("Not your turn");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(OutOfTurnException.class, e.getCause());
+
+        // The loop keeps running after a failed command
+        assertEquals(2, loop.submit(() -> 2).join());
+    }
+
+    /**
+     * A thread which submits to an idle loop only runs the commands queued when it started
+     * draining. Those submitted while it drains are handed off to the executor
+     */
+    @Test
+    @Timeout(5)
+    public void testDrainBoundedToQueuedCommands() throws InterruptedException {
+        final int later = 10;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        GameLoop loop = new GameLoop(new ReentrantLock(), executor);
+        Thread submitter = Thread.currentThread();
+        CountDownLatch submitted = new CountDownLatch(1);
+        List<CompletableFuture<Thread>> laterRuns = new ArrayList<>();
+
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < later; i++) {
+                laterRuns.add(loop.submit(Thread::currentThread));
+            }
+            submitted.countDown();
+        });
+
+        // The first command keeps the loop busy until the other thread has queued its commands
+        CompletableFuture<Thread> first = loop.submit(() -> {
+            other.start();
+            submitted.await();
+            return Thread.currentThread();
+        });
+
+        assertSame(submitter, first.join());
+        other.join();
+        for (CompletableFuture<Thread> run : laterRuns) {
+            assertNotSame(submitter, run.join(), "The submitting thread ran commands queued after it started.");
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * An asynchronous submit never runs the command on the submitting thread, even when the
+     * loop is idle
+     */
+    @Test
+    @Timeout(5)
+    public void testAsyncSubmitNeverDrainsInline() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        GameLoop loop = new GameLoop(new ReentrantLock(), executor);
+
+        for (int i = 0; i < 100; i++) {
+            assertNotSame(Thread.currentThread(), loop.submitAsync(Thread::currentThread).join());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Benchmark of threads writing to one game by engaging its lock per write, as the use
+     * cases did, versus submitting the writes to the game's loop
+     */
+    @Test
+    @Timeout(60)
+    public void testThroughputAgainstLock() throws InterruptedException {
+        final int producers = 8;
+        final int commands = 50000;
+
+        ReentrantLock lock = new ReentrantLock();
+        long[] lockedCounter = new long[1];
+        long start = System.nanoTime();
+        runProducers(producers, producer -> {
+            for (int i = 0; i < commands; i++) {
+                lock.lock();
+                try {
+                    lockedCounter[0] += write();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+        long lockNanos = System.nanoTime() - start;
+
+        GameLoop loop = new GameLoop(new ReentrantLock());
+        long[] loopCounter = new long[1];
+        start = System.nanoTime();
+        runProducers(producers, producer -> {
+            CompletableFuture<?> last = null;
+            for (int i = 0; i < commands; i++) {
+                last = loop.submit(() -> loopCounter[0] += write());
+            }
+            last.join();
+        });
+        long loopNanos = System.nanoTime() - start;
+
+        assertEquals(lockedCounter[0], loop.submit(() -> loopCounter[0]).join());
+
+        long total = (long) producers * commands;
+        System.out.printf("Lock per write: %.0f writes/s%n", total * 1e9 / lockNanos);
+        System.out.printf("Game loop: %.0f writes/s%n", total * 1e9 / loopNanos);
+    }
+
+    /**
+     * A small write to the game
+     */
+    private static long write() {
+        long x = 0;
+        for (int i = 0; i < 50; i++) {
+            x += i * 31L;
+        }
+        return x;
+    }
+
+    private interface Producer {
+        void run(int producer) throws Exception;
+    }
+
+    /**
+     * Runs the producers on their own threads, all starting at once, and waits for them
+     */
+    private static void runProducers(int producers, Producer body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        AtomicBoolean isFailed = new AtomicBoolean(false);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(producer);
+                } catch (Exception e) {
+                    isFailed.set(true);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(isFailed.get());
+    }
+}
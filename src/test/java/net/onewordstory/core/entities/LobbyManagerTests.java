@@ -147,8 +147,9 @@ public class LobbyManagerTests {
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
 
-        lobman.setGame(new CustomizableTestGame(new LinkedList<>()));
-        assertTrue(lobman.isGameRunning(), "The Game should be running at this point.");
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        lobman.addGame(testGame);
+        assertTrue(lobman.isGameRunning(testGame.getGameId()), "The Game should be running at this point.");
     }
 
     /**
@@ -161,34 +162,38 @@ public class LobbyManagerTests {
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
 
-        assertFalse(lobman.isGameRunning(), "The Game should not be running at this point.");
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        assertFalse(lobman.isGameRunning(testGame.getGameId()), "The Game should not be running at this point.");
     }
 
     /**
-     * Test that isGameNull returns true when the game is null.
+     * Test that containsGame returns false when the game was never added.
      */
     @Test
     @Timeout(1)
-    public void isGameNullTrue() {
+    public void containsGameFalse() {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
 
-        assertTrue(lobman.isGameNull(), "The Game should be null at this point.");
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        assertFalse(lobman.containsGame(testGame.getGameId()), "The Game should not exist at this point.");
+        assertEquals(0, lobman.getGameCount(), "No Game should exist at this point.");
     }
 
     /**
-     * Test that isGameNull returns false when the game is not null.
+     * Test that containsGame returns true when the game was added.
      */
     @Test
     @Timeout(1)
-    public void isGameNullFalse() throws GameRunningException {
+    public void containsGameTrue() throws GameRunningException {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
 
-        lobman.setGame(new CustomizableTestGame(new LinkedList<>()));
-        assertFalse(lobman.isGameNull(), "The Game should not be null at this point.");
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        lobman.addGame(testGame);
+        assertTrue(lobman.containsGame(testGame.getGameId()), "The Game should exist at this point.");
     }
 
     /**
@@ -196,17 +201,17 @@ public class LobbyManagerTests {
      */
     @Test
     @Timeout(1)
-    public void isGameEndedTrue() throws GameRunningException {
+    public void isGameEndedTrue() throws GameRunningException, GameDoesntExistException {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // For this bit, I will not end the game via use case, but manually end it through a Game method:
         testGame.setTimerStopped();
         // This should affect directly the following:
-        assertTrue(lobman.isGameEnded(), "The Game should have ended.");
+        assertTrue(lobman.isGameEnded(testGame.getGameId()), "The Game should have ended.");
     }
 
     /**
@@ -214,13 +219,13 @@ public class LobbyManagerTests {
      */
     @Test
     @Timeout(1)
-    public void isGameEndedFalse() throws GameRunningException {
+    public void isGameEndedFalse() throws GameRunningException, GameDoesntExistException {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
-        assertFalse(lobman.isGameEnded(), "The Game should not have ended.");
+        lobman.addGame(testGame);
+        assertFalse(lobman.isGameEnded(testGame.getGameId()), "The Game should not have ended.");
     }
 
     /**
@@ -228,7 +233,8 @@ public class LobbyManagerTests {
      */
     @Test
     @Timeout(1)
-    public void switchTurn() throws IdInUseException, InvalidDisplayNameException, GameRunningException {
+    public void switchTurn() throws IdInUseException, InvalidDisplayNameException, GameRunningException,
+            GameDoesntExistException {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
@@ -254,7 +260,7 @@ public class LobbyManagerTests {
         lobman.addPlayerToPool(player2, ppl);
 
         Game currGame = lobman.newGameFromPool(new HashMap<>());
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
 
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
         assertTrue(currGame.getPlayers().contains(player2), "Player 2 is not in the Game");
@@ -263,54 +269,54 @@ public class LobbyManagerTests {
                 "It should be Player 1's turn, but it isn't.");
 
         // Here comes the bit we want to test:
-        lobman.switchTurn();
+        lobman.switchTurn(currGame.getGameId());
         assertEquals(player2, currGame.getCurrentTurnPlayer(),
                 "It should be Player 2's turn, but it isn't.");
     }
 
     /**
-     * Test that setGameNull sets a Game as null successfully.
+     * Test that removeGame removes an ended Game successfully.
      */
     @Test
     @Timeout(1)
-    public void setGameNullTrue() throws GameRunningException {
+    public void removeGameTrue() throws GameRunningException, GameDoesntExistException {
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // Here comes the bit we want to test:
         testGame.setTimerStopped(); // Makes a game null-able
-        assertTrue(lobman.isGameEnded(), "The Game should have ended.");
-        lobman.setGameNull();
+        assertTrue(lobman.isGameEnded(testGame.getGameId()), "The Game should have ended.");
+        lobman.removeGame(testGame.getGameId());
         // This should affect directly the following:
-        assertTrue(lobman.isGameNull(), "The Game should have been made null.");
+        assertFalse(lobman.containsGame(testGame.getGameId()), "The Game should have been removed.");
     }
 
     // This says it is deprecated, but we are using JUnit 4, and AssertThrows was introduced in JUnit 5
 
     /**
-     * Test that setGameNull refuses to set a Game as null when the game is running, and throws GameRunningException.
+     * Test that removeGame refuses to remove a Game when the game is running, and throws GameRunningException.
      */
     @Test
     @Timeout(1)
-    public void setGameNullFalse() {
+    public void removeGameFalse() {
 
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
         try {
-            lobman.setGame(testGame);
+            lobman.addGame(testGame);
         }
         catch (GameRunningException e) {
             fail("AYO THE EXCEPTION SHOULDN'T BE RAISED HERE!!!!");
         }
 
-        assertTrue(lobman.isGameRunning(), "The Game should be running");
+        assertTrue(lobman.isGameRunning(testGame.getGameId()), "The Game should be running");
         // Here comes the bit we want to test:
-        assertThrows(GameRunningException.class, lobman::setGameNull);
+        assertThrows(GameRunningException.class, () -> lobman.removeGame(testGame.getGameId()));
     }
 
     /**
@@ -349,10 +355,10 @@ public class LobbyManagerTests {
         lobman.addPlayerToPool(player1, ppl);
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // What we want to test:
-        lobman.removeFromPoolJoin(player1);
+        lobman.removeFromPoolJoin(player1, testGame.getGameId());
 
         // Asserts:
         assertFalse(lobman.getPlayersFromPool().contains(player1), "Player 1 should not be in the pool, but it is.");
@@ -390,7 +396,9 @@ public class LobbyManagerTests {
         // Sanity Check Assertion:
         assertTrue(lobman.getPlayersFromPool().contains(player1), "Player 1 should be in the pool, but it is not.");
         // What we want to test:
-        assertThrows(GameDoesntExistException.class, () -> lobman.removeFromPoolJoin(player1));
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        assertThrows(GameDoesntExistException.class,
+                () -> lobman.removeFromPoolJoin(player1, testGame.getGameId()));
     }
 
     /**
@@ -408,14 +416,14 @@ public class LobbyManagerTests {
         Player player1 = lobman.createNewPlayer("player1", "1");
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // Sanity Check Assertions:
         assertFalse(lobman.getPlayersFromPool().contains(player1), "Player 1 should not be in the pool, but it is.");
         assertFalse(testGame.getPlayers().contains(player1), "Player 1 should not be in the game");
         assertEquals(0, lobman.getPlayersFromPool().size(), "There shouldn't be any players in the pool, but there are.");
         // What we want to test:
-        assertThrows(PlayerNotFoundException.class, () -> lobman.removeFromPoolJoin(player1));
+        assertThrows(PlayerNotFoundException.class, () -> lobman.removeFromPoolJoin(player1, testGame.getGameId()));
     }
 
     /**
@@ -423,7 +431,8 @@ public class LobbyManagerTests {
      */
     @Test
     @Timeout(1)
-    public void removeAllFromPoolJoin() throws IdInUseException, InvalidDisplayNameException, GameRunningException {
+    public void removeAllFromPoolJoin() throws IdInUseException, InvalidDisplayNameException, GameRunningException,
+            GameDoesntExistException {
         System.out.println("onJoinGamePlayer should be called.");
         PlayerFactory playerfac = new PlayerFactory(displayName -> true);
         GameFactory gamefac = new CustomizableTestGameFactory();
@@ -456,10 +465,10 @@ public class LobbyManagerTests {
         lobman.addPlayerToPool(player2, ppl);
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // What we want to test:
-        lobman.removeAllFromPoolJoin();
+        lobman.removeAllFromPoolJoin(testGame.getGameId());
         // Assertions:
         assertEquals(0, lobman.getPlayersFromPool().size(),"No player should be in the pool, but someone still is there.");
     }
@@ -582,8 +591,8 @@ public class LobbyManagerTests {
         lobman.addPlayerToPool(player1, ppl);
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
-        lobman.addPlayerToGame(player1);
+        lobman.addGame(testGame);
+        lobman.addPlayerToGame(player1, testGame.getGameId());
 
         // What we want to test:
         lobman.addWord("bloop", "1");
@@ -637,7 +646,7 @@ public class LobbyManagerTests {
         LobbyManager lobman = new LobbyManager(playerfac, gamefac);
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         assertThrows(PlayerNotFoundException.class, () -> lobman.addWord("bloop", "player1"));
     }
@@ -656,10 +665,10 @@ public class LobbyManagerTests {
         Player player2 = lobman.createNewPlayer("player2", "2");
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
-        lobman.addPlayerToGame(player1);
-        lobman.addPlayerToGame(player2);
+        lobman.addPlayerToGame(player1, testGame.getGameId());
+        lobman.addPlayerToGame(player2, testGame.getGameId());
 
         // Sanity Check:
         assertTrue(testGame.getPlayers().contains(player1), "Player 1 should be in the game, but it isn't.");
@@ -686,10 +695,10 @@ public class LobbyManagerTests {
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>(),
                 new TestValidityCheckerFacadeFalse());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
-        lobman.addPlayerToGame(player1);
-        lobman.addPlayerToGame(player2);
+        lobman.addPlayerToGame(player1, testGame.getGameId());
+        lobman.addPlayerToGame(player2, testGame.getGameId());
 
         // The Exception we want:
         assertTrue(testGame.getPlayers().contains(player1), "Player 1 should be in the game, but it isn't.");
@@ -785,9 +794,9 @@ public class LobbyManagerTests {
         Player player1 = lobman.createNewPlayer("player1", "1");
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
-        lobman.addPlayerToGame(player1);
+        lobman.addPlayerToGame(player1, testGame.getGameId());
         // Sanity Check:
         assertTrue(testGame.getPlayers().contains(player1), "Player 1 should be in the game, but it isn't.");
 
@@ -808,10 +817,10 @@ public class LobbyManagerTests {
         Player player1 = lobman.createNewPlayer("player1", "1");
 
         CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
-        lobman.setGame(testGame);
+        lobman.addGame(testGame);
 
         // What we want to test:
-        lobman.addPlayerToGame(player1);
+        lobman.addPlayerToGame(player1, testGame.getGameId());
         // Assertion:
         assertTrue(testGame.getPlayers().contains(player1), "Player 1 should be in the game, but it isn't.");
     }
@@ -859,4 +868,234 @@ public class LobbyManagerTests {
         // Assertions:
         assertTrue(lobman.getPlayersFromPool().contains(player1), "Player 1 should be in the pool, but it isn't.");
     }
+
+    /**
+     * Test that addWord is routed to the game the player is in when several games run at once,
+     * and that the other game and its lock are left untouched
+     */
+    @Test
+    @Timeout(1)
+    public void addWordMultipleGames() throws GameRunningException, IdInUseException, InvalidDisplayNameException,
+            GameDoesntExistException, PlayerNotFoundException, OutOfTurnException, InvalidWordException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        GameFactory gamefac = new CustomizableTestGameFactory();
+        LobbyManager lobman = new LobbyManager(playerfac, gamefac);
+
+        Player player1 = lobman.createNewPlayer("player1", "1");
+        Player player2 = lobman.createNewPlayer("player2", "2");
+
+        CustomizableTestGame gameA = new CustomizableTestGame(new LinkedList<>(List.of(player1)));
+        CustomizableTestGame gameB = new CustomizableTestGame(new LinkedList<>());
+        lobman.addGame(gameA);
+        lobman.addGame(gameB);
+        lobman.addPlayerToGame(player2, gameB.getGameId());
+
+        // Sanity Check:
+        assertEquals(2, lobman.getGameCount(), "There should be two games.");
+        assertNotSame(lobman.getGameLock(gameA.getGameId()), lobman.getGameLock(gameB.getGameId()),
+                "Each game should have its own lock.");
+        assertEquals(gameA.getGameId(), lobman.getGameIdOfPlayer("1"), "Player 1 should be in game A.");
+        assertEquals(gameB.getGameId(), lobman.getGameIdOfPlayer("2"), "Player 2 should be in game B.");
+
+        // What we want to test:
+        lobman.addWord("bloop", "2");
+        // Assertions:
+        assertEquals("bloop", gameB.getStoryString(), "Game B should just have bloop in the string.");
+        assertEquals("", gameA.getStoryString(), "Game A should not have received the word.");
+    }
+
+    /**
+     * Test that removing an ended game forgets its players, while players of other games are still found
+     */
+    @Test
+    @Timeout(1)
+    public void removeGameForgetsPlayers() throws GameRunningException, IdInUseException, InvalidDisplayNameException,
+            GameDoesntExistException, PlayerNotFoundException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        GameFactory gamefac = new CustomizableTestGameFactory();
+        LobbyManager lobman = new LobbyManager(playerfac, gamefac);
+
+        Player player1 = lobman.createNewPlayer("player1", "1");
+        Player player2 = lobman.createNewPlayer("player2", "2");
+
+        CustomizableTestGame gameA = new CustomizableTestGame(new LinkedList<>(List.of(player1)));
+        CustomizableTestGame gameB = new CustomizableTestGame(new LinkedList<>(List.of(player2)));
+        lobman.addGame(gameA);
+        lobman.addGame(gameB);
+
+        gameA.setTimerStopped();
+        lobman.removeGame(gameA.getGameId());
+
+        // Assertions:
+        assertFalse(lobman.containsGame(gameA.getGameId()), "Game A should have been removed.");
+        assertThrows(PlayerNotFoundException.class, () -> lobman.getGameIdOfPlayer("1"));
+        assertEquals(gameB.getGameId(), lobman.getGameIdOfPlayer("2"), "Player 2 should still be in game B.");
+
+        // Only the ID of the player of the removed game was released
+        assertEquals(1, lobman.getPlayerIdsInUseCount());
+        assertEquals("1", lobman.createNewPlayer("player1", "1").getPlayerId());
+        assertThrows(IdInUseException.class, () -> lobman.createNewPlayer("player2", "2"));
+    }
+
+    /**
+     * Test that newGameFromPool takes at most MAX_PLAYERS_PER_GAME players, those who waited the longest
+     */
+    @Test
+    @Timeout(1)
+    public void newGameFromPoolMaxPlayers() throws IdInUseException, InvalidDisplayNameException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        GameFactory gamefac = new CustomizableTestGameFactory();
+        LobbyManager lobman = new LobbyManager(playerfac, gamefac);
+        PlayerPoolListener ppl = new PlayerPoolListener() {
+
+            private final Lock lock = new ReentrantLock();
+
+            @Override
+            public void onJoinGamePlayer(Game game) {}
+
+            @Override
+            public void onCancelPlayer() {}
+
+            @Override
+            public Lock getLock() {
+                return this.lock;
+            }
+        };
+
+        for (int i = 0; i <= LobbyManager.MAX_PLAYERS_PER_GAME; i++) {
+            lobman.addPlayerToPool(lobman.createNewPlayer("player" + i, String.valueOf(i)), ppl);
+        }
+
+        // What we want to test:
+        Game testGame = lobman.newGameFromPool(new HashMap<>());
+        // Assertions:
+        assertEquals(LobbyManager.MAX_PLAYERS_PER_GAME, testGame.getPlayers().size(),
+                "The game should be full.");
+        assertNull(testGame.getPlayerById(String.valueOf(LobbyManager.MAX_PLAYERS_PER_GAME)),
+                "The player who joined the pool last should not be in the game.");
+    }
+
+    /**
+     * Test that LobbyChangeListeners hear about players entering and leaving the pool,
+     * and stop hearing once removed
+     */
+    @Test
+    @Timeout(1)
+    public void lobbyChangeListenerNotified() throws IdInUseException, InvalidDisplayNameException,
+            PlayerNotFoundException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        LobbyManager lobman = new LobbyManager(playerfac, new CustomizableTestGameFactory());
+        PlayerPoolListener ppl = new PlayerPoolListener() {
+
+            private final Lock lock = new ReentrantLock();
+
+            @Override
+            public void onJoinGamePlayer(Game game) {}
+
+            @Override
+            public void onCancelPlayer() {}
+
+            @Override
+            public Lock getLock() {
+                return this.lock;
+            }
+        };
+        int[] changes = new int[1];
+        LobbyChangeListener listener = () -> changes[0]++;
+        lobman.addLobbyChangeListener(listener);
+
+        Player player1 = lobman.createNewPlayer("player1", "1");
+        lobman.addPlayerToPool(player1, ppl);
+        assertEquals(1, changes[0]);
+
+        lobman.removeFromPoolCancel(player1);
+        assertEquals(2, changes[0]);
+
+        lobman.removeLobbyChangeListener(listener);
+        lobman.addPlayerToPool(player1, ppl);
+        assertEquals(2, changes[0]);
+    }
+
+    /**
+     * Test that drainPoolJoin takes at most maxPlayers, the longest waiting first,
+     * notifies exactly those and leaves the rest in the pool in order
+     */
+    @Test
+    @Timeout(1)
+    public void drainPoolJoinFifo() throws IdInUseException, InvalidDisplayNameException,
+            GameRunningException, GameDoesntExistException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        LobbyManager lobman = new LobbyManager(playerfac, new CustomizableTestGameFactory());
+        List<Player> joined = new ArrayList<>();
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Player player = lobman.createNewPlayer("player" + i, Integer.toString(i));
+            players.add(player);
+            lobman.addPlayerToPool(player, new PlayerPoolListener() {
+
+                private final Lock lock = new ReentrantLock();
+
+                @Override
+                public void onJoinGamePlayer(Game game) { joined.add(player); }
+
+                @Override
+                public void onCancelPlayer() {}
+
+                @Override
+                public Lock getLock() {
+                    return lock;
+                }
+            });
+        }
+
+        CustomizableTestGame testGame = new CustomizableTestGame(new LinkedList<>());
+        lobman.addGame(testGame);
+
+        List<LobbyManager.PlayerObserverLink> drained = lobman.drainPoolJoin(testGame.getGameId(), 3);
+
+        assertEquals(players.subList(0, 3), joined);
+        assertEquals(3, drained.size());
+        assertEquals(players.get(0), drained.get(0).getPlayer());
+        assertEquals(players.subList(3, 5), lobman.getPlayersFromPool());
+        assertEquals(2, lobman.getPoolSize());
+        assertNull(lobman.getLinkFromPlayer(players.get(1)));
+        assertNotNull(lobman.getLinkFromPlayer(players.get(4)));
+    }
+
+    /**
+     * Test that a join storm followed by everyone cancelling stays linear. With a
+     * copy on write list and linear lookups this took quadratic time
+     */
+    @Test
+    @Timeout(2)
+    public void poolJoinStormLinear() throws PlayerNotFoundException {
+        int players = 50000;
+        LobbyManager lobman = new LobbyManager(new PlayerFactory(displayName -> true),
+                new CustomizableTestGameFactory());
+        Lock lock = new ReentrantLock();
+        PlayerPoolListener ppl = new PlayerPoolListener() {
+            @Override
+            public void onJoinGamePlayer(Game game) {}
+
+            @Override
+            public void onCancelPlayer() {}
+
+            @Override
+            public Lock getLock() {
+                return lock;
+            }
+        };
+
+        for (int i = 0; i < players; i++) {
+            lobman.addPlayerToPool(new Player("player" + i, Integer.toString(i)), ppl);
+        }
+        assertEquals(players, lobman.getPoolSize());
+
+        // Cancel from the back, the worst case for a linear scan
+        for (int i = players - 1; i >= 0; i--) {
+            lobman.removeFromPoolCancel(new Player("player" + i, Integer.toString(i)));
+        }
+        assertEquals(0, lobman.getPoolSize());
+    }
 }
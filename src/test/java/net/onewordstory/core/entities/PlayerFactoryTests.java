@@ -7,6 +7,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PlayerFactoryTests {
@@ -53,4 +58,56 @@ public class PlayerFactoryTests {
         PlayerFactory playerfac = new PlayerFactory(displayName -> false);
         assertThrows(InvalidDisplayNameException.class, () -> playerfac.createPlayer("player1", "1"));
     }
+
+    /**
+     * Test a released ID can be used again, and the count of IDs in use follows along
+     */
+    @Test
+    @Timeout(1)
+    public void testReleaseId() throws IdInUseException, InvalidDisplayNameException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        playerfac.createPlayer("player1", "1");
+        playerfac.createPlayer("player2", "2");
+        assertEquals(2, playerfac.getIdsInUseCount());
+
+        assertTrue(playerfac.releasePlayerId("1"));
+        assertFalse(playerfac.releasePlayerId("1"), "Releasing twice should have no effect");
+        assertEquals(1, playerfac.getIdsInUseCount());
+
+        Player player3 = playerfac.createPlayer("player3", "1");
+        assertEquals("1", player3.getPlayerId());
+        assertEquals(2, playerfac.getIdsInUseCount());
+    }
+
+    /**
+     * Test that when many threads race to claim the same ID, exactly one of them gets it
+     */
+    @Test
+    @Timeout(5)
+    public void testConcurrentSameId() throws InterruptedException {
+        PlayerFactory playerfac = new PlayerFactory(displayName -> true);
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger(0);
+        List<Thread> racers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    playerfac.createPlayer("player", "same");
+                    created.incrementAndGet();
+                } catch (IdInUseException | InvalidDisplayNameException | InterruptedException ignored) {}
+            });
+            racers.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : racers) {
+            t.join();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(1, playerfac.getIdsInUseCount());
+    }
 }
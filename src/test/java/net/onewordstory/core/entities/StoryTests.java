@@ -7,6 +7,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class StoryTests {
@@ -110,4 +114,97 @@ public class StoryTests {
                 "The Story.toString() should just be Once upon a time, with a space at the end, but it is ->"
         + story + "<-");
     }
+
+    /**
+     * Renders words the way Story.toString did before rendering became incremental
+     */
+    private static String renderFromScratch(List<Word> words) {
+        StringBuilder builder = new StringBuilder();
+        for (Word word: words) {
+            if (word.getPunctuation() != null) builder.append(word.getPunctuation());
+            builder.append(" ");
+            builder.append(word.getWord());
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * Tests that the incremental rendering matches rendering from scratch after every word,
+     * including words with punctuation and blank words, and that every rendering is a
+     * prefix of the next one
+     */
+    @Test
+    @Timeout(1)
+    public void testIncrementalMatchesFromScratch() {
+        Player player1 = new Player("player1", "1");
+        String[] punctuation = {null, "", ".", ",", "!"};
+        String[] texts = {"once", "", "upon", "a", "time", " "};
+        Random random = new Random(7);
+
+        List<Word> words = new ArrayList<>();
+        String previous = "";
+        for (int i = 0; i < 300; i++) {
+            words.add(new Word(texts[random.nextInt(texts.length)], player1,
+                    punctuation[random.nextInt(punctuation.length)]));
+            Story story = new Story(new WordFactory(new TestValidityCheckerTrue()), words.toArray(new Word[0]));
+
+            String expected = renderFromScratch(words);
+            assertEquals(expected, story.toString());
+            assertEquals(expected.length(), story.length());
+            assertTrue(expected.startsWith(previous), "Renderings should only ever be appended to");
+            assertEquals(expected.substring(previous.length()), story.substringFrom(previous.length()));
+            previous = expected;
+        }
+    }
+
+    /**
+     * Tests that rendering again without adding a word reuses the rendering, and that
+     * substringFrom only returns the newly added text
+     */
+    @Test
+    @Timeout(1)
+    public void testRenderCachedAndSubstringFrom() throws InvalidWordException {
+        Player player1 = new Player("player1", "1");
+        Story story = new Story(new WordFactory(new TestValidityCheckerTrue()));
+
+        story.addWord("Once", player1);
+        String first = story.toString();
+        assertSame(first, story.toString(), "Rendering again should not rebuild the string");
+
+        int offset = story.length();
+        story.addWord("upon", player1);
+        assertEquals(" upon", story.substringFrom(offset));
+        assertEquals("", story.substringFrom(story.length()));
+        assertThrows(IndexOutOfBoundsException.class, () -> story.substringFrom(story.length() + 1));
+    }
+
+    /**
+     * Tests that a rendering handed out keeps showing the story as it was, even once later
+     * words outgrow the buffer it shares, and that the text added since can be read from a
+     * later rendering
+     */
+    @Test
+    @Timeout(1)
+    public void testRenderingUnchangedByLaterWords() throws InvalidWordException {
+        Player player1 = new Player("player1", "1");
+        Story story = new Story(new WordFactory(new TestValidityCheckerTrue()));
+
+        story.addWord("Once", player1);
+        Story.Rendering early = story.render();
+        assertSame(early, story.render(), "Rendering again should not make a new view");
+
+        StringBuilder added = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            story.addWord("word" + i, player1);
+            added.append(" word").append(i);
+        }
+
+        Story.Rendering late = story.render();
+        assertEquals("Once", early.toString());
+        assertEquals(4, early.length());
+        assertEquals(added.toString(), late.substringFrom(early.length()));
+        assertEquals("Once" + added, late.toString());
+        assertEquals('O', late.charAt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> early.charAt(4));
+    }
 }
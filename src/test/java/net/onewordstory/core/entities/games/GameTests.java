@@ -174,4 +174,60 @@ public class GameTests {
         assertEquals(player1, testGame.getCurrentTurnPlayer(), "It should be Player 1's turn, but it isn't.");
         assertNotSame(player2, testGame.getCurrentTurnPlayer(), "It shouldn't be Player 2's turn, but it is.");
     }
+
+    /**
+     * Test that the snapshot follows words and turn switches, and that an older
+     * snapshot does not change afterwards
+     */
+    @Test
+    @Timeout(1)
+    public void snapshotPublishedOnChange() throws Exception {
+        Game testGame = new CustomizableTestGame(new LinkedList<>());
+        Player player1 = new Player("player1", "1");
+        Player player2 = new Player("player2", "2");
+        testGame.addPlayer(player1);
+        testGame.addPlayer(player2);
+        testGame.publishSnapshot();
+
+        GameSnapshot before = testGame.getSnapshot();
+        assertEquals(player1, before.getCurrentTurnPlayer());
+        assertEquals(2, before.getPlayers().size());
+
+        testGame.addWord("hello", player1);
+        testGame.switchTurn();
+        GameSnapshot after = testGame.getSnapshot();
+
+        assertEquals("", before.getStoryString(), "An older snapshot should never change.");
+        assertEquals(player1, before.getCurrentTurnPlayer(), "An older snapshot should never change.");
+        assertEquals(testGame.getStoryString(), after.getStoryString());
+        assertEquals(player2, after.getCurrentTurnPlayer());
+        assertThrows(UnsupportedOperationException.class, () -> after.getPlayers().add(player1));
+        assertTrue(after.getVersion() > before.getVersion(), "A newer snapshot should have a higher version.");
+    }
+
+    /**
+     * Every published snapshot gets a higher version than the one before, while
+     * unpublished snapshots have version 0
+     */
+    @Test
+    @Timeout(1)
+    public void snapshotVersionsIncrease() throws Exception {
+        Game testGame = new CustomizableTestGame(new LinkedList<>());
+        Player player1 = new Player("player1", "1");
+        testGame.addPlayer(player1);
+
+        assertEquals(0, testGame.getSnapshot().getVersion());
+
+        testGame.publishSnapshot();
+        long published = testGame.getSnapshot().getVersion();
+        testGame.onTimerUpdate();
+        long ticked = testGame.getSnapshot().getVersion();
+        testGame.addWord("hello", player1);
+        long added = testGame.getSnapshot().getVersion();
+
+        assertTrue(published > 0);
+        assertTrue(ticked > published);
+        assertTrue(added > ticked);
+        assertEquals(0, GameSnapshot.of(testGame).getVersion());
+    }
 }
@@ -0,0 +1,119 @@
+package net.onewordstory.core.entities.games;
+
+import net.onewordstory.core.entities.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerRosterTests {
+
+    private static List<Player> makePlayers(int amount) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            players.add(new Player("player" + i, Integer.toString(i)));
+        }
+        return players;
+    }
+
+    /**
+     * Test that rotating moves the current player to the back
+     */
+    @Test
+    @Timeout(1)
+    public void testRotate() {
+        List<Player> players = makePlayers(3);
+        PlayerRoster roster = new PlayerRoster(players);
+
+        assertEquals(players.get(0), roster.current());
+        assertTrue(roster.rotate());
+        assertEquals(players.get(1), roster.current());
+        assertEquals(List.of(players.get(1), players.get(2), players.get(0)), new ArrayList<>(roster.asView()));
+    }
+
+    /**
+     * Test that removing the current player gives the turn to the next player, and that
+     * lookups and the view forget the removed player
+     */
+    @Test
+    @Timeout(1)
+    public void testRemoveCurrent() {
+        List<Player> players = makePlayers(3);
+        PlayerRoster roster = new PlayerRoster(players);
+
+        assertTrue(roster.remove(players.get(0)));
+        assertFalse(roster.remove(players.get(0)));
+        assertEquals(players.get(1), roster.current());
+        assertNull(roster.get("0"));
+        assertEquals(players.get(2), roster.get("2"));
+        assertFalse(roster.asView().contains(players.get(0)));
+        assertEquals(2, roster.asView().size());
+    }
+
+    /**
+     * Test that a player whose ID is already in the roster is refused, and an empty roster
+     * has no current player
+     */
+    @Test
+    @Timeout(1)
+    public void testDuplicateAndEmpty() {
+        PlayerRoster roster = new PlayerRoster(new ArrayList<>());
+        assertNull(roster.current());
+        assertFalse(roster.rotate());
+
+        Player player = new Player("player", "1");
+        assertTrue(roster.add(player));
+        assertFalse(roster.add(new Player("other", "1")));
+        assertEquals(1, roster.size());
+    }
+
+    /**
+     * Test that the view is read only
+     */
+    @Test
+    @Timeout(1)
+    public void testViewReadOnly() {
+        List<Player> players = makePlayers(2);
+        Collection<Player> view = new PlayerRoster(players).asView();
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new Player("p", "9")));
+        assertThrows(UnsupportedOperationException.class, () -> view.iterator().remove());
+    }
+
+    /**
+     * Test a long random sequence of adds, removes and rotations against a LinkedList,
+     * which is how GameRegular used to keep its players. Covers wrapping around the
+     * ring buffer, growing it and compacting it
+     */
+    @Test
+    @Timeout(5)
+    public void testMatchesLinkedList() {
+        Random random = new Random(42);
+        List<Player> players = makePlayers(64);
+        LinkedList<Player> expected = new LinkedList<>();
+        PlayerRoster roster = new PlayerRoster(new ArrayList<>());
+
+        for (int i = 0; i < 100000; i++) {
+            Player p = players.get(random.nextInt(players.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(!expected.contains(p) && expected.add(p), roster.add(p));
+                case 1 -> assertEquals(expected.remove(p), roster.remove(p));
+                default -> {
+                    if (!expected.isEmpty()) {
+                        expected.add(expected.remove());
+                    }
+                    assertEquals(!expected.isEmpty(), roster.rotate());
+                }
+            }
+            assertEquals(expected.peek(), roster.current());
+            assertEquals(expected.size(), roster.size());
+            assertEquals(expected.contains(p) ? p : null, roster.get(p.getPlayerId()));
+        }
+        assertEquals(expected, new ArrayList<>(roster.asView()));
+    }
+}
@@ -67,6 +67,9 @@ public class AllPlayerNamesStatisticTests {
 
         @Override
         public int getSecondsLeftInCurrentTurn() { return 0; }
+
+        @Override
+        public int getGameId() { return 0; }
     }
 
     private AllPlayerNamesStatistic stat;
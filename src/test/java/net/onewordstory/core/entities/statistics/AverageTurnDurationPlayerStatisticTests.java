@@ -68,6 +68,9 @@ public class AverageTurnDurationPlayerStatisticTests {
 
         @Override
         public int getSecondsLeftInCurrentTurn() { return 0; }
+
+        @Override
+        public int getGameId() { return 0; }
     }
 
     private AverageTurnDurationPlayerStatistic stat;
@@ -0,0 +1,276 @@
+package net.onewordstory.core.usecases;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the thread register with pooled executors
+ */
+public class ThreadRegisterTests {
+
+    /**
+     * Use case which runs the given logic
+     */
+    private static class TestThread extends InterruptibleThread {
+        interface Logic {
+            void run(TestThread thread) throws InterruptedException;
+        }
+
+        private final Logic logic;
+
+        TestThread(ThreadRegister register, Runnable onShutdown, Logic logic) {
+            super(register, onShutdown::run);
+            this.logic = logic;
+        }
+
+        @Override
+        protected void threadLogic() throws InterruptedException {
+            logic.run(this);
+        }
+    }
+
+    /**
+     * Shutdown waits for a pooled use case to unblock its interrupt, then interrupts the
+     * running use cases, and the use case still queued in the pool doesn't run
+     */
+    @Test
+    @Timeout(5)
+    public void testPooledUseCasesInterruptedOnShutdown() throws InterruptedException {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ThreadRegister.newBoundedPool(2);
+        ThreadRegister register = new ThreadRegister(pool);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch shutdownOutputs = new CountDownLatch(3);
+        AtomicInteger runCount = new AtomicInteger();
+        AtomicBoolean isCriticalDone = new AtomicBoolean(false);
+
+        assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(new TestThread(register, shutdownOutputs::countDown, t -> {
+            t.setBlockInterrupt(true);
+            runCount.incrementAndGet();
+            started.countDown();
+            // Work which must not be interrupted
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            isCriticalDone.set(true);
+            t.setBlockInterrupt(false);
+            Thread.sleep(Long.MAX_VALUE);
+        })));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(new TestThread(register, shutdownOutputs::countDown, t -> {
+                runCount.incrementAndGet();
+                started.countDown();
+                Thread.sleep(Long.MAX_VALUE);
+            })));
+        }
+
+        started.await();
+        ThreadRegister.DrainReport report = register.stopThreads();
+
+        assertTrue(isCriticalDone.get(), "Shutdown interrupted a blocked use case.");
+        assertEquals(new ThreadRegister.DrainReport(0, 3, 0), report);
+        shutdownOutputs.await();
+        assertEquals(2, runCount.get(), "The queued use case ran after shutdown.");
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(ThreadRegister.Registration.SHUTTING_DOWN,
+                register.registerThread(new TestThread(register, () -> {}, t -> {})));
+    }
+
+    /**
+     * The drain gives up at its deadline, reporting use cases which still block their interrupt
+     * or ignore it as timed out, and a use case which ends while blocking its interrupt as finished
+     */
+    @Test
+    @Timeout(5)
+    public void testDrainDeadline() throws InterruptedException {
+        ThreadRegister register = new ThreadRegister(ThreadRegister.newCachedPool());
+
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean isReleased = new AtomicBoolean(false);
+
+        register.registerThread(new TestThread(register, () -> {}, t -> {
+            t.setBlockInterrupt(true);
+            started.countDown();
+            release.await();
+        }));
+        register.registerThread(new TestThread(register, () -> {}, t -> {
+            t.setBlockInterrupt(true);
+            started.countDown();
+            Thread.sleep(50);
+        }));
+        register.registerThread(new TestThread(register, () -> {}, t -> {
+            started.countDown();
+            while (!isReleased.get()) {
+                Thread.onSpinWait();
+            }
+        }));
+
+        started.await();
+        long start = System.nanoTime();
+        ThreadRegister.DrainReport report = register.stopThreads(Duration.ofMillis(300));
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(new ThreadRegister.DrainReport(1, 0, 2), report);
+        assertTrue(tookMillis >= 250 && tookMillis < 2000, "Drain took " + tookMillis + "ms.");
+
+        release.countDown();
+        isReleased.set(true);
+    }
+
+    /**
+     * Use cases registered and finishing on many threads at once are all removed
+     */
+    @Test
+    @Timeout(10)
+    public void testConcurrentRegisterAndRemove() throws InterruptedException {
+        ThreadRegister register = new ThreadRegister(ThreadRegister.newBoundedPool(8, 50000));
+        runRequests(register, 50000);
+
+        // The last use cases may not have removed themselves yet
+        ThreadRegister.DrainReport report = register.stopThreads();
+        assertEquals(0, report.timedOut());
+        assertEquals(0, register.getRunningThreadCount());
+    }
+
+    /**
+     * Once every thread is busy and the queue is full, use cases are rejected rather than queued,
+     * and the rejected use case is not left registered
+     */
+    @Test
+    @Timeout(5)
+    public void testFullPoolRejects() throws InterruptedException {
+        ThreadRegister register = new ThreadRegister(ThreadRegister.newBoundedPool(1, 1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(new TestThread(register, () -> {}, t -> {
+            started.countDown();
+            release.await();
+            done.countDown();
+        })));
+        started.await();
+        assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(new TestThread(register, () -> {}, t -> done.countDown())));
+        assertEquals(ThreadRegister.Registration.BUSY, register.registerThread(
+                new TestThread(register, () -> {}, t -> fail("Ran a rejected use case"))));
+        assertEquals(2, register.getRunningThreadCount());
+
+        release.countDown();
+        done.await();
+        register.stopThreads();
+        assertEquals(0, register.getRunningThreadCount());
+    }
+
+    /**
+     * A follow-up which the full pool can't take runs on its own thread instead of being
+     * rejected, and is still interrupted on shutdown. Once shutting down, it doesn't run
+     */
+    @Test
+    @Timeout(5)
+    public void testFollowUpRunsWhenPoolFull() throws InterruptedException {
+        ThreadRegister register = new ThreadRegister(ThreadRegister.newBoundedPool(1, 1));
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch shutdownOutputs = new CountDownLatch(1);
+
+        assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(
+                new TestThread(register, () -> {}, t -> {
+                    started.countDown();
+                    release.await();
+                })));
+        assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(
+                new TestThread(register, () -> {}, t -> {})));
+
+        assertTrue(register.registerFollowUp(new TestThread(register, shutdownOutputs::countDown, t -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+        })));
+        started.await();
+        assertEquals(3, register.getRunningThreadCount());
+
+        release.countDown();
+        register.stopThreads();
+        shutdownOutputs.await();
+        assertEquals(0, register.getRunningThreadCount());
+        assertFalse(register.registerFollowUp(new TestThread(register, () -> {}, t -> fail("Ran after shutdown"))));
+    }
+
+    /**
+     * An interrupt which arrives as a use case finishes isn't carried on to the next use case
+     * run by the same pooled thread
+     */
+    @Test
+    @Timeout(5)
+    public void testPooledThreadNotLeftInterrupted() throws InterruptedException {
+        ThreadRegister register = new ThreadRegister(ThreadRegister.newBoundedPool(1));
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean isInterrupted = new AtomicBoolean(true);
+        register.registerThread(new TestThread(register, () -> {}, TestThread::interrupt));
+        register.registerThread(new TestThread(register, () -> {}, t -> {
+            isInterrupted.set(Thread.currentThread().isInterrupted());
+            done.countDown();
+        }));
+
+        done.await();
+        assertFalse(isInterrupted.get());
+        register.stopThreads();
+    }
+
+    /**
+     * Benchmark of short use cases run on a new thread each versus on a pool. The pool runs them
+     * on a fixed amount of threads rather than creating one per request
+     */
+    @Test
+    @Timeout(60)
+    public void testPooledThroughput() throws InterruptedException {
+        final int requests = 20000;
+        final int threads = 4;
+
+        AtomicInteger threadsCreated = new AtomicInteger();
+        Executor threadPerTask = task -> {
+            threadsCreated.incrementAndGet();
+            ThreadRegister.THREAD_PER_TASK.execute(task);
+        };
+        long threadPerTaskNanos = runRequests(new ThreadRegister(threadPerTask), requests);
+        assertEquals(requests, threadsCreated.get());
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ThreadRegister.newBoundedPool(threads, requests);
+        ThreadRegister pooled = new ThreadRegister(pool);
+        long pooledNanos = runRequests(pooled, requests);
+        assertTrue(pool.getLargestPoolSize() <= threads);
+
+        System.out.printf("Thread per task: %.0f requests/s, %d threads created%n",
+                requests * 1e9 / threadPerTaskNanos, threadsCreated.get());
+        System.out.printf("Pool of %d: %.0f requests/s, %d threads created%n",
+                threads, requests * 1e9 / pooledNanos, pool.getLargestPoolSize());
+
+        pooled.stopThreads();
+    }
+
+    /**
+     * @return nanoseconds taken to run the amount of use cases
+     */
+    private static long runRequests(ThreadRegister register, int requests) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            assertEquals(ThreadRegister.Registration.RUNNING, register.registerThread(new TestThread(register, () -> {}, t -> done.countDown())));
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+}
@@ -13,10 +13,12 @@ import net.onewordstory.core.exceptions.InvalidDisplayNameException;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import net.onewordstory.core.usecases.GameDTO;
 import net.onewordstory.core.usecases.Response;
 import net.onewordstory.core.usecases.ThreadRegister;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -70,8 +72,8 @@ public class DcInteractorTests {
         TestGame testGame = new TestGame(players);
         TestLobbyManager lm = new TestLobbyManager(testGame);
 
-        assertTrue(lm.getGameReadOnly().getPlayers().contains(player1));
-        assertTrue(lm.getGameReadOnly().getPlayers().contains(player2));
+        assertTrue(lm.getGameReadOnly(testGame.getGameId()).getPlayers().contains(player1));
+        assertTrue(lm.getGameReadOnly(testGame.getGameId()).getPlayers().contains(player2));
 
         AtomicReference<Boolean> hasFinished = new AtomicReference<>(false);
 
@@ -95,8 +97,11 @@ public class DcInteractorTests {
             Thread.onSpinWait();
         }
 
-        assertFalse(lm.getGameReadOnly().getPlayers().contains(player2));
-        assertTrue(lm.getGameReadOnly().getPlayers().contains(player1));
+        assertFalse(lm.getGameReadOnly(testGame.getGameId()).getPlayers().contains(player2));
+        assertTrue(lm.getGameReadOnly(testGame.getGameId()).getPlayers().contains(player1));
+
+        // The ID of the disconnected player was released, the other one is still in use
+        assertFalse(playerFactory.releasePlayerId(player2.getPlayerId()));
     }
 
     /**
@@ -143,6 +148,9 @@ public class DcInteractorTests {
 
         assertFalse(lm.getPlayersFromPool().contains(player4));
         assertTrue(lm.getPlayersFromPool().contains(player3));
+
+        // The ID of the disconnected player was released
+        assertFalse(playerFactory.releasePlayerId(player4.getPlayerId()));
     }
 
     /**
@@ -234,6 +242,65 @@ public class DcInteractorTests {
         assertSame(Response.ResCode.PLAYER_NOT_FOUND, code.get());
     }
 
+    /**
+     * Many players of a game disconnect at once while DC waits for the pool lock. They are removed
+     * in at most two batches, the first of which may only hold the first disconnect, and all
+     * players of a batch are given the same game state, so the game is broadcast once per batch
+     */
+    @Test
+    @Timeout(5)
+    public void testMassDisconnectBatched() throws
+            IdInUseException, GameRunningException, InvalidDisplayNameException, GameDoesntExistException {
+        int staying = 10;
+        int leaving = 200;
+        List<Player> gamePlayers = new ArrayList<>();
+        for (int i = 0; i < staying + leaving; i++) {
+            gamePlayers.add(playerFactory.createPlayer("Batch" + i, "batch-" + i));
+        }
+
+        TestGame testGame = new TestGame(gamePlayers);
+        TestLobbyManager lm = new TestLobbyManager(testGame);
+        dcInteractor = new DcInteractor(lm, register);
+
+        Map<String, DcOutputData> outputs = new ConcurrentHashMap<>();
+        DcOutputBoundary dcOutputBoundary = new DcOutputBoundary() {
+            @Override
+            public void hasDisconnected(DcOutputData data) {
+                outputs.put(data.getPlayerId(), data);
+            }
+
+            @Override
+            public void outputShutdownServer() {
+                throw new RuntimeException("This method is not implemented and should not be called");
+            }
+        };
+
+        long start = System.nanoTime();
+        lm.getPlayerPoolLock().lock();
+        try {
+            for (int i = staying; i < staying + leaving; i++) {
+                dcInteractor.disconnect(new DcInputData(gamePlayers.get(i).getPlayerId()), dcOutputBoundary);
+            }
+        } finally {
+            lm.getPlayerPoolLock().unlock();
+        }
+
+        while (outputs.size() < leaving) {
+            Thread.onSpinWait();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Set<GameDTO> states = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DcOutputData data : outputs.values()) {
+            assertSame(Response.ResCode.SUCCESS, data.getResponse().getCode());
+            states.add(data.getGameData());
+        }
+        System.out.println(leaving + " players disconnected in " + millis + "ms, " + states.size() + " game states");
+
+        assertTrue(states.size() <= 2, states.size() + " game states for " + leaving + " disconnects");
+        assertEquals(staying, lm.getGameReadOnly(testGame.getGameId()).getPlayers().size());
+    }
+
     /**
      * Using descendant of LobbyManager to set the testGame
      */
@@ -249,11 +316,10 @@ public class DcInteractorTests {
                 }
             });
             this.game = game;
-            this.setGame(game);
+            if (game != null) {
+                this.addGame(game);
+            }
         }
-
-        @Override
-        public void setGame(Game game) throws GameRunningException { super.setGame(game); }
     }
 
     /**
@@ -9,7 +9,6 @@ import net.onewordstory.core.entities.games.GameFactory;
 import net.onewordstory.core.entities.games.GameFactoryRegular;
 import net.onewordstory.core.entities.games.GameRegular;
 import net.onewordstory.core.entities.statistics.PerPlayerIntStatistic;
-import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -18,9 +17,13 @@ import net.onewordstory.core.usecases.ThreadRegister;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JoinPublicLobbyTest {
 
@@ -28,6 +31,7 @@ public class JoinPublicLobbyTest {
     private final SimpleDisplayNameChecker simpleDisplayNameChecker = new SimpleDisplayNameChecker();
     private final GameFactory gameFactory = new GameFactoryRegular();
     private final PlayerFactory playerFactory = new PlayerFactory(simpleDisplayNameChecker);
+    private LobbyManager lobbyManager;
     private JplInteractor interactor;
 
     private static final ThreadRegister register = new ThreadRegister();
@@ -68,8 +72,8 @@ public class JoinPublicLobbyTest {
 
     @BeforeEach
     public void setupJplInteractor(){
-        LobbyManager lobbyManager = new LobbyManager(this.playerFactory, this.gameFactory);
-        this.interactor = new JplInteractor(lobbyManager, register);
+        this.lobbyManager = new LobbyManager(this.playerFactory, this.gameFactory);
+        this.interactor = new JplInteractor(this.lobbyManager, register);
     }
 
     /**
@@ -115,30 +119,17 @@ public class JoinPublicLobbyTest {
     @Test
     @Timeout(10000)
     public void checkAllJoinedGame() {
-        Player firstPlayer = new Player("Name", "1");
-        Player secondPlayer = new Player("Name", "2");
-        JplInputData inputDataFirst = new JplInputData(firstPlayer.getDisplayName(), firstPlayer.getPlayerId());
-        JplInputData inputDataSecond = new JplInputData(secondPlayer.getDisplayName(), secondPlayer.getPlayerId());
-        JplInteractor.JplThread threadFirst = this.interactor.new JplThread(inputDataFirst, testOutputBoundary);
-        JplInteractor.JplThread threadSecond = this.interactor.new JplThread(inputDataSecond, testOutputBoundary);
+        this.interactor.joinPublicLobby(new JplInputData("Name", "1"), testOutputBoundary);
+        this.interactor.joinPublicLobby(new JplInputData("Name", "2"), testOutputBoundary);
+        awaitSize(this.testOutputBoundary.joinedPoolResponses, 2);
 
-        Queue<Player> initialPlayers = new LinkedList<>();
-        initialPlayers.add(firstPlayer);
-        initialPlayers.add(secondPlayer);
-        Game game = new GameRegular(initialPlayers, new PerPlayerIntStatistic[0]);
-
-        // onJoinGamePlayer signals a condition variable. the signal requires the lock to be engaged, which it is not
-        // The call will set the JplThread's game instance to the passed in game and the subsequent signal call will
-        // throw IllegalMonitor. We expect this to happen so to allow the test to continue, we assert the throw
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadFirst.onJoinGamePlayer(game));
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadSecond.onJoinGamePlayer(game));
-        
-        // threadFirst.game and threadSecond.game are not null so the while loop will be ignored so .await() won't execute
-        // Everything else works as normal
-        threadFirst.run();
-        threadSecond.run();
+        Game game = gameOf(this.lobbyManager.getPool());
+        for (LobbyManager.PlayerObserverLink link : this.lobbyManager.getPool()) {
+            joinGame(link, game);
+        }
+
+        awaitSize(this.testOutputBoundary.joinedGameResponses, 2);
         assertEquals(2, this.testOutputBoundary.joinedPoolResponses.size());
-        assertEquals(2, this.testOutputBoundary.joinedGameResponses.size());
         assertEquals(0, this.testOutputBoundary.cancelledResponses.size());
     }
 
@@ -148,31 +139,28 @@ public class JoinPublicLobbyTest {
     @Test
     @Timeout(10000)
     public void testCancelWaiting() {
-        Player firstPlayer = new Player("Name", "1");
-        Player secondPlayer = new Player("Name", "2");
-        Player thirdPlayer = new Player("Busy", "3");
-        JplInputData inputDataFirst = new JplInputData(firstPlayer.getDisplayName(), firstPlayer.getPlayerId());
-        JplInputData inputDataSecond = new JplInputData(secondPlayer.getDisplayName(), secondPlayer.getPlayerId());
-        JplInputData inputDataThird = new JplInputData(thirdPlayer.getDisplayName(), thirdPlayer.getPlayerId());
-        JplInteractor.JplThread threadFirst = this.interactor.new JplThread(inputDataFirst, testOutputBoundary);
-        JplInteractor.JplThread threadSecond = this.interactor.new JplThread(inputDataSecond, testOutputBoundary);
-        JplInteractor.JplThread threadThird = this.interactor.new JplThread(inputDataThird, testOutputBoundary);
-
-        Assertions.assertThrows(IllegalMonitorStateException.class, threadThird::onCancelPlayer);
-        threadThird.run();
+        this.interactor.joinPublicLobby(new JplInputData("Name", "1"), testOutputBoundary);
+        this.interactor.joinPublicLobby(new JplInputData("Name", "2"), testOutputBoundary);
+        this.interactor.joinPublicLobby(new JplInputData("Busy", "3"), testOutputBoundary);
+        awaitSize(this.testOutputBoundary.joinedPoolResponses, 3);
 
-        Queue<Player> initialPlayers = new LinkedList<>();
-        initialPlayers.add(firstPlayer);
-        initialPlayers.add(secondPlayer);
-        Game game = new GameRegular(initialPlayers, new PerPlayerIntStatistic[0]);
-
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadFirst.onJoinGamePlayer(game));
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadSecond.onJoinGamePlayer(game));
-        threadFirst.run();
-        threadSecond.run();
+        List<LobbyManager.PlayerObserverLink> pool = this.lobbyManager.getPool();
+        pool.removeIf(link -> {
+            if (link.getPlayer().getPlayerId().equals("3")) {
+                cancel(link);
+                return true;
+            }
+            return false;
+        });
+        Game game = gameOf(pool);
+        for (LobbyManager.PlayerObserverLink link : pool) {
+            joinGame(link, game);
+        }
+
+        awaitSize(this.testOutputBoundary.joinedGameResponses, 2);
+        awaitSize(this.testOutputBoundary.cancelledResponses, 1);
         assertEquals(3, this.testOutputBoundary.joinedPoolResponses.size());
-        assertEquals(2, this.testOutputBoundary.joinedGameResponses.size());
-        assertEquals(1, this.testOutputBoundary.cancelledResponses.size());
+        assertEquals("3", this.testOutputBoundary.cancelledResponses.get(0).getPlayerId());
     }
 
     /**
@@ -181,23 +169,16 @@ public class JoinPublicLobbyTest {
     @Test
     @Timeout(10000)
     public void testDuplicateIds(){
-        Player firstPlayer = new Player("Player", "1");
-        Player secondPlayer = new Player("player", "1");
-        JplInputData inputDataFirst = new JplInputData(firstPlayer.getDisplayName(), firstPlayer.getPlayerId());
-        JplInputData inputDataSecond = new JplInputData(secondPlayer.getDisplayName(), secondPlayer.getPlayerId());
-        JplInteractor.JplThread threadFirst = this.interactor.new JplThread(inputDataFirst, testOutputBoundary);
-        JplInteractor.JplThread threadSecond = this.interactor.new JplThread(inputDataSecond, testOutputBoundary);
-        Queue<Player> initialPlayers = new LinkedList<>();
-        initialPlayers.add(firstPlayer);
-        initialPlayers.add(secondPlayer);
-        Game game = new GameRegular(initialPlayers, new PerPlayerIntStatistic[0]);
-
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadFirst.onJoinGamePlayer(game));
-        Assertions.assertThrows(IllegalMonitorStateException.class, () -> threadSecond.onJoinGamePlayer(game));
-        threadFirst.run();
-        threadSecond.run();
+        this.interactor.joinPublicLobby(new JplInputData("Player", "1"), testOutputBoundary);
+        this.interactor.joinPublicLobby(new JplInputData("player", "1"), testOutputBoundary);
+        awaitSize(this.testOutputBoundary.joinedPoolResponses, 2);
+
+        List<LobbyManager.PlayerObserverLink> pool = this.lobbyManager.getPool();
+        assertEquals(1, pool.size());
+        joinGame(pool.get(0), gameOf(pool));
+
+        awaitSize(this.testOutputBoundary.joinedGameResponses, 1);
         assertEquals(2, this.testOutputBoundary.joinedPoolResponses.size());
-        assertEquals(1, this.testOutputBoundary.joinedGameResponses.size());
         assertEquals(0, this.testOutputBoundary.cancelledResponses.size());
         int expectedFailNumber = 1;
         int actualFailNumber = 0;
@@ -209,4 +190,120 @@ public class JoinPublicLobbyTest {
         assertEquals(expectedFailNumber, actualFailNumber);
     }
 
+    /**
+     * Test that players wait in the pool without holding threads: many players wait at once
+     * on a small pool of threads, and are all told once they cancel
+     */
+    @Test
+    @Timeout(60)
+    public void testManyWaitingPlayersOnFixedThreads() {
+        final int players = 10000;
+        final int threads = 4;
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ThreadRegister.newBoundedPool(threads, players);
+        ThreadRegister fixedRegister = new ThreadRegister(pool);
+        JplInteractor fixedInteractor = new JplInteractor(this.lobbyManager, fixedRegister);
+
+        for (int i = 0; i < players; i++) {
+            fixedInteractor.joinPublicLobby(new JplInputData("Player", "p" + i), testOutputBoundary);
+        }
+        awaitSize(this.testOutputBoundary.joinedPoolResponses, players);
+        while (fixedRegister.getRunningThreadCount() > 0) {
+            Thread.onSpinWait();
+        }
+
+        assertEquals(players, this.lobbyManager.getPoolSize());
+        assertEquals(players, fixedRegister.getWaiterCount());
+        assertTrue(pool.getLargestPoolSize() <= threads);
+
+        this.lobbyManager.getPlayerPoolLock().lock();
+        try {
+            this.lobbyManager.removeAllFromPoolCancel();
+        } finally {
+            this.lobbyManager.getPlayerPoolLock().unlock();
+        }
+
+        awaitSize(this.testOutputBoundary.cancelledResponses, players);
+        assertEquals(0, fixedRegister.getWaiterCount());
+        assertTrue(pool.getLargestPoolSize() <= threads);
+        pool.shutdown();
+    }
+
+    /**
+     * Test that a shutdown tells the players waiting in the pool, though no thread is waiting
+     */
+    @Test
+    @Timeout(10)
+    public void testShutdownWhileWaiting() throws InterruptedException {
+        AtomicInteger shutdowns = new AtomicInteger();
+        TestOutputBoundary shutdownOutputBoundary = new TestOutputBoundary() {
+            @Override
+            public void outputShutdownServer() {
+                shutdowns.incrementAndGet();
+            }
+        };
+        ThreadRegister shutdownRegister = new ThreadRegister(ThreadRegister.newBoundedPool(2));
+        JplInteractor shutdownInteractor = new JplInteractor(this.lobbyManager, shutdownRegister);
+
+        shutdownInteractor.joinPublicLobby(new JplInputData("Name", "1"), shutdownOutputBoundary);
+        shutdownInteractor.joinPublicLobby(new JplInputData("Name", "2"), shutdownOutputBoundary);
+        awaitSize(shutdownOutputBoundary.joinedPoolResponses, 2);
+
+        ThreadRegister.DrainReport report = shutdownRegister.stopThreads();
+        assertEquals(2, shutdowns.get());
+        assertEquals(0, report.timedOut());
+
+        // Joining a game after the shutdown outputs nothing more
+        for (LobbyManager.PlayerObserverLink link : this.lobbyManager.getPool()) {
+            cancel(link);
+        }
+        assertEquals(0, shutdownOutputBoundary.cancelledResponses.size());
+        assertEquals(2, shutdowns.get());
+    }
+
+    /**
+     * Waits until the list holds the amount of outputs
+     */
+    private static void awaitSize(List<?> outputs, int size) {
+        while (outputs.size() < size) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return a game of the players in the links
+     */
+    private static Game gameOf(List<LobbyManager.PlayerObserverLink> links) {
+        Queue<Player> initialPlayers = new LinkedList<>();
+        for (LobbyManager.PlayerObserverLink link : links) {
+            initialPlayers.add(link.getPlayer());
+        }
+        return new GameRegular(initialPlayers, new PerPlayerIntStatistic[0]);
+    }
+
+    /**
+     * Tells a waiting player's listener they joined the game, engaging its lock as the pool does
+     */
+    private static void joinGame(LobbyManager.PlayerObserverLink link, Game game) {
+        Lock lock = link.getPlayerPoolListener().getLock();
+        lock.lock();
+        try {
+            link.getPlayerPoolListener().onJoinGamePlayer(game);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells a waiting player's listener they cancelled, engaging its lock as the pool does
+     */
+    private static void cancel(LobbyManager.PlayerObserverLink link) {
+        Lock lock = link.getPlayerPoolListener().getLock();
+        lock.lock();
+        try {
+            link.getPlayerPoolListener().onCancelPlayer();
+        } finally {
+            lock.unlock();
+        }
+    }
+
 }
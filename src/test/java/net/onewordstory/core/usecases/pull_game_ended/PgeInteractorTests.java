@@ -41,7 +41,7 @@ public class PgeInteractorTests {
         pgeib = new PgeInteractor(testOutputBoundary, (storyString, publishUnixTimeStamp, authorDisplayNames) -> new Response(Response.ResCode.SUCCESS, "Response has been returned successfully"), new StorySaveCheckerByLength());
 
         // Instantiate pgeInputData with list of players
-        pgeid = new PgeInputData(new ArrayList<>(2), "",
+        pgeid = new PgeInputData(0, new ArrayList<>(2), "",
                 new ArrayList<>(1), new AllPlayerNamesStatistic());
         pgeid.getPlayers().add(0, p1);
         pgeid.getPlayers().add(1, p2);
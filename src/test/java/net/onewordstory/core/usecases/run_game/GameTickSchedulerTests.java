@@ -0,0 +1,167 @@
+package net.onewordstory.core.usecases.run_game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameTickSchedulerTests {
+
+    private static final int TICK_THREADS = 2;
+
+    private GameTickScheduler scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new GameTickScheduler(TICK_THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Schedules a tick for a thousand games and checks that every game ticks
+     * while the ticks are run by no more than the configured amount of threads
+     */
+    @Test
+    @Timeout(10000)
+    public void testManyGamesFewThreads() throws InterruptedException {
+        int games = 1000;
+        CountDownLatch ticked = new CountDownLatch(games);
+        Set<Thread> tickThreads = ConcurrentHashMap.newKeySet();
+        List<GameTickScheduler.TickHandle> handles = new ArrayList<>();
+
+        for (int i = 0; i < games; i++) {
+            AtomicInteger runs = new AtomicInteger(0);
+            handles.add(scheduler.scheduleAtFixedRate(() -> {
+                tickThreads.add(Thread.currentThread());
+                if (runs.getAndIncrement() == 0) {
+                    ticked.countDown();
+                }
+            }, 0, 20));
+        }
+
+        assertTrue(ticked.await(5, TimeUnit.SECONDS));
+        assertEquals(games, scheduler.getActiveTickCount());
+        assertTrue(tickThreads.size() <= TICK_THREADS);
+        assertTrue(scheduler.getTickCount() >= games);
+
+        handles.forEach(GameTickScheduler.TickHandle::cancel);
+        assertEquals(0, scheduler.getActiveTickCount());
+    }
+
+    /**
+     * A cancelled tick, including one cancelled from within its own run, does not run again
+     */
+    @Test
+    @Timeout(5000)
+    public void testCancelStopsTick() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger(0);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        GameTickScheduler.TickHandle[] handle = new GameTickScheduler.TickHandle[1];
+
+        handle[0] = scheduler.scheduleAtFixedRate(() -> {
+            if (runs.incrementAndGet() == 3) {
+                handle[0].cancel();
+                cancelled.countDown();
+            }
+        }, 0, 10);
+
+        assertTrue(cancelled.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        assertEquals(3, runs.get());
+        assertTrue(handle[0].isCancelled());
+        assertEquals(0, scheduler.getActiveTickCount());
+
+        // Cancelling twice has no further effect
+        handle[0].cancel();
+        assertEquals(0, scheduler.getActiveTickCount());
+    }
+
+    /**
+     * A tick which throws keeps being run
+     */
+    @Test
+    @Timeout(5000)
+    public void testThrowingTickKeepsRunning() throws InterruptedException {
+        CountDownLatch runs = new CountDownLatch(3);
+        GameTickScheduler.TickHandle handle = scheduler.scheduleAtFixedRate(() -> {
+            runs.countDown();
+            throw new IllegalStateException("Tick failed");
+        }, 0, 10);
+
+        assertTrue(runs.await(2, TimeUnit.SECONDS));
+        handle.cancel();
+    }
+
+    /**
+     * A run which takes longer than the period does not push back the later deadlines,
+     * so the tick catches up, and the lateness shows in the lag metrics
+     */
+    @Test
+    @Timeout(5000)
+    public void testSlowRunDoesNotDrift() throws InterruptedException {
+        long period = 20;
+        AtomicInteger runs = new AtomicInteger(0);
+        long start = System.nanoTime();
+
+        GameTickScheduler.TickHandle handle = scheduler.scheduleAtFixedRate(() -> {
+            if (runs.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(period * 5);
+                } catch (InterruptedException ignored) {}
+            }
+        }, 0, period);
+
+        Thread.sleep(period * 10);
+        handle.cancel();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Without catching up, the slow first run would have cost four runs
+        assertTrue(runs.get() >= (elapsedMillis / period) - 2,
+                "Only " + runs.get() + " runs in " + elapsedMillis + "ms");
+        assertTrue(scheduler.getMaxTickLagNanos() >= TimeUnit.MILLISECONDS.toNanos(period * 2));
+        assertTrue(scheduler.getAverageTickLagNanos() > 0);
+    }
+
+    /**
+     * A tick which hands its work to another thread has its lag measured when the work starts
+     * there, not when the scheduler's thread handed it off
+     */
+    @Test
+    @Timeout(5000)
+    public void testLagMeasuredWhenWorkStarts() throws InterruptedException {
+        long handOffMillis = 100;
+        CountDownLatch started = new CountDownLatch(1);
+
+        GameTickScheduler.TickHandle handle = scheduler.scheduleAtFixedRate(tickStarted -> {
+            Thread worker = new Thread(() -> {
+                try {
+                    Thread.sleep(handOffMillis);
+                } catch (InterruptedException ignored) {}
+                tickStarted.run();
+                started.countDown();
+            });
+            worker.start();
+        }, 0, 10000);
+
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        handle.cancel();
+        assertEquals(1, scheduler.getTickCount());
+        assertTrue(scheduler.getMaxTickLagNanos() >= TimeUnit.MILLISECONDS.toNanos(handOffMillis),
+                "Lag of " + scheduler.getMaxTickLagNanos() + "ns");
+    }
+}
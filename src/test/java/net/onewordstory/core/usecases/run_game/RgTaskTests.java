@@ -1,5 +1,6 @@
 package net.onewordstory.core.usecases.run_game;
 
+import net.onewordstory.core.entities.GameLoop;
 import net.onewordstory.core.entities.Player;
 import net.onewordstory.core.entities.games.Game;
 import net.onewordstory.core.entities.validity_checkers.ValidityCheckerFacade;
@@ -10,9 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import net.onewordstory.core.usecases.pull_data.*;
 import net.onewordstory.core.usecases.pull_game_ended.*;
+import net.onewordstory.core.util.ServerClock;
 
 import java.util.*;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,7 +21,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class RgTaskTests {
 
-    private Lock gameLock;
+    private GameLoop gameLoop;
 
     /**
      * We use custom implementations of Game, PgeInputBoundary, PdInputBoundary used to test RgTask in RunGame use-case
@@ -176,7 +177,8 @@ public class RgTaskTests {
 
     @BeforeEach
     public void setUp() {
-        gameLock = new ReentrantLock();
+        // Drains are handed to the calling thread, so a tick has run once RgTask.run returns
+        gameLoop = new GameLoop(new ReentrantLock(), Runnable::run);
     }
 
     @AfterEach
@@ -198,7 +200,7 @@ public class RgTaskTests {
         pge = new CustomizablePgeInputBoundary();
         pd = new CustomizablePdInputBoundary();
 
-        RgInteractor rg = new RgInteractor(g, pge, pd, gameLock);
+        RgInteractor rg = new RgInteractor(g, pge, pd, gameLoop);
         RgInteractor.RgTask innerTaskInstance = rg.new RgTask();
 
         innerTaskInstance.run();
@@ -232,7 +234,7 @@ public class RgTaskTests {
         pge = new CustomizablePgeInputBoundary();
         pd = new CustomizablePdInputBoundary();
 
-        RgInteractor rg = new RgInteractor(g, pge, pd, gameLock);
+        RgInteractor rg = new RgInteractor(g, pge, pd, gameLoop);
         RgInteractor.RgTask innerTaskInstance = rg.new RgTask();
 
         String curPlayerId = g.getCurrentTurnPlayer().getPlayerId();
@@ -278,7 +280,7 @@ public class RgTaskTests {
         pge = new CustomizablePgeInputBoundary();
         pd = new CustomizablePdInputBoundary();
 
-        RgInteractor rg = new RgInteractor(g, pge, pd, gameLock);
+        RgInteractor rg = new RgInteractor(g, pge, pd, gameLoop);
         RgInteractor.RgTask innerTaskInstance = rg.new RgTask();
 
         g.setSecondsLeftInCurrentTurn(3);
@@ -304,4 +306,48 @@ public class RgTaskTests {
 
     }
 
+
+    /**
+     * Test that ticks which only count down push nothing to PD, while a switch of turn
+     * or a turn deadline which is off by too much is pushed with the new deadline
+     */
+    @Test
+    @Timeout(1000)
+    public void testTickPushesOnlyDeadlineChanges() {
+
+        g = new CustomizableTestGame(false);
+        g.addPlayer(new Player("p1", "1"));
+        g.addPlayer(new Player("p2", "2"));
+
+        pge = new CustomizablePgeInputBoundary();
+        pd = new CustomizablePdInputBoundary();
+
+        RgInteractor rg = new RgInteractor(g, pge, pd, gameLoop);
+        RgInteractor.RgTask innerTaskInstance = rg.new RgTask();
+
+        // Deadline matching the ticks: counting down sends nothing
+        g.setSecondsLeftInCurrentTurn(10);
+        g.setTurnDeadlineMillis(ServerClock.nowMillis() + 9 * RgInteractor.TICK_PERIOD_MILLIS);
+        innerTaskInstance.run();
+        assertNull(((CustomizablePdInputBoundary) pd).getPassedData(), "Countdown-only tick was pushed");
+        assertEquals(9, g.getSecondsLeftInCurrentTurn());
+
+        // Deadline off by a second, like after a turn switched in between two ticks: corrected
+        long offDeadline = ServerClock.nowMillis() + 9 * RgInteractor.TICK_PERIOD_MILLIS;
+        g.setTurnDeadlineMillis(offDeadline);
+        innerTaskInstance.run();
+        assertNotNull(((CustomizablePdInputBoundary) pd).getPassedData(), "Deadline correction not pushed");
+        assertTrue(g.getTurnDeadlineMillis() < offDeadline, "Deadline was not corrected");
+
+        // Switch of turn: a new deadline a whole turn away
+        ((CustomizablePdInputBoundary) pd).passedData = null;
+        g.setSecondsLeftInCurrentTurn(1);
+        long beforeSwitch = ServerClock.nowMillis();
+        innerTaskInstance.run();
+        PdInputData pushed = ((CustomizablePdInputBoundary) pd).getPassedData();
+        assertNotNull(pushed, "Switch of turn not pushed");
+        assertEquals("2", pushed.getSnapshot().getCurrentTurnPlayer().getPlayerId());
+        assertTrue(pushed.getSnapshot().getTurnDeadlineMillis() >=
+                beforeSwitch + g.getSecondsPerTurn() * RgInteractor.TICK_PERIOD_MILLIS);
+    }
 }
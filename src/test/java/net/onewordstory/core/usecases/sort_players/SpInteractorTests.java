@@ -4,6 +4,7 @@ import net.onewordstory.core.entities.*;
 import net.onewordstory.core.entities.display_name_checkers.DisplayNameChecker;
 import net.onewordstory.core.entities.games.Game;
 import net.onewordstory.core.entities.games.GameFactory;
+import net.onewordstory.core.entities.games.GameFactoryRegular;
 import net.onewordstory.core.entities.story_save_checkers.StorySaveCheckerByLength;
 import net.onewordstory.core.entities.validity_checkers.ValidityCheckerFacade;
 import net.onewordstory.core.exceptions.GameRunningException;
@@ -14,10 +15,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import net.onewordstory.core.usecases.pull_data.PdInteractor;
 import net.onewordstory.core.usecases.pull_game_ended.PgeInteractor;
+import net.onewordstory.core.usecases.run_game.GameTickScheduler;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -136,6 +141,34 @@ public class SpInteractorTests {
 
     }
 
+    /**
+     * Records when its player joined a game and counts down a latch
+     */
+    private static class TimingPlayerPoolListener implements PlayerPoolListener {
+
+        private final Lock lock = new ReentrantLock();
+        private final CountDownLatch joined;
+        public volatile long joinedAtNanos;
+
+        public TimingPlayerPoolListener(CountDownLatch joined) {
+            this.joined = joined;
+        }
+
+        @Override
+        public void onJoinGamePlayer(Game game) {
+            joinedAtNanos = System.nanoTime();
+            joined.countDown();
+        }
+
+        @Override
+        public void onCancelPlayer() {}
+
+        @Override
+        public Lock getLock() {
+            return lock;
+        }
+    }
+
     private static class NaiveDisplayNameChecker implements DisplayNameChecker {
         @Override
         public boolean checkValid(String displayName) {
@@ -193,8 +226,9 @@ public class SpInteractorTests {
 
         // Execute one round of the TimerTask. This should get a new game with players from
         // the pool, set it as m.game, clear the pool, and call the PlayerPoolListeners
+        GameTickScheduler ticks = new GameTickScheduler(1);
         SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
-                new BlankOutputPdInteractor());
+                new BlankOutputPdInteractor(), ticks);
         SpInteractor.SpTask spTimerTask = sp.new SpTask();
         spTimerTask.run();
 
@@ -203,19 +237,19 @@ public class SpInteractorTests {
         assertTrue(billysListener.joinedGameFlag);
 
         // Confirm game is no longer null (has been set)
-        assertFalse(m.isGameNull());
+        assertTrue(m.containsGame(customizableTestGame.getGameId()));
         // Confirm pool is empty
         assertEquals(0, m.getPool().size());
         // Confirm that the game has two players (Bob and Billy)
         assertEquals(customizableTestGame.getPlayers().size(), 2);
 
         // Terminate timer
-        customizableTestGame.getGameTimer().cancel();
+        ticks.shutdown();
     }
 
     /**
      * Test the scenario where the game is not null but is over. Sort players
-     * should set the game to null
+     * should remove the game
      */
     @Test
     @Timeout(1)
@@ -232,24 +266,26 @@ public class SpInteractorTests {
 
         // Set a game and set isGameEnded to true via setTimerStopped
         try {
-            m.setGame(g);
+            m.addGame(g);
         } catch (GameRunningException ignored) {}
         g.setTimerStopped();
 
-        // Execute one round of the TimerTask. This should set the game to null
+        // Execute one round of the TimerTask. This should remove the game
+        GameTickScheduler ticks = new GameTickScheduler(1);
         SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
-                new BlankOutputPdInteractor());
+                new BlankOutputPdInteractor(), ticks);
         SpInteractor.SpTask spTimerTask = sp.new SpTask();
         spTimerTask.run();
 
-        // Confirm game has been set to null
-        assertTrue(m.isGameNull());
+        // Confirm game has been removed
+        assertFalse(m.containsGame(g.getGameId()));
+        assertEquals(0, m.getGameCount());
     }
 
     /**
-     * Test the scenario where the game is not null and not over and players
-     * are in the pool. Sort players should try to add the players to the game
-     * and remove them from the pool. The players will be successfully added due
+     * Test the scenario where a game is running and a single player, too few to start
+     * a game of their own, is in the pool. Sort players should try to add the player to the
+     * running game and remove them from the pool. The player will be successfully added due
      * to the game implementation used for this test
      */
     @Test
@@ -271,7 +307,55 @@ public class SpInteractorTests {
 
         // Set up scenario where a game is running (not null not ended)
         try {
-            m.setGame(g);
+            m.addGame(g);
+        } catch (GameRunningException ignored) {}
+
+        TestPlayerPoolListener bobsListener = new TestPlayerPoolListener();
+
+        // Add one player to pool
+        m.addPlayerToPool(new Player("Bob", "1"), bobsListener);
+
+        // Execute one round of the TimerTask. Based on the Game instance used, Bob
+        // should be successfully added to the currently running game
+        GameTickScheduler ticks = new GameTickScheduler(1);
+        SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
+                new BlankOutputPdInteractor(), ticks);
+        SpInteractor.SpTask spTimerTask = sp.new SpTask();
+        spTimerTask.run();
+
+        // Confirm that pool has been emptied and the game has 3 players (Bob, Lilly, Anna)
+        assertEquals(m.getPool().size(), 0);
+        assertEquals(g.getPlayers().size(), 3);
+        // Confirm that the pool listener has been notified
+        assertTrue(bobsListener.joinedGameFlag);
+    }
+
+    /**
+     * Test the scenario where a game is running and two players are in the pool. Sort players
+     * should start a second game for them rather than add them to the running game
+     */
+    @Test
+    @Timeout(1)
+    public void testGameRunningPlayersInPoolStartSecondGame () {
+        CustomizableTestGame g = new CustomizableTestGame(false, true);
+        CustomizableTestGame newGame = new CustomizableTestGame(false, true);
+
+        LobbyManager m = new LobbyManager(new PlayerFactory(new NaiveDisplayNameChecker()),
+                new GameFactory() {
+                    @Override
+                    public Game createGame(Map<String, Integer> settings, Collection<Player> initialPlayers) {
+                        for (Player p : initialPlayers) {
+                            newGame.addPlayer(p);
+                        }
+                        return newGame;
+                    }
+                });
+
+        g.addPlayer(new Player("Lilly", "3"));
+        g.addPlayer(new Player("Anna", "4"));
+
+        try {
+            m.addGame(g);
         } catch (GameRunningException ignored) {}
 
         TestPlayerPoolListener bobsListener = new TestPlayerPoolListener();
@@ -281,27 +365,30 @@ public class SpInteractorTests {
         m.addPlayerToPool(new Player("Bob", "1"), bobsListener);
         m.addPlayerToPool(new Player("Billy", "2"), billysListener);
 
-        // Execute one round of the TimerTask. Based on the Game instance used, Bob and Billy
-        // should both be successfully added to the currently running game
+        GameTickScheduler ticks = new GameTickScheduler(1);
         SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
-                new BlankOutputPdInteractor());
+                new BlankOutputPdInteractor(), ticks);
         SpInteractor.SpTask spTimerTask = sp.new SpTask();
         spTimerTask.run();
 
-        // Confirm that pool has been emptied and the game has 4 players (Bob, Billy, Lilly, Anna)
-        assertEquals(m.getPool().size(), 0);
-        assertEquals(g.getPlayers().size(), 4);
-        // Confirm that both pool listeners have been notified
+        // Confirm that both games run, the new one holding Bob and Billy
+        assertEquals(2, m.getGameCount());
+        assertTrue(m.containsGame(newGame.getGameId()));
+        assertEquals(0, m.getPool().size());
+        assertEquals(2, g.getPlayers().size());
+        assertEquals(2, newGame.getPlayers().size());
         assertTrue(bobsListener.joinedGameFlag);
         assertTrue(billysListener.joinedGameFlag);
+
+        // Terminate timer
+        ticks.shutdown();
     }
 
     /**
-     * Test the scenario where the game is not null and not over and players
-     * are in the pool. Sort players should try to add the players to the game
-     * and remove them from the pool. However, the game will refuse to add them.
-     * In this case, the pool listeners should not be called and the players
-     * should remain in the pool
+     * Test the scenario where a game is running and a single player is in the pool.
+     * Sort players should try to add the player to the game and remove them from
+     * the pool. However, the game will refuse to add them. In this case, the pool
+     * listener should not be called and the player should remain in the pool
      */
     @Test
     @Timeout(1)
@@ -318,34 +405,107 @@ public class SpInteractorTests {
 
         // Set up scenario where a game is running (not null not ended)
         try {
-            m.setGame(g);
+            m.addGame(g);
         } catch (GameRunningException ignored) {}
 
         TestPlayerPoolListener bobsListener = new TestPlayerPoolListener();
-        TestPlayerPoolListener billysListener = new TestPlayerPoolListener();
 
-        // Add two players to pool
+        // Add one player to pool
         m.addPlayerToPool(new Player("Bob", "1"), bobsListener);
-        m.addPlayerToPool(new Player("Billy", "2"), billysListener);
 
-        // Confirm that the listeners have not been called before execution
+        // Confirm that the listener has not been called before execution
         assertFalse(bobsListener.joinedGameFlag);
-        assertFalse(billysListener.joinedGameFlag);
         assertEquals(0, g.getPlayers().size());
-        assertEquals(2, m.getPool().size());
+        assertEquals(1, m.getPool().size());
 
-        // Execute one round of the TimerTask. Based on the Game instance used, Bob and Billy
-        // should both be successfully added to the currently running game
+        // Execute one round of the TimerTask. Based on the Game instance used, Bob
+        // should be refused by the currently running game
+        GameTickScheduler ticks = new GameTickScheduler(1);
         SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
-                new BlankOutputPdInteractor());
+                new BlankOutputPdInteractor(), ticks);
         SpInteractor.SpTask spTimerTask = sp.new SpTask();
         spTimerTask.run();
 
-        // Confirm that the listeners have not been called after execution
+        // Confirm that the listener has not been called after execution
         assertFalse(bobsListener.joinedGameFlag);
-        assertFalse(billysListener.joinedGameFlag);
-        // Confirm that both the game and the pool still have their two players each (no changes)
+        // Confirm that neither the game nor the pool changed
         assertEquals(0, g.getPlayers().size());
-        assertEquals(2, m.getPool().size());
+        assertEquals(1, m.getPool().size());
+    }
+
+    /**
+     * Once started, SP sorts players as soon as they enter the pool, long before
+     * the safety net timer would run again
+     */
+    @Test
+    @Timeout(5)
+    public void testSortsOnPoolEvent () throws InterruptedException {
+        LobbyManager m = new LobbyManager(new PlayerFactory(new NaiveDisplayNameChecker()),
+                new GameFactoryRegular());
+        GameTickScheduler ticks = new GameTickScheduler(1);
+        SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
+                new BlankOutputPdInteractor(), ticks);
+        sp.startTimer();
+
+        // Let the safety net run its first, immediate, sort
+        Thread.sleep(100);
+
+        CountDownLatch joined = new CountDownLatch(2);
+        m.addPlayerToPool(new Player("Bob", "1"), new TimingPlayerPoolListener(joined));
+        m.addPlayerToPool(new Player("Billy", "2"), new TimingPlayerPoolListener(joined));
+
+        assertTrue(joined.await(SpInteractor.SAFETY_NET_PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, m.getGameCount());
+        assertEquals(0, m.getPool().size());
+
+        sp.shutdown();
+        ticks.shutdown();
+    }
+
+    /**
+     * Benchmark of the time from a player entering the pool to them joining a game.
+     * With the old 500 ms polling, players waited 250 ms on average
+     */
+    @Test
+    @Timeout(30)
+    public void testJoinLatency () throws InterruptedException {
+        int players = 200;
+        LobbyManager m = new LobbyManager(new PlayerFactory(new NaiveDisplayNameChecker()),
+                new GameFactoryRegular());
+        GameTickScheduler ticks = new GameTickScheduler(1);
+        SpInteractor sp = new SpInteractor(m, new BlankOutputPgeInteractor(),
+                new BlankOutputPdInteractor(), ticks);
+        sp.startTimer();
+        Thread.sleep(100);
+
+        Map<TimingPlayerPoolListener, Long> enteredAt = new ConcurrentHashMap<>();
+        for (int i = 0; i < players; i++) {
+            CountDownLatch joined = new CountDownLatch(1);
+            TimingPlayerPoolListener listener = new TimingPlayerPoolListener(joined);
+            enteredAt.put(listener, System.nanoTime());
+            m.addPlayerToPool(new Player("Player" + i, Integer.toString(i)), listener);
+
+            // Every player of a pair must have joined before the next pair arrives,
+            // so each sample measures a single join
+            if (i % 2 == 1) {
+                assertTrue(joined.await(SpInteractor.SAFETY_NET_PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS));
+            }
+            Thread.sleep(2);
+        }
+        sp.shutdown();
+        ticks.shutdown();
+
+        long total = 0;
+        long max = 0;
+        for (Map.Entry<TimingPlayerPoolListener, Long> entry : enteredAt.entrySet()) {
+            long latency = entry.getKey().joinedAtNanos - entry.getValue();
+            total += latency;
+            max = Math.max(max, latency);
+        }
+        long averageMillis = TimeUnit.NANOSECONDS.toMillis(total / players);
+        System.out.println("SP join latency: average " + averageMillis + " ms, max "
+                + TimeUnit.NANOSECONDS.toMillis(max) + " ms over " + players + " players");
+
+        assertTrue(averageMillis < 50, "Average join latency " + averageMillis + " ms");
     }
 }
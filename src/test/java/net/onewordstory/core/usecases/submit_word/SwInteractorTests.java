@@ -8,9 +8,12 @@ import net.onewordstory.core.entities.display_name_checkers.DisplayNameChecker;
 import net.onewordstory.core.entities.games.Game;
 import net.onewordstory.core.entities.games.GameFactory;
 import net.onewordstory.core.entities.validity_checkers.ValidityCheckerFacade;
+import net.onewordstory.core.exceptions.GameDoesntExistException;
 import net.onewordstory.core.exceptions.GameRunningException;
 import net.onewordstory.core.exceptions.IdInUseException;
 import net.onewordstory.core.exceptions.InvalidDisplayNameException;
+import net.onewordstory.core.exceptions.InvalidWordException;
+import net.onewordstory.core.exceptions.PlayerNotFoundException;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +22,10 @@ import org.junit.jupiter.api.Timeout;
 import net.onewordstory.core.usecases.ThreadRegister;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -203,7 +210,7 @@ public class SwInteractorTests {
         lobman.addPlayerToPool(player2, ppl);
 
         Game currGame = lobman.newGameFromPool(new HashMap<>());
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
 
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
         assertTrue(currGame.getPlayers().contains(player2), "Player 2 is not in the Game");
@@ -277,7 +284,7 @@ public class SwInteractorTests {
         String word = "word";
 
         Game currGame = lobman.newGameFromPool(new HashMap<>());
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
 
         assertFalse(currGame.getPlayers().contains(player1), "Player 1 shouldn't be in the Game");
 
@@ -446,7 +453,7 @@ public class SwInteractorTests {
         lobman.addPlayerToPool(player1, ppl);
 
         Game currGame = lobman.newGameFromPool(new HashMap<>());
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
 
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
 
@@ -535,7 +542,7 @@ public class SwInteractorTests {
         lobman.addPlayerToPool(player1, ppl);
 
         Game currGame = lobman.newGameFromPool(new HashMap<>());
-        lobman.setGame(currGame);
+        lobman.addGame(currGame);
 
         assertTrue(currGame.getPlayers().contains(player1), "Player 1 is not in the Game");
 
@@ -575,4 +582,219 @@ public class SwInteractorTests {
 
         System.out.println("Test ran to end successfully! :)");
     }
+
+    /**
+     * Game which holds its lock for a while on every word, standing in for
+     * expensive word processing, so that throughput is bound by the game lock
+     */
+    private static class SlowGameTest extends GameTest {
+        public static final int MILLIS_PER_WORD = 2;
+
+        public SlowGameTest(Queue<Player> initialPlayers) {
+            super(initialPlayers, new TestValidityCheckerTrue());
+        }
+
+        @Override
+        public void addWord(@NotNull String word, @NotNull Player author) throws InvalidWordException {
+            try {
+                Thread.sleep(MILLIS_PER_WORD);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.addWord(word, author);
+        }
+    }
+
+    /**
+     * Presenter which only records if the word was accepted and releases the waiting test
+     */
+    private static class LatchSwPresenter implements SwOutputBoundary {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicBoolean validCalled = new AtomicBoolean(false);
+
+        @Override
+        public void valid(SwOutputDataValidWord outputDataValidWord) {
+            validCalled.set(true);
+            done.countDown();
+        }
+
+        @Override
+        public void invalid(SwOutputDataFailure outputDataFailure) {
+            done.countDown();
+        }
+
+        @Override
+        public void outputShutdownServer() {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Game which waits in addWord until every game sharing its latch is adding a word as well,
+     * recording if it gave up waiting
+     */
+    private static class RendezvousGameTest extends GameTest {
+        private final CountDownLatch adding;
+        private final AtomicBoolean isGivenUp;
+
+        public RendezvousGameTest(Queue<Player> initialPlayers, CountDownLatch adding, AtomicBoolean isGivenUp) {
+            super(initialPlayers, new TestValidityCheckerTrue());
+            this.adding = adding;
+            this.isGivenUp = isGivenUp;
+        }
+
+        @Override
+        public void addWord(@NotNull String word, @NotNull Player author) throws InvalidWordException {
+            adding.countDown();
+            try {
+                if (!adding.await(2, TimeUnit.SECONDS)) {
+                    isGivenUp.set(true);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.addWord(word, author);
+        }
+    }
+
+    /**
+     * Creates a LobbyManager running the given amount of SlowGameTest games with two players each.
+     * The players of game k have IDs "k-0" and "k-1"
+     */
+    private static LobbyManager lobbyWithSlowGames(int gameCount) throws GameRunningException {
+        return lobbyWithGames(gameCount, SlowGameTest::new);
+    }
+
+    /**
+     * Creates a LobbyManager running the given amount of games with two players each.
+     * The players of game k have IDs "k-0" and "k-1"
+     * @param newGame creates a game of the given players
+     */
+    private static LobbyManager lobbyWithGames(int gameCount, Function<Queue<Player>, Game> newGame)
+            throws GameRunningException {
+        LobbyManager lobman = new LobbyManager(new PlayerFactory(displayName -> true),
+                new GameFactory() {
+                    @Override
+                    public Game createGame(Map<String, Integer> settings, Collection<Player> initialPlayers) {
+                        return null;
+                    }
+                });
+        for (int k = 0; k < gameCount; k++) {
+            Queue<Player> players = new LinkedList<>();
+            players.add(new Player("p", k + "-0"));
+            players.add(new Player("p", k + "-1"));
+            lobman.addGame(newGame.apply(players));
+        }
+        return lobman;
+    }
+
+    /**
+     * Tests that a player in one game can submit a word while another game's lock is held
+     */
+    @Test
+    @Timeout(10000)
+    public void testGamesDoNotBlockEachOther() throws GameRunningException, GameDoesntExistException,
+            PlayerNotFoundException, InterruptedException {
+        LobbyManager lobman = lobbyWithSlowGames(2);
+        Lock lockOfGame0 = lobman.getGameLock(lobman.getGameIdOfPlayer("0-0"));
+
+        lockOfGame0.lock();
+        try {
+            LatchSwPresenter pres = new LatchSwPresenter();
+            new SwInteractor(lobman, register).submitWord(new SwInputData("bloop", "1-0"), pres);
+
+            assertTrue(pres.done.await(2, TimeUnit.SECONDS),
+                    "SW in game 1 should not wait for the lock of game 0");
+            assertTrue(pres.validCalled.get(), "The word should have been accepted");
+        } finally {
+            lockOfGame0.unlock();
+        }
+    }
+
+    /**
+     * Submits words to every game of the LobbyManager at once, one driver thread per game,
+     * each waiting for its previous word to be processed before sending the next
+     * @return nanoseconds taken until every word was processed
+     */
+    private static long timeWordsInAllGames(LobbyManager lobman, int gameCount, int wordsPerGame)
+            throws InterruptedException {
+        SwInteractor swint = new SwInteractor(lobman, register);
+        AtomicBoolean allValid = new AtomicBoolean(true);
+        Thread[] drivers = new Thread[gameCount];
+
+        for (int k = 0; k < gameCount; k++) {
+            String[] ids = {k + "-0", k + "-1"};
+            drivers[k] = new Thread(() -> {
+                for (int i = 0; i < wordsPerGame; i++) {
+                    LatchSwPresenter pres = new LatchSwPresenter();
+                    // Turns alternate between the two players
+                    swint.submitWord(new SwInputData("w", ids[i % 2]), pres);
+                    try {
+                        pres.done.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (!pres.validCalled.get()) {
+                        allValid.set(false);
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : drivers) { t.start(); }
+        for (Thread t : drivers) { t.join(); }
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(allValid.get(), "Every word should have been accepted");
+        return elapsed;
+    }
+
+    /**
+     * Each of four games takes a word at once, and every game's addWord waits for all four to be
+     * adding. If a game's word waited for another game, the waiting would give up
+     */
+    @Test
+    @Timeout(10000)
+    public void testGamesProcessWordsConcurrently() throws GameRunningException, InterruptedException {
+        int gameCount = 4;
+        CountDownLatch adding = new CountDownLatch(gameCount);
+        AtomicBoolean isGivenUp = new AtomicBoolean(false);
+        LobbyManager lobman = lobbyWithGames(gameCount,
+                players -> new RendezvousGameTest(players, adding, isGivenUp));
+
+        SwInteractor swint = new SwInteractor(lobman, register);
+        LatchSwPresenter[] presenters = new LatchSwPresenter[gameCount];
+        for (int k = 0; k < gameCount; k++) {
+            presenters[k] = new LatchSwPresenter();
+            swint.submitWord(new SwInputData("w", k + "-0"), presenters[k]);
+        }
+
+        for (LatchSwPresenter pres : presenters) {
+            assertTrue(pres.done.await(5, TimeUnit.SECONDS), "Every word should have been processed");
+            assertTrue(pres.validCalled.get(), "Every word should have been accepted");
+        }
+        assertFalse(isGivenUp.get(), "The games should have added their words at the same time");
+    }
+
+    /**
+     * Benchmark of the same amount of words processed once in a single game and once spread
+     * over four concurrent games. Since each game only engages its own lock, four games should
+     * process the words in a fraction of the time one game needs. The timings depend on the
+     * machine, so only whether every word was accepted is asserted
+     */
+    @Test
+    @Timeout(30000)
+    public void testThroughputScalesWithGames() throws GameRunningException, InterruptedException {
+        int totalWords = 160;
+
+        // Warm up thread creation and class loading so they don't skew the first measurement
+        timeWordsInAllGames(lobbyWithSlowGames(2), 2, 10);
+
+        long oneGame = timeWordsInAllGames(lobbyWithSlowGames(1), 1, totalWords);
+        long fourGames = timeWordsInAllGames(lobbyWithSlowGames(4), 4, totalWords / 4);
+
+        System.out.printf("1 game: %.0f words/s, 4 games: %.0f words/s, speedup %.2fx%n",
+                totalWords / (oneGame / 1e9), totalWords / (fourGames / 1e9), (double) oneGame / fourGames);
+    }
 }
@@ -0,0 +1,217 @@
+package net.onewordstory.spring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayDataBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the BinaryProtocol encodings, and compares them to the text protocol
+ */
+public class BinaryProtocolTests {
+
+    private static final int ENCODES = 20000;
+    private static final String STORY = "Once upon a time there was a story which was written one word at a time.";
+
+    /**
+     * @param ids IDs of the players, in turn order
+     * @param story story so far
+     * @param turn index of the current turn player
+     * @param version version of the state
+     * @return display data of a game in progress
+     */
+    private static GameDisplayData gameData(String[] ids, String story, int turn, long version) {
+        GameDisplayDataBuilder builder = new GameDisplayDataBuilder()
+                .setGameId(7)
+                .setVersion(version)
+                .setStoryString(story)
+                .setSecondsLeftInTurn(15)
+                .setTurnDeadlineMillis(100000 + version * 15000);
+        for (int i = 0; i < ids.length; i++) {
+            builder.addPlayer(ids[i], "Player " + i, i == turn);
+        }
+        return builder.build();
+    }
+
+    private static String[] uuids(int n) {
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = UUID.randomUUID().toString();
+        }
+        return out;
+    }
+
+    /**
+     * A full state is encoded with handles in place of IDs, and the recipient's own handle
+     */
+    @Test
+    @Timeout(1)
+    public void testStateEncoding() {
+        String[] ids = uuids(3);
+        GameDisplayData data = gameData(ids, STORY, 1, 1);
+        PlayerHandles handles = new PlayerHandles();
+        handles.assignAll(data);
+
+        byte[] bytes = BinaryProtocol.encodeState(new ServerResponse.CurrentState(data, true, 5, false, null),
+                handles, handles.handleOf(ids[2]));
+        BinaryProtocol.Reader r = new BinaryProtocol.Reader(ByteBuffer.wrap(bytes));
+
+        assertEquals(BinaryProtocol.TYPE_STATE, r.readByte());
+        assertEquals(BinaryProtocol.STATE_INITIAL, r.readByte());
+        assertEquals(7, r.readVarint());
+        assertEquals(5, r.readVarint());
+        assertEquals(3, r.readVarint(), "The recipient is the third player seen.");
+        assertEquals(STORY, r.readString());
+        assertEquals(3, r.readVarint());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, r.readVarint());
+            assertEquals("Player " + i, r.readString());
+        }
+        assertEquals(2, r.readVarint());
+        assertEquals(115000, r.readVarint());
+        assertEquals(15, r.readVarint());
+        assertFalse(r.hasRemaining());
+    }
+
+    /**
+     * A delta carries only the changed fields. A player who joins keeps their handle and
+     * has their display name sent once
+     */
+    @Test
+    @Timeout(1)
+    public void testDeltaEncoding() {
+        String[] ids = uuids(3);
+        GameDeltaTracker tracker = new GameDeltaTracker();
+        tracker.join(gameData(new String[]{ids[0], ids[1]}, "Once", 0, 1));
+        ServerResponse.GameDelta delta = tracker.join(gameData(ids, "Once upon", 1, 2));
+        assertNotNull(delta);
+        PlayerHandles handles = tracker.handles(7);
+        assertNotNull(handles);
+
+        BinaryProtocol.Reader r = new BinaryProtocol.Reader(ByteBuffer.wrap(BinaryProtocol.encodeDelta(delta, handles)));
+        assertEquals(BinaryProtocol.TYPE_DELTA, r.readByte());
+        assertEquals(7, r.readVarint());
+        assertEquals(1, r.readVarint());
+        assertEquals(BinaryProtocol.DELTA_STORY | BinaryProtocol.DELTA_ORDER | BinaryProtocol.DELTA_ADDED |
+                BinaryProtocol.DELTA_TURN | BinaryProtocol.DELTA_DEADLINE, r.readVarint());
+        assertEquals(" upon", r.readString());
+        assertEquals(3, r.readVarint());
+        assertEquals(1, r.readVarint());
+        assertEquals(2, r.readVarint());
+        assertEquals(3, r.readVarint());
+        assertEquals(1, r.readVarint());
+        assertEquals(3, r.readVarint());
+        assertEquals("Player 2", r.readString());
+        assertEquals(2, r.readVarint());
+        assertEquals(130000, r.readVarint());
+        assertFalse(r.hasRemaining());
+
+        // The first player leaves; the others keep their handles
+        delta = tracker.update(gameData(new String[]{ids[1], ids[2]}, "Once upon", 0, 3));
+        assertNotNull(delta);
+        r = new BinaryProtocol.Reader(ByteBuffer.wrap(BinaryProtocol.encodeDelta(delta, handles)));
+        r.readByte();
+        r.readVarint();
+        r.readVarint();
+        assertEquals(BinaryProtocol.DELTA_ORDER | BinaryProtocol.DELTA_REMOVED | BinaryProtocol.DELTA_DEADLINE,
+                r.readVarint(), "The turn stays with the same player.");
+        assertEquals(2, r.readVarint());
+        assertEquals(2, r.readVarint());
+        assertEquals(3, r.readVarint());
+        assertEquals(1, r.readVarint());
+        assertEquals(1, r.readVarint());
+    }
+
+    /**
+     * Binary commands parse to the same commands as their text equivalent
+     */
+    @Test
+    @Timeout(1)
+    public void testParseCommand() {
+        byte[] word = "hello".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer sw = ByteBuffer.allocate(2 + word.length);
+        sw.put(BinaryProtocol.CMD_SEND_WORD).put((byte) word.length).put(word).flip();
+
+        assertEquals(new ClientCommand.SubmitWord(null, "hello"), BinaryProtocol.parseCommand(null, sw));
+        assertEquals(new ClientCommand.Resync(null),
+                BinaryProtocol.parseCommand(null, ByteBuffer.wrap(new byte[]{BinaryProtocol.CMD_RESYNC})));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.parseCommand(null, ByteBuffer.wrap(new byte[]{BinaryProtocol.CMD_CLOCK, 9})));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.parseCommand(null, ByteBuffer.wrap(new byte[]{99})));
+    }
+
+    /**
+     * Compares the size and encoding time of a game tick, a word added and the turn switched,
+     * and of a full state, in both encodings. Parsing a command is timed as well. All paths are
+     * warmed up before being timed
+     */
+    @Test
+    @Timeout(60)
+    public void testBinarySmallerThanText() throws JsonProcessingException {
+        String[] ids = uuids(8);
+        GameDeltaTracker tracker = new GameDeltaTracker();
+        tracker.join(gameData(ids, STORY, 0, 1));
+        ServerResponse.GameDelta tick = tracker.update(gameData(ids, STORY + " Then", 1, 2));
+        assertNotNull(tick);
+        PlayerHandles handles = tracker.handles(7);
+        assertNotNull(handles);
+        ServerResponse.CurrentState full = tracker.latest(7, false);
+        assertNotNull(full);
+
+        int textTick = tick.pack().getBytes(StandardCharsets.UTF_8).length;
+        int binaryTick = BinaryProtocol.encodeDelta(tick, handles).length;
+        int textFull = full.pack().getBytes(StandardCharsets.UTF_8).length;
+        int binaryFull = BinaryProtocol.encodeState(full, handles, 0).length;
+
+        String textCmd = ClientCommand.CMD_SEND_WORD + ClientCommand.SEPARATOR + "Then";
+        byte[] binaryCmd = {BinaryProtocol.CMD_SEND_WORD, 4, 'T', 'h', 'e', 'n'};
+
+        // Warm up
+        for (int i = 0; i < ENCODES; i++) {
+            tick.pack();
+            BinaryProtocol.encodeDelta(tick, handles);
+            ClientCommand.parseCommand(null, textCmd);
+            BinaryProtocol.parseCommand(null, ByteBuffer.wrap(binaryCmd));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ENCODES; i++) {
+            tick.pack();
+        }
+        long textNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ENCODES; i++) {
+            BinaryProtocol.encodeDelta(tick, handles);
+        }
+        long binaryNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ENCODES; i++) {
+            ClientCommand.parseCommand(null, textCmd);
+        }
+        long textParseNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ENCODES; i++) {
+            BinaryProtocol.parseCommand(null, ByteBuffer.wrap(binaryCmd));
+        }
+        long binaryParseNanos = System.nanoTime() - start;
+
+        System.out.println("Tick: text " + textTick + "B " + (textNanos / ENCODES) + "ns/encode, binary " +
+                binaryTick + "B " + (binaryNanos / ENCODES) + "ns/encode; full state: text " + textFull +
+                "B, binary " + binaryFull + "B; command parse: text " + (textParseNanos / ENCODES) +
+                "ns, binary " + (binaryParseNanos / ENCODES) + "ns");
+
+        assertTrue(binaryTick * 4 < textTick, "Binary tick is " + binaryTick + "B, text " + textTick + "B");
+        assertTrue(binaryFull * 2 < textFull, "Binary state is " + binaryFull + "B, text " + textFull + "B");
+    }
+}
@@ -0,0 +1,275 @@
+package net.onewordstory.spring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayDataBuilder;
+import net.onewordstory.spring.bus.MessageBus;
+import net.onewordstory.spring.bus.SocketBroker;
+import net.onewordstory.spring.bus.SocketMessageBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests game states and game ends reaching players on two nodes connected through a SocketBroker,
+ * each running a game with the same game ID
+ */
+public class GameFanoutTests {
+
+    private static final int GAME_ID = 7;
+
+    /**
+     * A node, with its own clients, connected to the broker
+     */
+    private static class Node {
+        final SubscriberIndex index = new SubscriberIndex();
+        final GameDeltaTracker states = new GameDeltaTracker();
+        final MessageBus bus;
+        final GameFanout fanout;
+
+        Node(SocketBroker broker) throws IOException {
+            bus = new SocketMessageBus("localhost", broker.getPort());
+            fanout = new GameFanout(bus, index, states);
+        }
+
+        /**
+         * @param sent records the payloads sent to the player
+         * @return a player of this node who entered this node's game
+         */
+        PlayerState player(String id, List<String> sent) {
+            return player(id, sent, this);
+        }
+
+        /**
+         * @param sent records the payloads sent to the player
+         * @param owner node running the game
+         * @return a player of this node who entered the game of owner
+         */
+        PlayerState player(String id, List<String> sent, Node owner) {
+            WebSocketSession session = (WebSocketSession) Proxy.newProxyInstance(
+                    WebSocketSession.class.getClassLoader(),
+                    new Class<?>[]{WebSocketSession.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "sendMessage" -> {
+                            sent.add(((WebSocketMessage<?>) args[0]).getPayload().toString());
+                            yield null;
+                        }
+                        case "isOpen" -> true;
+                        case "hashCode" -> id.hashCode();
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+            PlayerState p = new PlayerState(id, session, index);
+            p.changeToInGame(owner.fanout.getNodeId(), GAME_ID);
+            fanout.watch(owner.fanout.getNodeId(), GAME_ID);
+            return p;
+        }
+    }
+
+    private static GameDisplayData gameData(String story, long version) {
+        return new GameDisplayDataBuilder()
+                .setGameId(GAME_ID)
+                .setVersion(version)
+                .setStoryString(story)
+                .setSecondsLeftInTurn(15)
+                .addPlayer("a", "Player A", true)
+                .addPlayer("b", "Player B", false)
+                .build();
+    }
+
+    private static void awaitSubscribers(SocketBroker broker, String topic, int count) throws InterruptedException {
+        while (broker.getSubscriberCount(topic) != count) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        while (list.size() < size) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Records the states of a node's game, publishing those after its first one
+     */
+    private static void publishStates(Node node, String... stories) throws JsonProcessingException {
+        for (String story : stories) {
+            publishState(node, story);
+        }
+    }
+
+    /**
+     * Records a new state of a node's game, publishing it unless it is the first one
+     */
+    private static void publishState(Node node, String story) throws JsonProcessingException {
+        GameDisplayData data = gameData(story, story.length());
+        if (node.states.latest(GAME_ID, false) == null) {
+            node.states.join(data);
+            return;
+        }
+        ServerResponse.GameDelta delta = node.states.update(data);
+        assertNotNull(delta);
+        node.fanout.publishGameUpdate(delta, node.states.handles(GAME_ID));
+    }
+
+    /**
+     * Each node's players are sent the states of their own node's game only, without going
+     * through the bus: first the full state, as they lack the previous state, then deltas
+     */
+    @Test
+    @Timeout(5)
+    public void testGameStatesStayOnTheirNode() throws IOException, InterruptedException {
+        try (SocketBroker broker = new SocketBroker(0)) {
+            Node nodeA = new Node(broker);
+            Node nodeB = new Node(broker);
+            List<String> sentA = new CopyOnWriteArrayList<>();
+            List<String> sentB = new CopyOnWriteArrayList<>();
+            nodeA.player("a", sentA);
+            nodeB.player("b", sentB);
+
+            publishStates(nodeA, "Once", "Once upon", "Once upon a");
+            publishStates(nodeB, "It", "It was", "It was a");
+
+            for (List<String> sent : List.of(sentA, sentB)) {
+                awaitSize(sent, 2);
+                assertTrue(sent.get(0).startsWith(ServerResponse.RESPONSE_STATE), sent.get(0));
+                assertTrue(sent.get(1).startsWith(ServerResponse.RESPONSE_DELTA), sent.get(1));
+            }
+            Thread.sleep(50);
+            assertEquals(2, sentA.size(), "A player was sent another node's game.");
+            assertEquals(2, sentB.size(), "A player was sent another node's game.");
+            assertTrue(sentA.get(0).contains("Once upon"), sentA.get(0));
+            assertTrue(sentB.get(0).contains("It was"), sentB.get(0));
+
+            assertEquals(0, nodeA.fanout.getWatchedGameCount());
+            assertEquals(0, nodeA.fanout.getRemotelyWatchedGameCount());
+            assertEquals(0, broker.getSubscriberCount(GameFanout.gameTopic(nodeA.fanout.getNodeId(), GAME_ID)));
+
+            nodeA.bus.close();
+            nodeB.bus.close();
+        }
+    }
+
+    /**
+     * A player who enters the game later lacks the state the next delta applies to, so they
+     * are sent the full state, while the others get the delta
+     */
+    @Test
+    @Timeout(5)
+    public void testMissingStateSent() throws IOException, InterruptedException {
+        try (SocketBroker broker = new SocketBroker(0)) {
+            Node node = new Node(broker);
+            List<String> sentA = new CopyOnWriteArrayList<>();
+            List<String> sentC = new CopyOnWriteArrayList<>();
+            node.player("a", sentA);
+            publishStates(node, "Once", "Once upon", "Once upon a");
+
+            node.player("c", sentC);
+            publishState(node, "Once upon a time");
+
+            awaitSize(sentA, 3);
+            awaitSize(sentC, 1);
+            assertTrue(sentA.get(0).startsWith(ServerResponse.RESPONSE_STATE), sentA.get(0));
+            assertTrue(sentA.get(1).startsWith(ServerResponse.RESPONSE_DELTA), sentA.get(1));
+            assertTrue(sentA.get(2).startsWith(ServerResponse.RESPONSE_DELTA), sentA.get(2));
+            assertTrue(sentC.get(0).startsWith(ServerResponse.RESPONSE_STATE), sentC.get(0));
+            assertTrue(sentC.get(0).contains("Once upon a time"), sentC.get(0));
+
+            Thread.sleep(50);
+            assertEquals(3, sentA.size());
+            assertEquals(1, sentC.size());
+
+            node.bus.close();
+        }
+    }
+
+    /**
+     * A player watching another node's game is sent its full state on request, then its deltas
+     * through the bus. A player of the watching node's own game with the same ID is sent nothing
+     */
+    @Test
+    @Timeout(5)
+    public void testRemoteGameWatched() throws IOException, InterruptedException {
+        try (SocketBroker broker = new SocketBroker(0)) {
+            Node gameNode = new Node(broker);
+            Node otherNode = new Node(broker);
+            List<String> sentB = new CopyOnWriteArrayList<>();
+            List<String> sentC = new CopyOnWriteArrayList<>();
+            otherNode.player("c", sentC);
+            publishState(gameNode, "Once");
+
+            otherNode.player("b", sentB, gameNode);
+            awaitSize(sentB, 1);
+            assertTrue(sentB.get(0).startsWith(ServerResponse.RESPONSE_STATE), sentB.get(0));
+            assertTrue(sentB.get(0).contains("Once"), sentB.get(0));
+            assertEquals(1, gameNode.fanout.getRemotelyWatchedGameCount());
+            assertEquals(1, otherNode.fanout.getWatchedGameCount());
+
+            publishState(gameNode, "Once upon");
+            awaitSize(sentB, 2);
+            assertTrue(sentB.get(1).startsWith(ServerResponse.RESPONSE_DELTA), sentB.get(1));
+
+            Thread.sleep(50);
+            assertEquals(2, sentB.size());
+            assertEquals(List.of(), sentC, "A player was sent another node's game with the same ID.");
+
+            gameNode.bus.close();
+            otherNode.bus.close();
+        }
+    }
+
+    /**
+     * A game end reaches the players of the node running the game, and those of a node watching
+     * it, which stops listening to it. A game with the same ID on the watching node is untouched
+     */
+    @Test
+    @Timeout(5)
+    public void testGameEndReachesPlayersOnEveryNode() throws IOException, InterruptedException {
+        try (SocketBroker broker = new SocketBroker(0)) {
+            Node gameNode = new Node(broker);
+            Node otherNode = new Node(broker);
+            List<String> sentA = new CopyOnWriteArrayList<>();
+            List<String> sentB = new CopyOnWriteArrayList<>();
+            List<String> sentC = new CopyOnWriteArrayList<>();
+            PlayerState a = gameNode.player("a", sentA);
+            PlayerState c = otherNode.player("c", sentC);
+            publishState(gameNode, "Once");
+            awaitSubscribers(broker, GameFanout.GAME_END_TOPIC, 2);
+
+            PlayerState b = otherNode.player("b", sentB, gameNode);
+            String topic = GameFanout.gameTopic(gameNode.fanout.getNodeId(), GAME_ID);
+            awaitSize(sentB, 1);
+            assertEquals(1, broker.getSubscriberCount(topic));
+
+            gameNode.states.forget(GAME_ID);
+            gameNode.fanout.publishGameEnd(GAME_ID, Map.of("a", "PGE:out:a", "b", "PGE:out:b"));
+
+            awaitSubscribers(broker, topic, 0);
+            awaitSize(sentB, 2);
+            assertEquals(List.of("PGE:out:a"), sentA);
+            assertEquals("PGE:out:b", sentB.get(1));
+            assertEquals(PlayerState.State.DISCONNECTED, a.state());
+            assertEquals(PlayerState.State.DISCONNECTED, b.state());
+            assertEquals(0, gameNode.fanout.getRemotelyWatchedGameCount());
+            assertEquals(0, otherNode.fanout.getWatchedGameCount());
+
+            Thread.sleep(50);
+            assertEquals(List.of(), sentC, "Another node's game end reached a game with the same ID.");
+            assertEquals(PlayerState.State.IN_GAME, c.state());
+
+            gameNode.bus.close();
+            otherNode.bus.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package net.onewordstory.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundQueueTests {
+
+    /**
+     * Session which records what it is sent and closed with. Sending waits until
+     * the gate is opened, like a client which does not read
+     */
+    private static class TestSession {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch gate;
+        final CountDownLatch firstSendStarted = new CountDownLatch(1);
+        volatile CloseStatus closedWith;
+        final WebSocketSession session;
+
+        TestSession(boolean isBlocked) {
+            gate = new CountDownLatch(isBlocked ? 1 : 0);
+            session = (WebSocketSession) Proxy.newProxyInstance(
+                    WebSocketSession.class.getClassLoader(),
+                    new Class<?>[]{WebSocketSession.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> "test";
+                        case "sendMessage" -> {
+                            firstSendStarted.countDown();
+                            gate.await();
+                            sent.add(((WebSocketMessage<?>) args[0]).getPayload().toString());
+                            yield null;
+                        }
+                        case "close" -> {
+                            closedWith = args == null ? CloseStatus.NORMAL : (CloseStatus) args[0];
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+    }
+
+    private static TextMessage msg(String s) {
+        return new TextMessage(s);
+    }
+
+    /**
+     * Messages are sent in the order they were offered
+     */
+    @Test
+    @Timeout(1)
+    public void testOrderPreserved() {
+        TestSession s = new TestSession(false);
+        OutboundQueue q = new OutboundQueue(s.session, Runnable::run, 8, new OutboundQueue.Metrics());
+
+        q.offer(msg("a"));
+        q.offerFullState(0, msg("full0"));
+        q.offerGameUpdate(1, msg("delta1"), msg("full1"));
+        q.offer(msg("b"));
+        q.offerGameUpdate(2, msg("delta2"), msg("full2"));
+
+        assertEquals(List.of("a", "full0", "delta1", "b", "delta2"), s.sent);
+        assertEquals(0, q.getDepth());
+    }
+
+    /**
+     * A delta alone is only queued if the client will have the state before it and no state
+     * waits to be sent, otherwise the client needs the full state
+     */
+    @Test
+    @Timeout(2)
+    public void testDeltaOnlyQueuedOnTopOfPreviousState() throws InterruptedException {
+        TestSession s = new TestSession(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        OutboundQueue q = new OutboundQueue(s.session, executor, 8, new OutboundQueue.Metrics());
+
+        assertFalse(q.offerGameDelta(1, msg("delta1")), "The client has no state yet.");
+        q.offerFullState(1, msg("full1"));
+        assertTrue(s.firstSendStarted.await(1, TimeUnit.SECONDS));
+
+        assertTrue(q.offerGameDelta(2, msg("delta2")));
+        assertFalse(q.offerGameDelta(3, msg("delta3")), "State 2 waits to be sent.");
+        assertFalse(q.offerGameDelta(4, msg("delta4")), "The client lacks state 3.");
+        assertTrue(q.offerGameDelta(2, msg("delta2")), "The client has state 2 already.");
+
+        // The full state takes the place of the waiting delta
+        assertTrue(q.offerGameUpdate(4, null, msg("full4")));
+        assertEquals(1, q.getDepth());
+
+        s.gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(List.of("full1", "full4"), s.sent);
+    }
+
+    /**
+     * While the client is stuck, offering never blocks and game states waiting to be sent are
+     * replaced by newer ones. The client then skipped states, so it is sent the full state
+     */
+    @Test
+    @Timeout(2)
+    public void testStatesCoalesceWhileClientIsStuck() throws InterruptedException {
+        TestSession s = new TestSession(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        OutboundQueue.Metrics metrics = new OutboundQueue.Metrics();
+        OutboundQueue q = new OutboundQueue(s.session, executor, 8, metrics);
+
+        q.offerFullState(0, msg("full0"));
+        assertTrue(s.firstSendStarted.await(1, TimeUnit.SECONDS));
+
+        // The sending thread is stuck on full0, yet none of these block
+        for (int i = 1; i <= 100; i++) {
+            assertTrue(q.offerGameUpdate(i, msg("delta" + i), msg("full" + i)));
+        }
+        assertFalse(q.offerGameUpdate(50, msg("delta50"), msg("full50")), "An older state must not be queued.");
+        assertEquals(1, q.getDepth());
+        assertEquals(1, metrics.getDepth());
+        assertEquals(99, metrics.getCoalescedCount());
+
+        s.gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(List.of("full0", "full100"), s.sent);
+        assertEquals(0, metrics.getDepth());
+        assertFalse(q.isDropped());
+    }
+
+    /**
+     * A client whose queue fills up is dropped and its session closed, while other clients
+     * sharing the executor are unaffected
+     */
+    @Test
+    @Timeout(2)
+    public void testSlowClientDropped() throws InterruptedException {
+        TestSession slow = new TestSession(true);
+        TestSession fast = new TestSession(false);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        OutboundQueue.Metrics metrics = new OutboundQueue.Metrics();
+        OutboundQueue slowQ = new OutboundQueue(slow.session, executor, 4, metrics);
+        OutboundQueue fastQ = new OutboundQueue(fast.session, executor, 4, metrics);
+
+        slowQ.offer(msg("stuck"));
+        assertTrue(slow.firstSendStarted.await(1, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(slowQ.offer(msg("m" + i)));
+        }
+        assertEquals(4, metrics.getMaxDepth());
+        assertFalse(slowQ.offer(msg("overflow")));
+        assertTrue(slowQ.isDropped());
+        assertFalse(slowQ.offer(msg("after")), "A dropped client should refuse messages.");
+        assertEquals(0, slowQ.getDepth());
+        assertEquals(1, metrics.getDroppedCount());
+
+        assertTrue(fastQ.offer(msg("hi")));
+
+        slow.gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, slow.closedWith);
+        assertEquals(List.of("stuck"), slow.sent);
+        assertEquals(List.of("hi"), fast.sent);
+        assertNull(fast.closedWith);
+        assertEquals(0, metrics.getDepth());
+    }
+}
@@ -0,0 +1,103 @@
+package net.onewordstory.spring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayDataBuilder;
+import net.onewordstory.core.usecases.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.socket.TextMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the packing of server responses through the shared ResponseWriters
+ */
+public class ServerResponseTests {
+
+    private static final int PACKS = 5000;
+
+    /**
+     * @param players amount of players in the game
+     * @return display data of a game in progress
+     */
+    private static GameDisplayData gameData(int players) {
+        GameDisplayDataBuilder builder = new GameDisplayDataBuilder()
+                .setGameId(7)
+                .setVersion(42)
+                .setStoryString("Once upon a time there was a story which was written one word at a time.")
+                .setSecondsLeftInTurn(12)
+                .setTurnDeadlineMillis(123456);
+        for (int i = 0; i < players; i++) {
+            builder.addPlayer("id" + i, "Player " + i, i == 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The packing path before ResponseWriters: a new ObjectMapper for each pack
+     * @param state response to pack
+     * @return the packed payload
+     */
+    private static String packWithNewMapper(ServerResponse.CurrentState state) throws JsonProcessingException {
+        return ServerResponse.RESPONSE_STATE + ServerResponse.SEPARATOR +
+                (new ObjectMapper()).writeValueAsString(state.data()) + ServerResponse.SEPARATOR +
+                state.isInitialJPLState().toString() + ServerResponse.SEPARATOR + state.seq();
+    }
+
+    /**
+     * Packing with the shared writers gives the same payloads as a new ObjectMapper
+     */
+    @Test
+    @Timeout(5)
+    public void testPackMatchesNewMapper() throws JsonProcessingException {
+        ServerResponse.CurrentState state = new ServerResponse.CurrentState(gameData(8), false, 3, true, null);
+        assertEquals(packWithNewMapper(state), state.pack());
+
+        Response res = new Response(Response.ResCode.SUCCESS, "Word added");
+        assertEquals(ServerResponse.RESPONSE_SUBMIT_WORD + ServerResponse.SEPARATOR +
+                        (new ObjectMapper()).writeValueAsString(res),
+                new ServerResponse.SubmitWordResponse(res, false, null).pack());
+
+        TextMessage frame = state.frame();
+        assertEquals(state.pack(), frame.getPayload());
+    }
+
+    /**
+     * Compares the time to pack a game state for a broadcast with a new ObjectMapper against
+     * the shared writers. Both paths are warmed up before being timed
+     */
+    @Test
+    @Timeout(60)
+    public void testSharedWritersFasterThanNewMapper() throws JsonProcessingException {
+        ServerResponse.CurrentState state = new ServerResponse.CurrentState(gameData(8), false, 3, true, null);
+
+        // Warm up
+        for (int i = 0; i < PACKS; i++) {
+            packWithNewMapper(state);
+            state.pack();
+        }
+
+        long start = System.nanoTime();
+        int newMapperLength = 0;
+        for (int i = 0; i < PACKS; i++) {
+            newMapperLength += packWithNewMapper(state).length();
+        }
+        long newMapperNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int sharedLength = 0;
+        for (int i = 0; i < PACKS; i++) {
+            sharedLength += state.pack().length();
+        }
+        long sharedNanos = System.nanoTime() - start;
+
+        System.out.println("New ObjectMapper: " + (newMapperNanos / PACKS) + "ns/pack, " +
+                "shared writers: " + (sharedNanos / PACKS) + "ns/pack");
+
+        assertEquals(newMapperLength, sharedLength);
+        assertTrue(sharedNanos < newMapperNanos,
+                "Shared writers took " + sharedNanos + "ns, new mappers " + newMapperNanos + "ns");
+    }
+}
@@ -0,0 +1,423 @@
+package net.onewordstory.spring;
+
+import net.onewordstory.core.adapters.controllers.DcController;
+import net.onewordstory.core.adapters.controllers.JplController;
+import net.onewordstory.core.adapters.controllers.SwController;
+import net.onewordstory.core.adapters.display_data.GameEndPlayerDisplayData;
+import net.onewordstory.core.adapters.display_data.not_ended_display_data.GameDisplayDataBuilder;
+import net.onewordstory.core.adapters.view_models.PdViewModel;
+import net.onewordstory.core.adapters.view_models.PgeViewModel;
+import net.onewordstory.core.usecases.Response;
+import net.onewordstory.core.usecases.disconnecting.DcOutputBoundary;
+import net.onewordstory.core.usecases.submit_word.SwOutputBoundary;
+import net.onewordstory.core.util.RecursiveSymboledIntegerHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that SocketTextHandler returns to the websocket container without waiting for use cases,
+ * and sends the responses once the use cases respond
+ */
+public class SocketTextHandlerTests {
+
+    /**
+     * Presenters of the SW and DC calls which were made, which the test responds to later
+     */
+    private final Queue<SwOutputBoundary> swPresenters = new ConcurrentLinkedQueue<>();
+    private final Map<String, DcOutputBoundary> dcPresenters = new ConcurrentHashMap<>();
+
+    private SocketTextHandler handler() {
+        return handler(new PgeViewModel());
+    }
+
+    private SocketTextHandler handler(PgeViewModel pgeViewM) {
+        return new SocketTextHandler(new PdViewModel(), pgeViewM,
+                new DcController((data, pres) -> dcPresenters.put(data.getPlayerId(), pres)),
+                new JplController((data, pres) -> {}),
+                new SwController((data, pres) -> swPresenters.add(pres)));
+    }
+
+    /**
+     * @param sent counted down once for each message sent to the session
+     * @return session which counts the messages sent to it
+     */
+    private static WebSocketSession session(CountDownLatch sent) {
+        String id = UUID.randomUUID().toString();
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "sendMessage" -> {
+                        if (((WebSocketMessage<?>) args[0]).getPayload().toString()
+                                .startsWith(ServerResponse.RESPONSE_SUBMIT_WORD)) {
+                            sent.countDown();
+                        }
+                        yield null;
+                    }
+                    case "isOpen" -> true;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    /**
+     * @param uri URI the session connected with
+     * @param sent records the text payloads sent to the session
+     * @return session which records what it is sent
+     */
+    private static WebSocketSession session(URI uri, List<String> sent) {
+        String id = UUID.randomUUID().toString();
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "getUri" -> uri;
+                    case "sendMessage" -> {
+                        sent.add(args[0] instanceof PingMessage ? "ping" :
+                                ((WebSocketMessage<?>) args[0]).getPayload().toString());
+                        yield null;
+                    }
+                    case "isOpen" -> true;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    /**
+     * Connects a client which gets into the pool
+     * @return the client's player
+     */
+    private static PlayerState connectInPool(SocketTextHandler handler, WebSocketSession session) {
+        handler.afterConnectionEstablished(session);
+        PlayerState p = handler.getPlayerState(session);
+        p.changeToInPool(null, "Flaky");
+        return p;
+    }
+
+    private static void awaitSent(List<String> sent, String prefix) throws InterruptedException {
+        while (sent.stream().noneMatch(m -> m.startsWith(prefix))) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Many clients submit words at once from a single container thread. Each call returns while
+     * its use case is still pending, and each client is sent its response once the use case responds
+     */
+    @Test
+    @Timeout(10)
+    public void testCommandsDoNotWaitForUseCases() {
+        int clients = 2000;
+        SocketTextHandler handler = handler();
+        CountDownLatch sent = new CountDownLatch(clients);
+        WebSocketSession[] sessions = new WebSocketSession[clients];
+
+        for (int i = 0; i < clients; i++) {
+            sessions[i] = session(sent);
+            handler.afterConnectionEstablished(sessions[i]);
+            handler.handleTextMessage(sessions[i],
+                    new TextMessage(ClientCommand.CMD_SEND_WORD + ClientCommand.SEPARATOR + "word"));
+        }
+
+        assertEquals(clients, swPresenters.size(), "Every use case should have been started.");
+        assertEquals(clients, sent.getCount(), "No use case has responded, so nothing should be sent.");
+
+        // The use cases respond
+        swPresenters.forEach(SwOutputBoundary::outputShutdownServer);
+        assertDoesNotThrow(() -> assertTrue(sent.await(5, TimeUnit.SECONDS)));
+
+        for (WebSocketSession s : sessions) {
+            handler.afterConnectionClosed(s, CloseStatus.NORMAL);
+        }
+        dcPresenters.values().forEach(DcOutputBoundary::outputShutdownServer);
+    }
+
+    /**
+     * A client spamming words only gets its burst through to SW. The rest are rejected
+     * without calling SW, and counted. Only the first rejection is answered, so the client
+     * isn't dropped for filling its outbound queue with rejections
+     */
+    @Test
+    @Timeout(5)
+    public void testSubmitWordSpamThrottled() throws InterruptedException {
+        int spam = 100;
+        SocketTextHandler handler = handler();
+        List<String> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session(URI.create("ws://localhost/game"), sent);
+        handler.afterConnectionEstablished(session);
+        PlayerState p = handler.getPlayerState(session);
+
+        for (int i = 0; i < spam; i++) {
+            handler.handleTextMessage(session,
+                    new TextMessage(ClientCommand.CMD_SEND_WORD + ClientCommand.SEPARATOR + "spam"));
+        }
+
+        // The burst may grow by a token if the loop ran slowly
+        int admitted = swPresenters.size();
+        assertTrue(admitted >= PlayerState.SW_BURST && admitted <= PlayerState.SW_BURST + 1,
+                admitted + " words reached SW");
+        assertEquals(spam - admitted, handler.getThrottledSubmitWordCount());
+
+        swPresenters.forEach(SwOutputBoundary::outputShutdownServer);
+        // The admitted words, and a rejection per refill window the loop took
+        while (sent.stream().filter(m -> m.startsWith(ServerResponse.RESPONSE_SUBMIT_WORD)).count() < admitted + 1) {
+            Thread.sleep(5);
+        }
+        long rejections = sent.stream().filter(m -> m.contains(Response.ResCode.RATE_LIMITED.name())).count();
+        assertTrue(rejections >= 1 && rejections <= 2, rejections + " rejections were answered");
+        assertFalse(p.isDropped(), "The client should be throttled, not dropped.");
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        dcPresenters.values().forEach(DcOutputBoundary::outputShutdownServer);
+    }
+
+    /**
+     * A client's disconnect returns while DC is pending. The client is only removed once DC responds
+     */
+    @Test
+    @Timeout(5)
+    public void testDisconnectDoesNotWaitForUseCase() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        WebSocketSession session = session(new CountDownLatch(1));
+        handler.afterConnectionEstablished(session);
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        assertEquals(1, dcPresenters.size());
+        String playerId = dcPresenters.keySet().iterator().next();
+        assertNotNull(handler.subscribers.byPlayerId(playerId), "DC has not responded yet.");
+
+        dcPresenters.get(playerId).outputShutdownServer();
+        while (handler.subscribers.byPlayerId(playerId) != null) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A client whose DC never responds is still removed once DC times out
+     */
+    @Test
+    @Timeout(5)
+    public void testDisconnectRemovesClientWhenUseCaseTimesOut() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        handler.useCaseTimeoutMillis = 50;
+        WebSocketSession session = session(new CountDownLatch(1));
+        handler.afterConnectionEstablished(session);
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        String playerId = dcPresenters.keySet().iterator().next();
+        while (handler.subscribers.byPlayerId(playerId) != null) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A client whose connection drops reconnects with its resume token within the grace period.
+     * It continues as the same player, without DC being called, and is sent what was sent to
+     * the player while it was away
+     */
+    @Test
+    @Timeout(5)
+    public void testResumeWithinGrace() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        List<String> firstSent = new CopyOnWriteArrayList<>();
+        WebSocketSession lost = session(URI.create("ws://localhost/game"), firstSent);
+        PlayerState p = connectInPool(handler, lost);
+        awaitSent(firstSent, ServerResponse.RESPONSE_SESSION + ServerResponse.SEPARATOR + p.resumeToken());
+
+        handler.afterConnectionClosed(lost, CloseStatus.NO_CLOSE_FRAME);
+        assertEquals(1, handler.getHeldPlayerCount());
+        assertTrue(p.sendMessage("while away"));
+
+        List<String> secondSent = new CopyOnWriteArrayList<>();
+        handler.afterConnectionEstablished(session(
+                URI.create("ws://localhost/game?resume=" + p.resumeToken()), secondSent));
+        awaitSent(secondSent, ServerResponse.RESPONSE_SESSION);
+
+        assertEquals(List.of("while away",
+                ServerResponse.RESPONSE_SESSION + ServerResponse.SEPARATOR + p.resumeToken() +
+                        ServerResponse.SEPARATOR + "true"), secondSent);
+        assertEquals(0, handler.getHeldPlayerCount());
+        assertTrue(dcPresenters.isEmpty(), "The player should not have been disconnected.");
+        assertSame(p, handler.subscribers.byPlayerId(p.playerId()));
+        assertEquals(PlayerState.State.IN_POOL, p.state());
+    }
+
+    /**
+     * A client which doesn't come back within the grace period is disconnected, and its token
+     * no longer resumes the player
+     */
+    @Test
+    @Timeout(5)
+    public void testHeldPlayerDisconnectedAfterGrace() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        handler.resumeGraceMillis = 50;
+        List<String> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session(URI.create("ws://localhost/game"), sent);
+        PlayerState p = connectInPool(handler, session);
+
+        handler.afterConnectionClosed(session, CloseStatus.NO_CLOSE_FRAME);
+        while (dcPresenters.isEmpty()) {
+            Thread.sleep(5);
+        }
+        assertTrue(dcPresenters.containsKey(p.playerId()));
+        assertEquals(0, handler.getHeldPlayerCount());
+        dcPresenters.get(p.playerId()).outputShutdownServer();
+
+        List<String> lateSent = new CopyOnWriteArrayList<>();
+        handler.afterConnectionEstablished(session(
+                URI.create("ws://localhost/game?resume=" + p.resumeToken()), lateSent));
+        awaitSent(lateSent, ServerResponse.RESPONSE_SESSION);
+        assertTrue(lateSent.get(0).endsWith(ServerResponse.SEPARATOR + "false"), "A new player should connect.");
+    }
+
+    /**
+     * A client dropped for not keeping up can't resume, so it is disconnected at once when its
+     * session closes instead of having its seat held
+     */
+    @Test
+    @Timeout(5)
+    public void testDroppedClientNotHeld() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        CountDownLatch gate = new CountDownLatch(1);
+        String id = UUID.randomUUID().toString();
+        WebSocketSession stuck = (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "getUri" -> URI.create("ws://localhost/game");
+                    case "sendMessage" -> {
+                        gate.await();
+                        yield null;
+                    }
+                    case "isOpen" -> true;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+        PlayerState p = connectInPool(handler, stuck);
+
+        for (int i = 0; i <= OutboundQueue.DEFAULT_CAPACITY && !p.isDropped(); i++) {
+            p.sendMessage("backlog");
+        }
+        assertTrue(p.isDropped());
+
+        handler.afterConnectionClosed(stuck, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, handler.getHeldPlayerCount());
+        assertTrue(dcPresenters.containsKey(p.playerId()));
+
+        gate.countDown();
+        dcPresenters.values().forEach(DcOutputBoundary::outputShutdownServer);
+    }
+
+    /**
+     * Live clients are pinged. A client not heard from within the idle timeout is reaped: its
+     * session is removed and DC is called once, even when its connection closes after
+     */
+    @Test
+    @Timeout(5)
+    public void testIdleSessionReaped() throws InterruptedException {
+        SocketTextHandler handler = handler();
+        List<String> liveSent = new CopyOnWriteArrayList<>();
+        List<String> deadSent = new CopyOnWriteArrayList<>();
+        WebSocketSession live = session(URI.create("ws://localhost/game"), liveSent);
+        WebSocketSession dead = session(URI.create("ws://localhost/game"), deadSent);
+        handler.afterConnectionEstablished(live);
+        PlayerState alive = handler.getPlayerState(live);
+        handler.afterConnectionEstablished(dead);
+        assertEquals(2, handler.getLiveSessionCount());
+
+        alive.markSeen(0);
+        handler.handlePongMessage(live, new PongMessage());
+        assertNotEquals(0, alive.lastSeenNanos(), "A pong should mark the client seen.");
+
+        // Only the live client is heard from by the time of the heartbeat
+        long later = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SocketTextHandler.IDLE_TIMEOUT_MILLIS + 1000);
+        alive.markSeen(later);
+        handler.heartbeat(later);
+        assertEquals(1, handler.getReapedSessionCount());
+        assertEquals(1, handler.getLiveSessionCount());
+        assertEquals(1, dcPresenters.size());
+        assertFalse(dcPresenters.containsKey(alive.playerId()));
+
+        // The dead connection finally closes, which must not call DC again
+        handler.afterConnectionClosed(live, CloseStatus.NORMAL);
+        handler.afterConnectionClosed(dead, CloseStatus.NORMAL);
+        assertEquals(2, dcPresenters.size());
+        awaitSent(liveSent, "ping");
+        dcPresenters.values().forEach(DcOutputBoundary::outputShutdownServer);
+    }
+
+    /**
+     * A game which ends after all its players disconnected is no longer tracked, though there
+     * is nobody on this node to tell it ended
+     */
+    @Test
+    @Timeout(5)
+    public void testEndedGameForgottenWithoutPlayers() {
+        PgeViewModel pgeViewM = new PgeViewModel();
+        SocketTextHandler handler = handler(pgeViewM);
+        handler.gameDeltas.join(new GameDisplayDataBuilder()
+                .setGameId(3)
+                .setVersion(1)
+                .setStoryString("Once")
+                .setSecondsLeftInTurn(15)
+                .addPlayer("gone", "Gone", true)
+                .build());
+        assertEquals(1, handler.gameDeltas.getTrackedGameCount());
+
+        pgeViewM.setEndGameData(3, Map.of("gone", new GameEndPlayerDisplayData("gone", "Gone",
+                new RecursiveSymboledIntegerHashMap[0])));
+
+        assertEquals(0, handler.gameDeltas.getTrackedGameCount());
+        assertEquals(0, handler.fanout.getWatchedGameCount());
+    }
+
+    /**
+     * A player added to a game just before it ended, whose join is recorded after the
+     * game was forgotten, doesn't start tracking the game again
+     */
+    @Test
+    @Timeout(5)
+    public void testLateJoinOfEndedGameNotTracked() {
+        PgeViewModel pgeViewM = new PgeViewModel();
+        SocketTextHandler handler = handler(pgeViewM);
+        pgeViewM.setEndGameData(4, Map.of());
+        assertEquals(0, handler.gameDeltas.getTrackedGameCount());
+
+        assertNull(handler.gameDeltas.join(new GameDisplayDataBuilder()
+                .setGameId(4)
+                .setVersion(1)
+                .setStoryString("Once")
+                .setSecondsLeftInTurn(15)
+                .addPlayer("late", "Late", true)
+                .build()));
+
+        assertEquals(0, handler.gameDeltas.getTrackedGameCount());
+        assertNull(handler.gameDeltas.handles(4));
+    }
+}
@@ -0,0 +1,127 @@
+package net.onewordstory.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that PlayerState transitions keep the SubscriberIndex up to date. No messages are
+ * sent, so the clients need no socket session
+ */
+public class SubscriberIndexTests {
+
+    /**
+     * Clients are listed under their player ID and, once in a game, under that game only
+     */
+    @Test
+    @Timeout(1)
+    public void testTransitionsMoveClients() {
+        SubscriberIndex index = new SubscriberIndex();
+        PlayerState a = new PlayerState("a", null, index);
+        PlayerState b = new PlayerState("b", null, index);
+        PlayerState c = new PlayerState("c", null, index);
+
+        assertSame(b, index.byPlayerId("b"));
+        assertEquals(0, index.getGameCount());
+
+        a.changeToInPool(null, "Ann");
+        b.changeToInPool(null, "Bob");
+        c.changeToRejected();
+        assertEquals(0, index.getGameCount(), "Clients not in a game should be in no game's set");
+
+        a.changeToInGame("n", 1);
+        b.changeToInGame("n", 2);
+        assertEquals(Set.of(a), Set.copyOf(index.inGame("n", 1)));
+        assertEquals(Set.of(b), Set.copyOf(index.inGame("n", 2)));
+        assertEquals(2, index.getGameCount());
+
+        a.changeToDisconnected();
+        assertTrue(index.inGame("n", 1).isEmpty());
+        assertEquals(1, index.getGameCount(), "Empty games should be dropped");
+        assertSame(a, index.byPlayerId("a"));
+    }
+
+    /**
+     * Games with the same ID on different nodes are different games
+     */
+    @Test
+    @Timeout(1)
+    public void testGamesOfNodesKeptApart() {
+        SubscriberIndex index = new SubscriberIndex();
+        PlayerState a = new PlayerState("a", null, index);
+        PlayerState b = new PlayerState("b", null, index);
+        a.changeToInGame("n", 1);
+        b.changeToInGame("m", 1);
+
+        assertEquals(Set.of(a), Set.copyOf(index.inGame("n", 1)));
+        assertEquals(Set.of(b), Set.copyOf(index.inGame("m", 1)));
+        assertTrue(a.isInGame("n", 1));
+        assertFalse(a.isInGame("m", 1));
+        assertEquals(2, index.getGameCount());
+    }
+
+    /**
+     * An unsubscribed client is gone from the index, and later transitions do not add it back
+     */
+    @Test
+    @Timeout(1)
+    public void testUnsubscribeRemovesClient() {
+        SubscriberIndex index = new SubscriberIndex();
+        PlayerState a = new PlayerState("a", null, index);
+        a.changeToInPool(null, "Ann");
+        a.changeToInGame("n", 5);
+
+        a.unsubscribe();
+        assertTrue(index.inGame("n", 5).isEmpty());
+        assertNull(index.byPlayerId("a"));
+
+        a.changeToInGame("n", 6);
+        assertTrue(index.inGame("n", 6).isEmpty());
+        assertNull(index.byPlayerId("a"));
+        assertEquals(0, index.getGameCount());
+    }
+
+    /**
+     * Many clients joining and leaving the same game from several threads leave
+     * the index consistent
+     */
+    @Test
+    @Timeout(10)
+    public void testConcurrentJoinsAndLeaves() throws InterruptedException {
+        SubscriberIndex index = new SubscriberIndex();
+        int threads = 4;
+        int perThread = 2000;
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    PlayerState p = new PlayerState("p" + (offset + i), null, index);
+                    p.changeToInPool(null, "name");
+                    p.changeToInGame("n", 0);
+                    // Every other client leaves again
+                    if (i % 2 == 0) {
+                        p.unsubscribe();
+                    }
+                }
+            }));
+        }
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertEquals(threads * perThread / 2, index.inGame("n", 0).size());
+        for (int i = 0; i < threads * perThread; i++) {
+            assertEquals(i % perThread % 2 != 0, index.byPlayerId("p" + i) != null);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.onewordstory.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * A full bucket admits a burst of its capacity, then refills at its rate
+     */
+    @Test
+    @Timeout(1)
+    public void testBurstThenRefill() {
+        TokenBucket bucket = new TokenBucket(3, 2, 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0), "The burst is used up.");
+
+        assertFalse(bucket.tryAcquire(SECOND / 4), "Half a token was refilled.");
+        assertTrue(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.tryAcquire(SECOND / 2));
+    }
+
+    /**
+     * An idle bucket refills up to its capacity only
+     */
+    @Test
+    @Timeout(1)
+    public void testRefillCappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 10, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+
+        long later = 60 * SECOND;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    /**
+     * Only the first rejection in each refill window is reported
+     */
+    @Test
+    @Timeout(1)
+    public void testRejectionReportedOncePerWindow() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+
+        assertTrue(bucket.tryReportRejection(0));
+        assertFalse(bucket.tryReportRejection(0));
+        assertFalse(bucket.tryReportRejection(SECOND / 4), "Half a window has passed.");
+        assertTrue(bucket.tryReportRejection(SECOND / 2));
+        assertFalse(bucket.tryReportRejection(SECOND / 2));
+    }
+}
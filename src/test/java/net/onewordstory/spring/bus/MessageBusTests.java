@@ -0,0 +1,126 @@
+package net.onewordstory.spring.bus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBusTests {
+
+    private static void awaitSubscribers(SocketBroker broker, String topic, int count) throws InterruptedException {
+        while (broker.getSubscriberCount(topic) != count) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Messages reach the listeners of their topic only, until the listeners cancel
+     */
+    @Test
+    @Timeout(1)
+    public void testInMemoryDelivery() {
+        InMemoryMessageBus bus = new InMemoryMessageBus();
+        List<String> a = new CopyOnWriteArrayList<>();
+        List<String> b = new CopyOnWriteArrayList<>();
+
+        MessageBus.Subscription subA = bus.subscribe("t", m -> a.add(new String(m)));
+        bus.subscribe("t", m -> b.add(new String(m)));
+        bus.subscribe("other", m -> fail("Published to another topic"));
+
+        bus.publish("t", "one".getBytes());
+        subA.cancel();
+        bus.publish("t", "two".getBytes());
+        bus.publish("none", "three".getBytes());
+
+        assertEquals(List.of("one"), a);
+        assertEquals(List.of("one", "two"), b);
+    }
+
+    /**
+     * A message published by one node reaches every node subscribed to its topic in order: the
+     * publisher directly, the others through the broker, which doesn't echo it back. A node is
+     * unsubscribed at the broker once its last listener cancels
+     */
+    @Test
+    @Timeout(5)
+    public void testSocketBrokerFanout() throws IOException, InterruptedException {
+        int messages = 100;
+        try (SocketBroker broker = new SocketBroker(0);
+             SocketMessageBus nodeA = new SocketMessageBus("localhost", broker.getPort());
+             SocketMessageBus nodeB = new SocketMessageBus("localhost", broker.getPort())) {
+
+            List<String> atA = new CopyOnWriteArrayList<>();
+            List<String> atB = new CopyOnWriteArrayList<>();
+            CountDownLatch received = new CountDownLatch(2 * messages);
+
+            MessageBus.Subscription subA = nodeA.subscribe("game.1", m -> {
+                atA.add(new String(m));
+                received.countDown();
+            });
+            nodeB.subscribe("game.1", m -> {
+                atB.add(new String(m));
+                received.countDown();
+            });
+            awaitSubscribers(broker, "game.1", 2);
+
+            for (int i = 0; i < messages; i++) {
+                nodeA.publish("game.1", Integer.toString(i).getBytes());
+            }
+            assertTrue(received.await(3, TimeUnit.SECONDS));
+
+            // An echo from the broker would arrive about as late as the messages to node B
+            Thread.sleep(50);
+            assertEquals(messages, atA.size(), "The broker echoed messages to their publisher.");
+            assertEquals(atA, atB);
+            assertEquals("0", atA.get(0));
+            assertEquals(Integer.toString(messages - 1), atA.get(messages - 1));
+
+            subA.cancel();
+            awaitSubscribers(broker, "game.1", 1);
+        }
+    }
+
+    /**
+     * While the broker is down, a node's messages still reach its own listeners. Once the broker
+     * is back, the nodes reconnect on their own, subscribe again, and messages flow between them
+     */
+    @Test
+    @Timeout(5)
+    public void testSocketBusReconnects() throws IOException, InterruptedException {
+        SocketBroker broker = new SocketBroker(0);
+        int port = broker.getPort();
+        try (SocketMessageBus nodeA = new SocketMessageBus("localhost", port);
+             SocketMessageBus nodeB = new SocketMessageBus("localhost", port)) {
+
+            List<String> atA = new CopyOnWriteArrayList<>();
+            List<String> atB = new CopyOnWriteArrayList<>();
+            nodeA.subscribe("t", m -> atA.add(new String(m)));
+            nodeB.subscribe("t", m -> atB.add(new String(m)));
+            awaitSubscribers(broker, "t", 2);
+
+            broker.close();
+            while (nodeA.isConnected() || nodeB.isConnected()) {
+                Thread.sleep(5);
+            }
+            nodeA.publish("t", "down".getBytes());
+            assertEquals(List.of("down"), atA);
+
+            try (SocketBroker restarted = new SocketBroker(port)) {
+                awaitSubscribers(restarted, "t", 2);
+
+                nodeA.publish("t", "up".getBytes());
+                while (atB.isEmpty()) {
+                    Thread.sleep(5);
+                }
+                assertEquals(List.of("up"), atB);
+                assertEquals(List.of("down", "up"), atA);
+            }
+        }
+    }
+}